@@ -23,7 +23,6 @@ package jolie.net;
 import jolie.net.ports.OutputPort;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.Map;
 import javax.bluetooth.BTL2CapHelper;
@@ -71,11 +70,9 @@ public class BTL2CapChannelFactory extends CommChannelFactory {
 		try {
 			String connectionURL = BTL2CapHelper.getConnectionURL( uri, this );
 			L2CAPConnection conn = (L2CAPConnection) Connector.open( connectionURL );
-			return new BTL2CapCommChannel( conn, uri, port.getProtocol() );
+			return new BTL2CapCommChannel( conn, uri, port.getProtocol( uri ) );
 		} catch( ClassCastException e ) {
 			throw new IOException( "CastException: malformed output btl2cap location: " + uri.toString() );
-		} catch( URISyntaxException e ) {
-			throw new IOException( e );
 		}
 	}
 }
@@ -25,11 +25,15 @@ import jolie.js.JsUtils;
 import jolie.lang.Constants;
 import jolie.lang.NativeType;
 import jolie.monitoring.events.ProtocolMessageEvent;
+import jolie.net.http.CompressionCache;
+import jolie.net.http.ContentEncoder;
+import jolie.net.http.ContentEncoders;
 import jolie.net.http.HttpMessage;
 import jolie.net.http.HttpParser;
 import jolie.net.http.HttpUtils;
 import jolie.net.http.Method;
 import jolie.net.http.MultiPartFormDataParser;
+import jolie.net.http.UriTemplateRouter;
 import jolie.net.ports.Interface;
 import jolie.net.protocols.CommProtocol;
 import jolie.runtime.ByteArray;
@@ -66,6 +70,8 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -76,19 +82,34 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * HTTP protocol implementation
@@ -102,6 +123,9 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 	private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream"; // default content type per RFC
 																					// 2616#7.2.1
 	private static final String DEFAULT_FORMAT = "xml";
+	private static final int STREAMING_BLOCK_SIZE = 0x10000; // 64K
+	private static final DateTimeFormatter HTTP_DATE_FORMAT =
+		DateTimeFormatter.ofPattern( "EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US ).withZone( ZoneOffset.UTC );
 	private static final Map< Integer, String > STATUS_CODE_DESCRIPTIONS = new HashMap<>();
 	private static final Set< Integer > LOCATION_REQUIRED_STATUS_CODES = new HashSet<>();
 
@@ -197,6 +221,8 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		private static final String COMPRESSION = "compression";
 		private static final String COMPRESSION_TYPES = "compressionTypes";
 		private static final String REQUEST_COMPRESSION = "requestCompression";
+		private static final String COMPRESSION_MIN_SIZE = "compressionMinSize";
+		private static final String COMPRESSION_CACHE_SIZE = "compressionCacheSize";
 		private static final String FORMAT = "format";
 		private static final String RESPONSE_HEADER = "responseHeaders";
 		private static final String JSON_ENCODING = "json_encoding";
@@ -214,10 +240,17 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		private static final String OUTGOING_HEADERS = "outHeaders";
 		private static final String INCOMING_HEADERS = "inHeaders";
 		private static final String STATUS_CODES = "statusCodes";
+		private static final String STREAMING = "streaming";
 
 		private static class MultiPartHeaders {
 			private static final String FILENAME = "filename";
 		}
+
+		private static class Streaming {
+			private static final String THRESHOLD = "threshold";
+			private static final String DIRECTORY = "directory";
+			private static final String FILE = "file";
+		}
 	}
 
 	private static class Headers {
@@ -231,6 +264,65 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		private static final String APPLICATION_NDJSON = "application/x-ndjson";
 	}
 
+	/*
+	 * What is computed once from the operation specific configuration of a port, until the
+	 * configuration is written. Whatever depends on aliases is left out and read every time.
+	 */
+	private static class Configuration {
+		// Null if a template or method is an alias
+		private final UriTemplateRouter router;
+		// The outgoing headers of each operation, mapping header names to the children of the message
+		// holding them. Operations whose headers are aliases map to null.
+		private final Map< String, Map< String, String > > outHeaders = new HashMap<>();
+		private final boolean isAlias;
+		// Null if compressed contents are not cached
+		private final CompressionCache compressionCache;
+
+		private Configuration( Value configuration ) {
+			final long cacheSize = configuration.hasChildren( Parameters.COMPRESSION_CACHE_SIZE )
+				&& !isAlias( configuration, Parameters.COMPRESSION_CACHE_SIZE )
+					? configuration.getFirstChild( Parameters.COMPRESSION_CACHE_SIZE ).longValue()
+					: 0;
+			compressionCache = cacheSize > 0 ? new CompressionCache( cacheSize ) : null;
+			isAlias = isAlias( configuration, CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION );
+			if( isAlias || !configuration.hasChildren( CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION ) ) {
+				router = null;
+				return;
+			}
+			final Value osc = configuration.getFirstChild( CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION );
+			boolean routable = true;
+			for( Entry< String, ValueVector > entry : osc.children().entrySet() ) {
+				if( isAlias( osc, entry.getKey() ) ) {
+					routable = false;
+					outHeaders.put( entry.getKey(), null );
+				} else if( !entry.getValue().isEmpty() ) {
+					final Value opConfig = entry.getValue().first();
+					routable &=
+						!isAlias( opConfig, Parameters.TEMPLATE ) && !isAlias( opConfig, Parameters.METHOD );
+					outHeaders.put( entry.getKey(), readOutHeaders( opConfig ) );
+				}
+			}
+			router = routable ? new UriTemplateRouter( osc ) : null;
+		}
+
+		private static Map< String, String > readOutHeaders( Value opConfig ) {
+			final Map< String, String > ret = new LinkedHashMap<>();
+			if( opConfig.hasChildren( Parameters.OUTGOING_HEADERS ) ) {
+				if( isAlias( opConfig, Parameters.OUTGOING_HEADERS ) ) {
+					return null;
+				}
+				final Value headers = opConfig.getFirstChild( Parameters.OUTGOING_HEADERS );
+				for( Entry< String, ValueVector > entry : headers.children().entrySet() ) {
+					if( isAlias( headers, entry.getKey() ) ) {
+						return null;
+					}
+					ret.put( entry.getKey(), entry.getValue().get( 0 ).strValue() );
+				}
+			}
+			return ret;
+		}
+	}
+
 	private String inputId = null;
 	private final Transformer transformer;
 	private final DocumentBuilderFactory docBuilderFactory;
@@ -359,14 +451,15 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 	private String encoding = null;
 	private String responseFormat = null;
 	private boolean headRequest = false;
+	// Headers of the GET request being responded to, see send_evaluateConditions
+	private String ifModifiedSince = null;
+	private String range = null;
+	private String ifRange = null;
 
 	private void send_appendQuerystring( Value value, StringBuilder headerBuilder, CommMessage message )
 		throws IOException {
 		// get parameter for headers
-		List< String > headerParameters =
-			getOperationSpecificParameterFirstValue( message.operationName(),
-				Parameters.OUTGOING_HEADERS ).children().values().stream().map( (vv -> vv.get( 0 ).strValue()) )
-					.collect( Collectors.toList() );
+		Collection< String > headerParameters = getOutHeaders( message.operationName() ).values();
 
 		if( value.hasChildren() ) {
 			StringJoiner sj = new StringJoiner( "&" );
@@ -392,9 +485,7 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 
 	private void send_appendJsonQueryString( CommMessage message, StringBuilder headerBuilder )
 		throws IOException {
-		getOperationSpecificParameterFirstValue( message.operationName(),
-			Parameters.OUTGOING_HEADERS ).children().forEach(
-				( headerName, headerValues ) -> message.value().children().remove( headerValues.get( 0 ).strValue() ) );
+		getOutHeaders( message.operationName() ).values().forEach( message.value().children()::remove );
 		if( message.value().isDefined() || message.value().hasChildren() ) {
 			headerBuilder.append( "?" );
 			StringBuilder builder = new StringBuilder();
@@ -460,11 +551,47 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 
 	private static class EncodedContent {
 		private ByteArray content = null;
+		// Content to be sent with chunked transfer-encoding, without reading it in memory
+		private InputStream stream = null;
+		// Content to be sent from a file, without reading it in memory
+		private FileContent file = null;
 		private String contentType = DEFAULT_CONTENT_TYPE;
 		private String contentDisposition = "";
 	}
 
-	private EncodedContent send_encodeContent( CommMessage message, Method method, String charset, String format )
+	/*
+	 * A region of a file to be sent as the content of a message. Responses to GET requests send the part
+	 * of the region selected by the Range header of the request, or nothing if the file has not been
+	 * modified since the date in its If-Modified-Since header.
+	 */
+	private static class FileContent implements Closeable {
+		private final FileChannel channel;
+		private final long length;
+		private final Instant lastModified;
+		// The part of the file to be sent
+		private long position;
+		private long count;
+		private int statusCode = DEFAULT_STATUS_CODE;
+		// The value of the Content-Range header, for partial content
+		private String contentRange = null;
+
+		private FileContent( FileChannel channel, long offset, long length, Instant lastModified ) {
+			this.channel = channel;
+			this.length = length;
+			this.lastModified = lastModified;
+			this.position = offset;
+			this.count = length;
+		}
+
+		@Override
+		public void close()
+			throws IOException {
+			channel.close();
+		}
+	}
+
+	private EncodedContent send_encodeContent( CommMessage message, Method method, String charset, String format,
+		FileContent file )
 		throws IOException {
 		EncodedContent ret = new EncodedContent();
 		if( inInputPort == false && (method == Method.GET || method == Method.DELETE) ) {
@@ -496,7 +623,11 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 			ret.content = new ByteArray( tmpStream.toByteArray() );
 		} else if( "binary".equals( format ) ) {
 			ret.contentType = "application/octet-stream";
-			ret.content = message.value().byteArrayValue();
+			ret.file = file;
+			ret.stream = file == null ? send_getContentStream( message ) : null;
+			if( ret.file == null && ret.stream == null ) {
+				ret.content = message.value().byteArrayValue();
+			}
 		} else if( "html".equals( format ) ) {
 			ret.contentType = "text/html";
 			if( message.isFault() ) {
@@ -615,12 +746,182 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 			if( message.isFault() ) {
 				ret.content = new ByteArray( message.fault().value().strValue().getBytes( charset ) );
 			} else {
-				ret.content = new ByteArray( message.value().strValue().getBytes( charset ) );
+				ret.file = file;
+				ret.stream = file == null ? send_getContentStream( message ) : null;
+				if( ret.file == null && ret.stream == null ) {
+					ret.content = new ByteArray( message.value().strValue().getBytes( charset ) );
+				}
 			}
 		}
 		return ret;
 	}
 
+	/*
+	 * Returns the stream that the content of the message should be read from, if the value holds one
+	 * instead of the content itself.
+	 */
+	private static InputStream send_getContentStream( CommMessage message ) {
+		if( !message.isFault() && message.value().valueObject() instanceof InputStream ) {
+			return (InputStream) message.value().valueObject();
+		}
+		return null;
+	}
+
+	/*
+	 * Opens the file holding the content of the message, if the message has the binary or raw format and
+	 * the streaming.file parameter is set. The value of the message is the path of the file, and its
+	 * optional children offset and length select a region of it.
+	 */
+	private FileContent send_openFile( CommMessage message, Method method, String format )
+		throws IOException {
+		if( message.isFault() || !("binary".equals( format ) || "raw".equals( format ))
+			|| (!inInputPort && (method == Method.GET || method == Method.DELETE)) ) {
+			return null;
+		}
+		Value streaming = null;
+		if( hasOperationSpecificParameter( message.operationName(), Parameters.STREAMING ) ) {
+			streaming = getOperationSpecificParameterFirstValue( message.operationName(), Parameters.STREAMING );
+		} else if( hasParameter( Parameters.STREAMING ) ) {
+			streaming = getParameterFirstValue( Parameters.STREAMING );
+		}
+		if( streaming == null || !streaming.getFirstChild( Parameters.Streaming.FILE ).boolValue() ) {
+			return null;
+		}
+		// Opened here, so that a missing file is reported before anything is sent
+		final Path path = Paths.get( message.value().strValue() );
+		final FileChannel channel = FileChannel.open( path, StandardOpenOption.READ );
+		try {
+			final long size = channel.size();
+			final long offset = message.value().hasChildren( "offset" )
+				? Math.min( Math.max( message.value().getFirstChild( "offset" ).longValue(), 0 ), size )
+				: 0;
+			final long length = message.value().hasChildren( "length" )
+				? Math.min( Math.max( message.value().getFirstChild( "length" ).longValue(), 0 ), size - offset )
+				: size - offset;
+			return new FileContent( channel, offset, length,
+				Files.getLastModifiedTime( path ).toInstant().truncatedTo( ChronoUnit.SECONDS ) );
+		} catch( IOException e ) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Selects the part of the file to be sent in response to a GET request, following its
+	 * If-Modified-Since, Range and If-Range headers (RFC 7232 and RFC 7233). Only single byte ranges are
+	 * supported: requests for multiple ranges get the whole content.
+	 */
+	private void send_evaluateConditions( FileContent file ) {
+		if( ifModifiedSince != null ) {
+			final Instant since = parseHttpDate( ifModifiedSince );
+			if( since != null && !file.lastModified.isAfter( since ) ) {
+				file.statusCode = 304;
+				file.count = 0;
+				return;
+			}
+		}
+		if( range == null || (ifRange != null && !ifRange.trim().equals( formatHttpDate( file.lastModified ) )) ) {
+			return;
+		}
+		final String spec = range.trim();
+		if( !spec.regionMatches( true, 0, "bytes=", 0, 6 ) || spec.indexOf( ',' ) >= 0 ) {
+			return;
+		}
+		final int dash = spec.indexOf( '-', 6 );
+		if( dash < 0 ) {
+			return;
+		}
+		final String firstPos = spec.substring( 6, dash ).trim();
+		final String lastPos = spec.substring( dash + 1 ).trim();
+		long first;
+		long last = file.length - 1;
+		try {
+			if( firstPos.isEmpty() ) {
+				// The last bytes of the content
+				final long suffixLength = Long.parseLong( lastPos );
+				if( suffixLength < 0 ) {
+					return;
+				}
+				first = suffixLength == 0 ? file.length : Math.max( file.length - suffixLength, 0 );
+			} else {
+				first = Long.parseLong( firstPos );
+				if( !lastPos.isEmpty() ) {
+					final long lastByte = Long.parseLong( lastPos );
+					if( lastByte < first ) {
+						return;
+					}
+					last = Math.min( lastByte, last );
+				}
+			}
+		} catch( NumberFormatException e ) {
+			// Syntactically invalid ranges are ignored
+			return;
+		}
+		if( first >= file.length ) {
+			file.statusCode = 416;
+			file.count = 0;
+			file.contentRange = "bytes */" + file.length;
+		} else {
+			file.statusCode = 206;
+			file.position += first;
+			file.count = last - first + 1;
+			file.contentRange = "bytes " + first + "-" + last + "/" + file.length;
+		}
+	}
+
+	private static Instant parseHttpDate( String date ) {
+		try {
+			return Instant.from( DateTimeFormatter.RFC_1123_DATE_TIME.parse( date.trim() ) );
+		} catch( DateTimeException e ) {
+			return null;
+		}
+	}
+
+	private static String formatHttpDate( Instant instant ) {
+		return HTTP_DATE_FORMAT.format( instant );
+	}
+
+	private static void send_writeFile( FileContent file, OutputStream ostream )
+		throws IOException {
+		if( ostream instanceof FileRegionWriter ) {
+			((FileRegionWriter) ostream).writeFileRegion( file.channel, file.position, file.count );
+			return;
+		}
+		// The stream adds something on top of the channel, like encryption: copy the file through it
+		final ByteBuffer buffer = ByteBuffer.allocate( (int) Math.min( STREAMING_BLOCK_SIZE, file.count ) );
+		long position = file.position;
+		final long end = file.position + file.count;
+		while( position < end ) {
+			buffer.clear().limit( (int) Math.min( buffer.capacity(), end - position ) );
+			final int r = file.channel.read( buffer, position );
+			if( r < 0 ) {
+				throw new EOFException( "File ended before the end of the region to be sent" );
+			}
+			ostream.write( buffer.array(), 0, r );
+			position += r;
+		}
+	}
+
+	private static void send_writeChunked( InputStream stream, OutputStream ostream )
+		throws IOException {
+		final byte[] buffer = new byte[ STREAMING_BLOCK_SIZE ];
+		final byte[] crlf = HttpUtils.CRLF.getBytes( StandardCharsets.US_ASCII );
+		try( InputStream source = stream ) {
+			int r;
+			while( (r = source.read( buffer )) != -1 ) {
+				if( r > 0 ) {
+					ostream.write( Integer.toHexString( r ).getBytes( StandardCharsets.US_ASCII ) );
+					ostream.write( crlf );
+					ostream.write( buffer, 0, r );
+					ostream.write( crlf );
+				}
+			}
+		}
+		ostream.write( '0' );
+		ostream.write( crlf );
+		ostream.write( crlf );
+	}
+
 	private static boolean isLocationNeeded( int statusCode ) {
 		return LOCATION_REQUIRED_STATUS_CODES.contains( statusCode );
 	}
@@ -660,7 +961,7 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		}
 	}
 
-	private void send_appendResponseHeaders( CommMessage message, StringBuilder headerBuilder ) {
+	private void send_appendResponseHeaders( CommMessage message, FileContent file, StringBuilder headerBuilder ) {
 		int statusCode = DEFAULT_STATUS_CODE;
 		String statusDescription = null;
 
@@ -694,6 +995,11 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 			statusCode = 500;
 		}
 
+		if( statusCode == DEFAULT_STATUS_CODE && file != null ) {
+			send_evaluateConditions( file );
+			statusCode = file.statusCode;
+		}
+
 		if( statusDescription == null ) {
 			statusDescription = STATUS_CODE_DESCRIPTIONS.get( statusCode );
 		}
@@ -881,31 +1187,46 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		send_appendAuthorizationHeader( message, headerBuilder );
 		if( checkBooleanParameter( Parameters.COMPRESSION, true ) ) {
 			String requestCompression = getStringParameter( Parameters.REQUEST_COMPRESSION );
-			if( requestCompression.equals( "gzip" ) || requestCompression.equals( "deflate" ) ) {
+			if( ContentEncoders.forName( requestCompression ) != null ) {
 				encoding = requestCompression;
 				headerBuilder.append( "Accept-Encoding: " ).append( encoding ).append( HttpUtils.CRLF );
 			} else {
-				headerBuilder.append( "Accept-Encoding: gzip, deflate" ).append( HttpUtils.CRLF );
+				headerBuilder.append( "Accept-Encoding: " ).append( ContentEncoders.acceptEncoding() )
+					.append( HttpUtils.CRLF );
 			}
 		}
 		send_appendHeader( headerBuilder );
 
-		if( hasOperationSpecificParameter( message.operationName(), Parameters.OUTGOING_HEADERS ) ) {
-			send_operationSpecificHeader( message.value(),
-				getOperationSpecificParameterFirstValue( message.operationName(), Parameters.OUTGOING_HEADERS ),
-				headerBuilder );
-		}
+		send_operationSpecificHeader( message.value(), getOutHeaders( message.operationName() ), headerBuilder );
 	}
 
-	private void send_operationSpecificHeader( Value value, Value outboundHeaders, StringBuilder headerBuilder ) {
-		List< String > headersKeys = new ArrayList<>();
-		outboundHeaders.children().forEach( ( headerName, headerValues ) -> {
-			headerBuilder.append( headerName ).append( ": " )
-				.append( value.getFirstChild( headerValues.get( 0 ).strValue() ).strValue() )
-				.append( HttpUtils.CRLF );
-			headersKeys.add( headerValues.get( 0 ).strValue() );
-		} );
-		headersKeys.forEach( value.children()::remove );
+	private static void send_operationSpecificHeader( Value value, Map< String, String > outboundHeaders,
+		StringBuilder headerBuilder ) {
+		outboundHeaders.forEach( ( headerName, childName ) -> headerBuilder.append( headerName ).append( ": " )
+			.append( value.getFirstChild( childName ).strValue() ).append( HttpUtils.CRLF ) );
+		outboundHeaders.values().forEach( value.children()::remove );
+	}
+
+	/*
+	 * Returns the outgoing headers of an operation, mapping header names to the children of the message
+	 * holding them.
+	 */
+	private Map< String, String > getOutHeaders( String operationName ) {
+		final Configuration configuration = configuration( Configuration.class, Configuration::new );
+		if( !configuration.isAlias ) {
+			final Map< String, String > ret = configuration.outHeaders.get( operationName );
+			if( ret != null ) {
+				return ret;
+			} else if( !configuration.outHeaders.containsKey( operationName ) ) {
+				return Collections.emptyMap();
+			}
+		}
+		final Map< String, String > ret = new LinkedHashMap<>();
+		if( hasOperationSpecificParameter( operationName, Parameters.OUTGOING_HEADERS ) ) {
+			getOperationSpecificParameterFirstValue( operationName, Parameters.OUTGOING_HEADERS ).children()
+				.forEach( ( headerName, headerValues ) -> ret.put( headerName, headerValues.get( 0 ).strValue() ) );
+		}
+		return ret;
 	}
 
 	private void send_appendGenericHeaders(
@@ -939,7 +1260,7 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		}
 		headerBuilder.append( HttpUtils.CRLF );
 
-		if( encodedContent.content != null ) {
+		if( encodedContent.content != null || encodedContent.stream != null || encodedContent.file != null ) {
 			String transferEncoding = getStringParameter( Parameters.CONTENT_TRANSFER_ENCODING );
 			if( transferEncoding.length() > 0 ) {
 				headerBuilder.append( "Content-Transfer-Encoding: " ).append( transferEncoding )
@@ -953,6 +1274,27 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 					.append( HttpUtils.CRLF );
 			}
 
+			if( encodedContent.stream != null ) {
+				headerBuilder.append( "Transfer-Encoding: chunked" ).append( HttpUtils.CRLF );
+				return;
+			}
+
+			if( encodedContent.file != null ) {
+				final FileContent file = encodedContent.file;
+				headerBuilder.append( "Last-Modified: " ).append( formatHttpDate( file.lastModified ) )
+					.append( HttpUtils.CRLF );
+				if( inInputPort ) {
+					headerBuilder.append( "Accept-Ranges: bytes" ).append( HttpUtils.CRLF );
+				}
+				if( file.contentRange != null ) {
+					headerBuilder.append( "Content-Range: " ).append( file.contentRange ).append( HttpUtils.CRLF );
+				}
+				if( file.statusCode != 304 ) {
+					headerBuilder.append( "Content-Length: " ).append( file.count ).append( HttpUtils.CRLF );
+				}
+				return;
+			}
+
 			boolean compression = encoding != null && checkBooleanParameter( Parameters.COMPRESSION, true );
 			String compressionTypes = getStringParameter(
 				Parameters.COMPRESSION_TYPES,
@@ -962,7 +1304,11 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 				&& !compressionTypes.contains( encodedContent.contentType ) ) {
 				compression = false;
 			}
-			if( compression ) {
+			final ContentEncoder encoder = compression
+				&& encodedContent.content.size() >= getIntParameter( Parameters.COMPRESSION_MIN_SIZE )
+					? ContentEncoders.negotiate( encoding )
+					: null;
+			if( encoder != null ) {
 				Interpreter.getInstance().tracer().trace( () -> {
 					try {
 						final String traceMessage = encodedContent.content.toString( charset );
@@ -974,7 +1320,9 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 					}
 
 				} );
-				encodedContent.content = HttpUtils.encode( encoding, encodedContent.content, headerBuilder );
+				encodedContent.content = HttpUtils.encode( encoder,
+					configuration( Configuration.class, Configuration::new ).compressionCache, encodedContent.content,
+					headerBuilder );
 			}
 
 			headerBuilder.append( "Content-Length: " ).append( encodedContent.content.size() ).append( HttpUtils.CRLF );
@@ -1011,14 +1359,22 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 	public void send_internal( OutputStream ostream, CommMessage message, InputStream istream )
 		throws IOException {
 		Method method = send_getRequestMethod( message );
-		String charset = HttpUtils.getCharset( getStringParameter( Parameters.CHARSET, "utf-8" ), null );
 		String format = send_getFormat( message.operationName() );
+		try( FileContent file = send_openFile( message, method, format ) ) {
+			send_internal( ostream, message, method, format, file );
+		}
+	}
+
+	private void send_internal( OutputStream ostream, CommMessage message, Method method, String format,
+		FileContent file )
+		throws IOException {
+		String charset = HttpUtils.getCharset( getStringParameter( Parameters.CHARSET, "utf-8" ), null );
 		String contentType = null;
 		StringBuilder headerBuilder = new StringBuilder();
 
 		if( inInputPort ) {
 			// We're responding to a request
-			send_appendResponseHeaders( message, headerBuilder );
+			send_appendResponseHeaders( message, file, headerBuilder );
 			send_appendResponseUserHeader( message, headerBuilder );
 			send_appendHeader( headerBuilder );
 
@@ -1036,7 +1392,7 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 			send_appendRequestHeaders( message, method, qsFormat, headerBuilder );
 		}
 
-		EncodedContent encodedContent = send_encodeContent( message, method, charset, format );
+		EncodedContent encodedContent = send_encodeContent( message, method, charset, format, file );
 		if( contentType != null ) {
 			encodedContent.contentType = contentType;
 		}
@@ -1074,7 +1430,17 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		inputId = message.operationName();
 
 		ostream.write( headerBuilder.toString().getBytes( HttpUtils.URL_DECODER_ENC ) );
-		if( encodedContent.content != null && !headRequest ) {
+		if( encodedContent.stream != null ) {
+			if( headRequest ) {
+				encodedContent.stream.close();
+			} else {
+				send_writeChunked( encodedContent.stream, ostream );
+			}
+		} else if( encodedContent.file != null ) {
+			if( !headRequest ) {
+				send_writeFile( encodedContent.file, ostream );
+			}
+		} else if( encodedContent.content != null && !headRequest ) {
 			ostream.write( encodedContent.content.getBytes() );
 		}
 		headRequest = false;
@@ -1330,7 +1696,12 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 	private static String getHttpBody( HttpMessage message, String charset )
 		throws IOException {
 		StringBuilder bodyStr = new StringBuilder();
-		bodyStr.append( new String( message.content(), charset ) );
+		if( message.contentFile() != null ) {
+			bodyStr.append( "[" ).append( message.contentFileSize() ).append( " bytes saved to " )
+				.append( message.contentFile() ).append( "]" );
+		} else if( message.content() != null ) {
+			bodyStr.append( new String( message.content(), charset ) );
+		}
 		return bodyStr.toString();
 	}
 
@@ -1427,39 +1798,24 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 			? message.requestPath().substring( 1 )
 			: message.requestPath() );
 		Value configurationValue = getParameterFirstValue( CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION );
-		Iterator< Entry< String, ValueVector > > configurationIterator = configurationValue.children().entrySet()
-			.iterator();
-		boolean foundMatch = false;
-		while( configurationIterator.hasNext() & !foundMatch ) {
-			Entry< String, ValueVector > configEntry = configurationIterator.next();
-
-			Value opConfig = configEntry.getValue().get( 0 );
-			Value uriTemplateResult = Value.create();
-			if( opConfig.hasChildren( Parameters.TEMPLATE ) ) {
-				uriTemplateResult = UriUtils.match( opConfig.getFirstChild( Parameters.TEMPLATE ).strValue(), uri );
-			}
-			String opConfigMethod = opConfig.firstChildOrDefault( Parameters.METHOD, Value::strValue, "" );
-
-			if( uriTemplateResult.boolValue() && message.getMethod().equalsIgnoreCase( opConfigMethod ) ) {
-				foundMatch = true;
-				decodedMessage.operationName = configEntry.getKey();
-				decodedMessage.resourcePath = "/";
-
-				Iterator< Entry< String, ValueVector > > uriTemplateIterator = uriTemplateResult.children().entrySet()
-					.iterator();
-				while( uriTemplateIterator.hasNext() ) {
-					Entry< String, ValueVector > entry = uriTemplateIterator.next();
-					decodedMessage.value.getFirstChild( entry.getKey() )
-						.setValue( entry.getValue().get( 0 ).strValue() );
-				}
-				if( opConfig.hasChildren( Parameters.INCOMING_HEADERS ) ) {
-					Iterator< Entry< String, ValueVector > > inHeadersIterator = opConfig
-						.getFirstChild( Parameters.INCOMING_HEADERS ).children().entrySet().iterator();
-					while( inHeadersIterator.hasNext() ) {
-						Entry< String, ValueVector > entry = inHeadersIterator.next();
-						decodedMessage.value.getFirstChild( entry.getValue().get( 0 ).strValue() )
-							.setValue( message.getProperty( entry.getKey() ) );
-					}
+		UriTemplateRouter router = configuration( Configuration.class, Configuration::new ).router;
+		if( router == null ) {
+			router = new UriTemplateRouter( configurationValue );
+		}
+		UriTemplateRouter.Match match = router.route( message.getMethod(), uri );
+		if( match != null ) {
+			decodedMessage.operationName = match.operationName();
+			decodedMessage.resourcePath = "/";
+			match.bindVariables( decodedMessage.value );
+
+			Value opConfig = configurationValue.getFirstChild( match.operationName() );
+			if( opConfig.hasChildren( Parameters.INCOMING_HEADERS ) ) {
+				Iterator< Entry< String, ValueVector > > inHeadersIterator = opConfig
+					.getFirstChild( Parameters.INCOMING_HEADERS ).children().entrySet().iterator();
+				while( inHeadersIterator.hasNext() ) {
+					Entry< String, ValueVector > entry = inHeadersIterator.next();
+					decodedMessage.value.getFirstChild( entry.getValue().get( 0 ).strValue() )
+						.setValue( message.getProperty( entry.getKey() ) );
 				}
 			}
 		}
@@ -1531,10 +1887,27 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		}
 	}
 
+	/*
+	 * With the streaming.threshold parameter, bodies larger than the threshold are saved to temporary
+	 * files in streaming.directory (or the default one) instead of being read in memory.
+	 */
+	private HttpParser recv_createParser( InputStream istream )
+		throws IOException {
+		if( hasParameter( Parameters.STREAMING ) ) {
+			Value streaming = getParameterFirstValue( Parameters.STREAMING );
+			if( streaming.hasChildren( Parameters.Streaming.THRESHOLD ) ) {
+				String directory = streaming.getFirstChild( Parameters.Streaming.DIRECTORY ).strValue();
+				return new HttpParser( istream, streaming.getFirstChild( Parameters.Streaming.THRESHOLD ).longValue(),
+					directory.isEmpty() ? null : Paths.get( directory ) );
+			}
+		}
+		return new HttpParser( istream );
+	}
+
 	@Override
 	public CommMessage recv_internal( InputStream istream, OutputStream ostream )
 		throws IOException {
-		HttpMessage message = new HttpParser( istream ).parse();
+		HttpMessage message = recv_createParser( istream ).parse();
 		String charset = HttpUtils.getCharset( null, message );
 		CommMessage retVal = null;
 		DecodedMessage decodedMessage = new DecodedMessage();
@@ -1544,7 +1917,7 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		if( checkBooleanParameter( Parameters.DEBUG ) ) {
 			boolean showContent = false;
 			if( getParameterFirstValue( Parameters.DEBUG ).getFirstChild( "showContent" ).intValue() > 0
-				&& message.size() > 0 ) {
+				&& (message.size() > 0 || message.contentFile() != null) ) {
 				showContent = true;
 			}
 			Interpreter.getInstance().logInfo( getDebugMessage( message, charset, showContent ) );
@@ -1553,7 +1926,8 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		// tracer
 		Interpreter.getInstance().tracer().trace( () -> {
 			try {
-				final String traceMessage = getDebugMessage( message, charset, message.size() > 0 );
+				final String traceMessage =
+					getDebugMessage( message, charset, message.size() > 0 || message.contentFile() != null );
 				return new ProtocolTraceAction( ProtocolTraceAction.Type.HTTP, "HTTP MESSAGE RECEIVED",
 					message.requestPath(), traceMessage, null );
 			} catch( IOException e ) {
@@ -1568,6 +1942,13 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 
 		encoding = message.getProperty( "accept-encoding" );
 		headRequest = inInputPort && message.isHead();
+		if( inInputPort && (message.isGet() || message.isHead()) ) {
+			ifModifiedSince = message.getProperty( "if-modified-since" );
+			range = message.getProperty( "range" );
+			ifRange = message.getProperty( "if-range" );
+		} else {
+			ifModifiedSince = range = ifRange = null;
+		}
 
 		String contentType = DEFAULT_CONTENT_TYPE;
 		if( message.getProperty( "content-type" ) != null ) {
@@ -1591,7 +1972,10 @@ public class HttpProtocol extends CommProtocol implements HttpUtils.HttpProtocol
 		/* https://tools.ietf.org/html/rfc7231#section-4.3 */
 		if( !message.isGet() && !message.isHead() ) {
 			// body parsing
-			if( message.size() > 0 ) {
+			if( message.contentFile() != null ) {
+				// Content saved to a file is not decoded, the program gets the path of the file
+				decodedMessage.value.setValue( message.contentFile().toString() );
+			} else if( message.size() > 0 ) {
 				recv_parseMessage( message, decodedMessage, contentType, charset );
 			}
 		}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of encoded contents, keyed by coding and by a digest of the original content. When the
+ * total size of the cached contents exceeds the capacity, the least recently used ones are evicted.
+ */
+public final class CompressionCache {
+	private static final class Key {
+		private final String coding;
+		private final ByteBuffer digest;
+
+		private Key( String coding, byte[] digest ) {
+			this.coding = coding;
+			this.digest = ByteBuffer.wrap( digest );
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if( !(obj instanceof Key) ) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return coding.equals( other.coding ) && digest.equals( other.digest );
+		}
+
+		@Override
+		public int hashCode() {
+			return digest.hashCode() * 31 + coding.hashCode();
+		}
+	}
+
+	private final long capacity;
+	private final Map< Key, byte[] > entries = new LinkedHashMap<>( 16, 0.75f, true );
+	private long size = 0;
+
+	/**
+	 * @param capacity the maximum total size of the cached contents, in bytes
+	 */
+	public CompressionCache( long capacity ) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the given content encoded with the given coding, encoding it only if it is not cached.
+	 */
+	public byte[] encode( ContentEncoder encoder, byte[] content )
+		throws IOException {
+		final Key key = new Key( encoder.name(), digest( content ) );
+		synchronized( this ) {
+			final byte[] encoded = entries.get( key );
+			if( encoded != null ) {
+				return encoded;
+			}
+		}
+		// Concurrent misses for the same content may encode it more than once, which is harmless
+		final byte[] encoded = encoder.encode( content );
+		if( encoded.length <= capacity ) {
+			synchronized( this ) {
+				final byte[] previous = entries.put( key, encoded );
+				size += encoded.length - (previous == null ? 0 : previous.length);
+				final Iterator< byte[] > it = entries.values().iterator();
+				while( size > capacity && it.hasNext() ) {
+					size -= it.next().length;
+					it.remove();
+				}
+			}
+		}
+		return encoded;
+	}
+
+	private static byte[] digest( byte[] content ) {
+		try {
+			return MessageDigest.getInstance( "SHA-256" ).digest( content );
+		} catch( NoSuchAlgorithmException e ) {
+			// Every implementation of the Java platform supports SHA-256
+			throw new AssertionError( e );
+		}
+	}
+}
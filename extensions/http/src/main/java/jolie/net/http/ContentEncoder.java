@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An HTTP content coding, like gzip. Besides the built-in gzip and deflate codings, implementations
+ * can be provided as services ({@link java.util.ServiceLoader}) by the jars in the class path of
+ * Jolie, and are preferred to the built-in ones when a client accepts them.
+ */
+public interface ContentEncoder {
+	/**
+	 * Returns the name of this coding, as used in the Accept-Encoding and Content-Encoding headers.
+	 */
+	String name();
+
+	/**
+	 * Returns the encoded form of the given content.
+	 *
+	 * @param content the content to encode
+	 * @throws IOException if the content can not be encoded
+	 */
+	byte[] encode( byte[] content )
+		throws IOException;
+
+	/**
+	 * Returns a stream reading the decoded form of the given stream.
+	 *
+	 * @param stream the stream of the encoded content
+	 * @throws IOException if the stream can not be decoded
+	 */
+	InputStream decode( InputStream stream )
+		throws IOException;
+
+	/**
+	 * Returns the decoded form of the given content.
+	 *
+	 * @param content the encoded content
+	 * @throws IOException if the content can not be decoded
+	 */
+	default byte[] decode( byte[] content )
+		throws IOException {
+		try( InputStream stream = decode( new ByteArrayInputStream( content ) ) ) {
+			return stream.readAllBytes();
+		}
+	}
+}
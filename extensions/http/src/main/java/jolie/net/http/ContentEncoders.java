@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import jolie.Interpreter;
+
+/**
+ * The content codings known to HTTP protocols: the built-in gzip and deflate codings, and the
+ * {@link ContentEncoder} services found in the class path. The built-in codings reuse their
+ * compressors and decompressors, instead of allocating new ones for each message.
+ */
+public final class ContentEncoders {
+	private static final int MAX_POOLED = 16;
+
+	private ContentEncoders() {}
+
+	private static final class Pool< T > {
+		private final Queue< T > items = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final Supplier< T > factory;
+
+		private Pool( Supplier< T > factory ) {
+			this.factory = factory;
+		}
+
+		private T acquire() {
+			final T item = items.poll();
+			if( item == null ) {
+				return factory.get();
+			}
+			size.decrementAndGet();
+			return item;
+		}
+
+		// Returns false if the pool is full, in which case the item should be disposed of
+		private boolean release( T item ) {
+			if( size.incrementAndGet() <= MAX_POOLED ) {
+				items.offer( item );
+				return true;
+			}
+			size.decrementAndGet();
+			return false;
+		}
+	}
+
+	private static final Pool< Deflater > RAW_DEFLATERS =
+		new Pool<>( () -> new Deflater( Deflater.DEFAULT_COMPRESSION, true ) );
+	private static final Pool< Deflater > ZLIB_DEFLATERS = new Pool<>( Deflater::new );
+	private static final Pool< Inflater > RAW_INFLATERS = new Pool<>( () -> new Inflater( true ) );
+	private static final Pool< Inflater > ZLIB_INFLATERS = new Pool<>( Inflater::new );
+
+	private static void release( Pool< Deflater > pool, Deflater deflater ) {
+		deflater.reset();
+		if( !pool.release( deflater ) ) {
+			deflater.end();
+		}
+	}
+
+	private static void release( Pool< Inflater > pool, Inflater inflater ) {
+		inflater.reset();
+		if( !pool.release( inflater ) ) {
+			inflater.end();
+		}
+	}
+
+	// A growable byte array
+	private static final class Output {
+		private byte[] data;
+		private int size = 0;
+
+		private Output( int capacity ) {
+			data = new byte[ Math.max( capacity, 64 ) ];
+		}
+
+		private void ensureRoom() {
+			if( size == data.length ) {
+				data = Arrays.copyOf( data, data.length * 2 );
+			}
+		}
+
+		private void writeIntLE( int i ) {
+			for( int k = 0; k < 4; k++ ) {
+				ensureRoom();
+				data[ size++ ] = (byte) (i >>> (8 * k));
+			}
+		}
+
+		private void deflate( Deflater deflater, byte[] content ) {
+			deflater.setInput( content );
+			deflater.finish();
+			while( !deflater.finished() ) {
+				ensureRoom();
+				size += deflater.deflate( data, size, data.length - size );
+			}
+		}
+
+		private void inflate( Inflater inflater )
+			throws IOException {
+			try {
+				while( !inflater.finished() ) {
+					ensureRoom();
+					final int n = inflater.inflate( data, size, data.length - size );
+					if( n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary()) ) {
+						throw new EOFException( "Unexpected end of compressed content" );
+					}
+					size += n;
+				}
+			} catch( DataFormatException e ) {
+				throw new ZipException( e.getMessage() );
+			}
+		}
+
+		private byte[] toByteArray() {
+			return data.length == size ? data : Arrays.copyOf( data, size );
+		}
+	}
+
+	private static final class Gzip implements ContentEncoder {
+		private static final int MAGIC = 0x8b1f;
+		private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+		private static final int FHCRC = 2;
+		private static final int FEXTRA = 4;
+		private static final int FNAME = 8;
+		private static final int FCOMMENT = 16;
+
+		@Override
+		public String name() {
+			return "gzip";
+		}
+
+		@Override
+		public byte[] encode( byte[] content ) {
+			final Output output = new Output( content.length / 2 );
+			System.arraycopy( HEADER, 0, output.data, 0, HEADER.length );
+			output.size = HEADER.length;
+			final Deflater deflater = RAW_DEFLATERS.acquire();
+			try {
+				output.deflate( deflater, content );
+			} finally {
+				release( RAW_DEFLATERS, deflater );
+			}
+			final CRC32 crc = new CRC32();
+			crc.update( content );
+			output.writeIntLE( (int) crc.getValue() );
+			output.writeIntLE( content.length );
+			return output.toByteArray();
+		}
+
+		@Override
+		public InputStream decode( InputStream stream )
+			throws IOException {
+			return new GZIPInputStream( stream );
+		}
+
+		@Override
+		public byte[] decode( byte[] content )
+			throws IOException {
+			final Output output = new Output( content.length * 4 );
+			final Inflater inflater = RAW_INFLATERS.acquire();
+			try {
+				int offset = 0;
+				// Like GZIPInputStream, decode concatenated members and ignore anything else that follows them
+				do {
+					offset = skipHeader( content, offset );
+					final int start = output.size;
+					inflater.setInput( content, offset, content.length - offset );
+					output.inflate( inflater );
+					offset = content.length - inflater.getRemaining();
+					if( offset + 8 > content.length ) {
+						throw new EOFException( "Unexpected end of compressed content" );
+					}
+					final CRC32 crc = new CRC32();
+					crc.update( output.data, start, output.size - start );
+					if( readIntLE( content, offset ) != (int) crc.getValue()
+						|| readIntLE( content, offset + 4 ) != output.size - start ) {
+						throw new ZipException( "Corrupt GZIP trailer" );
+					}
+					offset += 8;
+					inflater.reset();
+				} while( content.length - offset >= HEADER.length && readShortLE( content, offset ) == MAGIC );
+			} finally {
+				release( RAW_INFLATERS, inflater );
+			}
+			return output.toByteArray();
+		}
+
+		private static int skipHeader( byte[] content, int offset )
+			throws IOException {
+			if( content.length - offset < HEADER.length ) {
+				throw new EOFException( "Unexpected end of compressed content" );
+			}
+			if( readShortLE( content, offset ) != MAGIC ) {
+				throw new ZipException( "Not in GZIP format" );
+			}
+			if( content[ offset + 2 ] != Deflater.DEFLATED ) {
+				throw new ZipException( "Unsupported compression method" );
+			}
+			final int flags = content[ offset + 3 ];
+			offset += HEADER.length;
+			if( (flags & FEXTRA) != 0 ) {
+				offset += 2 + readShortLE( content, offset );
+			}
+			if( (flags & FNAME) != 0 ) {
+				offset = skipString( content, offset );
+			}
+			if( (flags & FCOMMENT) != 0 ) {
+				offset = skipString( content, offset );
+			}
+			if( (flags & FHCRC) != 0 ) {
+				offset += 2;
+			}
+			if( offset > content.length ) {
+				throw new EOFException( "Unexpected end of compressed content" );
+			}
+			return offset;
+		}
+
+		private static int skipString( byte[] content, int offset )
+			throws EOFException {
+			while( offset < content.length ) {
+				if( content[ offset++ ] == 0 ) {
+					return offset;
+				}
+			}
+			throw new EOFException( "Unexpected end of compressed content" );
+		}
+
+		private static int readShortLE( byte[] content, int offset )
+			throws EOFException {
+			if( offset + 2 > content.length ) {
+				throw new EOFException( "Unexpected end of compressed content" );
+			}
+			return (content[ offset ] & 0xFF) | ((content[ offset + 1 ] & 0xFF) << 8);
+		}
+
+		private static int readIntLE( byte[] content, int offset ) {
+			return (content[ offset ] & 0xFF) | ((content[ offset + 1 ] & 0xFF) << 8)
+				| ((content[ offset + 2 ] & 0xFF) << 16) | ((content[ offset + 3 ] & 0xFF) << 24);
+		}
+	}
+
+	private static final class Deflate implements ContentEncoder {
+		@Override
+		public String name() {
+			return "deflate";
+		}
+
+		@Override
+		public byte[] encode( byte[] content ) {
+			final Output output = new Output( content.length / 2 );
+			final Deflater deflater = ZLIB_DEFLATERS.acquire();
+			try {
+				output.deflate( deflater, content );
+			} finally {
+				release( ZLIB_DEFLATERS, deflater );
+			}
+			return output.toByteArray();
+		}
+
+		@Override
+		public InputStream decode( InputStream stream ) {
+			return new InflaterInputStream( stream );
+		}
+
+		@Override
+		public byte[] decode( byte[] content )
+			throws IOException {
+			final Output output = new Output( content.length * 4 );
+			final Inflater inflater = ZLIB_INFLATERS.acquire();
+			try {
+				inflater.setInput( content );
+				output.inflate( inflater );
+			} finally {
+				release( ZLIB_INFLATERS, inflater );
+			}
+			return output.toByteArray();
+		}
+	}
+
+	/*
+	 * The known codings, by decreasing preference: the services found in the class path come before
+	 * the built-in codings, which they can replace.
+	 */
+	private static final class Registry {
+		private static final List< ContentEncoder > ENCODERS = load();
+		private static final String ACCEPT_ENCODING =
+			ENCODERS.stream().map( ContentEncoder::name ).collect( Collectors.joining( ", " ) );
+
+		private static List< ContentEncoder > load() {
+			final Interpreter interpreter = Interpreter.getInstance();
+			final ClassLoader classLoader =
+				interpreter == null ? ContentEncoders.class.getClassLoader() : interpreter.getClassLoader();
+			final List< ContentEncoder > ret = new ArrayList<>();
+			final Iterator< ContentEncoder > it = ServiceLoader.load( ContentEncoder.class, classLoader ).iterator();
+			while( true ) {
+				try {
+					if( !it.hasNext() ) {
+						break;
+					}
+					add( ret, it.next() );
+				} catch( ServiceConfigurationError e ) {
+					if( interpreter != null ) {
+						interpreter.logWarning( "Could not load an HTTP content coding: " + e.getMessage() );
+					}
+				}
+			}
+			add( ret, new Gzip() );
+			add( ret, new Deflate() );
+			return Collections.unmodifiableList( ret );
+		}
+
+		private static void add( List< ContentEncoder > encoders, ContentEncoder encoder ) {
+			for( ContentEncoder e : encoders ) {
+				if( e.name().equalsIgnoreCase( encoder.name() ) ) {
+					return;
+				}
+			}
+			encoders.add( encoder );
+		}
+	}
+
+	/**
+	 * Returns the coding with the given name, or <code>null</code> if it is unknown.
+	 *
+	 * @param name the name of the coding, as found in a Content-Encoding header
+	 */
+	public static ContentEncoder forName( String name ) {
+		String coding = name.trim();
+		if( coding.equalsIgnoreCase( "x-gzip" ) ) { // RFC 7230 section 4.2.3
+			coding = "gzip";
+		}
+		for( ContentEncoder encoder : Registry.ENCODERS ) {
+			if( encoder.name().equalsIgnoreCase( coding ) ) {
+				return encoder;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the value of the Accept-Encoding header that lists all the known codings.
+	 */
+	public static String acceptEncoding() {
+		return Registry.ACCEPT_ENCODING;
+	}
+
+	/**
+	 * Chooses the coding to use for a response, following the quality values of the Accept-Encoding
+	 * header of the request. Among codings of equal quality, the preferred one is chosen.
+	 *
+	 * @param acceptEncoding the value of the Accept-Encoding header, possibly <code>null</code>
+	 * @return the coding to use, or <code>null</code> if the content should not be encoded
+	 */
+	public static ContentEncoder negotiate( String acceptEncoding ) {
+		if( acceptEncoding == null || acceptEncoding.isEmpty() ) {
+			return null;
+		}
+		final List< ContentEncoder > encoders = Registry.ENCODERS;
+		final float[] qualities = new float[ encoders.size() ];
+		Arrays.fill( qualities, -1 ); // Not listed
+		float anyQuality = -1;
+		for( String element : acceptEncoding.split( "," ) ) {
+			final String[] parts = element.split( ";" );
+			final String coding = parts[ 0 ].trim().toLowerCase( Locale.ROOT );
+			float quality = 1;
+			for( int i = 1; i < parts.length; i++ ) {
+				final String parameter = parts[ i ].trim();
+				if( parameter.startsWith( "q=" ) ) {
+					try {
+						quality = Float.parseFloat( parameter.substring( 2 ) );
+					} catch( NumberFormatException e ) {
+						quality = 0;
+					}
+				}
+			}
+			if( coding.equals( "*" ) ) {
+				anyQuality = quality;
+			} else {
+				for( int i = 0; i < encoders.size(); i++ ) {
+					if( encoders.get( i ).name().equalsIgnoreCase( coding )
+						|| (coding.equals( "x-gzip" ) && encoders.get( i ).name().equals( "gzip" )) ) {
+						qualities[ i ] = quality;
+					}
+				}
+			}
+		}
+
+		ContentEncoder ret = null;
+		float best = 0;
+		for( int i = 0; i < encoders.size(); i++ ) {
+			final float quality = qualities[ i ] >= 0 ? qualities[ i ] : anyQuality;
+			if( quality > best ) {
+				ret = encoders.get( i );
+				best = quality;
+			}
+		}
+		return ret;
+	}
+}
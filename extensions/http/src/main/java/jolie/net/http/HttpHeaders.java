@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A view over the header fields of a received HTTP message, which refers to the received bytes.
+ * Names and values are turned into strings only when they are looked up.
+ */
+final class HttpHeaders {
+	private final byte[] data;
+	// For each field: name start, name end, value start, value end
+	private int[] offsets = new int[ 64 ];
+	private String[] values = null;
+	private int size = 0;
+
+	HttpHeaders( byte[] data ) {
+		this.data = data;
+	}
+
+	void add( int nameStart, int nameEnd, int valueStart, int valueEnd ) {
+		if( size * 4 == offsets.length ) {
+			offsets = Arrays.copyOf( offsets, offsets.length * 2 );
+		}
+		final int i = size * 4;
+		offsets[ i ] = nameStart;
+		offsets[ i + 1 ] = nameEnd;
+		offsets[ i + 2 ] = valueStart;
+		offsets[ i + 3 ] = valueEnd;
+		size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the value of the last field with the given name, or <code>null</code> if there is none.
+	 *
+	 * @param name the lower case name of the field
+	 */
+	String get( String name ) {
+		for( int field = size - 1; field >= 0; field-- ) {
+			if( nameEquals( field, name ) ) {
+				return value( field );
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Puts all the fields in the given map, using their lower case names as keys.
+	 */
+	void copyTo( Map< String, String > map ) {
+		for( int field = 0; field < size; field++ ) {
+			final int i = field * 4;
+			final char[] name = new char[ offsets[ i + 1 ] - offsets[ i ] ];
+			for( int k = 0; k < name.length; k++ ) {
+				name[ k ] = (char) toLowerCase( data[ offsets[ i ] + k ] );
+			}
+			map.put( new String( name ), value( field ) );
+		}
+	}
+
+	private boolean nameEquals( int field, String name ) {
+		final int start = offsets[ field * 4 ];
+		final int length = offsets[ field * 4 + 1 ] - start;
+		if( length != name.length() ) {
+			return false;
+		}
+		for( int k = 0; k < length; k++ ) {
+			if( toLowerCase( data[ start + k ] ) != name.charAt( k ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String value( int field ) {
+		if( values == null ) {
+			values = new String[ size ];
+		} else if( values.length < size ) {
+			values = Arrays.copyOf( values, size );
+		}
+		String value = values[ field ];
+		if( value == null ) {
+			final int start = offsets[ field * 4 + 2 ];
+			value = new String( data, start, offsets[ field * 4 + 3 ] - start, StandardCharsets.ISO_8859_1 );
+			values[ field ] = value;
+		}
+		return value;
+	}
+
+	static int toLowerCase( byte b ) {
+		return (b >= 'A' && b <= 'Z') ? b + ('a' - 'A') : b & 0xFF;
+	}
+}
@@ -21,6 +21,7 @@
 
 package jolie.net.http;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -94,7 +95,11 @@ public class HttpMessage {
 	private Version version;
 	private final Type type;
 	private byte[] content = null;
+	private Path contentFile = null;
+	private long contentFileSize = 0;
 	final private Map< String, String > propMap = new HashMap<>();
+	// Received header fields, copied to propMap when all the properties are requested
+	private HttpHeaders headers = null;
 	final private List< Cookie > setCookies = new ArrayList<>();
 
 	final private Map< String, String > cookies = new HashMap<>();
@@ -153,7 +158,38 @@ public class HttpMessage {
 		this.content = content;
 	}
 
+	void setHeaders( HttpHeaders headers ) {
+		this.headers = headers;
+	}
+
+	/**
+	 * Sets the file holding the content of this message, when it was too large to be kept in memory.
+	 */
+	public void setContentFile( Path file, long size ) {
+		this.contentFile = file;
+		this.contentFileSize = size;
+	}
+
+	/**
+	 * Returns the file holding the content of this message, or <code>null</code> if the content is in
+	 * memory.
+	 */
+	public Path contentFile() {
+		return contentFile;
+	}
+
+	public long contentFileSize() {
+		return contentFileSize;
+	}
+
 	public Collection< Entry< String, String > > properties() {
+		if( headers != null ) {
+			// Properties set explicitly take precedence over received fields
+			final Map< String, String > explicit = new HashMap<>( propMap );
+			headers.copyTo( propMap );
+			propMap.putAll( explicit );
+			headers = null;
+		}
 		return propMap.entrySet();
 	}
 
@@ -170,11 +206,13 @@ public class HttpMessage {
 	}
 
 	public String getProperty( String name ) {
-		return propMap.get( name.toLowerCase() );
+		final String key = name.toLowerCase();
+		final String ret = propMap.get( key );
+		return (ret == null && headers != null) ? headers.get( key ) : ret;
 	}
 
 	public String getPropertyOrEmptyString( String name ) {
-		String ret = propMap.get( name.toLowerCase() );
+		String ret = getProperty( name );
 		return (ret == null) ? "" : ret;
 	}
 
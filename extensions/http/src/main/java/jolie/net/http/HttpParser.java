@@ -23,55 +23,112 @@
 package jolie.net.http;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
 
-import jolie.lang.parse.Scanner;
 import jolie.net.ChannelClosingException;
 
+/**
+ * A parser for HTTP/1.x messages.
+ *
+ * The header of a message is read in bulk and scanned byte by byte, keeping track of lines, until
+ * the empty line that ends it. If the stream supports marks, the bytes read after the end of the
+ * header are given back to the stream, so that the body and any pipelined message can be read from
+ * it. Otherwise, the header is read one byte at a time. Header fields are not turned into strings
+ * until they are looked up (see {@link HttpHeaders}).
+ */
 public class HttpParser {
-	private static final String HTTP = "HTTP";
-	private static final String GET = "GET";
-	private static final String POST = "POST";
-	private static final String PUT = "PUT";
-	private static final String HEAD = "HEAD";
-	private static final String DELETE = "DELETE";
-	// private static final String TRACE = "TRACE";
-	// private static final String CONNECT = "CONNECT";
-	private static final String OPTIONS = "OPTIONS";
-	private static final String PATCH = "PATCH";
+	private static final byte[] HTTP = { 'h', 't', 't', 'p' };
+	private static final byte[][] METHODS = {
+		{ 'G', 'E', 'T' },
+		{ 'P', 'O', 'S', 'T' },
+		{ 'H', 'E', 'A', 'D' },
+		{ 'D', 'E', 'L', 'E', 'T', 'E' },
+		{ 'P', 'U', 'T' },
+		{ 'P', 'A', 'T', 'C', 'H' },
+		{ 'O', 'P', 'T', 'I', 'O', 'N', 'S' }
+		// TRACE and CONNECT are not supported
+	};
+	private static final HttpMessage.Type[] METHOD_TYPES = {
+		HttpMessage.Type.GET,
+		HttpMessage.Type.POST,
+		HttpMessage.Type.HEAD,
+		HttpMessage.Type.DELETE,
+		HttpMessage.Type.PUT,
+		HttpMessage.Type.PATCH,
+		HttpMessage.Type.OPTIONS
+	};
+	private static final byte[] COOKIE = { 'c', 'o', 'o', 'k', 'i', 'e' };
+	private static final byte[] SET_COOKIE = { 's', 'e', 't', '-', 'c', 'o', 'o', 'k', 'i', 'e' };
+	private static final byte[] USER_AGENT = { 'u', 's', 'e', 'r', '-', 'a', 'g', 'e', 'n', 't' };
 
 	private static final Pattern COOKIES_SPLIT_PATTERN = Pattern.compile( ";" );
 	private static final Pattern COOKIE_NAME_VALUE_SPLIT_PATTERN = Pattern.compile( "=" );
 
-	private final HttpScanner scanner;
-	private Scanner.Token token;
+	// Characters allowed in header field names (tchar in RFC 7230)
+	private static final boolean[] TOKEN_CHARS = new boolean[ 128 ];
 
-	private void nextToken()
-		throws IOException {
-		token = scanner.getToken();
+	static {
+		for( char c = '!'; c < 127; c++ ) {
+			TOKEN_CHARS[ c ] = "\"(),/:;<=>?@[\\]{}".indexOf( c ) < 0;
+		}
 	}
 
+	private static final int HEADER_BUFFER_SIZE = 1024;
+	private static final int LINE_BUFFER_SIZE = 128;
+	private static final int MAX_HEADER_SIZE = 1 << 20; // 1MB
+
+	private final InputStream stream;
+	private final boolean markSupported;
+
+	// The bytes of the section (header, chunk size line or trailer) being read
+	private byte[] buffer = null;
+	private int length;
+	// Scanner state
+	private int scanned;
+	private int lineStart;
+	private boolean hasLines;
+	private int sectionStart;
+
+	// Bodies larger than spoolThreshold are received in a temporary file
+	private final long spoolThreshold;
+	private final Path spoolDirectory;
+	private byte[] content;
+	private long contentSize;
+	private Path contentFile = null;
+	private OutputStream contentFileStream = null;
+	private byte[] spoolBlock = null;
+
 	public HttpParser( InputStream istream )
 		throws IOException {
-		scanner = new HttpScanner( istream );
-		// , URI.create( "urn:network" ) );
+		this( istream, Long.MAX_VALUE, null );
 	}
 
-	private void tokenAssert( Scanner.TokenType type )
+	/**
+	 * Creates a parser that saves the bodies larger than the given threshold to temporary files, which
+	 * are then available through {@link HttpMessage#contentFile()}.
+	 *
+	 * @param istream the stream to read from
+	 * @param spoolThreshold the maximum size of the bodies kept in memory
+	 * @param spoolDirectory the directory of the temporary files, or <code>null</code> for the default
+	 *        one
+	 */
+	public HttpParser( InputStream istream, long spoolThreshold, Path spoolDirectory )
 		throws IOException {
-		if( token.isNot( type ) )
-			throwException();
+		this.stream = istream;
+		this.markSupported = istream.markSupported();
+		this.spoolThreshold = spoolThreshold;
+		this.spoolDirectory = spoolDirectory;
 	}
 
 	private void throwException()
@@ -79,41 +136,226 @@ public class HttpParser {
 		throw new IOException( "Malformed HTTP header" );
 	}
 
-	private void parseHeaderProperties( HttpMessage message )
+	/*
+	 * Scans the bytes read so far. Returns the position after the end of the section, or -1 if the
+	 * section is not complete. A header ends with an empty line, anything else with the first line that
+	 * is not empty. Empty lines before a section are skipped if skipEmptyLines is true.
+	 */
+	private int scan( boolean header, boolean skipEmptyLines ) {
+		final byte[] b = buffer;
+		int i = scanned;
+		while( i < length ) {
+			if( b[ i++ ] == '\n' ) {
+				if( !isEmptyLine( lineStart, i - 1 ) ) {
+					hasLines = true;
+					lineStart = i;
+					if( !header ) {
+						scanned = i;
+						return i;
+					}
+				} else if( hasLines || !skipEmptyLines ) {
+					scanned = i;
+					return i;
+				} else {
+					lineStart = i;
+					sectionStart = i;
+				}
+			}
+		}
+		scanned = i;
+		return -1;
+	}
+
+	/*
+	 * Reads a section in buffer, without consuming any byte after it from the stream. Returns the
+	 * position after the end of the section.
+	 */
+	private int readSection( boolean header, boolean skipEmptyLines )
 		throws IOException {
-		String name, value;
-		nextToken();
-		HttpMessage.Cookie cookie;
-		while( token.is( Scanner.TokenType.ID ) ) {
-			name = token.content().toLowerCase();
-			nextToken();
-			tokenAssert( Scanner.TokenType.COLON );
-			value = scanner.readLine();
-			switch( name ) {
-			case "set-cookie":
-				// cookie = parseSetCookie( value );
-				if( (cookie = parseSetCookie( value )) != null ) {
-					message.addSetCookie( cookie );
+		length = 0;
+		scanned = 0;
+		lineStart = 0;
+		hasLines = false;
+		sectionStart = 0;
+		int end = -1;
+		while( end < 0 ) {
+			if( length == buffer.length ) {
+				if( length >= MAX_HEADER_SIZE ) {
+					throw new IOException(
+						"HTTP header exceeds maximum allowed size (" + MAX_HEADER_SIZE + " bytes)" );
+				}
+				buffer = Arrays.copyOf( buffer, Math.min( length * 2, MAX_HEADER_SIZE ) );
+			}
+			if( markSupported ) {
+				final int room = buffer.length - length;
+				stream.mark( room );
+				final int r = stream.read( buffer, length, room );
+				if( r == -1 ) {
+					throwEOF( header && skipEmptyLines );
+				}
+				length += r;
+				end = scan( header, skipEmptyLines );
+				if( end >= 0 ) {
+					// Give back what follows the section
+					stream.reset();
+					skipFully( end - (length - r) );
+					length = end;
+				}
+			} else {
+				final int b = stream.read();
+				if( b == -1 ) {
+					throwEOF( header && skipEmptyLines );
+				}
+				buffer[ length++ ] = (byte) b;
+				end = scan( header, skipEmptyLines );
+			}
+		}
+		return end;
+	}
+
+	private void throwEOF( boolean messageStart )
+		throws IOException {
+		if( messageStart && !hasLines && isEmptyLine( lineStart, length ) ) {
+			// It's not a real message, the client is just closing a connection.
+			throw new ChannelClosingException( "[http] Remote host closed connection." );
+		}
+		throw new EOFException();
+	}
+
+	private boolean isEmptyLine( int start, int end ) {
+		return end == start || (end == start + 1 && buffer[ start ] == '\r');
+	}
+
+	private void skipFully( int n )
+		throws IOException {
+		while( n > 0 ) {
+			final long s = stream.skip( n );
+			if( s <= 0 ) {
+				throw new EOFException();
+			}
+			n -= s;
+		}
+	}
+
+	/*
+	 * Skips the line breaks that some clients send after a message, if they have been received already.
+	 */
+	private void skipLineBreaks()
+		throws IOException {
+		if( markSupported ) {
+			while( stream.available() > 0 ) {
+				stream.mark( 1 );
+				final int b = stream.read();
+				if( b != '\r' && b != '\n' ) {
+					stream.reset();
+					return;
 				}
+			}
+		}
+	}
+
+	// Returns the end of the line starting at the given position, excluding CR-LF
+	private int lineEnd( int start ) {
+		int i = start;
+		while( buffer[ i ] != '\n' ) {
+			i++;
+		}
+		return (i > start && buffer[ i - 1 ] == '\r') ? i - 1 : i;
+	}
+
+	// Returns the position after the line ending at the given position
+	private int nextLine( int lineEnd ) {
+		return buffer[ lineEnd ] == '\r' ? lineEnd + 2 : lineEnd + 1;
+	}
+
+	private static boolean isWhitespace( byte b ) {
+		return b == ' ' || b == '\t';
+	}
+
+	private static boolean isTokenChar( byte b ) {
+		return b >= 0 && TOKEN_CHARS[ b ];
+	}
+
+	private boolean regionEquals( int start, int end, byte[] name ) {
+		if( end - start != name.length ) {
+			return false;
+		}
+		for( int i = 0; i < name.length; i++ ) {
+			if( buffer[ start + i ] != name[ i ] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean regionEqualsIgnoreCase( int start, int end, byte[] lowerCaseName ) {
+		if( end - start != lowerCaseName.length ) {
+			return false;
+		}
+		for( int i = 0; i < lowerCaseName.length; i++ ) {
+			if( HttpHeaders.toLowerCase( buffer[ start + i ] ) != lowerCaseName[ i ] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String string( int start, int end ) {
+		return new String( buffer, start, end - start, StandardCharsets.ISO_8859_1 );
+	}
+
+	/*
+	 * Parses the header fields in the lines from start to end. Fields are added to the given view if it
+	 * is not null, otherwise they are set as properties of the message.
+	 */
+	private void parseHeaderFields( HttpMessage message, int start, int end, HttpHeaders fields )
+		throws IOException {
+		int lineStart = start;
+		while( lineStart < end ) {
+			final int lineEnd = lineEnd( lineStart );
+			if( lineEnd == lineStart ) {
 				break;
-			case "cookie":
-				String[] ss = value.split( ";" );
+			}
+			int colon = lineStart;
+			while( colon < lineEnd && isTokenChar( buffer[ colon ] ) ) {
+				colon++;
+			}
+			if( colon == lineStart || colon == lineEnd || buffer[ colon ] != ':' ) {
+				throwException();
+			}
+			int valueStart = colon + 1;
+			while( valueStart < lineEnd && isWhitespace( buffer[ valueStart ] ) ) {
+				valueStart++;
+			}
+			int valueEnd = lineEnd;
+			while( valueEnd > valueStart && isWhitespace( buffer[ valueEnd - 1 ] ) ) {
+				valueEnd--;
+			}
+
+			if( regionEqualsIgnoreCase( lineStart, colon, SET_COOKIE ) ) {
+				HttpMessage.Cookie cookie = parseSetCookie( string( valueStart, valueEnd ) );
+				if( cookie != null ) {
+					message.addSetCookie( cookie );
+				}
+			} else if( regionEqualsIgnoreCase( lineStart, colon, COOKIE ) ) {
+				String[] ss = string( valueStart, valueEnd ).split( ";" );
 				for( String s : ss ) {
 					String[] nv = s.trim().split( "=", 2 );
 					if( nv.length > 1 ) {
 						message.addCookie( nv[ 0 ], nv[ 1 ] );
 					}
 				}
-				break;
-			case "user-agent":
-				message.setUserAgent( value );
-				message.setProperty( name, value );
-				break;
-			default:
-				message.setProperty( name, value );
-				break;
+			} else {
+				if( regionEqualsIgnoreCase( lineStart, colon, USER_AGENT ) ) {
+					message.setUserAgent( string( valueStart, valueEnd ) );
+				}
+				if( fields == null ) {
+					message.setProperty( string( lineStart, colon ), string( valueStart, valueEnd ) );
+				} else {
+					fields.add( lineStart, colon, valueStart, valueEnd );
+				}
 			}
-			nextToken();
+			lineStart = nextLine( lineEnd );
 		}
 	}
 
@@ -156,41 +398,46 @@ public class HttpParser {
 		return null;
 	}
 
-	private HttpMessage parseRequest()
+	private int skipWhitespace( int i, int end ) {
+		while( i < end && isWhitespace( buffer[ i ] ) ) {
+			i++;
+		}
+		return i;
+	}
+
+	private int skipWord( int i, int end ) {
+		while( i < end && !isWhitespace( buffer[ i ] ) ) {
+			i++;
+		}
+		return i;
+	}
+
+	private HttpMessage parseRequest( int start, int end )
 		throws IOException {
+		final int methodEnd = skipWord( start, end );
 		HttpMessage message = null;
-		if( token.isKeyword( GET ) ) {
-			message = new HttpMessage( HttpMessage.Type.GET );
-		} else if( token.isKeyword( POST ) ) {
-			message = new HttpMessage( HttpMessage.Type.POST );
-		} else if( token.isKeyword( HEAD ) ) {
-			message = new HttpMessage( HttpMessage.Type.HEAD );
-		} else if( token.isKeyword( DELETE ) ) {
-			message = new HttpMessage( HttpMessage.Type.DELETE );
-		} else if( token.isKeyword( PUT ) ) {
-			message = new HttpMessage( HttpMessage.Type.PUT );
-		} else if( token.isKeyword( PATCH ) ) {
-			message = new HttpMessage( HttpMessage.Type.PATCH );
-		} else if( token.isKeyword( OPTIONS ) ) {
-			message = new HttpMessage( HttpMessage.Type.OPTIONS );
-		} else if( token.is( Scanner.TokenType.EOF ) ) {
-			// It's not a real message, the client is just closing a connection.
-			throw new ChannelClosingException( "[http] Remote host closed connection." );
-		} else {
+		for( int i = 0; i < METHODS.length && message == null; i++ ) {
+			if( regionEquals( start, methodEnd, METHODS[ i ] ) ) {
+				message = new HttpMessage( METHOD_TYPES[ i ] );
+			}
+		}
+		if( message == null ) {
 			throw new UnsupportedMethodException( "Unknown/Unsupported HTTP request type: "
-				+ token.content() + "(" + token.type() + ")" );
+				+ string( start, methodEnd ) );
 		}
 
-		message.setRequestPath( URLDecoder.decode( scanner.readWord(), HttpUtils.URL_DECODER_ENC ) );
+		final int pathStart = skipWhitespace( methodEnd, end );
+		final int pathEnd = skipWord( pathStart, end );
+		message.setRequestPath( URLDecoder.decode( string( pathStart, pathEnd ), HttpUtils.URL_DECODER_ENC ) );
 
-		nextToken();
-		if( !token.isKeywordIgnoreCase( HTTP ) )
+		final int versionStart = skipWhitespace( pathEnd, end );
+		if( !regionEqualsIgnoreCase( versionStart, Math.min( versionStart + HTTP.length, end ), HTTP ) )
 			throw new UnsupportedHttpVersionException( "Invalid HTTP header: expected HTTP version" );
 
-		if( scanner.currentCharacter() != '/' )
+		if( versionStart + HTTP.length == end || buffer[ versionStart + HTTP.length ] != '/' )
 			throw new UnsupportedHttpVersionException( "Expected HTTP version" );
 
-		String version = scanner.readWord();
+		final String version = string( versionStart + HTTP.length + 1, skipWord( versionStart, end ) );
 		if( "1.0".equals( version ) )
 			message.setVersion( HttpMessage.Version.HTTP_1_0 );
 		else if( "1.1".equals( version ) )
@@ -201,33 +448,44 @@ public class HttpParser {
 		return message;
 	}
 
-	private HttpMessage parseMessageType()
-		throws IOException {
-		if( token.isKeywordIgnoreCase( HTTP ) ) {
-			return parseResponse();
-		} else {
-			return parseRequest();
-		}
-	}
-
-	private HttpMessage parseResponse()
+	private HttpMessage parseResponse( int start, int end )
 		throws IOException {
 		HttpMessage message = new HttpMessage( HttpMessage.Type.RESPONSE );
-		if( scanner.currentCharacter() != '/' )
-			throw new IOException( "Expected HTTP version" );
-
-		String version = scanner.readWord();
-		if( !("1.1".equals( version ) || "1.0".equals( version )) )
+		final int versionEnd = skipWord( start, end );
+		final String version = string( start + HTTP.length + 1, versionEnd );
+		if( "1.0".equals( version ) )
+			message.setVersion( HttpMessage.Version.HTTP_1_0 );
+		else if( "1.1".equals( version ) )
+			message.setVersion( HttpMessage.Version.HTTP_1_1 );
+		else
 			throw new IOException( "Unsupported HTTP version specified: " + version );
 
-		nextToken();
-		tokenAssert( Scanner.TokenType.INT );
-		message.setStatusCode( Integer.parseInt( token.content() ) );
-		message.setReason( scanner.readLine() );
+		final int codeStart = skipWhitespace( versionEnd, end );
+		int codeEnd = codeStart;
+		int statusCode = 0;
+		while( codeEnd < end && buffer[ codeEnd ] >= '0' && buffer[ codeEnd ] <= '9' && codeEnd - codeStart < 9 ) {
+			statusCode = statusCode * 10 + buffer[ codeEnd ] - '0';
+			codeEnd++;
+		}
+		if( codeEnd == codeStart || (codeEnd < end && !isWhitespace( buffer[ codeEnd ] )) ) {
+			throwException();
+		}
+		message.setStatusCode( statusCode );
+		message.setReason( codeEnd < end ? string( codeEnd + 1, end ) : "" );
 
 		return message;
 	}
 
+	private HttpMessage parseMessageType( int start, int end )
+		throws IOException {
+		if( end - start > HTTP.length && buffer[ start + HTTP.length ] == '/'
+			&& regionEqualsIgnoreCase( start, start + HTTP.length, HTTP ) ) {
+			return parseResponse( start, end );
+		} else {
+			return parseRequest( start, end );
+		}
+	}
+
 	private static void blockingRead( InputStream stream, byte[] buffer, int offset, int length )
 		throws IOException {
 		int s = 0;
@@ -241,23 +499,175 @@ public class HttpParser {
 	}
 
 	private static final int BLOCK_SIZE = 0x1000; // 4K
+	private static final int SPOOL_BLOCK_SIZE = 0x10000; // 64K
+	private static final int MAX_CONTENT_SIZE = Integer.MAX_VALUE - 8;
+	private static final String SPOOL_FILE_PREFIX = "jolie-http-";
+
+	private Path createSpoolFile()
+		throws IOException {
+		return spoolDirectory == null
+			? Files.createTempFile( SPOOL_FILE_PREFIX, null )
+			: Files.createTempFile( spoolDirectory, SPOOL_FILE_PREFIX, null );
+	}
+
+	// Moves what has been received so far to a temporary file
+	private void startSpooling()
+		throws IOException {
+		contentFile = createSpoolFile();
+		contentFileStream = Files.newOutputStream( contentFile );
+		contentFileStream.write( content, 0, (int) contentSize );
+		content = null;
+	}
 
-	private static byte[] readAll( InputStream stream )
+	private void discardContentFile() {
+		if( contentFile != null ) {
+			try {
+				if( contentFileStream != null ) {
+					contentFileStream.close();
+				}
+				Files.deleteIfExists( contentFile );
+			} catch( IOException e ) {
+				// The file is left behind, nothing else to do
+			}
+			contentFile = null;
+			contentFileStream = null;
+		}
+	}
+
+	// Reads the given number of bytes of the body from source
+	private void readBody( InputStream source, long length )
 		throws IOException {
+		if( contentFile == null && contentSize + length > spoolThreshold ) {
+			startSpooling();
+		}
+		if( contentFile == null ) {
+			if( length > MAX_CONTENT_SIZE - contentSize ) {
+				throw new IOException( "HTTP content is too large" );
+			}
+			final int size = (int) contentSize;
+			if( content.length - size < length ) {
+				content = Arrays.copyOf( content,
+					(int) Math.max( size + length, Math.min( content.length * 2L, MAX_CONTENT_SIZE ) ) );
+			}
+			blockingRead( source, content, size, (int) length );
+		} else {
+			if( spoolBlock == null ) {
+				spoolBlock = new byte[ SPOOL_BLOCK_SIZE ];
+			}
+			long remaining = length;
+			while( remaining > 0 ) {
+				final int r = source.read( spoolBlock, 0, (int) Math.min( remaining, SPOOL_BLOCK_SIZE ) );
+				if( r == -1 ) {
+					throw new EOFException();
+				}
+				contentFileStream.write( spoolBlock, 0, r );
+				remaining -= r;
+			}
+		}
+		contentSize += length;
+	}
+
+	private void readBodyUntilEOF()
+		throws IOException {
+		final byte[] block = new byte[ BLOCK_SIZE ];
 		int r;
-		ByteArrayOutputStream c = new ByteArrayOutputStream();
-		byte[] tmp = new byte[ BLOCK_SIZE ];
-		while( (r = stream.read( tmp, 0, BLOCK_SIZE )) != -1 ) {
-			c.write( tmp, 0, r );
-			tmp = new byte[ BLOCK_SIZE ];
+		while( (r = stream.read( block, 0, BLOCK_SIZE )) != -1 ) {
+			readBody( new ByteArrayInputStream( block, 0, r ), r );
+		}
+	}
+
+	private int parseChunkSize( int start, int end )
+		throws IOException {
+		final int lineEnd = lineEnd( start );
+		long size = 0;
+		int i = start;
+		// the chunk header contains the size in hex format
+		// and could contain additional parameters which we ignore atm
+		while( i < lineEnd && Character.digit( buffer[ i ], 16 ) >= 0 && size <= Integer.MAX_VALUE ) {
+			size = size * 16 + Character.digit( buffer[ i ], 16 );
+			i++;
+		}
+		if( i == start || size > Integer.MAX_VALUE
+			|| (i < lineEnd && buffer[ i ] != ';' && !isWhitespace( buffer[ i ] )) ) {
+			throw new IOException( "Illegal chunk size " + string( start, lineEnd ) );
+		}
+		return (int) size;
+	}
+
+	private void readChunkedContent( HttpMessage message )
+		throws IOException {
+		// Link: http://tools.ietf.org/html/rfc2616#section-3.6.1
+		buffer = new byte[ LINE_BUFFER_SIZE ];
+		int l;
+		do {
+			final int end = readSection( false, true );
+			l = parseChunkSize( sectionStart, end );
+			// reads the real chunk with the specified size, followed by CR-LF (skipped with the next size)
+			if( l > 0 ) {
+				readBody( stream, l );
+			}
+		} while( l > 0 );
+		// parse optional trailer (additional HTTP headers)
+		final int end = readSection( true, false );
+		parseHeaderFields( message, 0, end, null );
+	}
+
+	/*
+	 * Returns the coding of the content, or null if it is not encoded. As before codings could be
+	 * plugged in, anything mentioning deflate or gzip is decoded as such.
+	 */
+	private static ContentEncoder decoder( String contentEncoding )
+		throws IOException {
+		if( contentEncoding == null || contentEncoding.equals( "identity" ) ) {
+			return null;
+		}
+		ContentEncoder encoder = ContentEncoders.forName( contentEncoding );
+		if( encoder == null ) {
+			if( contentEncoding.contains( "deflate" ) ) {
+				encoder = ContentEncoders.forName( "deflate" );
+			} else if( contentEncoding.contains( "gzip" ) ) {
+				encoder = ContentEncoders.forName( "gzip" );
+			}
+		}
+		if( encoder == null ) {
+			throw new UnsupportedEncodingException( "Unrecognized Content-Encoding: " + contentEncoding );
+		}
+		return encoder;
+	}
+
+	private void setContent( HttpMessage message )
+		throws IOException {
+		final String contentEncoding = message.getProperty( "content-encoding" );
+		if( contentFile == null ) {
+			byte[] received = contentSize == content.length ? content : Arrays.copyOf( content, (int) contentSize );
+			final ContentEncoder decoder = decoder( contentEncoding );
+			if( decoder != null ) {
+				received = decoder.decode( received );
+			}
+			message.setContent( received );
+		} else {
+			contentFileStream.close();
+			contentFileStream = null;
+			final ContentEncoder decoder = decoder( contentEncoding );
+			if( decoder != null ) {
+				final Path received = contentFile;
+				contentFile = createSpoolFile();
+				try( InputStream decoded = decoder.decode( Files.newInputStream( received ) ) ) {
+					contentSize = Files.copy( decoded, contentFile, StandardCopyOption.REPLACE_EXISTING );
+				} finally {
+					Files.deleteIfExists( received );
+				}
+			}
+			// The file belongs to the message from now on
+			message.setContentFile( contentFile, contentSize );
+			contentFile = null;
 		}
-		return c.toByteArray();
 	}
 
 	private void readContent( HttpMessage message )
 		throws IOException {
 		boolean chunked = false;
-		int contentLength = -1;
+		long contentLength = -1;
 
 		String p = message.getProperty( "transfer-encoding" );
 
@@ -268,7 +678,7 @@ public class HttpParser {
 			p = message.getProperty( "content-length" );
 			if( p != null && !p.isEmpty() ) {
 				try {
-					contentLength = Integer.parseInt( p );
+					contentLength = Long.parseLong( p );
 					if( contentLength == 0 ) {
 						message.setContent( new byte[ 0 ] );
 						return;
@@ -279,85 +689,57 @@ public class HttpParser {
 			}
 		}
 
-		byte[] buffer = null;
-		InputStream stream = scanner.inputStream();
-		if( chunked ) {
-			// Link: http://tools.ietf.org/html/rfc2616#section-3.6.1
-			List< byte[] > chunks = new ArrayList<>();
-			int l = -1, totalLen = 0;
-			scanner.readChar();
-			do {
-				// the chunk header contains the size in hex format
-				// and could contain additional parameters which we ignore atm
-				String chunkHeader = scanner.readLine( false );
-				String chunkSize = chunkHeader.split( ";", 2 )[ 0 ];
-				try {
-					l = Integer.parseInt( chunkSize, 16 );
-				} catch( NumberFormatException e ) {
-					throw new IOException( "Illegal chunk size " + chunkSize );
-				}
-				// parses the real chunk with the specified size, follwed by CR-LF
-				if( l > 0 ) {
-					totalLen += l;
-					byte[] chunk = new byte[ l ];
-					blockingRead( stream, chunk, 0, l );
-					chunks.add( chunk );
-					scanner.readChar();
-					scanner.eatSeparators();
-				}
-			} while( l > 0 );
-			// parse optional trailer (additional HTTP headers)
-			parseHeaderProperties( message );
-			ByteBuffer b = ByteBuffer.allocate( totalLen );
-			chunks.forEach( b::put );
-			buffer = b.array();
-		} else if( contentLength > 0 ) {
-			buffer = new byte[ contentLength ];
-			blockingRead( stream, buffer, 0, contentLength );
-		} else if( message.isResponse() ) {
-			// Per https://tools.ietf.org/html/rfc7230#section-3.3.3 payload may only be sent on *responses*
-			// (including the HTTP version header) when there is NO transfer encoding and NO content length
-			// indication.
-			HttpMessage.Version version =
-				(message.version() == null ? HttpMessage.Version.HTTP_1_1 : message.version());
-
-			if( // Will the connection be closed?
-				// HTTP 1.1
-			(version.equals( HttpMessage.Version.HTTP_1_1 )
-				&&
-				message.getPropertyOrEmptyString( "connection" ).equalsIgnoreCase( "close" ))
-				||
-				// HTTP 1.0
-				(version.equals( HttpMessage.Version.HTTP_1_0 )
+		content = new byte[ 0 ];
+		contentSize = 0;
+		try {
+			if( chunked ) {
+				readChunkedContent( message );
+			} else if( contentLength > 0 ) {
+				readBody( stream, contentLength );
+			} else if( message.isResponse() ) {
+				// Per https://tools.ietf.org/html/rfc7230#section-3.3.3 payload may only be sent on *responses*
+				// (including the HTTP version header) when there is NO transfer encoding and NO content length
+				// indication.
+				HttpMessage.Version version =
+					(message.version() == null ? HttpMessage.Version.HTTP_1_1 : message.version());
+
+				if( // Will the connection be closed?
+					// HTTP 1.1
+				(version.equals( HttpMessage.Version.HTTP_1_1 )
 					&&
-					!message.getPropertyOrEmptyString( "connection" ).equalsIgnoreCase( "keep-alive" )) ) {
-				buffer = readAll( scanner.inputStream() );
-			}
-		}
-
-		if( buffer != null ) {
-			p = message.getProperty( "content-encoding" );
-			if( p != null ) {
-				if( p.contains( "deflate" ) ) {
-					buffer = readAll( new InflaterInputStream( new ByteArrayInputStream( buffer ) ) );
-				} else if( p.contains( "gzip" ) ) {
-					buffer = readAll( new GZIPInputStream( new ByteArrayInputStream( buffer ) ) );
-				} else if( !p.equals( "identity" ) ) {
-					throw new UnsupportedEncodingException( "Unrecognized Content-Encoding: " + p );
+					message.getPropertyOrEmptyString( "connection" ).equalsIgnoreCase( "close" ))
+					||
+					// HTTP 1.0
+					(version.equals( HttpMessage.Version.HTTP_1_0 )
+						&&
+						!message.getPropertyOrEmptyString( "connection" ).equalsIgnoreCase( "keep-alive" )) ) {
+					readBodyUntilEOF();
+				} else {
+					return;
 				}
+			} else {
+				return;
 			}
-
-			message.setContent( buffer );
+			setContent( message );
+		} catch( IOException e ) {
+			discardContentFile();
+			throw e;
 		}
 	}
 
 	public HttpMessage parse()
 		throws IOException {
-		nextToken();
-		HttpMessage message = parseMessageType();
-		parseHeaderProperties( message );
+		buffer = new byte[ HEADER_BUFFER_SIZE ];
+		final int end = readSection( true, true );
+		final int start = sectionStart;
+		final int startLineEnd = lineEnd( start );
+		HttpMessage message = parseMessageType( start, startLineEnd );
+		// The view keeps the buffer, which is not reused
+		HttpHeaders fields = new HttpHeaders( buffer );
+		parseHeaderFields( message, nextLine( startLineEnd ), end, fields );
+		message.setHeaders( fields );
 		readContent( message );
-		scanner.eatSeparatorsUntilEOF();
+		skipLineBreaks();
 		return message;
 	}
 }
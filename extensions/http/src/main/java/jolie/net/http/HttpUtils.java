@@ -26,11 +26,8 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.ByteArrayOutputStream;
 
 import java.nio.charset.StandardCharsets;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPOutputStream;
 
 import jolie.net.CommChannel;
 import jolie.net.CommMessage;
@@ -171,22 +168,26 @@ public class HttpUtils {
 
 	public static ByteArray encode( String encoding, ByteArray content, StringBuilder headerBuilder )
 		throws IOException {
-		// RFC 7231 section-5.3.4 introduced the "*" (any) option, we opt for gzip as a sane default
-		if( encoding.contains( "gzip" ) || encoding.contains( "*" ) ) {
-			ByteArrayOutputStream baOutStream = new ByteArrayOutputStream();
-			GZIPOutputStream outStream = new GZIPOutputStream( baOutStream );
-			outStream.write( content.getBytes() );
-			outStream.close();
-			content = new ByteArray( baOutStream.toByteArray() );
-			headerBuilder.append( "Content-Encoding: gzip" ).append( HttpUtils.CRLF );
-		} else if( encoding.contains( "deflate" ) ) {
-			ByteArrayOutputStream baOutStream = new ByteArrayOutputStream();
-			DeflaterOutputStream outStream = new DeflaterOutputStream( baOutStream );
-			outStream.write( content.getBytes() );
-			outStream.close();
-			content = new ByteArray( baOutStream.toByteArray() );
-			headerBuilder.append( "Content-Encoding: deflate" ).append( HttpUtils.CRLF );
+		// RFC 7231 section-5.3.4 introduced the "*" (any) option, we opt for the preferred coding
+		return encode( ContentEncoders.negotiate( encoding ), null, content, headerBuilder );
+	}
+
+	/**
+	 * Encodes the content with the given coding, and appends the matching Content-Encoding header.
+	 *
+	 * @param encoder the coding to use, or <code>null</code> to leave the content unchanged
+	 * @param cache the cache of encoded contents to use, possibly <code>null</code>
+	 */
+	public static ByteArray encode( ContentEncoder encoder, CompressionCache cache, ByteArray content,
+		StringBuilder headerBuilder )
+		throws IOException {
+		if( encoder == null ) {
+			return content;
 		}
-		return content;
+		final byte[] encoded = cache == null
+			? encoder.encode( content.getBytes() )
+			: cache.encode( encoder, content.getBytes() );
+		headerBuilder.append( "Content-Encoding: " ).append( encoder.name() ).append( HttpUtils.CRLF );
+		return new ByteArray( encoded );
 	}
 }
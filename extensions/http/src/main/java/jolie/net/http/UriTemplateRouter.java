@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import jolie.Interpreter;
+import jolie.runtime.Value;
+import jolie.runtime.ValueVector;
+import jolie.uri.UriUtils;
+
+/**
+ * Routes requests to the operations whose URI template and method match them, as configured by the
+ * "template" and "method" parameters in "osc".
+ *
+ * Templates made of literal path segments and of segments that are a single variable, like
+ * <code>/orders/{id}/items</code>, are compiled into a trie of path segments, so a request is routed
+ * in time proportional to the length of its path rather than to the number of operations. Literal
+ * segments take precedence over variables. Any other template is matched with a regular expression
+ * compiled once, after the trie has been searched.
+ */
+public final class UriTemplateRouter {
+	private static final String TEMPLATE = "template";
+	private static final String METHOD = "method";
+	private static final Pattern VARIABLE_SEGMENT = Pattern.compile( "\\{[A-Za-z0-9_]+\\}" );
+
+	/**
+	 * The result of routing a request.
+	 */
+	public static final class Match {
+		private final String operationName;
+		private final String[] variables;
+		private final String[] values;
+
+		private Match( String operationName, String[] variables, String[] values ) {
+			this.operationName = operationName;
+			this.variables = variables;
+			this.values = values;
+		}
+
+		public String operationName() {
+			return operationName;
+		}
+
+		/**
+		 * Sets the variables captured from the URI as children of the given value.
+		 */
+		public void bindVariables( Value value ) {
+			for( int i = 0; i < variables.length; i++ ) {
+				value.getFirstChild( variables[ i ] ).setValue( values[ i ] );
+			}
+		}
+	}
+
+	private static final class Route {
+		private final String operationName;
+		private final String method;
+		private final String[] variables;
+		// Set for the templates that are not compiled into the trie
+		private final Function< String, Value > matcher;
+
+		private Route( String operationName, String method, String[] variables, Function< String, Value > matcher ) {
+			this.operationName = operationName;
+			this.method = method;
+			this.variables = variables;
+			this.matcher = matcher;
+		}
+	}
+
+	private static final class Node {
+		private final Map< String, Node > literals = new HashMap<>();
+		private Node variable = null;
+		// Routes ending at this node, by upper case method
+		private final Map< String, Route > routes = new HashMap<>();
+	}
+
+	private final Node root = new Node();
+	private final List< Route > matcherRoutes = new ArrayList<>();
+
+	/**
+	 * Compiles the routes in the given operation specific configuration.
+	 *
+	 * @param configuration the value of the "osc" parameter
+	 */
+	public UriTemplateRouter( Value configuration ) {
+		for( Entry< String, ValueVector > entry : configuration.children().entrySet() ) {
+			final Value opConfig = entry.getValue().first();
+			if( opConfig.hasChildren( TEMPLATE ) ) {
+				add( entry.getKey(), opConfig.getFirstChild( TEMPLATE ).strValue(),
+					opConfig.firstChildOrDefault( METHOD, Value::strValue, "" ) );
+			}
+		}
+	}
+
+	private void add( String operationName, String template, String method ) {
+		final String[] segments = template.split( "/", -1 );
+		final List< String > variables = new ArrayList<>();
+		boolean compilable = true;
+		for( String segment : segments ) {
+			if( VARIABLE_SEGMENT.matcher( segment ).matches() ) {
+				variables.add( segment.substring( 1, segment.length() - 1 ) );
+			} else if( segment.indexOf( '{' ) >= 0 || segment.indexOf( '}' ) >= 0 ) {
+				compilable = false;
+			}
+		}
+
+		if( compilable ) {
+			final Route route = new Route( operationName, method, variables.toArray( new String[ 0 ] ), null );
+			Node node = root;
+			for( String segment : segments ) {
+				if( VARIABLE_SEGMENT.matcher( segment ).matches() ) {
+					if( node.variable == null ) {
+						node.variable = new Node();
+					}
+					node = node.variable;
+				} else {
+					node = node.literals.computeIfAbsent( segment, k -> new Node() );
+				}
+			}
+			// As with a linear search, the first operation with a template and method wins
+			node.routes.putIfAbsent( method.toUpperCase( Locale.ROOT ), route );
+		} else {
+			Function< String, Value > matcher;
+			try {
+				matcher = UriUtils.matcher( template );
+			} catch( RuntimeException e ) {
+				Interpreter.getInstance().logWarning( "Invalid URI template for operation " + operationName + ": "
+					+ template + " (" + e.getMessage() + ")" );
+				matcher = uri -> Value.create( false );
+			}
+			matcherRoutes.add( new Route( operationName, method, null, matcher ) );
+		}
+	}
+
+	/**
+	 * Finds the operation for a request.
+	 *
+	 * @param method the method of the request
+	 * @param uri the path of the request, without the query string
+	 * @return the match, or <code>null</code> if no operation matches the request
+	 */
+	public Match route( String method, String uri ) {
+		final String[] segments = uri.split( "/", -1 );
+		final String[] values = new String[ segments.length ];
+		final Route route = find( root, segments, 0, method.toUpperCase( Locale.ROOT ), values, 0 );
+		if( route != null ) {
+			final String[] captured = new String[ route.variables.length ];
+			System.arraycopy( values, 0, captured, 0, captured.length );
+			return new Match( route.operationName, route.variables, captured );
+		}
+
+		for( Route r : matcherRoutes ) {
+			if( method.equalsIgnoreCase( r.method ) ) {
+				final Value result = r.matcher.apply( uri );
+				if( result.boolValue() ) {
+					final Map< String, ValueVector > children = result.children();
+					final String[] variables = new String[ children.size() ];
+					final String[] variableValues = new String[ children.size() ];
+					int i = 0;
+					for( Entry< String, ValueVector > entry : children.entrySet() ) {
+						variables[ i ] = entry.getKey();
+						variableValues[ i++ ] = entry.getValue().first().strValue();
+					}
+					return new Match( r.operationName, variables, variableValues );
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Route find( Node node, String[] segments, int index, String method, String[] values,
+		int captured ) {
+		if( index == segments.length ) {
+			return node.routes.get( method );
+		}
+		final String segment = segments[ index ];
+		final Node literal = node.literals.get( segment );
+		if( literal != null ) {
+			final Route route = find( literal, segments, index + 1, method, values, captured );
+			if( route != null ) {
+				return route;
+			}
+		}
+		if( node.variable != null && !segment.isEmpty() ) {
+			values[ captured ] = segment;
+			return find( node.variable, segments, index + 1, method, values, captured + 1 );
+		}
+		return null;
+	}
+}
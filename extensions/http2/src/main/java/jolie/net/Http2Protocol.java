@@ -0,0 +1,1163 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jolie.Interpreter;
+import jolie.net.http2.HpackDecoder;
+import jolie.net.http2.HpackEncoder;
+import jolie.net.http2.Http1Message;
+import jolie.net.http2.Http2;
+import jolie.net.http2.Http2Exception;
+import jolie.net.protocols.CommProtocol;
+import jolie.net.protocols.ConcurrentCommProtocol;
+import jolie.runtime.FaultException;
+import jolie.runtime.Value;
+import jolie.runtime.VariablePath;
+
+/**
+ * The HTTP/2 protocol (RFC 7540), over cleartext connections (h2c) or TLS. The content of every
+ * stream is encoded and decoded by an instance of the http protocol, which sees the stream as an
+ * HTTP/1.1 exchange: all the parameters of http (format, osc, templates, ...) apply to http2 too.
+ *
+ * An input port accepts connections that start with the HTTP/2 preface (prior knowledge) or that
+ * upgrade from HTTP/1.1 with "Upgrade: h2c", and serves any other connection with HTTP/1.1. The
+ * requests of a connection are dispatched as separate messages, each through its own
+ * {@link Http2StreamChannel}, so they are served concurrently. An output port starts its connections
+ * with the preface and sends each request on a new stream.
+ */
+public class Http2Protocol extends ConcurrentCommProtocol {
+	private static final int LOCAL_WINDOW_SIZE = 1 << 20;
+	private static final int LOCAL_MAX_FRAME_SIZE = Http2.DEFAULT_MAX_FRAME_SIZE;
+	private static final int MAX_HEADER_LIST_SIZE = 1024 * 1024;
+	private static final int MAX_UPGRADE_HEADER_SIZE = 64 * 1024;
+	private static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+	private static final int MAX_IDLE_DELEGATES = 16;
+
+	public static class Parameters {
+		public static final String MAX_CONCURRENT_STREAMS = "maxConcurrentStreams";
+		public static final String TLS = "tls";
+	}
+
+	/**
+	 * Creates the http protocol instances that encode and decode the content of streams.
+	 */
+	@FunctionalInterface
+	public interface DelegateFactory {
+		CommProtocol create()
+			throws IOException;
+	}
+
+	private enum Mode {
+		UNKNOWN, HTTP1, HTTP2
+	}
+
+	static final class Stream {
+		private final int id;
+		private CommProtocol delegate = null;
+		private List< Map.Entry< String, String > > fields = null;
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		private boolean remoteClosed = false;
+		private int unacknowledged = 0;
+		private long sendWindow;
+		// DATA that is waiting for the flow control windows
+		private byte[] pendingData = null;
+		private int pendingOffset = 0;
+		// In input ports: the request, as decoded by the delegate or as an HTTP/1.1 message
+		private CommMessage message = null;
+		private byte[] request = null;
+		// In input ports: the HTTP/1.1 error response to send instead of a response to the request
+		private byte[] errorResponse = null;
+		// In output ports: the request this stream carries
+		private long requestId;
+		private String operationName;
+		private String error = null;
+
+		private Stream( int id, long sendWindow ) {
+			this.id = id;
+			this.sendWindow = sendWindow;
+		}
+	}
+
+	private final boolean inInputPort;
+	private final boolean secure;
+	private final DelegateFactory delegateFactory;
+	private final Deque< CommProtocol > idleDelegates = new ArrayDeque<>();
+
+	private final Map< Integer, Stream > streams = new HashMap<>();
+	private final List< Stream > blockedStreams = new ArrayList<>();
+	// In output ports: the streams whose response has been received
+	private final Deque< Stream > completedStreams = new ArrayDeque<>();
+	private final HpackDecoder decoder = new HpackDecoder( 4096, MAX_HEADER_LIST_SIZE );
+	private final HpackEncoder encoder = new HpackEncoder();
+
+	private Mode mode;
+	private CommProtocol http1Delegate = null;
+	private boolean prefaceExpected = false;
+	private boolean prefaceSent = false;
+	private boolean goingAway = false;
+	private boolean flushNeeded = false;
+	// The highest stream opened by the peer (input ports) or by us (output ports)
+	private int lastStreamId = 0;
+	private int maxConcurrentStreams = DEFAULT_MAX_CONCURRENT_STREAMS;
+
+	private int peerInitialWindowSize = Http2.DEFAULT_WINDOW_SIZE;
+	private int peerMaxFrameSize = Http2.DEFAULT_MAX_FRAME_SIZE;
+	private long sendWindow = Http2.DEFAULT_WINDOW_SIZE;
+	private int unacknowledged = 0;
+
+	// The header block being received in HEADERS and CONTINUATION frames
+	private final ByteArrayOutputStream headerBlock = new ByteArrayOutputStream();
+	private int headerBlockStreamId = 0;
+	private boolean headerBlockEndsStream = false;
+
+	/**
+	 * @param configurationPath the configuration of the protocol, shared with its delegates
+	 * @param inInputPort <code>true</code> if the protocol is used by an input port
+	 * @param secure <code>true</code> if the connection uses TLS
+	 * @param delegateFactory creates the http protocol instances handling the content of streams
+	 */
+	public Http2Protocol( VariablePath configurationPath, boolean inInputPort, boolean secure,
+		DelegateFactory delegateFactory ) {
+		super( configurationPath );
+		this.inInputPort = inInputPort;
+		this.secure = secure;
+		this.delegateFactory = delegateFactory;
+		this.mode = inInputPort ? Mode.UNKNOWN : Mode.HTTP2;
+	}
+
+	@Override
+	public String name() {
+		return "http2";
+	}
+
+	private CommProtocol acquireDelegate( CommChannel channel )
+		throws IOException {
+		CommProtocol delegate;
+		synchronized( idleDelegates ) {
+			delegate = idleDelegates.poll();
+		}
+		if( delegate == null ) {
+			delegate = delegateFactory.create();
+		}
+		delegate.setChannel( channel );
+		return delegate;
+	}
+
+	private void releaseDelegate( CommProtocol delegate ) {
+		synchronized( idleDelegates ) {
+			if( idleDelegates.size() < MAX_IDLE_DELEGATES ) {
+				idleDelegates.push( delegate );
+			}
+		}
+	}
+
+	@Override
+	public CommMessage recv( InputStream istream, OutputStream ostream )
+		throws IOException {
+		if( !inInputPort ) {
+			return recvResponse( istream, ostream );
+		}
+
+		// Whether a frame can be read, without waiting for a peer that has nothing to send
+		boolean frameAvailable = true;
+		if( mode == Mode.UNKNOWN ) {
+			final byte[] start = readConnectionStart( istream );
+			if( start == null ) {
+				mode = Mode.HTTP2;
+				synchronized( this ) {
+					writeSettings( ostream );
+				}
+			} else {
+				final String settings = secure ? null : getUpgradeSettings( start );
+				if( settings == null ) {
+					mode = Mode.HTTP1;
+					http1Delegate = acquireDelegate( channel() );
+					return http1Delegate.recv( new SequenceInputStream( new ByteArrayInputStream( start ), istream ),
+						ostream );
+				}
+				upgrade( start, settings, istream, ostream );
+			}
+			frameAvailable = istream.available() > 0;
+		} else if( mode == Mode.HTTP1 ) {
+			return http1Delegate.recv( istream, ostream );
+		}
+
+		try {
+			while( frameAvailable ) {
+				if( prefaceExpected ) {
+					readPreface( istream );
+				} else {
+					readFrame( istream, ostream );
+				}
+				frameAvailable = istream.available() > 0;
+			}
+		} catch( Http2Exception e ) {
+			goAway( e.errorCode(), ostream );
+			throw e;
+		} finally {
+			flush( ostream );
+		}
+		// Requests are dispatched through the channels of their streams
+		return null;
+	}
+
+	/*
+	 * Reads the beginning of a new connection. Returns null if it is the HTTP/2 preface, or the bytes
+	 * read so far, which include the header of the first HTTP/1.1 request, otherwise.
+	 */
+	private static byte[] readConnectionStart( InputStream istream )
+		throws IOException {
+		final ByteArrayOutputStream start = new ByteArrayOutputStream();
+		// The preface is not a valid HTTP/1.1 request, so they differ before its end
+		boolean preface = true;
+		while( preface && start.size() < Http2.PREFACE.length ) {
+			final int b = istream.read();
+			if( b < 0 ) {
+				if( start.size() == 0 ) {
+					throw new ChannelClosingException( "[http2] Remote host closed connection." );
+				}
+				return start.toByteArray();
+			}
+			preface = b == Http2.PREFACE[ start.size() ];
+			start.write( b );
+		}
+		if( preface ) {
+			return null;
+		}
+
+		// Read up to the end of the header, so that an upgrade request can be recognised
+		byte[] bytes = start.toByteArray();
+		int last = 0;
+		for( byte b : bytes ) {
+			last = (last << 8) | (b & 0xFF);
+		}
+		while( last != 0x0D0A0D0A && (last & 0xFFFF) != 0x0A0A && start.size() < MAX_UPGRADE_HEADER_SIZE ) {
+			final int b = istream.read();
+			if( b < 0 ) {
+				break;
+			}
+			start.write( b );
+			last = (last << 8) | b;
+		}
+		return start.toByteArray();
+	}
+
+	/*
+	 * Returns the value of the HTTP2-Settings header if the given request header asks to upgrade to
+	 * h2c, null otherwise.
+	 */
+	private static String getUpgradeSettings( byte[] header ) {
+		boolean upgrade = false;
+		String settings = null;
+		for( String line : new String( header, StandardCharsets.ISO_8859_1 ).split( "\r?\n" ) ) {
+			final int colon = line.indexOf( ':' );
+			if( colon > 0 ) {
+				final String name = line.substring( 0, colon ).trim();
+				final String value = line.substring( colon + 1 ).trim();
+				if( name.equalsIgnoreCase( "upgrade" ) ) {
+					for( String protocol : value.split( "," ) ) {
+						upgrade |= protocol.trim().equalsIgnoreCase( "h2c" );
+					}
+				} else if( name.equalsIgnoreCase( "http2-settings" ) ) {
+					settings = value;
+				}
+			}
+		}
+		return upgrade ? settings : null;
+	}
+
+	/*
+	 * Switches to HTTP/2 in response to an upgrade request, which becomes stream 1.
+	 */
+	private void upgrade( byte[] header, String settings, InputStream istream, OutputStream ostream )
+		throws IOException {
+		final byte[] payload;
+		try {
+			payload = Base64.getUrlDecoder().decode( settings );
+		} catch( IllegalArgumentException e ) {
+			throw new IOException( "[http2] Invalid HTTP2-Settings header", e );
+		}
+		ostream.write( "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+			.getBytes( StandardCharsets.ISO_8859_1 ) );
+		mode = Mode.HTTP2;
+		prefaceExpected = true;
+		final Stream stream;
+		synchronized( this ) {
+			writeSettings( ostream );
+			// The settings of the client are acknowledged by the 101 response
+			applySettings( payload );
+			lastStreamId = 1;
+			stream = new Stream( 1, peerInitialWindowSize );
+			stream.remoteClosed = true;
+			streams.put( stream.id, stream );
+		}
+		flush( ostream );
+
+		// The request is read by its delegate right away, as its body follows in the connection
+		final Http2StreamChannel streamChannel = new Http2StreamChannel( this, channel(), stream );
+		stream.delegate = acquireDelegate( streamChannel );
+		final ByteArrayOutputStream error = new ByteArrayOutputStream();
+		try {
+			stream.message = stream.delegate.recv(
+				new SequenceInputStream( new ByteArrayInputStream( header ), istream ), error );
+		} catch( IOException e ) {
+			Interpreter.getInstance().logSevere( e );
+		}
+		if( stream.message == null ) {
+			releaseDelegate( stream.delegate );
+			synchronized( this ) {
+				writeResponse( stream, error.toByteArray(), ostream );
+			}
+		} else {
+			Interpreter.getInstance().commCore().scheduleReceive( streamChannel, channel().parentInputPort() );
+		}
+	}
+
+	private static void readFully( InputStream istream, byte[] buffer )
+		throws IOException {
+		int read = 0;
+		while( read < buffer.length ) {
+			final int n = istream.read( buffer, read, buffer.length - read );
+			if( n < 0 ) {
+				if( read == 0 ) {
+					throw new ChannelClosingException( "[http2] Remote host closed connection." );
+				}
+				throw new IOException( "[http2] Unexpected end of stream" );
+			}
+			read += n;
+		}
+	}
+
+	private void readPreface( InputStream istream )
+		throws IOException {
+		final byte[] preface = new byte[ Http2.PREFACE.length ];
+		readFully( istream, preface );
+		for( int i = 0; i < preface.length; i++ ) {
+			if( preface[ i ] != Http2.PREFACE[ i ] ) {
+				throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Invalid connection preface" );
+			}
+		}
+		prefaceExpected = false;
+	}
+
+	private void readFrame( InputStream istream, OutputStream ostream )
+		throws IOException {
+		final byte[] header = new byte[ Http2.FRAME_HEADER_LENGTH ];
+		readFully( istream, header );
+		final int length = ((header[ 0 ] & 0xFF) << 16) | ((header[ 1 ] & 0xFF) << 8) | (header[ 2 ] & 0xFF);
+		if( length > LOCAL_MAX_FRAME_SIZE ) {
+			throw new Http2Exception( Http2.ErrorCode.FRAME_SIZE_ERROR, "Frame too large: " + length );
+		}
+		final byte[] payload = new byte[ length ];
+		readFully( istream, payload );
+		synchronized( this ) {
+			processFrame( header[ 3 ] & 0xFF, header[ 4 ] & 0xFF, readInt( header, 5 ) & 0x7FFFFFFF, payload,
+				ostream );
+		}
+	}
+
+	private static int readInt( byte[] data, int offset ) {
+		return ((data[ offset ] & 0xFF) << 24) | ((data[ offset + 1 ] & 0xFF) << 16)
+			| ((data[ offset + 2 ] & 0xFF) << 8) | (data[ offset + 3 ] & 0xFF);
+	}
+
+	// Must be called while holding the monitor of this protocol
+	private void processFrame( int type, int flags, int streamId, byte[] payload, OutputStream ostream )
+		throws IOException {
+		if( headerBlockStreamId != 0 && (type != Http2.FrameType.CONTINUATION || streamId != headerBlockStreamId) ) {
+			throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Expected CONTINUATION frame" );
+		}
+		switch( type ) {
+		case Http2.FrameType.DATA:
+			onData( flags, streamId, payload, ostream );
+			break;
+		case Http2.FrameType.HEADERS:
+			onHeaders( flags, streamId, payload, ostream );
+			break;
+		case Http2.FrameType.CONTINUATION:
+			if( headerBlockStreamId == 0 ) {
+				throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Unexpected CONTINUATION frame" );
+			}
+			appendHeaderBlock( payload, 0, payload.length );
+			if( (flags & Http2.Flags.END_HEADERS) != 0 ) {
+				onHeaderBlock( ostream );
+			}
+			break;
+		case Http2.FrameType.RST_STREAM:
+			checkLength( payload, 4 );
+			onReset( streamId, readInt( payload, 0 ) );
+			break;
+		case Http2.FrameType.SETTINGS:
+			if( streamId != 0 ) {
+				throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "SETTINGS frame on a stream" );
+			}
+			if( (flags & Http2.Flags.ACK) == 0 ) {
+				applySettings( payload );
+				writeFrame( ostream, Http2.FrameType.SETTINGS, Http2.Flags.ACK, 0, new byte[ 0 ], 0, 0 );
+				flushBlockedStreams( ostream );
+			}
+			break;
+		case Http2.FrameType.PING:
+			checkLength( payload, 8 );
+			if( (flags & Http2.Flags.ACK) == 0 ) {
+				writeFrame( ostream, Http2.FrameType.PING, Http2.Flags.ACK, 0, payload, 0, payload.length );
+			}
+			break;
+		case Http2.FrameType.GOAWAY:
+			if( payload.length < 8 ) {
+				throw new Http2Exception( Http2.ErrorCode.FRAME_SIZE_ERROR, "Invalid GOAWAY frame" );
+			}
+			onGoAway( readInt( payload, 0 ) & 0x7FFFFFFF );
+			break;
+		case Http2.FrameType.WINDOW_UPDATE:
+			checkLength( payload, 4 );
+			onWindowUpdate( streamId, readInt( payload, 0 ) & 0x7FFFFFFF, ostream );
+			break;
+		case Http2.FrameType.PUSH_PROMISE:
+			// Push is disabled by our settings, and clients can not push
+			throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Unexpected PUSH_PROMISE frame" );
+		default:
+			// PRIORITY frames and unknown frame types are ignored
+			break;
+		}
+	}
+
+	private static void checkLength( byte[] payload, int length )
+		throws Http2Exception {
+		if( payload.length != length ) {
+			throw new Http2Exception( Http2.ErrorCode.FRAME_SIZE_ERROR, "Invalid frame length: " + payload.length );
+		}
+	}
+
+	// Returns the end of the content of a frame that may be padded, whose content starts at start
+	private static int contentEnd( int flags, byte[] payload, int start )
+		throws Http2Exception {
+		int end = payload.length;
+		if( (flags & Http2.Flags.PADDED) != 0 ) {
+			if( payload.length == 0 ) {
+				throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Invalid padding" );
+			}
+			end -= payload[ 0 ] & 0xFF;
+		}
+		if( end < start ) {
+			throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Invalid padding" );
+		}
+		return end;
+	}
+
+	private void onData( int flags, int streamId, byte[] payload, OutputStream ostream )
+		throws IOException {
+		if( streamId == 0 ) {
+			throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "DATA frame on stream 0" );
+		}
+		final int start = (flags & Http2.Flags.PADDED) != 0 ? 1 : 0;
+		final int end = contentEnd( flags, payload, start );
+		final boolean endStream = (flags & Http2.Flags.END_STREAM) != 0;
+
+		// The whole frame counts for flow control, padding included
+		unacknowledged += payload.length;
+		if( unacknowledged > LOCAL_WINDOW_SIZE ) {
+			throw new Http2Exception( Http2.ErrorCode.FLOW_CONTROL_ERROR, "Connection window exceeded" );
+		} else if( unacknowledged >= LOCAL_WINDOW_SIZE / 2 ) {
+			writeWindowUpdate( ostream, 0, unacknowledged );
+			unacknowledged = 0;
+		}
+
+		final Stream stream = streams.get( streamId );
+		if( stream == null || stream.remoteClosed ) {
+			if( streamId > lastStreamId ) {
+				throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "DATA frame on idle stream " + streamId );
+			}
+			writeReset( ostream, streamId, Http2.ErrorCode.STREAM_CLOSED );
+			return;
+		}
+		stream.body.write( payload, start, end - start );
+		if( endStream ) {
+			onEndOfStream( stream, ostream );
+		} else {
+			stream.unacknowledged += payload.length;
+			if( stream.unacknowledged > LOCAL_WINDOW_SIZE ) {
+				throw new Http2Exception( Http2.ErrorCode.FLOW_CONTROL_ERROR, "Stream window exceeded" );
+			} else if( stream.unacknowledged >= LOCAL_WINDOW_SIZE / 2 ) {
+				writeWindowUpdate( ostream, streamId, stream.unacknowledged );
+				stream.unacknowledged = 0;
+			}
+		}
+	}
+
+	private void onHeaders( int flags, int streamId, byte[] payload, OutputStream ostream )
+		throws IOException {
+		if( streamId == 0 ) {
+			throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "HEADERS frame on stream 0" );
+		}
+		int start = (flags & Http2.Flags.PADDED) != 0 ? 1 : 0;
+		if( (flags & Http2.Flags.PRIORITY) != 0 ) {
+			start += 5;
+		}
+		final int end = contentEnd( flags, payload, start );
+		headerBlock.reset();
+		headerBlockStreamId = streamId;
+		headerBlockEndsStream = (flags & Http2.Flags.END_STREAM) != 0;
+		appendHeaderBlock( payload, start, end - start );
+		if( (flags & Http2.Flags.END_HEADERS) != 0 ) {
+			onHeaderBlock( ostream );
+		}
+	}
+
+	private void appendHeaderBlock( byte[] payload, int offset, int length )
+		throws Http2Exception {
+		if( headerBlock.size() + length > MAX_HEADER_LIST_SIZE ) {
+			throw new Http2Exception( Http2.ErrorCode.ENHANCE_YOUR_CALM, "Header block too large" );
+		}
+		headerBlock.write( payload, offset, length );
+	}
+
+	private void onHeaderBlock( OutputStream ostream )
+		throws IOException {
+		final int streamId = headerBlockStreamId;
+		headerBlockStreamId = 0;
+		// Every block must be decoded, to keep the dynamic table in sync with the peer
+		final List< Map.Entry< String, String > > fields =
+			decoder.decode( headerBlock.toByteArray(), 0, headerBlock.size() );
+
+		Stream stream = streams.get( streamId );
+		if( stream == null ) {
+			if( !inInputPort || streamId % 2 == 0 || streamId <= lastStreamId ) {
+				// A stream that has been closed already, or that the peer can not open
+				if( streamId > lastStreamId ) {
+					throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Invalid stream " + streamId );
+				}
+				writeReset( ostream, streamId, Http2.ErrorCode.STREAM_CLOSED );
+				return;
+			}
+			lastStreamId = streamId;
+			if( goingAway || streams.size() >= maxConcurrentStreams ) {
+				writeReset( ostream, streamId, Http2.ErrorCode.REFUSED_STREAM );
+				return;
+			}
+			stream = new Stream( streamId, peerInitialWindowSize );
+			streams.put( streamId, stream );
+		} else if( stream.remoteClosed ) {
+			writeReset( ostream, streamId, Http2.ErrorCode.STREAM_CLOSED );
+			return;
+		}
+
+		if( stream.fields == null ) {
+			if( !inInputPort && isInformational( fields ) ) {
+				// Interim responses are not passed on
+				return;
+			}
+			stream.fields = fields;
+		}
+		// Otherwise these are trailers, which are ignored
+		if( headerBlockEndsStream ) {
+			onEndOfStream( stream, ostream );
+		}
+	}
+
+	private static boolean isInformational( List< Map.Entry< String, String > > fields ) {
+		for( Map.Entry< String, String > field : fields ) {
+			if( field.getKey().equals( ":status" ) ) {
+				return field.getValue().startsWith( "1" );
+			}
+		}
+		return false;
+	}
+
+	private void onEndOfStream( Stream stream, OutputStream ostream )
+		throws IOException {
+		stream.remoteClosed = true;
+		if( !inInputPort ) {
+			completedStreams.add( stream );
+			return;
+		}
+		stream.request = composeRequest( stream );
+		if( stream.request == null ) {
+			streams.remove( stream.id );
+			writeReset( ostream, stream.id, Http2.ErrorCode.PROTOCOL_ERROR );
+			return;
+		}
+		final Http2StreamChannel streamChannel = new Http2StreamChannel( this, channel(), stream );
+		stream.delegate = acquireDelegate( streamChannel );
+		Interpreter.getInstance().commCore().scheduleReceive( streamChannel, channel().parentInputPort() );
+	}
+
+	private static boolean isConnectionSpecific( String name ) {
+		switch( name ) {
+		case "connection":
+		case "keep-alive":
+		case "proxy-connection":
+		case "transfer-encoding":
+		case "upgrade":
+		case "http2-settings":
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isValidValue( String value ) {
+		for( int i = 0; i < value.length(); i++ ) {
+			final char c = value.charAt( i );
+			if( c == '\r' || c == '\n' || c == '\0' ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Writes the request received on a stream as an HTTP/1.1 request, or returns null if the request
+	 * is malformed.
+	 */
+	private static byte[] composeRequest( Stream stream ) {
+		String method = null;
+		String path = null;
+		String authority = null;
+		boolean hasHost = false;
+		final StringBuilder header = new StringBuilder();
+		final StringBuilder cookie = new StringBuilder();
+		for( Map.Entry< String, String > field : stream.fields ) {
+			final String name = field.getKey();
+			final String value = field.getValue();
+			if( !isValidValue( name ) || !isValidValue( value ) ) {
+				return null;
+			}
+			if( name.startsWith( ":" ) ) {
+				switch( name ) {
+				case ":method":
+					method = value;
+					break;
+				case ":path":
+					path = value;
+					break;
+				case ":authority":
+					authority = value;
+					break;
+				case ":scheme":
+					break;
+				default:
+					return null;
+				}
+			} else if( name.equals( "cookie" ) ) {
+				// Cookies may be split in many fields (RFC 7540, Section 8.1.2.5)
+				cookie.append( cookie.length() == 0 ? "" : "; " ).append( value );
+			} else if( !name.equals( "content-length" ) && !isConnectionSpecific( name ) ) {
+				hasHost |= name.equals( "host" );
+				header.append( name ).append( ": " ).append( value ).append( "\r\n" );
+			}
+		}
+		if( method == null || path == null || path.isEmpty() ) {
+			return null;
+		}
+		header.insert( 0, method + ' ' + path + " HTTP/1.1\r\n" );
+		if( !hasHost && authority != null ) {
+			header.append( "host: " ).append( authority ).append( "\r\n" );
+		}
+		if( cookie.length() > 0 ) {
+			header.append( "cookie: " ).append( cookie ).append( "\r\n" );
+		}
+		header.append( "content-length: " ).append( stream.body.size() ).append( "\r\n\r\n" );
+		final ByteArrayOutputStream request = new ByteArrayOutputStream( header.length() + stream.body.size() );
+		final byte[] bytes = header.toString().getBytes( StandardCharsets.ISO_8859_1 );
+		request.write( bytes, 0, bytes.length );
+		request.write( stream.body.toByteArray(), 0, stream.body.size() );
+		return request.toByteArray();
+	}
+
+	private void onReset( int streamId, int errorCode ) {
+		final Stream stream = streams.remove( streamId );
+		if( stream != null ) {
+			blockedStreams.remove( stream );
+			if( !inInputPort ) {
+				stream.error = "[http2] Stream reset by the server (error code " + errorCode + ")";
+				completedStreams.add( stream );
+			}
+		}
+	}
+
+	private void onGoAway( int lastProcessedStreamId ) {
+		goingAway = true;
+		if( !inInputPort ) {
+			// Requests on the streams that the server did not process can be retried elsewhere
+			streams.values().removeIf( stream -> {
+				if( stream.id > lastProcessedStreamId ) {
+					stream.error = "[http2] Request not processed, the server is closing the connection";
+					blockedStreams.remove( stream );
+					completedStreams.add( stream );
+					return true;
+				}
+				return false;
+			} );
+		}
+	}
+
+	private void onWindowUpdate( int streamId, int increment, OutputStream ostream )
+		throws IOException {
+		if( streamId == 0 ) {
+			if( increment == 0 || sendWindow + increment > Http2.MAX_WINDOW_SIZE ) {
+				throw new Http2Exception( Http2.ErrorCode.FLOW_CONTROL_ERROR, "Invalid connection window update" );
+			}
+			sendWindow += increment;
+			flushBlockedStreams( ostream );
+		} else {
+			final Stream stream = streams.get( streamId );
+			if( stream != null ) {
+				if( increment == 0 || stream.sendWindow + increment > Http2.MAX_WINDOW_SIZE ) {
+					streams.remove( streamId );
+					blockedStreams.remove( stream );
+					writeReset( ostream, streamId, Http2.ErrorCode.FLOW_CONTROL_ERROR );
+				} else {
+					stream.sendWindow += increment;
+					writeData( stream, ostream );
+				}
+			}
+		}
+	}
+
+	private void applySettings( byte[] payload )
+		throws Http2Exception {
+		if( payload.length % 6 != 0 ) {
+			throw new Http2Exception( Http2.ErrorCode.FRAME_SIZE_ERROR, "Invalid SETTINGS frame" );
+		}
+		for( int i = 0; i < payload.length; i += 6 ) {
+			final int id = ((payload[ i ] & 0xFF) << 8) | (payload[ i + 1 ] & 0xFF);
+			final long value = readInt( payload, i + 2 ) & 0xFFFFFFFFL;
+			switch( id ) {
+			case Http2.Setting.ENABLE_PUSH:
+				if( value > 1 ) {
+					throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH" );
+				}
+				break;
+			case Http2.Setting.INITIAL_WINDOW_SIZE:
+				if( value > Http2.MAX_WINDOW_SIZE ) {
+					throw new Http2Exception( Http2.ErrorCode.FLOW_CONTROL_ERROR, "Invalid initial window size" );
+				}
+				final long delta = value - peerInitialWindowSize;
+				for( Stream stream : streams.values() ) {
+					stream.sendWindow += delta;
+				}
+				peerInitialWindowSize = (int) value;
+				break;
+			case Http2.Setting.MAX_FRAME_SIZE:
+				if( value < Http2.DEFAULT_MAX_FRAME_SIZE || value > 0xFFFFFF ) {
+					throw new Http2Exception( Http2.ErrorCode.PROTOCOL_ERROR, "Invalid maximum frame size" );
+				}
+				peerMaxFrameSize = (int) value;
+				break;
+			default:
+				// The dynamic table of our encoder is always empty, the other settings are advisory
+				break;
+			}
+		}
+	}
+
+	// Must be called while holding the monitor of this protocol
+	private void writeSettings( OutputStream ostream )
+		throws IOException {
+		if( inInputPort && hasParameter( Parameters.MAX_CONCURRENT_STREAMS ) ) {
+			maxConcurrentStreams = getIntParameter( Parameters.MAX_CONCURRENT_STREAMS );
+		}
+		final ByteArrayOutputStream settings = new ByteArrayOutputStream();
+		if( inInputPort ) {
+			writeSetting( settings, Http2.Setting.MAX_CONCURRENT_STREAMS, maxConcurrentStreams );
+		} else {
+			writeSetting( settings, Http2.Setting.ENABLE_PUSH, 0 );
+		}
+		writeSetting( settings, Http2.Setting.INITIAL_WINDOW_SIZE, LOCAL_WINDOW_SIZE );
+		writeSetting( settings, Http2.Setting.MAX_HEADER_LIST_SIZE, MAX_HEADER_LIST_SIZE );
+		writeFrame( ostream, Http2.FrameType.SETTINGS, 0, 0, settings.toByteArray(), 0, settings.size() );
+		writeWindowUpdate( ostream, 0, LOCAL_WINDOW_SIZE - Http2.DEFAULT_WINDOW_SIZE );
+	}
+
+	private static void writeSetting( ByteArrayOutputStream settings, int id, int value ) {
+		settings.write( id >>> 8 );
+		settings.write( id );
+		settings.write( value >>> 24 );
+		settings.write( value >>> 16 );
+		settings.write( value >>> 8 );
+		settings.write( value );
+	}
+
+	private void writeFrame( OutputStream ostream, int type, int flags, int streamId, byte[] payload, int offset,
+		int length )
+		throws IOException {
+		// A single write for each frame, which writers of concurrent streams can not interleave
+		final byte[] frame = new byte[ Http2.FRAME_HEADER_LENGTH + length ];
+		frame[ 0 ] = (byte) (length >>> 16);
+		frame[ 1 ] = (byte) (length >>> 8);
+		frame[ 2 ] = (byte) length;
+		frame[ 3 ] = (byte) type;
+		frame[ 4 ] = (byte) flags;
+		frame[ 5 ] = (byte) (streamId >>> 24);
+		frame[ 6 ] = (byte) (streamId >>> 16);
+		frame[ 7 ] = (byte) (streamId >>> 8);
+		frame[ 8 ] = (byte) streamId;
+		System.arraycopy( payload, offset, frame, Http2.FRAME_HEADER_LENGTH, length );
+		ostream.write( frame );
+		flushNeeded = true;
+	}
+
+	private void writeWindowUpdate( OutputStream ostream, int streamId, int increment )
+		throws IOException {
+		final byte[] payload = { (byte) (increment >>> 24), (byte) (increment >>> 16), (byte) (increment >>> 8),
+			(byte) increment };
+		writeFrame( ostream, Http2.FrameType.WINDOW_UPDATE, 0, streamId, payload, 0, payload.length );
+	}
+
+	private void writeReset( OutputStream ostream, int streamId, int errorCode )
+		throws IOException {
+		final byte[] payload = { (byte) (errorCode >>> 24), (byte) (errorCode >>> 16), (byte) (errorCode >>> 8),
+			(byte) errorCode };
+		writeFrame( ostream, Http2.FrameType.RST_STREAM, 0, streamId, payload, 0, payload.length );
+	}
+
+	private void goAway( int errorCode, OutputStream ostream ) {
+		try {
+			synchronized( this ) {
+				final byte[] payload = new byte[ 8 ];
+				for( int i = 0; i < 4; i++ ) {
+					payload[ i ] = (byte) (lastStreamId >>> (24 - 8 * i));
+					payload[ i + 4 ] = (byte) (errorCode >>> (24 - 8 * i));
+				}
+				writeFrame( ostream, Http2.FrameType.GOAWAY, 0, 0, payload, 0, payload.length );
+			}
+			flush( ostream );
+		} catch( IOException e ) {
+			Interpreter.getInstance().logFine( e );
+		}
+	}
+
+	private void flush( OutputStream ostream )
+		throws IOException {
+		final boolean needed;
+		synchronized( this ) {
+			needed = flushNeeded;
+			flushNeeded = false;
+		}
+		if( needed ) {
+			ostream.flush();
+		}
+	}
+
+	// Must be called while holding the monitor of this protocol
+	private void writeHeaders( OutputStream ostream, int streamId, List< Map.Entry< String, String > > fields,
+		boolean endStream )
+		throws IOException {
+		final ByteArrayOutputStream block = new ByteArrayOutputStream();
+		for( Map.Entry< String, String > field : fields ) {
+			encoder.encode( field.getKey(), field.getValue(), block );
+		}
+		final byte[] bytes = block.toByteArray();
+		int offset = 0;
+		do {
+			final int length = Math.min( bytes.length - offset, peerMaxFrameSize );
+			final boolean last = offset + length == bytes.length;
+			int flags = last ? Http2.Flags.END_HEADERS : 0;
+			if( offset == 0 ) {
+				writeFrame( ostream, Http2.FrameType.HEADERS,
+					flags | (endStream ? Http2.Flags.END_STREAM : 0), streamId, bytes, offset, length );
+			} else {
+				writeFrame( ostream, Http2.FrameType.CONTINUATION, flags, streamId, bytes, offset, length );
+			}
+			offset += length;
+		} while( offset < bytes.length );
+	}
+
+	/*
+	 * Writes the pending data of a stream, as far as the flow control windows allow. Must be called
+	 * while holding the monitor of this protocol.
+	 */
+	private void writeData( Stream stream, OutputStream ostream )
+		throws IOException {
+		if( stream.pendingData == null ) {
+			return;
+		}
+		while( stream.pendingOffset < stream.pendingData.length ) {
+			final int length = (int) Math.min( Math.min( stream.pendingData.length - stream.pendingOffset,
+				peerMaxFrameSize ), Math.min( sendWindow, stream.sendWindow ) );
+			if( length <= 0 ) {
+				if( !blockedStreams.contains( stream ) ) {
+					blockedStreams.add( stream );
+				}
+				return;
+			}
+			final boolean last = stream.pendingOffset + length == stream.pendingData.length;
+			writeFrame( ostream, Http2.FrameType.DATA, last ? Http2.Flags.END_STREAM : 0, stream.id,
+				stream.pendingData, stream.pendingOffset, length );
+			stream.pendingOffset += length;
+			sendWindow -= length;
+			stream.sendWindow -= length;
+		}
+		stream.pendingData = null;
+		blockedStreams.remove( stream );
+		if( inInputPort ) {
+			streams.remove( stream.id );
+		}
+	}
+
+	private void flushBlockedStreams( OutputStream ostream )
+		throws IOException {
+		for( Stream stream : new ArrayList<>( blockedStreams ) ) {
+			writeData( stream, ostream );
+		}
+	}
+
+	/*
+	 * Writes the HTTP/1.1 response written by the delegate of a stream as HTTP/2 frames. Must be called
+	 * while holding the monitor of this protocol.
+	 */
+	private void writeResponse( Stream stream, byte[] response, OutputStream ostream )
+		throws IOException {
+		Http1Message message = null;
+		if( response.length > 0 ) {
+			try {
+				message = Http1Message.parse( response );
+			} catch( IOException e ) {
+				Interpreter.getInstance().logSevere( e );
+			}
+		}
+		if( message == null ) {
+			streams.remove( stream.id );
+			writeReset( ostream, stream.id, Http2.ErrorCode.INTERNAL_ERROR );
+			return;
+		}
+		final List< Map.Entry< String, String > > fields = new ArrayList<>( message.fields().size() + 1 );
+		fields.add( Map.entry( ":status", message.startLine( 1 ) ) );
+		for( Map.Entry< String, String > field : message.fields() ) {
+			if( !isConnectionSpecific( field.getKey() ) ) {
+				fields.add( field );
+			}
+		}
+		final byte[] body = message.body();
+		writeHeaders( ostream, stream.id, fields, body.length == 0 );
+		if( body.length == 0 ) {
+			streams.remove( stream.id );
+		} else {
+			stream.pendingData = body;
+			writeData( stream, ostream );
+		}
+	}
+
+	/**
+	 * Decodes the request received on a stream. Called by the channel of the stream.
+	 *
+	 * @return the request, or <code>null</code> if it could not be decoded, in which case an error
+	 *         response has been sent
+	 */
+	CommMessage recvStream( Stream stream )
+		throws IOException {
+		if( stream.message == null ) {
+			final ByteArrayOutputStream error = new ByteArrayOutputStream();
+			try {
+				stream.message = stream.delegate.recv( new ByteArrayInputStream( stream.request ), error );
+			} catch( IOException e ) {
+				Interpreter.getInstance().logSevere( e );
+			}
+			if( stream.message == null ) {
+				// Sent through the connection like a response to the request
+				stream.errorResponse = error.toByteArray();
+				channel().send( new CommMessage( stream.id, "", "/", Value.UNDEFINED_VALUE, null ) );
+				return null;
+			}
+		}
+		final CommMessage message = stream.message;
+		return new CommMessage( stream.id, message.operationName(), message.resourcePath(), message.value(),
+			message.fault() );
+	}
+
+	@Override
+	public void send( OutputStream ostream, CommMessage message, InputStream istream )
+		throws IOException {
+		if( !inInputPort ) {
+			sendRequest( ostream, message, istream );
+		} else if( mode == Mode.HTTP1 ) {
+			http1Delegate.send( ostream, message, istream );
+		} else {
+			sendResponse( ostream, message );
+		}
+	}
+
+	private void sendResponse( OutputStream ostream, CommMessage message )
+		throws IOException {
+		final Stream stream;
+		synchronized( this ) {
+			stream = streams.get( (int) message.requestId() );
+		}
+		if( stream == null ) {
+			// The stream has been reset by the client
+			return;
+		}
+		byte[] response = stream.errorResponse;
+		if( response == null ) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				stream.delegate.send( out, message, null );
+			} catch( IOException | RuntimeException e ) {
+				/*
+				 * The failure concerns this stream only, so it is not thrown: that would make the channel
+				 * close the connection. The delegate may have written an error response, otherwise the
+				 * stream is reset.
+				 */
+				Interpreter.getInstance().logSevere( e );
+			}
+			response = out.toByteArray();
+		}
+		try {
+			synchronized( this ) {
+				writeResponse( stream, response, ostream );
+			}
+		} finally {
+			releaseDelegate( stream.delegate );
+			// A connection is shared by many streams, it is closed by the client or by a GOAWAY
+			channel().setToBeClosed( false );
+		}
+	}
+
+	private void sendRequest( OutputStream ostream, CommMessage message, InputStream istream )
+		throws IOException {
+		final CommProtocol delegate = acquireDelegate( channel() );
+		final Http1Message request;
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			delegate.send( out, message, istream );
+			request = Http1Message.parse( out.toByteArray() );
+		} catch( IOException e ) {
+			releaseDelegate( delegate );
+			throw e;
+		}
+
+		String path = request.startLine( 1 );
+		if( !path.startsWith( "/" ) && path.contains( "://" ) ) {
+			// Absolute form
+			final int pathStart = path.indexOf( '/', path.indexOf( "://" ) + 3 );
+			path = pathStart < 0 ? "/" : path.substring( pathStart );
+		}
+		final List< Map.Entry< String, String > > fields = new ArrayList<>( request.fields().size() + 4 );
+		fields.add( Map.entry( ":method", request.startLine( 0 ) ) );
+		fields.add( Map.entry( ":scheme", secure ? "https" : "http" ) );
+		fields.add( null ); // :authority, set below
+		fields.add( Map.entry( ":path", path ) );
+		String authority = "";
+		for( Map.Entry< String, String > field : request.fields() ) {
+			if( field.getKey().equals( "host" ) ) {
+				authority = field.getValue();
+			} else if( !isConnectionSpecific( field.getKey() ) ) {
+				fields.add( field );
+			}
+		}
+		fields.set( 2, Map.entry( ":authority", authority ) );
+
+		synchronized( this ) {
+			if( goingAway ) {
+				releaseDelegate( delegate );
+				throw new IOException( "[http2] The server is closing the connection" );
+			}
+			if( !prefaceSent ) {
+				ostream.write( Http2.PREFACE );
+				writeSettings( ostream );
+				prefaceSent = true;
+			}
+			lastStreamId = lastStreamId == 0 ? 1 : lastStreamId + 2;
+			final Stream stream = new Stream( lastStreamId, peerInitialWindowSize );
+			stream.delegate = delegate;
+			stream.requestId = message.requestId();
+			stream.operationName = message.operationName();
+			streams.put( stream.id, stream );
+			final byte[] body = request.body();
+			writeHeaders( ostream, stream.id, fields, body.length == 0 );
+			if( body.length > 0 ) {
+				stream.pendingData = body;
+				writeData( stream, ostream );
+			}
+			flushNeeded = false;
+		}
+	}
+
+	private CommMessage recvResponse( InputStream istream, OutputStream ostream )
+		throws IOException {
+		while( true ) {
+			final Stream stream;
+			synchronized( this ) {
+				stream = completedStreams.poll();
+				if( stream != null ) {
+					streams.remove( stream.id );
+				}
+			}
+			if( stream != null ) {
+				return decodeResponse( stream );
+			}
+			try {
+				readFrame( istream, ostream );
+			} catch( Http2Exception e ) {
+				goAway( e.errorCode(), ostream );
+				throw e;
+			} finally {
+				flush( ostream );
+			}
+		}
+	}
+
+	private CommMessage decodeResponse( Stream stream )
+		throws IOException {
+		try {
+			if( stream.error != null ) {
+				return new CommMessage( stream.requestId, stream.operationName, "/", Value.create(),
+					new FaultException( "IOException", stream.error ) );
+			}
+			final StringBuilder header = new StringBuilder( "HTTP/1.1 " );
+			for( Map.Entry< String, String > field : stream.fields ) {
+				if( field.getKey().equals( ":status" ) ) {
+					header.append( field.getValue() ).append( "\r\n" );
+				}
+			}
+			for( Map.Entry< String, String > field : stream.fields ) {
+				if( !field.getKey().startsWith( ":" ) && !field.getKey().equals( "content-length" ) ) {
+					header.append( field.getKey() ).append( ": " ).append( field.getValue() ).append( "\r\n" );
+				}
+			}
+			header.append( "content-length: " ).append( stream.body.size() ).append( "\r\n\r\n" );
+			final InputStream response = new SequenceInputStream(
+				new ByteArrayInputStream( header.toString().getBytes( StandardCharsets.ISO_8859_1 ) ),
+				new ByteArrayInputStream( stream.body.toByteArray() ) );
+			final CommMessage message = stream.delegate.recv( response, OutputStream.nullOutputStream() );
+			return new CommMessage( stream.requestId, message.operationName(), message.resourcePath(),
+				message.value(), message.fault() );
+		} finally {
+			releaseDelegate( stream.delegate );
+		}
+	}
+}
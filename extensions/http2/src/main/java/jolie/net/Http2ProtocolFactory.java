@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.io.IOException;
+import java.net.URI;
+
+import jolie.net.ext.CommProtocolFactory;
+import jolie.net.protocols.CommProtocol;
+import jolie.net.ssl.SSLProtocol;
+import jolie.runtime.AndJarDeps;
+import jolie.runtime.Value;
+import jolie.runtime.VariablePath;
+
+@AndJarDeps( { "jolie-ssl.jar" } )
+public class Http2ProtocolFactory extends CommProtocolFactory {
+	private static final String[] SERVER_APPLICATION_PROTOCOLS = { "h2", "http/1.1" };
+	private static final String[] CLIENT_APPLICATION_PROTOCOLS = { "h2" };
+
+	public Http2ProtocolFactory( CommCore commCore ) {
+		super( commCore );
+	}
+
+	private static boolean isSecure( VariablePath configurationPath ) {
+		final Value configuration = configurationPath.getValue();
+		return configuration.hasChildren( Http2Protocol.Parameters.TLS )
+			&& configuration.getFirstChild( Http2Protocol.Parameters.TLS ).boolValue();
+	}
+
+	@Override
+	public CommProtocol createOutputProtocol( VariablePath configurationPath, URI location )
+		throws IOException {
+		final boolean secure = isSecure( configurationPath );
+		final CommProtocol protocol = new Http2Protocol( configurationPath, false, secure,
+			() -> commCore().createOutputCommProtocol( "http", configurationPath, location ) );
+		return secure
+			? new SSLProtocol( configurationPath, location, protocol, true, CLIENT_APPLICATION_PROTOCOLS )
+			: protocol;
+	}
+
+	@Override
+	public CommProtocol createInputProtocol( VariablePath configurationPath, URI location )
+		throws IOException {
+		final boolean secure = isSecure( configurationPath );
+		final CommProtocol protocol = new Http2Protocol( configurationPath, true, secure,
+			() -> commCore().createInputCommProtocol( "http", configurationPath, location ) );
+		return secure
+			? new SSLProtocol( configurationPath, location, protocol, false, SERVER_APPLICATION_PROTOCOLS )
+			: protocol;
+	}
+}
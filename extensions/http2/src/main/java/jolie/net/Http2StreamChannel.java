@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.io.IOException;
+
+/**
+ * The channel of a request received on an HTTP/2 stream. It receives the request once, and sends
+ * the response through the connection the stream belongs to.
+ */
+class Http2StreamChannel extends AbstractCommChannel {
+	private final Http2Protocol protocol;
+	private final CommChannel connection;
+	private final Http2Protocol.Stream stream;
+	private boolean received = false;
+
+	Http2StreamChannel( Http2Protocol protocol, CommChannel connection, Http2Protocol.Stream stream ) {
+		this.protocol = protocol;
+		this.connection = connection;
+		this.stream = stream;
+		setParentInputPort( connection.parentInputPort() );
+	}
+
+	@Override
+	protected CommMessage recvImpl()
+		throws IOException {
+		if( received ) {
+			return null;
+		}
+		received = true;
+		return protocol.recvStream( stream );
+	}
+
+	@Override
+	protected void sendImpl( CommMessage message )
+		throws IOException {
+		connection.send( message );
+	}
+
+	@Override
+	protected void closeImpl() {
+		// The connection is shared by other streams
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the header blocks received on an HTTP/2 connection. A decoder keeps the dynamic table of
+ * the connection, so all the header blocks must be decoded in the order they were received.
+ */
+public final class HpackDecoder {
+	private final Deque< Map.Entry< String, String > > dynamicTable = new ArrayDeque<>();
+	private final int maxTableSize;
+	private final int maxHeaderListSize;
+	private int tableSize = 0;
+	private int tableCapacity;
+
+	// Where the block being decoded is read from
+	private byte[] block;
+	private int position;
+	private int end;
+
+	/**
+	 * @param maxTableSize the size of the dynamic table announced to the peer
+	 * @param maxHeaderListSize the maximum size of a decoded header list
+	 */
+	public HpackDecoder( int maxTableSize, int maxHeaderListSize ) {
+		this.maxTableSize = maxTableSize;
+		this.maxHeaderListSize = maxHeaderListSize;
+		this.tableCapacity = maxTableSize;
+	}
+
+	public List< Map.Entry< String, String > > decode( byte[] block, int offset, int length )
+		throws Http2Exception {
+		this.block = block;
+		this.position = offset;
+		this.end = offset + length;
+		final List< Map.Entry< String, String > > fields = new ArrayList<>();
+		long listSize = 0;
+		boolean fieldsStarted = false;
+		while( position < end ) {
+			final int b = block[ position ] & 0xFF;
+			final Map.Entry< String, String > field;
+			if( (b & 0x80) != 0 ) {
+				// Indexed field
+				field = entry( readInteger( 7 ) );
+			} else if( (b & 0x40) != 0 ) {
+				// Literal with incremental indexing
+				field = readLiteral( 6 );
+				addEntry( field );
+			} else if( (b & 0x20) != 0 ) {
+				// Dynamic table size update, only allowed at the beginning of a block
+				final int size = readInteger( 5 );
+				if( fieldsStarted || size > maxTableSize ) {
+					throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Invalid dynamic table size update" );
+				}
+				tableCapacity = size;
+				evict( 0 );
+				continue;
+			} else {
+				// Literal without indexing or never indexed
+				field = readLiteral( 4 );
+			}
+			fieldsStarted = true;
+			listSize += field.getKey().length() + field.getValue().length() + Hpack.ENTRY_OVERHEAD;
+			if( listSize > maxHeaderListSize ) {
+				throw new Http2Exception( Http2.ErrorCode.ENHANCE_YOUR_CALM, "Header list too large" );
+			}
+			fields.add( field );
+		}
+		this.block = null;
+		return fields;
+	}
+
+	private Map.Entry< String, String > entry( int index )
+		throws Http2Exception {
+		if( index <= 0 ) {
+			throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Invalid header table index: " + index );
+		} else if( index <= Hpack.STATIC_TABLE.length ) {
+			return Map.entry( Hpack.STATIC_TABLE[ index - 1 ][ 0 ], Hpack.STATIC_TABLE[ index - 1 ][ 1 ] );
+		}
+		int i = index - Hpack.STATIC_TABLE.length;
+		if( i > dynamicTable.size() ) {
+			throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Invalid header table index: " + index );
+		}
+		for( Map.Entry< String, String > entry : dynamicTable ) {
+			if( --i == 0 ) {
+				return entry;
+			}
+		}
+		throw new AssertionError();
+	}
+
+	private Map.Entry< String, String > readLiteral( int prefixBits )
+		throws Http2Exception {
+		final int nameIndex = readInteger( prefixBits );
+		final String name = nameIndex == 0 ? readString() : entry( nameIndex ).getKey();
+		return Map.entry( name, readString() );
+	}
+
+	private void addEntry( Map.Entry< String, String > field ) {
+		final int size = field.getKey().length() + field.getValue().length() + Hpack.ENTRY_OVERHEAD;
+		evict( size );
+		if( size <= tableCapacity ) {
+			dynamicTable.addFirst( field );
+			tableSize += size;
+		}
+	}
+
+	// Evicts the oldest entries until the given room is available
+	private void evict( int room ) {
+		while( !dynamicTable.isEmpty() && tableSize + room > tableCapacity ) {
+			final Map.Entry< String, String > evicted = dynamicTable.removeLast();
+			tableSize -= evicted.getKey().length() + evicted.getValue().length() + Hpack.ENTRY_OVERHEAD;
+		}
+	}
+
+	private int readByte()
+		throws Http2Exception {
+		if( position == end ) {
+			throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Truncated header block" );
+		}
+		return block[ position++ ] & 0xFF;
+	}
+
+	private int readInteger( int prefixBits )
+		throws Http2Exception {
+		final int max = (1 << prefixBits) - 1;
+		int value = readByte() & max;
+		if( value < max ) {
+			return value;
+		}
+		int shift = 0;
+		int b;
+		do {
+			b = readByte();
+			if( shift > 21 ) {
+				throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Integer too large in header block" );
+			}
+			value += (b & 0x7F) << shift;
+			shift += 7;
+		} while( (b & 0x80) != 0 );
+		return value;
+	}
+
+	private String readString()
+		throws Http2Exception {
+		if( position == end ) {
+			throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Truncated header block" );
+		}
+		final boolean huffman = (block[ position ] & 0x80) != 0;
+		final int length = readInteger( 7 );
+		if( length > end - position ) {
+			throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Truncated header block" );
+		}
+		final String string;
+		if( huffman ) {
+			final byte[] decoded = Huffman.decode( block, position, length );
+			string = new String( decoded, StandardCharsets.ISO_8859_1 );
+		} else {
+			string = new String( block, position, length, StandardCharsets.ISO_8859_1 );
+		}
+		position += length;
+		return string;
+	}
+}
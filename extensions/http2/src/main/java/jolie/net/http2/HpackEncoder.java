@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes header lists for HTTP/2. Fields are represented with the static table when possible and
+ * as literals otherwise; the dynamic table is never used, so that header blocks can be encoded
+ * independently of each other.
+ */
+public final class HpackEncoder {
+	private static final Map< String, Integer > NAMES = new HashMap<>();
+	private static final Map< String, Integer > FIELDS = new HashMap<>();
+
+	static {
+		for( int i = Hpack.STATIC_TABLE.length - 1; i >= 0; i-- ) {
+			NAMES.put( Hpack.STATIC_TABLE[ i ][ 0 ], i + 1 );
+			if( !Hpack.STATIC_TABLE[ i ][ 1 ].isEmpty() ) {
+				FIELDS.put( Hpack.STATIC_TABLE[ i ][ 0 ] + ':' + Hpack.STATIC_TABLE[ i ][ 1 ], i + 1 );
+			}
+		}
+	}
+
+	/**
+	 * Appends the representation of a header field to a header block.
+	 *
+	 * @param name the name of the field, in lower case
+	 * @param value the value of the field
+	 * @param out the header block
+	 */
+	public void encode( String name, String value, ByteArrayOutputStream out ) {
+		final Integer field = FIELDS.get( name + ':' + value );
+		if( field != null ) {
+			Hpack.writeInteger( field, 7, 0x80, out );
+			return;
+		}
+		final Integer nameIndex = NAMES.get( name );
+		if( nameIndex == null ) {
+			out.write( 0 );
+			Hpack.writeString( name, out );
+		} else {
+			Hpack.writeInteger( nameIndex, 4, 0, out );
+		}
+		Hpack.writeString( value, out );
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An HTTP/1.1 message written by the http protocol, split into the start line, the header fields
+ * and the body that HTTP/2 carries separately. Chunked bodies are decoded.
+ */
+public final class Http1Message {
+	private final String[] startLine;
+	private final List< Map.Entry< String, String > > fields;
+	private final byte[] body;
+
+	private Http1Message( String[] startLine, List< Map.Entry< String, String > > fields, byte[] body ) {
+		this.startLine = startLine;
+		this.fields = fields;
+		this.body = body;
+	}
+
+	/**
+	 * Returns a part of the start line: the method, the target or the version of a request, or the
+	 * version, the status code or the reason of a response. Missing parts are empty.
+	 */
+	public String startLine( int part ) {
+		return startLine[ part ];
+	}
+
+	/**
+	 * Returns the header fields, with lower case names.
+	 */
+	public List< Map.Entry< String, String > > fields() {
+		return fields;
+	}
+
+	public byte[] body() {
+		return body;
+	}
+
+	public static Http1Message parse( byte[] data )
+		throws IOException {
+		int headerEnd = -1;
+		for( int i = 0; i + 3 < data.length; i++ ) {
+			if( data[ i ] == '\r' && data[ i + 1 ] == '\n' && data[ i + 2 ] == '\r' && data[ i + 3 ] == '\n' ) {
+				headerEnd = i;
+				break;
+			}
+		}
+		if( headerEnd < 0 ) {
+			throw new IOException( "[http2] Malformed HTTP message" );
+		}
+		final String[] lines = new String( data, 0, headerEnd, StandardCharsets.ISO_8859_1 ).split( "\r\n" );
+		final String[] startLine = { "", "", "" };
+		final String[] parts = lines[ 0 ].split( " ", 3 );
+		System.arraycopy( parts, 0, startLine, 0, parts.length );
+
+		final List< Map.Entry< String, String > > fields = new ArrayList<>( lines.length );
+		boolean chunked = false;
+		for( int i = 1; i < lines.length; i++ ) {
+			final int colon = lines[ i ].indexOf( ':' );
+			if( colon <= 0 ) {
+				throw new IOException( "[http2] Malformed HTTP header" );
+			}
+			final String name = lines[ i ].substring( 0, colon ).trim().toLowerCase();
+			final String value = lines[ i ].substring( colon + 1 ).trim();
+			if( name.equals( "transfer-encoding" ) && value.equalsIgnoreCase( "chunked" ) ) {
+				chunked = true;
+			} else {
+				fields.add( Map.entry( name, value ) );
+			}
+		}
+
+		final int bodyStart = headerEnd + 4;
+		final byte[] body;
+		if( chunked ) {
+			body = decodeChunked( data, bodyStart );
+		} else {
+			body = new byte[ data.length - bodyStart ];
+			System.arraycopy( data, bodyStart, body, 0, body.length );
+		}
+		return new Http1Message( startLine, fields, body );
+	}
+
+	private static byte[] decodeChunked( byte[] data, int position )
+		throws IOException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		while( true ) {
+			int lineEnd = position;
+			while( lineEnd + 1 < data.length && !(data[ lineEnd ] == '\r' && data[ lineEnd + 1 ] == '\n') ) {
+				lineEnd++;
+			}
+			if( lineEnd + 1 >= data.length ) {
+				throw new IOException( "[http2] Malformed chunked body" );
+			}
+			String size = new String( data, position, lineEnd - position, StandardCharsets.ISO_8859_1 );
+			final int extension = size.indexOf( ';' );
+			if( extension >= 0 ) {
+				size = size.substring( 0, extension );
+			}
+			final int length;
+			try {
+				length = Integer.parseInt( size.trim(), 16 );
+			} catch( NumberFormatException e ) {
+				throw new IOException( "[http2] Malformed chunked body", e );
+			}
+			position = lineEnd + 2;
+			if( length == 0 ) {
+				return body.toByteArray();
+			}
+			if( length < 0 || length > data.length - position ) {
+				throw new IOException( "[http2] Malformed chunked body" );
+			}
+			body.write( data, position, length );
+			position += length + 2;
+		}
+	}
+}
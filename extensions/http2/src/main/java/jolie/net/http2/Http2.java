@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http2;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants of the HTTP/2 framing layer (RFC 7540).
+ */
+public final class Http2 {
+	private Http2() {}
+
+	public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes( StandardCharsets.ISO_8859_1 );
+	public static final int FRAME_HEADER_LENGTH = 9;
+	public static final int DEFAULT_WINDOW_SIZE = 65535;
+	public static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+	public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+	public static final class FrameType {
+		private FrameType() {}
+
+		public static final int DATA = 0x0;
+		public static final int HEADERS = 0x1;
+		public static final int PRIORITY = 0x2;
+		public static final int RST_STREAM = 0x3;
+		public static final int SETTINGS = 0x4;
+		public static final int PUSH_PROMISE = 0x5;
+		public static final int PING = 0x6;
+		public static final int GOAWAY = 0x7;
+		public static final int WINDOW_UPDATE = 0x8;
+		public static final int CONTINUATION = 0x9;
+	}
+
+	public static final class Flags {
+		private Flags() {}
+
+		public static final int END_STREAM = 0x1;
+		public static final int ACK = 0x1;
+		public static final int END_HEADERS = 0x4;
+		public static final int PADDED = 0x8;
+		public static final int PRIORITY = 0x20;
+	}
+
+	public static final class ErrorCode {
+		private ErrorCode() {}
+
+		public static final int NO_ERROR = 0x0;
+		public static final int PROTOCOL_ERROR = 0x1;
+		public static final int INTERNAL_ERROR = 0x2;
+		public static final int FLOW_CONTROL_ERROR = 0x3;
+		public static final int STREAM_CLOSED = 0x5;
+		public static final int FRAME_SIZE_ERROR = 0x6;
+		public static final int REFUSED_STREAM = 0x7;
+		public static final int CANCEL = 0x8;
+		public static final int COMPRESSION_ERROR = 0x9;
+		public static final int ENHANCE_YOUR_CALM = 0xb;
+	}
+
+	public static final class Setting {
+		private Setting() {}
+
+		public static final int HEADER_TABLE_SIZE = 0x1;
+		public static final int ENABLE_PUSH = 0x2;
+		public static final int MAX_CONCURRENT_STREAMS = 0x3;
+		public static final int INITIAL_WINDOW_SIZE = 0x4;
+		public static final int MAX_FRAME_SIZE = 0x5;
+		public static final int MAX_HEADER_LIST_SIZE = 0x6;
+	}
+}
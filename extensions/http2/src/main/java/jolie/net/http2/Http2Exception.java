@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http2;
+
+import java.io.IOException;
+import jolie.lang.Constants;
+
+/**
+ * An HTTP/2 connection error, to be reported to the peer with a GOAWAY frame carrying its error code.
+ */
+public class Http2Exception extends IOException {
+	private static final long serialVersionUID = Constants.serialVersionUID();
+
+	private final int errorCode;
+
+	public Http2Exception( int errorCode, String message ) {
+		super( "[http2] " + message );
+		this.errorCode = errorCode;
+	}
+
+	public int errorCode() {
+		return errorCode;
+	}
+}
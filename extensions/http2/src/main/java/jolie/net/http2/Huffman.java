@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net.http2;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * The Huffman code used by HPACK for string literals (RFC 7541, Appendix B).
+ */
+final class Huffman {
+	private Huffman() {}
+
+	private static final int EOS = 256;
+	private static final int MAX_LENGTH = 30;
+
+	/*
+	 * Code lengths of the symbols 0-256. The code is canonical: codes of the same length are
+	 * consecutive, in the order of their symbols, so they can be computed from the lengths.
+	 */
+	private static final byte[] LENGTHS = {
+		13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28, // 0-15
+		28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28, // 16-31
+		6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6, // ' ' - '/'
+		5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10, // '0' - '?'
+		13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, // '@' - 'O'
+		7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6, // 'P' - '_'
+		15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5, // '`' - 'o'
+		6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28, // 'p' - 127
+		20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23, // 128-143
+		24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24, // 144-159
+		22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23, // 160-175
+		21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23, // 176-191
+		26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25, // 192-207
+		19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27, // 208-223
+		20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23, // 224-239
+		26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26, // 240-255
+		30 // EOS
+	};
+
+	private static final int[] CODES = new int[ LENGTHS.length ];
+	// For each length: the first code, the number of codes and where their symbols start in SYMBOLS
+	private static final int[] FIRST_CODE = new int[ MAX_LENGTH + 1 ];
+	private static final int[] COUNT = new int[ MAX_LENGTH + 1 ];
+	private static final int[] OFFSET = new int[ MAX_LENGTH + 1 ];
+	private static final int[] SYMBOLS = new int[ LENGTHS.length ];
+
+	static {
+		for( byte length : LENGTHS ) {
+			COUNT[ length ]++;
+		}
+		int code = 0;
+		int offset = 0;
+		for( int length = 1; length <= MAX_LENGTH; length++ ) {
+			code <<= 1;
+			FIRST_CODE[ length ] = code;
+			OFFSET[ length ] = offset;
+			code += COUNT[ length ];
+			offset += COUNT[ length ];
+		}
+		final int[] next = new int[ MAX_LENGTH + 1 ];
+		for( int symbol = 0; symbol < LENGTHS.length; symbol++ ) {
+			final int length = LENGTHS[ symbol ];
+			CODES[ symbol ] = FIRST_CODE[ length ] + next[ length ];
+			SYMBOLS[ OFFSET[ length ] + next[ length ] ] = symbol;
+			next[ length ]++;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of the Huffman encoding of the given string.
+	 */
+	static int encodedLength( byte[] data ) {
+		long bits = 0;
+		for( byte b : data ) {
+			bits += LENGTHS[ b & 0xFF ];
+		}
+		return (int) ((bits + 7) >> 3);
+	}
+
+	static void encode( byte[] data, ByteArrayOutputStream out ) {
+		long current = 0;
+		int bits = 0;
+		for( byte b : data ) {
+			final int symbol = b & 0xFF;
+			current = (current << LENGTHS[ symbol ]) | CODES[ symbol ];
+			bits += LENGTHS[ symbol ];
+			while( bits >= 8 ) {
+				bits -= 8;
+				out.write( (int) (current >> bits) );
+			}
+		}
+		if( bits > 0 ) {
+			// Padded with the most significant bits of EOS, which are all ones
+			out.write( (int) ((current << (8 - bits)) | (0xFF >> bits)) );
+		}
+	}
+
+	static byte[] decode( byte[] data, int offset, int length )
+		throws Http2Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream( length * 8 / 5 );
+		int code = 0;
+		int codeLength = 0;
+		for( int i = offset; i < offset + length; i++ ) {
+			for( int bit = 7; bit >= 0; bit-- ) {
+				code = (code << 1) | ((data[ i ] >> bit) & 1);
+				codeLength++;
+				final int index = code - FIRST_CODE[ codeLength ];
+				if( index >= 0 && index < COUNT[ codeLength ] ) {
+					final int symbol = SYMBOLS[ OFFSET[ codeLength ] + index ];
+					if( symbol == EOS ) {
+						throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "EOS in Huffman string" );
+					}
+					out.write( symbol );
+					code = 0;
+					codeLength = 0;
+				} else if( codeLength == MAX_LENGTH ) {
+					throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Invalid Huffman code" );
+				}
+			}
+		}
+		// The padding must be shorter than a byte and made of the most significant bits of EOS
+		if( codeLength > 7 || code != (1 << codeLength) - 1 ) {
+			throw new Http2Exception( Http2.ErrorCode.COMPRESSION_ERROR, "Invalid Huffman padding" );
+		}
+		return out.toByteArray();
+	}
+}
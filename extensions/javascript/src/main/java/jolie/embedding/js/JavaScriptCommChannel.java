@@ -46,6 +46,7 @@ public class JavaScriptCommChannel extends CommChannel implements PollableCommCh
 	private final Invocable invocable;
 	private final Map< Long, CommMessage > messages = new ConcurrentHashMap<>();
 	private final Object json;
+	private volatile Runnable readyListener = null;
 
 	private final static class JsonMethods {
 		private final static String STRINGIFY = "stringify", PARSE = "parse";
@@ -102,6 +103,7 @@ public class JavaScriptCommChannel extends CommChannel implements PollableCommCh
 		}
 
 		messages.put( message.requestId(), response );
+		notifyReadyListener();
 	}
 
 	@Override
@@ -129,4 +131,17 @@ public class JavaScriptCommChannel extends CommChannel implements PollableCommCh
 	public boolean isReady() {
 		return (!messages.isEmpty());
 	}
+
+	@Override
+	public boolean setReadyListener( Runnable listener ) {
+		readyListener = listener;
+		return true;
+	}
+
+	private void notifyReadyListener() {
+		final Runnable listener = readyListener;
+		if( listener != null ) {
+			listener.run();
+		}
+	}
 }
@@ -61,6 +61,10 @@ public class JolieServiceLoader extends EmbeddedServiceLoader {
 		Interpreter.Configuration cmdConfig = commandLineParser.getInterpreterConfiguration();
 		Interpreter.Configuration config = Interpreter.Configuration.create(
 			cmdConfig.connectionsLimit(),
+			cmdConfig.connectionsQueueSize(),
+			cmdConfig.connectionsRejectionPolicy(),
+			cmdConfig.virtualThreads(),
+			cmdConfig.selectors(),
 			cmdConfig.cellId(),
 			cmdConfig.correlationAlgorithm(),
 			cmdConfig.includePaths(),
@@ -80,6 +84,7 @@ public class JolieServiceLoader extends EmbeddedServiceLoader {
 			cmdConfig.check(),
 			cmdConfig.printStackTraces(),
 			cmdConfig.responseTimeout(),
+			cmdConfig.timerResolution(),
 			cmdConfig.logLevel(),
 			cmdConfig.programDirectory(),
 			cmdConfig.packagePaths(),
@@ -20,36 +20,52 @@
  ***************************************************************************/
 package jolie.net;
 
-import jolie.net.ports.OutputPort;
 import cx.ath.matthew.unix.UnixSocket;
 import cx.ath.matthew.unix.UnixSocketAddress;
-import java.io.IOException;
+import jolie.net.ports.OutputPort;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.nio.channels.SocketChannel;
 import jolie.net.ext.CommChannelFactory;
-import jolie.runtime.AndJarDeps;
+import jolie.runtime.CanUseJars;
 
-@AndJarDeps( { "cx.ath.matthew.jar" } )
+@CanUseJars( { "cx.ath.matthew.jar" } )
 public class LocalSocketCommChannelFactory extends CommChannelFactory {
 	public LocalSocketCommChannelFactory( CommCore commCore ) {
 		super( commCore );
 	}
 
 	public CommChannel createChannel( URI location, OutputPort port )
+		throws IOException {
+		if( !UnixDomainSockets.supports( location ) ) {
+			return createNativeChannel( location, port );
+		}
+		final SocketChannel socketChannel = UnixDomainSockets.openSocketChannel();
+		CommChannel ret = null;
+		try {
+			socketChannel.connect( UnixDomainSockets.address( location ) );
+			ret = new LocalSocketCommChannel( socketChannel, location, port.getProtocol( location ) );
+		} catch( IOException e ) {
+			socketChannel.close();
+			throw e;
+		}
+		return ret;
+	}
+
+	private static CommChannel createNativeChannel( URI location, OutputPort port )
 		throws IOException {
 		String path = location.getPath();
 		if( path == null || path.isEmpty() ) {
 			throw new FileNotFoundException( "Local socket path not specified!" );
 		}
 		UnixSocket socket = new UnixSocket(
-			new UnixSocketAddress( path, location.getHost() != null && location.getHost().equals( "abs" ) ) );
-		CommChannel ret = null;
+			new UnixSocketAddress( path, UnixDomainSockets.isAbstract( location ) ) );
 		try {
-			ret = new LocalSocketCommChannel( socket, location, port.getProtocol() );
-		} catch( URISyntaxException e ) {
-			throw new IOException( e );
+			return new NativeLocalSocketCommChannel( socket, location, port.getProtocol( location ) );
+		} catch( IOException e ) {
+			socket.close();
+			throw e;
 		}
-		return ret;
 	}
 }
@@ -21,21 +21,35 @@
 
 package jolie.net;
 
-import cx.ath.matthew.unix.UnixServerSocket;
-import cx.ath.matthew.unix.UnixSocket;
-import cx.ath.matthew.unix.UnixSocketAddress;
 import java.io.File;
 import java.io.IOException;
-import java.io.FileNotFoundException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 
 import jolie.Interpreter;
 import jolie.net.ext.CommProtocolFactory;
 import jolie.net.ports.InputPort;
+import jolie.runtime.Value;
 
+/**
+ * A communication listener using Unix domain sockets as backend. The socket file is deleted when
+ * the listener is shut down, and a file left by a listener that was killed is replaced.
+ *
+ * The maximum number of pending connections can be set with the <code>socket.backlog</code>
+ * parameter of the protocol configuration of the input port, as for {@link SocketListener}.
+ */
 public class LocalSocketListener extends CommListener {
-	final private UnixServerSocket serverSocket;
-	final private UnixSocketAddress socketAddress;
+	private final ServerSocketChannel serverChannel;
 
 	public LocalSocketListener(
 		Interpreter interpreter,
@@ -44,45 +58,107 @@ public class LocalSocketListener extends CommListener {
 		throws IOException {
 		super( interpreter, protocolFactory, inputPort );
 
-		String path = inputPort.location().getPath();
-		if( path == null || path.isEmpty() ) {
-			throw new FileNotFoundException( "Local socket path not specified!" );
+		final SocketAddress address = UnixDomainSockets.address( inputPort.location() );
+		serverChannel = UnixDomainSockets.openServerSocketChannel();
+		try {
+			final int backlog = backlog( inputPort.protocolConfigurationPath().getValue() );
+			try {
+				serverChannel.bind( address, backlog );
+			} catch( BindException e ) {
+				if( !deleteStaleSocket( address ) ) {
+					throw e;
+				}
+				serverChannel.bind( address, backlog );
+			}
+			// In case the interpreter does not get to shut down the listener before the JVM halts
+			new File( inputPort.location().getPath() ).deleteOnExit();
+		} catch( IOException e ) {
+			serverChannel.close();
+			final IOException exception =
+				new IOException( e.getMessage() + " [with location: " + inputPort.location().toString() + "]" );
+			exception.setStackTrace( e.getStackTrace() );
+			throw exception;
+		}
+	}
+
+	/*
+	 * Deletes the socket file left by a listener that did not shut down, if nobody accepts connections
+	 * on it. Returns true if the file was deleted. Regular files, directories and links are never
+	 * deleted.
+	 */
+	private boolean deleteStaleSocket( SocketAddress address )
+		throws IOException {
+		final Path path = Paths.get( inputPort().location().getPath() );
+		if( !isSocket( path ) ) {
+			return false;
+		}
+		try( SocketChannel probe = UnixDomainSockets.openSocketChannel() ) {
+			probe.connect( address );
+			return false;
+		} catch( ConnectException e ) {
+			return isSocket( path ) && Files.deleteIfExists( path );
 		}
-		socketAddress = new UnixSocketAddress( path,
-			inputPort.location().getHost() != null && inputPort.location().getHost().equals( "abs" ) );
-		serverSocket = new UnixServerSocket( socketAddress );
+	}
+
+	// Socket files are neither regular files, directories nor links
+	private static boolean isSocket( Path path ) {
+		try {
+			return Files.readAttributes( path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS ).isOther();
+		} catch( IOException e ) {
+			return false;
+		}
+	}
+
+	private static int backlog( Value configuration ) {
+		if( configuration.hasChildren( "socket" ) ) {
+			final Value parameters = configuration.getFirstChild( "socket" );
+			if( parameters.hasChildren( "backlog" ) ) {
+				return parameters.getFirstChild( "backlog" ).intValue();
+			}
+		}
+		return 0;
 	}
 
 	@Override
 	public void shutdown() {
-		if( !socketAddress.isAbstract() ) {
-			new File( socketAddress.getPath() ).delete();
+		if( serverChannel.isOpen() ) {
+			try {
+				serverChannel.close();
+			} catch( IOException e ) {
+			}
+			final Path path = Paths.get( inputPort().location().getPath() );
+			if( isSocket( path ) ) {
+				try {
+					Files.deleteIfExists( path );
+				} catch( IOException e ) {
+					interpreter().logWarning( e );
+				}
+			}
 		}
 	}
 
 	@Override
 	public void run() {
 		try {
-			UnixSocket socket;
-			CommChannel channel;
-			while( (socket = serverSocket.accept()) != null ) {
-				channel = new LocalSocketCommChannel(
-					socket,
+			SocketChannel socketChannel;
+			while( (socketChannel = serverChannel.accept()) != null ) {
+				final CommChannel channel = new LocalSocketCommChannel(
+					socketChannel,
 					inputPort().location(),
 					createProtocol() );
 				channel.setParentInputPort( inputPort() );
 				interpreter().commCore().scheduleReceive( channel, inputPort() );
-				channel = null; // Dispose for garbage collection
 			}
-			serverSocket.close();
-		} catch( ClosedByInterruptException ce ) {
+		} catch( ClosedByInterruptException e ) {
 			try {
-				serverSocket.close();
-			} catch( IOException e ) {
-				e.printStackTrace();
+				serverChannel.close();
+			} catch( IOException ioe ) {
+				interpreter().logWarning( ioe );
 			}
+		} catch( AsynchronousCloseException e ) {
+			// Closed by CommCore shutdown
 		} catch( IOException e ) {
-			e.printStackTrace();
+			interpreter().logWarning( e );
 		}
 	}
 }
@@ -25,9 +25,9 @@ import jolie.Interpreter;
 import jolie.net.ext.CommListenerFactory;
 import jolie.net.ext.CommProtocolFactory;
 import jolie.net.ports.InputPort;
-import jolie.runtime.AndJarDeps;
+import jolie.runtime.CanUseJars;
 
-@AndJarDeps( { "cx.ath.matthew.jar" } )
+@CanUseJars( { "cx.ath.matthew.jar" } )
 public class LocalSocketListenerFactory extends CommListenerFactory {
 	public LocalSocketListenerFactory( CommCore commCore ) {
 		super( commCore );
@@ -38,6 +38,9 @@ public class LocalSocketListenerFactory extends CommListenerFactory {
 		CommProtocolFactory protocolFactory,
 		InputPort inputPort )
 		throws IOException {
+		if( !UnixDomainSockets.supports( inputPort.location() ) ) {
+			return new NativeLocalSocketListener( interpreter, protocolFactory, inputPort );
+		}
 		return new LocalSocketListener( interpreter, protocolFactory, inputPort );
 	}
 }
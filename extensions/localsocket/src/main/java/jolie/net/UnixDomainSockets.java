@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Access to the Unix domain sockets of the Java platform (Java 16 or later), through reflection so
+ * that this extension can still be built on older versions. Where they are not available, and for
+ * the abstract namespace, the native implementation of the cx.ath.matthew library is used instead.
+ */
+final class UnixDomainSockets {
+	private static final ProtocolFamily UNIX;
+	private static final Method ADDRESS_OF;
+	private static final Method OPEN_SOCKET_CHANNEL;
+	private static final Method OPEN_SERVER_SOCKET_CHANNEL;
+
+	static {
+		ProtocolFamily unix = null;
+		Method addressOf = null, openSocketChannel = null, openServerSocketChannel = null;
+		try {
+			unix = Enum.valueOf( StandardProtocolFamily.class, "UNIX" );
+			addressOf = Class.forName( "java.net.UnixDomainSocketAddress" ).getMethod( "of", String.class );
+			openSocketChannel = SocketChannel.class.getMethod( "open", ProtocolFamily.class );
+			openServerSocketChannel = ServerSocketChannel.class.getMethod( "open", ProtocolFamily.class );
+		} catch( IllegalArgumentException | ClassNotFoundException | NoSuchMethodException e ) {
+			// Older Java platform
+			unix = null;
+		}
+		UNIX = unix;
+		ADDRESS_OF = addressOf;
+		OPEN_SOCKET_CHANNEL = openSocketChannel;
+		OPEN_SERVER_SOCKET_CHANNEL = openServerSocketChannel;
+	}
+
+	private UnixDomainSockets() {}
+
+	/**
+	 * Returns {@code true} if the running Java platform supports Unix domain sockets.
+	 */
+	static boolean isAvailable() {
+		return UNIX != null;
+	}
+
+	private static void checkAvailable()
+		throws IOException {
+		if( !isAvailable() ) {
+			throw new IOException( "Local sockets require Java 16 or later" );
+		}
+	}
+
+	/**
+	 * Returns the address of the socket file given by the path of a <code>localsocket</code> location.
+	 *
+	 * @throws FileNotFoundException if the location has no path
+	 * @throws IOException if the location refers to the abstract namespace, or Unix domain sockets are
+	 *         not available
+	 */
+	static SocketAddress address( URI location )
+		throws IOException {
+		checkAvailable();
+		final String path = location.getPath();
+		if( path == null || path.isEmpty() ) {
+			throw new FileNotFoundException( "Local socket path not specified!" );
+		}
+		if( isAbstract( location ) ) {
+			throw new IOException( "Local sockets in the abstract namespace are not supported: " + location );
+		}
+		return (SocketAddress) invoke( ADDRESS_OF, null, path );
+	}
+
+	/**
+	 * Returns {@code true} if the Unix domain sockets of the Java platform can be used for the
+	 * location, {@code false} if the native implementation is needed.
+	 */
+	static boolean supports( URI location ) {
+		return isAvailable() && !isAbstract( location );
+	}
+
+	/**
+	 * Returns {@code true} if the location refers to the abstract namespace of Linux, with the host
+	 * <code>abs</code>.
+	 */
+	static boolean isAbstract( URI location ) {
+		return "abs".equals( location.getHost() );
+	}
+
+	/**
+	 * Opens an unconnected Unix domain socket channel.
+	 */
+	static SocketChannel openSocketChannel()
+		throws IOException {
+		checkAvailable();
+		return (SocketChannel) invoke( OPEN_SOCKET_CHANNEL, null, UNIX );
+	}
+
+	/**
+	 * Opens an unbound Unix domain server socket channel.
+	 */
+	static ServerSocketChannel openServerSocketChannel()
+		throws IOException {
+		checkAvailable();
+		return (ServerSocketChannel) invoke( OPEN_SERVER_SOCKET_CHANNEL, null, UNIX );
+	}
+
+	private static Object invoke( Method method, Object target, Object argument )
+		throws IOException {
+		try {
+			return method.invoke( target, argument );
+		} catch( InvocationTargetException e ) {
+			if( e.getCause() instanceof IOException ) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException( e.getCause() );
+		} catch( IllegalAccessException e ) {
+			throw new IOException( e );
+		}
+	}
+}
@@ -21,22 +21,18 @@
 
 package jolie.net;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataInput;
-import java.io.DataInputStream;
-import java.io.DataOutput;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import jolie.net.protocols.ConcurrentCommProtocol;
 import jolie.runtime.ByteArray;
 import jolie.runtime.FaultException;
@@ -55,149 +51,363 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 		private static final int LONG = 6;
 	}
 
+	/*
+	 * Messages are encoded in a buffer taken from a pool shared by all channels, and then written with a
+	 * single call to the output stream. Buffers that grew too much are not kept.
+	 */
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 64;
+	private static final Queue< ByteBuffer > BUFFER_POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED_BUFFERS = new AtomicInteger();
+
+	/*
+	 * Decoded names (operations and child nodes) tend to repeat, so we keep the most recent ones and
+	 * reuse their String instances.
+	 */
+	private static final int NAME_CACHE_SIZE = 512; // Must be a power of 2
+	private static final int NAME_CACHE_MAX_LENGTH = 64;
+	private static final CachedName[] NAME_CACHE = new CachedName[ NAME_CACHE_SIZE ];
+
+	private static class CachedName {
+		private final byte[] bytes;
+		private final String name;
+
+		private CachedName( byte[] bytes, String name ) {
+			this.bytes = bytes;
+			this.name = name;
+		}
+	}
+
+	// The largest array that can be allocated on most JVMs
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+	// Bytes read in one go are kept in the scratch array, unless they are more than this
+	private static final int MAX_SCRATCH_SIZE = 64 * 1024;
+
 	public String name() {
 		return "sodep";
 	}
 
 	private Charset stringCharset = StandardCharsets.UTF_8;
 
-	private String readString( DataInput in )
-		throws IOException {
-		int len = in.readInt();
-		if( len > 0 ) {
-			byte[] bb = new byte[ len ];
-			in.readFully( bb );
-			return new String( bb, stringCharset );
+	// Only used during send
+	private ByteBuffer out = null;
+	// Only used during recv
+	private InputStream in = null;
+	private byte[] scratch = new byte[ 256 ];
+
+	private static ByteBuffer acquireBuffer() {
+		final ByteBuffer buffer = BUFFER_POOL.poll();
+		if( buffer == null ) {
+			return ByteBuffer.allocate( INITIAL_BUFFER_SIZE );
 		}
-		return "";
+		POOLED_BUFFERS.decrementAndGet();
+		buffer.clear();
+		return buffer;
 	}
 
-	private void writeString( DataOutput out, String str )
-		throws IOException {
-		if( str.isEmpty() ) {
-			out.writeInt( 0 );
+	private static void releaseBuffer( ByteBuffer buffer ) {
+		if( buffer.capacity() <= MAX_POOLED_BUFFER_SIZE
+			&& POOLED_BUFFERS.incrementAndGet() <= MAX_POOLED_BUFFERS ) {
+			BUFFER_POOL.offer( buffer );
 		} else {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			Writer writer = new OutputStreamWriter( bos, stringCharset );
-			writer.write( str );
-			writer.close();
-			byte[] bb = bos.toByteArray();
-			out.writeInt( bb.length );
-			out.write( bb );
+			POOLED_BUFFERS.decrementAndGet();
 		}
 	}
 
-	private ByteArray readByteArray( DataInput in )
+	private void ensureCapacity( long size )
 		throws IOException {
-		int size = in.readInt();
-		ByteArray ret;
-		if( size > 0 ) {
-			byte[] bytes = new byte[ size ];
-			in.readFully( bytes, 0, size );
-			ret = new ByteArray( bytes );
-		} else {
-			ret = new ByteArray( new byte[ 0 ] );
+		if( out.remaining() < size ) {
+			final long required = out.position() + size;
+			if( required > MAX_BUFFER_SIZE ) {
+				throw new IOException( "Message too large to be encoded with sodep: " + required + " bytes" );
+			}
+			final ByteBuffer larger =
+				ByteBuffer.allocate( (int) Math.min( MAX_BUFFER_SIZE, Math.max( out.capacity() * 2L, required ) ) );
+			out.flip();
+			larger.put( out );
+			out = larger;
+		}
+	}
+
+	/*
+	 * The number of bytes written by writeString for the given string in UTF-8, with malformed surrogates
+	 * taking one byte.
+	 */
+	private static long utf8Length( String str ) {
+		final int length = str.length();
+		long ret = length;
+		for( int i = 0; i < length; i++ ) {
+			final char c = str.charAt( i );
+			if( c >= 0x80 ) {
+				if( c < 0x800 ) {
+					ret += 1;
+				} else if( Character.isSurrogate( c ) ) {
+					if( Character.isHighSurrogate( c ) && i + 1 < length
+						&& Character.isLowSurrogate( str.charAt( i + 1 ) ) ) {
+						// Two chars, four bytes
+						ret += 2;
+						i++;
+					}
+				} else {
+					ret += 2;
+				}
+			}
 		}
 		return ret;
 	}
 
-	private void writeByteArray( DataOutput out, ByteArray byteArray )
+	private void writeString( String str )
 		throws IOException {
-		int size = byteArray.size();
-		out.writeInt( size );
+		final int length = str.length();
+		if( length == 0 ) {
+			ensureCapacity( 4 );
+			out.putInt( 0 );
+		} else if( stringCharset == StandardCharsets.UTF_8 ) {
+			ensureCapacity( 4 + utf8Length( str ) );
+			final int lengthPosition = out.position();
+			final byte[] a = out.array();
+			int p = out.arrayOffset() + lengthPosition + 4;
+			for( int i = 0; i < length; i++ ) {
+				final char c = str.charAt( i );
+				if( c < 0x80 ) {
+					a[ p++ ] = (byte) c;
+				} else if( c < 0x800 ) {
+					a[ p++ ] = (byte) (0xC0 | (c >> 6));
+					a[ p++ ] = (byte) (0x80 | (c & 0x3F));
+				} else if( Character.isSurrogate( c ) ) {
+					if( Character.isHighSurrogate( c ) && i + 1 < length
+						&& Character.isLowSurrogate( str.charAt( i + 1 ) ) ) {
+						final int codePoint = Character.toCodePoint( c, str.charAt( ++i ) );
+						a[ p++ ] = (byte) (0xF0 | (codePoint >> 18));
+						a[ p++ ] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+						a[ p++ ] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+						a[ p++ ] = (byte) (0x80 | (codePoint & 0x3F));
+					} else {
+						// Malformed, replaced like the standard UTF-8 encoder does
+						a[ p++ ] = (byte) '?';
+					}
+				} else {
+					a[ p++ ] = (byte) (0xE0 | (c >> 12));
+					a[ p++ ] = (byte) (0x80 | ((c >> 6) & 0x3F));
+					a[ p++ ] = (byte) (0x80 | (c & 0x3F));
+				}
+			}
+			final int end = p - out.arrayOffset();
+			out.putInt( lengthPosition, end - lengthPosition - 4 );
+			out.position( end );
+		} else {
+			final byte[] bb = str.getBytes( stringCharset );
+			ensureCapacity( 4L + bb.length );
+			out.putInt( bb.length );
+			out.put( bb );
+		}
+	}
+
+	private void writeByteArray( ByteArray byteArray )
+		throws IOException {
+		final int size = byteArray.size();
+		ensureCapacity( 4L + size );
+		out.putInt( size );
 		if( size > 0 ) {
-			out.write( byteArray.getBytes() );
+			out.put( byteArray.getBytes() );
 		}
 	}
 
-	private void writeFault( DataOutput out, FaultException fault )
+	private void writeFault( FaultException fault )
 		throws IOException {
-		writeString( out, fault.faultName() );
-		writeValue( out, fault.value() );
+		writeString( fault.faultName() );
+		writeValue( fault.value() );
 	}
 
-	private void writeValue( DataOutput out, Value value )
+	private void writeValue( Value value )
 		throws IOException {
 		Object valueObject = value.valueObject();
+		// Type header and largest primitive (long/double)
+		ensureCapacity( 9 );
 		if( valueObject == null ) {
-			out.writeByte( DataTypeHeaderId.NULL );
+			out.put( (byte) DataTypeHeaderId.NULL );
 		} else if( valueObject instanceof String ) {
-			out.writeByte( DataTypeHeaderId.STRING );
-			writeString( out, (String) valueObject );
+			out.put( (byte) DataTypeHeaderId.STRING );
+			writeString( (String) valueObject );
 		} else if( valueObject instanceof Integer ) {
-			out.writeByte( DataTypeHeaderId.INT );
-			out.writeInt( (Integer) valueObject );
+			out.put( (byte) DataTypeHeaderId.INT );
+			out.putInt( (Integer) valueObject );
 		} else if( valueObject instanceof Double ) {
-			out.writeByte( DataTypeHeaderId.DOUBLE );
-			out.writeDouble( (Double) valueObject );
+			out.put( (byte) DataTypeHeaderId.DOUBLE );
+			out.putDouble( (Double) valueObject );
 		} else if( valueObject instanceof ByteArray ) {
-			out.writeByte( DataTypeHeaderId.BYTE_ARRAY );
-			writeByteArray( out, (ByteArray) valueObject );
+			out.put( (byte) DataTypeHeaderId.BYTE_ARRAY );
+			writeByteArray( (ByteArray) valueObject );
 		} else if( valueObject instanceof Boolean ) {
-			out.writeByte( DataTypeHeaderId.BOOL );
-			out.writeBoolean( (Boolean) valueObject );
+			out.put( (byte) DataTypeHeaderId.BOOL );
+			out.put( (Boolean) valueObject ? (byte) 1 : (byte) 0 );
 		} else if( valueObject instanceof Long ) {
-			out.writeByte( DataTypeHeaderId.LONG );
-			out.writeLong( (Long) valueObject );
+			out.put( (byte) DataTypeHeaderId.LONG );
+			out.putLong( (Long) valueObject );
 		} else {
-			out.writeByte( DataTypeHeaderId.NULL );
+			out.put( (byte) DataTypeHeaderId.NULL );
 		}
 
-		Map< String, ValueVector > children = value.children();
-		List< Entry< String, ValueVector > > entries =
-			new LinkedList<>();
-		// if ( !entry.getKey().startsWith( "@" ) ) {
-		// }
-		entries.addAll( children.entrySet() );
-
-		out.writeInt( entries.size() );
-		for( Entry< String, ValueVector > entry : entries ) {
-			writeString( out, entry.getKey() );
-			out.writeInt( entry.getValue().size() );
+		// Counts are written after the elements, so that they match what we actually wrote
+		ensureCapacity( 4 );
+		final int childrenCountPosition = out.position();
+		out.position( childrenCountPosition + 4 );
+		int childrenCount = 0;
+		for( Entry< String, ValueVector > entry : value.children().entrySet() ) {
+			writeString( entry.getKey() );
+			ensureCapacity( 4 );
+			final int sizePosition = out.position();
+			out.position( sizePosition + 4 );
+			int size = 0;
 			for( Value v : entry.getValue() ) {
-				writeValue( out, v );
+				writeValue( v );
+				size++;
 			}
+			out.putInt( sizePosition, size );
+			childrenCount++;
 		}
+		out.putInt( childrenCountPosition, childrenCount );
 	}
 
-	private void writeMessage( DataOutput out, CommMessage message )
+	private void writeMessage( CommMessage message )
 		throws IOException {
-		out.writeLong( message.requestId() );
-		writeString( out, message.resourcePath() );
-		writeString( out, message.operationName() );
+		ensureCapacity( 8 );
+		out.putLong( message.requestId() );
+		writeString( message.resourcePath() );
+		writeString( message.operationName() );
 		FaultException fault = message.fault();
+		ensureCapacity( 1 );
 		if( fault == null ) {
-			out.writeBoolean( false );
+			out.put( (byte) 0 );
+		} else {
+			out.put( (byte) 1 );
+			writeFault( fault );
+		}
+		writeValue( message.value() );
+	}
+
+	private void readFully( byte[] b, int length )
+		throws IOException {
+		int offset = 0;
+		while( offset < length ) {
+			final int r = in.read( b, offset, length - offset );
+			if( r < 0 ) {
+				throw new EOFException();
+			}
+			offset += r;
+		}
+	}
+
+	private byte[] readToScratch( int length )
+		throws IOException {
+		if( length > scratch.length ) {
+			if( length > MAX_SCRATCH_SIZE ) {
+				final byte[] b = new byte[ length ];
+				readFully( b, length );
+				return b;
+			}
+			scratch = new byte[ Math.max( length, scratch.length * 2 ) ];
+		}
+		readFully( scratch, length );
+		return scratch;
+	}
+
+	private byte readByte()
+		throws IOException {
+		final int b = in.read();
+		if( b < 0 ) {
+			throw new EOFException();
+		}
+		return (byte) b;
+	}
+
+	private int readInt()
+		throws IOException {
+		final byte[] b = readToScratch( 4 );
+		return ((b[ 0 ] & 0xFF) << 24) | ((b[ 1 ] & 0xFF) << 16) | ((b[ 2 ] & 0xFF) << 8) | (b[ 3 ] & 0xFF);
+	}
+
+	private long readLong()
+		throws IOException {
+		final byte[] b = readToScratch( 8 );
+		return ((long) (b[ 0 ] & 0xFF) << 56) | ((long) (b[ 1 ] & 0xFF) << 48)
+			| ((long) (b[ 2 ] & 0xFF) << 40) | ((long) (b[ 3 ] & 0xFF) << 32)
+			| ((long) (b[ 4 ] & 0xFF) << 24) | ((b[ 5 ] & 0xFF) << 16)
+			| ((b[ 6 ] & 0xFF) << 8) | (b[ 7 ] & 0xFF);
+	}
+
+	private String readString()
+		throws IOException {
+		final int len = readInt();
+		if( len > 0 ) {
+			return new String( readToScratch( len ), 0, len, stringCharset );
+		}
+		return "";
+	}
+
+	private String readName()
+		throws IOException {
+		final int len = readInt();
+		if( len <= 0 ) {
+			return "";
+		}
+		final byte[] b = readToScratch( len );
+		if( len > NAME_CACHE_MAX_LENGTH || stringCharset != StandardCharsets.UTF_8 ) {
+			return new String( b, 0, len, stringCharset );
+		}
+		int hash = 1;
+		for( int i = 0; i < len; i++ ) {
+			hash = 31 * hash + b[ i ];
+		}
+		final int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+		final CachedName cached = NAME_CACHE[ slot ];
+		if( cached != null && Arrays.equals( cached.bytes, 0, cached.bytes.length, b, 0, len ) ) {
+			return cached.name;
+		}
+		final String name = new String( b, 0, len, StandardCharsets.UTF_8 );
+		NAME_CACHE[ slot ] = new CachedName( Arrays.copyOf( b, len ), name );
+		return name;
+	}
+
+	private ByteArray readByteArray()
+		throws IOException {
+		int size = readInt();
+		ByteArray ret;
+		if( size > 0 ) {
+			byte[] bytes = new byte[ size ];
+			readFully( bytes, size );
+			ret = new ByteArray( bytes );
 		} else {
-			out.writeBoolean( true );
-			writeFault( out, fault );
+			ret = new ByteArray( new byte[ 0 ] );
 		}
-		writeValue( out, message.value() );
+		return ret;
 	}
 
-	private Value readValue( DataInput in )
+	private Value readValue()
 		throws IOException {
 		Value value = Value.create();
 		Object valueObject = null;
-		byte b = in.readByte();
+		byte b = readByte();
 		switch( b ) {
 		case DataTypeHeaderId.STRING:
-			valueObject = readString( in );
+			valueObject = readString();
 			break;
 		case DataTypeHeaderId.INT:
-			valueObject = in.readInt();
+			valueObject = readInt();
 			break;
 		case DataTypeHeaderId.LONG:
-			valueObject = in.readLong();
+			valueObject = readLong();
 			break;
 		case DataTypeHeaderId.DOUBLE:
-			valueObject = in.readDouble();
+			valueObject = Double.longBitsToDouble( readLong() );
 			break;
 		case DataTypeHeaderId.BYTE_ARRAY:
-			valueObject = readByteArray( in );
+			valueObject = readByteArray();
 			break;
 		case DataTypeHeaderId.BOOL:
-			valueObject = in.readBoolean();
+			valueObject = readByte() != 0;
 			break;
 		case DataTypeHeaderId.NULL:
 		default:
@@ -206,41 +416,39 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 
 		value.setValue( valueObject );
 
-		Map< String, ValueVector > children = value.children();
 		String s;
 		int n, i, size, k;
-		n = in.readInt(); // How many children?
+		n = readInt(); // How many children?
 		ValueVector vec;
 
 		for( i = 0; i < n; i++ ) {
-			s = readString( in );
-			vec = ValueVector.create();
-			size = in.readInt();
+			s = readName();
+			vec = value.getChildren( s );
+			size = readInt();
 			for( k = 0; k < size; k++ ) {
-				vec.add( readValue( in ) );
+				vec.add( readValue() );
 			}
-			children.put( s, vec );
 		}
 		return value;
 	}
 
-	private FaultException readFault( DataInput in )
+	private FaultException readFault()
 		throws IOException {
-		String faultName = readString( in );
-		Value value = readValue( in );
+		String faultName = readString();
+		Value value = readValue();
 		return new FaultException( faultName, value );
 	}
 
-	private CommMessage readMessage( DataInput in )
+	private CommMessage readMessage()
 		throws IOException {
-		long id = in.readLong();
-		String resourcePath = readString( in );
-		String operationName = readString( in );
+		long id = readLong();
+		String resourcePath = readString();
+		String operationName = readName();
 		FaultException fault = null;
-		if( in.readBoolean() == true ) {
-			fault = readFault( in );
+		if( readByte() != 0 ) {
+			fault = readFault();
 		}
-		Value value = readValue( in );
+		Value value = readValue();
 		return new CommMessage( id, operationName, resourcePath, value, fault );
 	}
 
@@ -257,8 +465,14 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 			stringCharset = Charset.forName( charset );
 		}
 
-		final DataOutputStream oos = new DataOutputStream( ostream );
-		writeMessage( oos, message );
+		out = acquireBuffer();
+		try {
+			writeMessage( message );
+			ostream.write( out.array(), out.arrayOffset(), out.position() );
+		} finally {
+			releaseBuffer( out );
+			out = null;
+		}
 	}
 
 	public CommMessage recv( InputStream istream, OutputStream ostream )
@@ -270,7 +484,11 @@ public class SodepProtocol extends ConcurrentCommProtocol {
 			stringCharset = Charset.forName( charset );
 		}
 
-		final DataInputStream ios = new DataInputStream( istream );
-		return readMessage( ios );
+		in = istream;
+		try {
+			return readMessage();
+		} finally {
+			in = null;
+		}
 	}
 }
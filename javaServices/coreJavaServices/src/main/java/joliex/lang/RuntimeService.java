@@ -33,14 +33,22 @@ import com.sun.management.UnixOperatingSystemMXBean;
 
 import jolie.ExecutionThread;
 import jolie.lang.Constants;
+import jolie.net.AdmissionControl;
+import jolie.net.ChannelCache;
+import jolie.net.CommCore;
 import jolie.net.CommListener;
+import jolie.net.Hedging;
+import jolie.net.LoadBalancer;
 import jolie.net.LocalCommChannel;
+import jolie.net.ResponseCache;
+import jolie.net.SocketCommChannel;
 import jolie.net.ports.OutputPort;
 import jolie.runtime.FaultException;
 import jolie.runtime.InvalidIdException;
 import jolie.runtime.JavaService;
 import jolie.runtime.Value;
 import jolie.runtime.ValuePrettyPrinter;
+import jolie.runtime.ValueVector;
 import jolie.runtime.VariablePath;
 import jolie.runtime.VariablePathBuilder;
 import jolie.runtime.embedding.EmbeddedServiceLoader;
@@ -306,9 +314,143 @@ public class RuntimeService extends JavaService {
 		stats_files( stats.getFirstChild( "files" ) );
 		stats_os( stats.getFirstChild( "os" ) );
 		stats_memory( stats.getFirstChild( "memory" ) );
+		stats_connections( stats.getFirstChild( "connections" ) );
+		stats_channelPools( stats.getChildren( "channelPools" ) );
+		stats_sockets( stats.getFirstChild( "sockets" ) );
+		stats_selectors( stats.getChildren( "selectors" ) );
+		stats_admission( stats.getChildren( "admission" ) );
+		stats_loadBalancers( stats.getChildren( "loadBalancers" ) );
+		stats_hedging( stats.getChildren( "hedging" ) );
+		stats_responseCaches( stats.getChildren( "responseCaches" ) );
 		return stats;
 	}
 
+	private void stats_connections( Value stats ) {
+		final CommCore commCore = interpreter().commCore();
+		stats.setFirstChild( "limit", commCore.connectionsLimit() );
+		stats.setFirstChild( "rejectionPolicy", commCore.rejectionPolicy().name().toLowerCase() );
+		stats.setFirstChild( "pending", commCore.pendingReceives() );
+		if( commCore.activeReceives() >= 0 ) {
+			stats.setFirstChild( "active", commCore.activeReceives() );
+		}
+		stats.setFirstChild( "blocked", commCore.blockedReceives() );
+		stats.setFirstChild( "rejected", commCore.rejectedReceives() );
+	}
+
+	private void stats_channelPools( ValueVector stats ) {
+		for( OutputPort port : interpreter().outputPorts() ) {
+			for( ChannelCache.Statistics pool : port.channelCache().statistics() ) {
+				final Value v = Value.create();
+				v.setFirstChild( "outputPort", port.id() );
+				v.setFirstChild( "location", pool.location().toString() );
+				v.setFirstChild( "protocol", pool.protocol() );
+				v.setFirstChild( "idle", pool.idle() );
+				v.setFirstChild( "leased", pool.leased() );
+				v.setFirstChild( "multiplexed", pool.multiplexed() );
+				v.setFirstChild( "shared", pool.shared() );
+				v.setFirstChild( "hits", pool.hits() );
+				v.setFirstChild( "misses", pool.misses() );
+				v.setFirstChild( "creations", pool.creations() );
+				v.setFirstChild( "evictions", pool.evictions() );
+				stats.add( v );
+			}
+		}
+	}
+
+	private void stats_sockets( Value stats ) {
+		stats.setFirstChild( "messagesSent", SocketCommChannel.messagesSent() );
+		stats.setFirstChild( "writes", SocketCommChannel.writes() );
+	}
+
+	private void stats_selectors( ValueVector stats ) {
+		for( CommCore.SelectorStatistics selector : interpreter().commCore().selectorStatistics() ) {
+			final Value v = Value.create();
+			v.setFirstChild( "channels", selector.channels() );
+			v.setFirstChild( "selects", selector.selects() );
+			v.setFirstChild( "wakeups", selector.wakeups() );
+			v.setFirstChild( "registrations", selector.registrations() );
+			v.setFirstChild( "waitTime", selector.waitTime() );
+			v.setFirstChild( "dispatchTime", selector.dispatchTime() );
+			stats.add( v );
+		}
+	}
+
+	private void stats_admission( ValueVector stats ) {
+		interpreter().commCore().admissionControls().forEach( ( inputPort, admissionControl ) -> {
+			for( AdmissionControl.Statistics limit : admissionControl.statistics() ) {
+				final Value v = Value.create();
+				v.setFirstChild( "inputPort", inputPort );
+				if( limit.operation() != null ) {
+					v.setFirstChild( "operation", limit.operation() );
+				}
+				v.setFirstChild( "adaptive", limit.adaptive() );
+				v.setFirstChild( "limit", limit.limit() );
+				v.setFirstChild( "running", limit.running() );
+				v.setFirstChild( "queued", limit.queued() );
+				v.setFirstChild( "admitted", limit.admitted() );
+				v.setFirstChild( "waited", limit.waited() );
+				v.setFirstChild( "rejected", limit.rejected() );
+				v.setFirstChild( "latency", limit.latency() );
+				stats.add( v );
+			}
+		} );
+	}
+
+	private void stats_loadBalancers( ValueVector stats ) {
+		for( OutputPort port : interpreter().outputPorts() ) {
+			final LoadBalancer balancer = port.loadBalancer();
+			if( balancer == null ) {
+				continue;
+			}
+			for( LoadBalancer.Statistics endpoint : balancer.statistics() ) {
+				final Value v = Value.create();
+				v.setFirstChild( "outputPort", port.id() );
+				v.setFirstChild( "location", endpoint.location().toString() );
+				v.setFirstChild( "strategy", balancer.strategy() );
+				v.setFirstChild( "inFlight", endpoint.inFlight() );
+				v.setFirstChild( "requests", endpoint.requests() );
+				v.setFirstChild( "failures", endpoint.failures() );
+				v.setFirstChild( "ejected", endpoint.ejected() );
+				v.setFirstChild( "ejections", endpoint.ejections() );
+				v.setFirstChild( "latency", endpoint.latency() );
+				stats.add( v );
+			}
+		}
+	}
+
+	private void stats_hedging( ValueVector stats ) {
+		for( OutputPort port : interpreter().outputPorts() ) {
+			for( Hedging.Statistics operation : port.hedging().statistics() ) {
+				final Value v = Value.create();
+				v.setFirstChild( "outputPort", port.id() );
+				v.setFirstChild( "operation", operation.operationName() );
+				v.setFirstChild( "delay", operation.delay() );
+				v.setFirstChild( "calls", operation.calls() );
+				v.setFirstChild( "hedges", operation.hedges() );
+				v.setFirstChild( "wins", operation.wins() );
+				v.setFirstChild( "throttled", operation.throttled() );
+				stats.add( v );
+			}
+		}
+	}
+
+	private void stats_responseCaches( ValueVector stats ) {
+		for( OutputPort port : interpreter().outputPorts() ) {
+			for( ResponseCache.Statistics operation : port.responseCache().statistics() ) {
+				final Value v = Value.create();
+				v.setFirstChild( "outputPort", port.id() );
+				v.setFirstChild( "operation", operation.operationName() );
+				v.setFirstChild( "entries", operation.entries() );
+				v.setFirstChild( "bytes", operation.bytes() );
+				v.setFirstChild( "hits", operation.hits() );
+				v.setFirstChild( "misses", operation.misses() );
+				v.setFirstChild( "evictions", operation.evictions() );
+				v.setFirstChild( "expirations", operation.expirations() );
+				stats.add( v );
+			}
+		}
+	}
+
 	private void stats_os( Value stats ) {
 		OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
 		stats.setFirstChild( "arch", osBean.getArch() );
@@ -53,9 +53,11 @@ import java.util.logging.Level;
 import java.util.stream.Collectors;
 import jolie.Interpreter;
 import jolie.JolieClassLoader;
+import jolie.VirtualThreads;
 import jolie.jap.JapURLConnection;
 import jolie.lang.Constants;
 import jolie.lang.parse.Scanner;
+import jolie.net.CommCore;
 import jolie.runtime.correlation.CorrelationEngine;
 import jolie.util.UriUtils;
 
@@ -68,6 +70,10 @@ public class CommandLineParser implements AutoCloseable {
 	private final static String OPTION_SEPARATOR = " ";
 
 	private final int connectionsLimit;
+	private final int connectionsQueueSize;
+	private final CommCore.RejectionPolicy connectionsRejectionPolicy;
+	private final boolean virtualThreads;
+	private final int selectors;
 	private final CorrelationEngine.Type correlationAlgorithmType;
 	private final String[] includePaths;
 	private final String[] packagePaths;
@@ -86,6 +92,7 @@ public class CommandLineParser implements AutoCloseable {
 	private final String tracerLevel;
 	private final boolean check;
 	private final long responseTimeout;
+	private final long timerResolution;
 	private final boolean printStackTraces;
 	private final Level logLevel;
 	private final String executionTarget;
@@ -139,12 +146,27 @@ public class CommandLineParser implements AutoCloseable {
 					+ "(under Windows use quotes or double-quotes, e.g., -C \"ConstantIdentifier=ConstantValue\" )" ) )
 			.append(
 				getOptionString( "--connlimit [number]", "Set the maximum number of active connection threads" ) )
+			.append(
+				getOptionString( "--connqueue [number]",
+					"Set the number of incoming messages that can wait for a connection thread (default: connlimit)" ) )
+			.append(
+				getOptionString( "--connrejection [block|fault]",
+					"Set what to do with incoming messages when the connection queue is full (default: block)" ) )
+			.append(
+				getOptionString( "--threads [platform|virtual]",
+					"Set the threads running sessions and connections (default: platform; virtual needs Java 21)" ) )
+			.append(
+				getOptionString( "--selectors [number]",
+					"Set the number of threads waiting for incoming messages (default: number of processors)" ) )
 			.append(
 				getOptionString( "--conncache [number]",
 					"Set the maximum number of cached persistent output connections" ) )
 			.append(
 				getOptionString( "--responseTimeout [number]",
 					"Set the timeout for request-response invocations (in milliseconds)" ) )
+			.append(
+				getOptionString( "--timerResolution [number]",
+					"Set the resolution of the timer for timeouts (in milliseconds, default: 10)" ) )
 			.append(
 				getOptionString( "--correlationAlgorithm [simple|hash]",
 					"Set the algorithm to use for message correlation" ) )
@@ -283,7 +305,12 @@ public class CommandLineParser implements AutoCloseable {
 		Deque< String > libList = new ArrayDeque<>();
 		Deque< String > packagesList = new ArrayDeque<>();
 		int cLimit = -1;
+		int cQueueSize = -1;
+		String cRejectionPolicyName = "block";
+		boolean bVirtualThreads = false;
+		int nSelectors = Runtime.getRuntime().availableProcessors();
 		long rTimeout = 36000 * 1000; // 10 minutes
+		long tResolution = 10;
 		String pwd = UriUtils.normalizeWindowsPath( new File( "" ).getCanonicalPath() );
 		String tService = null;
 		Path tParams = null;
@@ -341,11 +368,54 @@ public class CommandLineParser implements AutoCloseable {
 				i++;
 				cLimit = Integer.parseInt( argsList.get( i ) );
 				optionsList.add( argsList.get( i ) );
+			} else if( "--connqueue".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				cQueueSize = Integer.parseInt( argsList.get( i ) );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--connrejection".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				cRejectionPolicyName = argsList.get( i );
+				optionsList.add( argsList.get( i ) );
+			} else if( "--threads".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				switch( argsList.get( i ) ) {
+				case "platform":
+					bVirtualThreads = false;
+					break;
+				case "virtual":
+					if( !VirtualThreads.isAvailable() ) {
+						throw new CommandLineException( "Virtual threads require Java 21 or later" );
+					}
+					bVirtualThreads = true;
+					break;
+				default:
+					throw new CommandLineException( "Unrecognized kind of threads: " + argsList.get( i ) );
+				}
+				optionsList.add( argsList.get( i ) );
+			} else if( "--selectors".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				nSelectors = Integer.parseInt( argsList.get( i ) );
+				if( nSelectors <= 0 ) {
+					throw new CommandLineException( "The number of selectors must be positive" );
+				}
+				optionsList.add( argsList.get( i ) );
 			} else if( "--responseTimeout".equals( argsList.get( i ) ) ) {
 				optionsList.add( argsList.get( i ) );
 				i++;
 				rTimeout = Long.parseLong( argsList.get( i ) );
 				optionsList.add( argsList.get( i ) );
+			} else if( "--timerResolution".equals( argsList.get( i ) ) ) {
+				optionsList.add( argsList.get( i ) );
+				i++;
+				tResolution = Long.parseLong( argsList.get( i ) );
+				if( tResolution <= 0 ) {
+					throw new CommandLineException( "The timer resolution must be positive" );
+				}
+				optionsList.add( argsList.get( i ) );
 			} else if( "--correlationAlgorithm".equals( argsList.get( i ) ) ) {
 				optionsList.add( argsList.get( i ) );
 				i++;
@@ -514,6 +584,10 @@ public class CommandLineParser implements AutoCloseable {
 		if( correlationAlgorithmType == null ) {
 			throw new CommandLineException( "Unrecognized correlation algorithm: " + csetAlgorithmName );
 		}
+		connectionsRejectionPolicy = CommCore.RejectionPolicy.fromString( cRejectionPolicyName );
+		if( connectionsRejectionPolicy == null ) {
+			throw new CommandLineException( "Unrecognized connection rejection policy: " + cRejectionPolicyName );
+		}
 		arguments = programArgumentsList.toArray( new String[ 0 ] );
 		// whitepages = whitepageList.toArray( new String[ whitepageList.size() ] );
 
@@ -522,7 +596,11 @@ public class CommandLineParser implements AutoCloseable {
 		}
 
 		connectionsLimit = cLimit;
+		connectionsQueueSize = cQueueSize;
+		virtualThreads = bVirtualThreads;
+		selectors = nSelectors;
 		responseTimeout = rTimeout;
+		timerResolution = tResolution;
 
 		List< URL > urls = new ArrayList<>();
 		for( String pathInList : libList ) {
@@ -797,6 +875,10 @@ public class CommandLineParser implements AutoCloseable {
 	public Interpreter.Configuration getInterpreterConfiguration() throws CommandLineException, IOException {
 		return Interpreter.Configuration.create(
 			connectionsLimit,
+			connectionsQueueSize,
+			connectionsRejectionPolicy,
+			virtualThreads,
+			selectors,
 			cellId,
 			correlationAlgorithmType,
 			includePaths,
@@ -816,6 +898,7 @@ public class CommandLineParser implements AutoCloseable {
 			check,
 			printStackTraces,
 			responseTimeout,
+			timerResolution,
 			logLevel,
 			programDirectory,
 			packagePaths,
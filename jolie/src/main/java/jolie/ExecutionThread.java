@@ -160,6 +160,9 @@ public abstract class ExecutionThread extends JolieThread {
 		}
 	}
 
+	// The ExecutionThread of threads that can not keep track of it themselves, see setCurrentThread
+	private static final ThreadLocal< ExecutionThread > CURRENT = new ThreadLocal<>();
+
 	protected final Process process;
 	protected final Deque< Scope > scopeStack = new ArrayDeque<>();
 	protected final ExecutionThread parent;
@@ -421,7 +424,27 @@ public abstract class ExecutionThread extends JolieThread {
 			return ((CommChannelHandler) currThread).executionThread();
 		}
 
-		return null;
+		return CURRENT.get();
+	}
+
+	/**
+	 * Sets the ExecutionThread the current thread should refer to, or clears it if {@code thread} is
+	 * null. Threads that are neither {@link JolieExecutorThread} nor {@link CommChannelHandler}
+	 * instances, like virtual threads, keep track of it in a thread-local variable.
+	 *
+	 * @param thread the ExecutionThread the current thread should refer to
+	 */
+	public static void setCurrentThread( ExecutionThread thread ) {
+		Thread currThread = Thread.currentThread();
+		if( currThread instanceof JolieExecutorThread ) {
+			((JolieExecutorThread) currThread).setExecutionThread( thread );
+		} else if( currThread instanceof CommChannelHandler ) {
+			((CommChannelHandler) currThread).setExecutionThread( thread );
+		} else if( thread == null ) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set( thread );
+		}
 	}
 
 	public static State getState() {
@@ -434,7 +457,8 @@ public abstract class ExecutionThread extends JolieThread {
 			return ((CommChannelHandler) t).executionThread().state();
 		}
 
-		return null;
+		final ExecutionThread ethread = CURRENT.get();
+		return ethread == null ? null : ethread.state();
 	}
 
 	/**
@@ -473,10 +497,17 @@ public abstract class ExecutionThread extends JolieThread {
 
 	@Override
 	public final void run() {
-		JolieExecutorThread t = JolieExecutorThread.currentThread();
-		t.setExecutionThread( this );
-		t.setContextClassLoader( interpreter().getClassLoader() );
-		runProcess();
+		setCurrentThread( this );
+		Thread.currentThread().setContextClassLoader( interpreter().getClassLoader() );
+		try {
+			runProcess();
+		} finally {
+			if( !(Thread.currentThread() instanceof JolieExecutorThread) ) {
+				// Pooled JolieExecutorThreads are reassigned on their next run, other threads may be reused
+				// for anything else
+				setCurrentThread( null );
+			}
+		}
 	}
 
 	public void start() {
@@ -28,7 +28,6 @@ import java.io.ObjectInputStream;
 import java.io.PrintStream;
 import java.io.StringWriter;
 import java.lang.ref.Cleaner;
-import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -42,7 +41,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -92,6 +90,7 @@ import jolie.runtime.InvalidIdException;
 import jolie.runtime.OneWayOperation;
 import jolie.runtime.RequestResponseOperation;
 import jolie.runtime.TimeoutHandler;
+import jolie.runtime.TimingWheel;
 import jolie.runtime.Value;
 import jolie.runtime.ValuePrettyPrinter;
 import jolie.runtime.ValueVector;
@@ -285,12 +284,9 @@ public class Interpreter {
 	// private long persistentConnectionTimeout = 2 * 60 * 1000; // 4 minutes
 	// private long persistentConnectionTimeout = 1;
 
-	// 11 is the default initial capacity for PriorityQueue
-	private final Queue< WeakReference< TimeoutHandler > > timeoutHandlerQueue =
-		new PriorityQueue<>( 11, new TimeoutHandler.Comparator() );
-
 	private final ExecutorService timeoutHandlerExecutor =
 		Executors.newSingleThreadExecutor( new NativeJolieThreadFactory( this ) );
+	private final TimingWheel timingWheel;
 
 	private final File programDirectory;
 	private OutputPort monitor = null;
@@ -372,48 +368,19 @@ public class Interpreter {
 		}
 	}
 
+	/**
+	 * Schedules the given handler to run when its timeout expires, unless it is cancelled before.
+	 * Handlers run at most {@link Configuration#timerResolution()} milliseconds after their timeout.
+	 */
 	public void addTimeoutHandler( TimeoutHandler handler ) {
-		synchronized( timeoutHandlerQueue ) {
-			timeoutHandlerQueue.add( new WeakReference<>( handler ) );
-			if( timeoutHandlerQueue.size() == 1 ) {
-				schedule( new TimerTask() {
-					@Override
-					public void run() {
-						synchronized( timeoutHandlerQueue ) {
-							checkForExpiredTimeoutHandlers();
-						}
-					}
-				}, handler.time() - System.currentTimeMillis() + 1 );
-			} else {
-				checkForExpiredTimeoutHandlers();
-			}
-		}
+		timingWheel.schedule( handler );
 	}
 
-	/*
-	 * public void removeTimeoutHandler( TimeoutHandler handler ) { synchronized( timeoutHandlerQueue )
-	 * { timeoutHandlerQueue.remove( handler ); checkForExpiredTimeoutHandlers(); } }
+	/**
+	 * Returns the number of timeout handlers waiting for their timeout to expire.
 	 */
-
-	private void checkForExpiredTimeoutHandlers() {
-		long currentTime = System.currentTimeMillis();
-		WeakReference< TimeoutHandler > whandler = timeoutHandlerQueue.peek();
-		boolean keepRun = true;
-		TimeoutHandler handler;
-		while( whandler != null && keepRun ) {
-			handler = whandler.get();
-			if( handler == null ) {
-				timeoutHandlerQueue.remove();
-				whandler = timeoutHandlerQueue.peek();
-			} else if( handler.time() < currentTime || exiting ) {
-				// final TimeoutHandler h = handler;
-				timeoutHandlerExecutor.execute( handler );
-				timeoutHandlerQueue.poll();
-				whandler = timeoutHandlerQueue.peek();
-			} else {
-				keepRun = false;
-			}
-		}
+	public long pendingTimeoutHandlers() {
+		return timingWheel.pending();
 	}
 
 	/**
@@ -641,7 +608,7 @@ public class Interpreter {
 		if( timer != null ) {
 			timer.cancel();
 		}
-		checkForExpiredTimeoutHandlers();
+		timingWheel.stop();
 		processExecutorService.shutdown();
 		nativeExecutorService.shutdown();
 		timeoutHandlerExecutor.shutdown();
@@ -831,7 +798,9 @@ public class Interpreter {
 			return ((InterpreterThread) t).interpreter();
 		}
 
-		return null;
+		// Virtual threads can not be InterpreterThreads
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		return ethread == null ? null : ethread.interpreter();
 	}
 
 	/**
@@ -864,6 +833,11 @@ public class Interpreter {
 		throws IOException {
 		TracerUtils.TracerLevels tracerLevel = TracerUtils.TracerLevels.ALL;
 		this.configuration = configuration;
+		this.processExecutorService = configuration.virtualThreads()
+			? VirtualThreads.newThreadPerTaskExecutor( programFilename() + "-VirtualThread-" )
+			: new JolieThreadPoolExecutor( new JolieExecutionThreadFactory( this ) );
+		this.timingWheel = new TimingWheel( configuration.timerResolution(), timeoutHandlerExecutor,
+			programFilename() + "-TimingWheel" );
 
 		this.symbolTables = new HashMap<>();
 
@@ -878,7 +852,9 @@ public class Interpreter {
 
 		this.correlationEngine = configuration.correlationAlgorithm().createInstance( this );
 
-		commCore = new CommCore( this, configuration.connectionsLimit() /* , cmdParser.connectionsCache() */ );
+		commCore = new CommCore( this, configuration.connectionsLimit(), configuration.connectionsQueueSize(),
+			configuration.connectionsRejectionPolicy(),
+			configuration.virtualThreads(), configuration.selectors() /* , cmdParser.connectionsCache() */ );
 		includePaths = configuration.includePaths();
 
 		logPrefix =
@@ -1141,8 +1117,7 @@ public class Interpreter {
 
 	private final ExecutorService nativeExecutorService =
 		new JolieThreadPoolExecutor( new NativeJolieThreadFactory( this ) );
-	private final ExecutorService processExecutorService =
-		new JolieThreadPoolExecutor( new JolieExecutionThreadFactory( this ) );
+	private final ExecutorService processExecutorService;
 
 	/**
 	 * Runs an asynchronous task in this Interpreter internal thread pool.
@@ -1310,6 +1285,19 @@ public class Interpreter {
 	 * @return {@code true} if the service session is started, {@code false} otherwise
 	 */
 	public boolean startServiceSession( final CommMessage message, CommChannel channel ) {
+		return startServiceSession( message, channel, null );
+	}
+
+	/**
+	 * Starts a service session, which will notify the given listener when it ends.
+	 * 
+	 * @param message the message triggering the session start
+	 * @param channel the channel of the message triggering the session start
+	 * @param sessionListener if not {@code null}, a listener to add to the started session
+	 * @return {@code true} if the service session is started, {@code false} otherwise
+	 */
+	public boolean startServiceSession( final CommMessage message, CommChannel channel,
+		SessionListener sessionListener ) {
 		if( executionMode == Constants.ExecutionMode.SINGLE ) {
 			return false;
 		}
@@ -1349,6 +1337,9 @@ public class Interpreter {
 					logSessionEnd( message, session.getSessionId() );
 				}
 			} );
+			if( sessionListener != null ) {
+				spawnedSession.addSessionListener( sessionListener );
+			}
 			spawnedSession.start();
 		} else if( executionMode == Constants.ExecutionMode.SEQUENTIAL ) {
 			/*
@@ -1390,6 +1381,9 @@ public class Interpreter {
 					logSessionEnd( message, session.getSessionId() );
 				}
 			} );
+			if( sessionListener != null ) {
+				spawnedSession.addSessionListener( sessionListener );
+			}
 			synchronized( waitingSessionThreads ) {
 				if( waitingSessionThreads.isEmpty() ) {
 					waitingSessionThreads.add( spawnedSession );
@@ -1440,6 +1434,10 @@ public class Interpreter {
 
 	public static class Configuration {
 		private final Integer connectionsLimit;
+		private final int connectionsQueueSize;
+		private final CommCore.RejectionPolicy connectionsRejectionPolicy;
+		private final boolean virtualThreads;
+		private final int selectors;
 		private final int cellId;
 		private final CorrelationEngine.Type correlationAlgorithm;
 		private final String[] includePaths;
@@ -1458,6 +1456,7 @@ public class Interpreter {
 		private final String tracerLevel;
 		private final boolean check;
 		private final long responseTimeout;
+		private final long timerResolution;
 		private final boolean printStackTraces;
 		private final Level logLevel;
 		private final File programDirectory;
@@ -1466,6 +1465,10 @@ public class Interpreter {
 		private final Optional< Path > parametersFilePath;
 
 		private Configuration( int connectionsLimit,
+			int connectionsQueueSize,
+			CommCore.RejectionPolicy connectionsRejectionPolicy,
+			boolean virtualThreads,
+			int selectors,
 			int cellId,
 			CorrelationEngine.Type correlationAlgorithm,
 			String[] includeList,
@@ -1485,12 +1488,17 @@ public class Interpreter {
 			boolean check,
 			boolean printStackTraces,
 			long responseTimeout,
+			long timerResolution,
 			Level logLevel,
 			File programDirectory,
 			String[] packagePaths,
 			String executionTarget,
 			Optional< Path > parametersFilePath ) {
 			this.connectionsLimit = connectionsLimit;
+			this.connectionsQueueSize = connectionsQueueSize;
+			this.connectionsRejectionPolicy = connectionsRejectionPolicy;
+			this.virtualThreads = virtualThreads;
+			this.selectors = selectors;
 			this.cellId = cellId;
 			this.correlationAlgorithm = correlationAlgorithm;
 			this.includePaths = includeList;
@@ -1510,6 +1518,7 @@ public class Interpreter {
 			this.check = check;
 			this.printStackTraces = printStackTraces;
 			this.responseTimeout = responseTimeout;
+			this.timerResolution = timerResolution;
 			this.logLevel = logLevel;
 			this.programDirectory = programDirectory;
 			this.packagePaths = packagePaths;
@@ -1518,6 +1527,10 @@ public class Interpreter {
 		}
 
 		public static Configuration create( int connectionsLimit,
+			int connectionsQueueSize,
+			CommCore.RejectionPolicy connectionsRejectionPolicy,
+			boolean virtualThreads,
+			int selectors,
 			int cellId,
 			CorrelationEngine.Type correlationAlgorithm,
 			String[] includeList,
@@ -1537,25 +1550,31 @@ public class Interpreter {
 			boolean check,
 			boolean printStackTraces,
 			long responseTimeout,
+			long timerResolution,
 			Level logLevel,
 			File programDirectory,
 			String[] packagePaths,
 			String executionTarget,
 			Optional< Path > parametersFilePath ) {
-			return new Configuration( connectionsLimit, cellId, correlationAlgorithm, includeList, optionArgs, libUrls,
+			return new Configuration( connectionsLimit, connectionsQueueSize, connectionsRejectionPolicy,
+				virtualThreads, selectors, cellId, correlationAlgorithm, includeList, optionArgs, libUrls,
 				inputStream, charset, programFilepath, arguments, constants, jolieClassLoader, programCompiled,
-				typeCheck, tracer, tracerLevel, tracerMode, check, printStackTraces, responseTimeout, logLevel,
+				typeCheck, tracer, tracerLevel, tracerMode, check, printStackTraces, responseTimeout, timerResolution,
+				logLevel,
 				programDirectory, packagePaths, executionTarget, parametersFilePath );
 		}
 
 		public static Configuration create( Configuration config,
 			File programFilepath,
 			InputStream inputStream ) {
-			return create( config.connectionsLimit, config.cellId, config.correlationAlgorithm, config.includePaths,
+			return create( config.connectionsLimit, config.connectionsQueueSize, config.connectionsRejectionPolicy,
+				config.virtualThreads, config.selectors, config.cellId, config.correlationAlgorithm,
+				config.includePaths,
 				config.optionArgs,
 				config.libURLs, inputStream, config.charset, programFilepath, config.arguments, config.constants,
 				config.jolieClassLoader, config.isProgramCompiled, config.typeCheck, config.tracer, config.tracerLevel,
-				config.tracerMode, config.check, config.printStackTraces, config.responseTimeout, config.logLevel,
+				config.tracerMode, config.check, config.printStackTraces, config.responseTimeout,
+				config.timerResolution, config.logLevel,
 				config.programDirectory, config.packagePaths, config.executionTarget, config.parametersFilePath );
 		}
 
@@ -1563,11 +1582,14 @@ public class Interpreter {
 			File programFilepath,
 			InputStream inputStream,
 			String executionTarget ) {
-			return create( config.connectionsLimit, config.cellId, config.correlationAlgorithm, config.includePaths,
+			return create( config.connectionsLimit, config.connectionsQueueSize, config.connectionsRejectionPolicy,
+				config.virtualThreads, config.selectors, config.cellId, config.correlationAlgorithm,
+				config.includePaths,
 				config.optionArgs,
 				config.libURLs, inputStream, config.charset, programFilepath, config.arguments, config.constants,
 				config.jolieClassLoader, config.isProgramCompiled, config.typeCheck, config.tracer, config.tracerLevel,
-				config.tracerMode, config.check, config.printStackTraces, config.responseTimeout, config.logLevel,
+				config.tracerMode, config.check, config.printStackTraces, config.responseTimeout,
+				config.timerResolution, config.logLevel,
 				config.programDirectory, config.packagePaths, executionTarget, config.parametersFilePath );
 		}
 
@@ -1580,6 +1602,46 @@ public class Interpreter {
 			return this.connectionsLimit;
 		}
 
+		/**
+		 * Returns the size of the queue of incoming messages passed by command line with the --connqueue
+		 * option.
+		 *
+		 * @return the size of the queue of incoming messages passed by command line
+		 */
+		public int connectionsQueueSize() {
+			return this.connectionsQueueSize;
+		}
+
+		/**
+		 * Returns the policy for incoming messages that exceed the connection limit, passed by command
+		 * line with the --connrejection option.
+		 *
+		 * @return the policy for incoming messages that exceed the connection limit
+		 */
+		public CommCore.RejectionPolicy connectionsRejectionPolicy() {
+			return this.connectionsRejectionPolicy;
+		}
+
+		/**
+		 * Returns {@code true} if sessions and handlers of incoming messages should run on virtual threads,
+		 * as requested by command line with the --threads option.
+		 *
+		 * @return {@code true} if virtual threads should be used
+		 */
+		public boolean virtualThreads() {
+			return this.virtualThreads;
+		}
+
+		/**
+		 * Returns the number of threads selecting the channels waiting for incoming messages, passed by
+		 * command line with the --selectors option.
+		 *
+		 * @return the number of selector threads
+		 */
+		public int selectors() {
+			return this.selectors;
+		}
+
 		/**
 		 * Returns the cellId parameter passed by command line with the --cellId option.
 		 *
@@ -1744,6 +1806,16 @@ public class Interpreter {
 			return responseTimeout;
 		}
 
+		/**
+		 * Returns the length in milliseconds of the ticks of the timer for timeouts, passed by command line
+		 * with the --timerResolution option.
+		 *
+		 * @return the resolution of the timer for timeouts
+		 */
+		public long timerResolution() {
+			return timerResolution;
+		}
+
 		public boolean printStackTraces() {
 			return printStackTraces;
 		}
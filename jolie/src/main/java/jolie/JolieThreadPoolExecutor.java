@@ -19,6 +19,8 @@
 
 package jolie;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -39,4 +41,22 @@ public final class JolieThreadPoolExecutor extends ThreadPoolExecutor {
 			factory,
 			new ThreadPoolExecutor.AbortPolicy() );
 	}
+
+	/**
+	 * Creates an executor with a fixed number of threads, which queues up to {@code queueCapacity}
+	 * tasks when all threads are busy. Tasks that do not fit in the queue are passed to
+	 * {@code rejectionHandler}.
+	 */
+	public JolieThreadPoolExecutor( final ThreadFactory factory, int poolSize, int queueCapacity,
+		RejectedExecutionHandler rejectionHandler ) {
+		super(
+			poolSize,
+			poolSize,
+			0L,
+			TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>( queueCapacity ),
+			factory,
+			rejectionHandler );
+		prestartAllCoreThreads();
+	}
 }
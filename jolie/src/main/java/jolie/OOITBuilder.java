@@ -407,6 +407,29 @@ public class OOITBuilder implements UnitOLVisitor {
 		map.put( operationName, configuration );
 	}
 
+	/*
+	 * Copies a protocol configuration evaluated while building, leaving out aliases: they can only be
+	 * followed by a running session, and the init process assigns them later.
+	 */
+	private static void copyConstantParameters( Value source, Value target ) {
+		target.assignValue( source );
+		if( !source.hasChildren() ) {
+			return;
+		}
+		for( Entry< String, ValueVector > child : source.children().entrySet() ) {
+			final ValueVector vector = child.getValue();
+			if( vector.isLink() ) {
+				continue;
+			}
+			for( int i = 0; i < vector.size(); i++ ) {
+				final Value value = vector.get( i );
+				if( !value.isLink() ) {
+					copyConstantParameters( value, target.getChildren( child.getKey() ).get( i ) );
+				}
+			}
+		}
+	}
+
 	public void visit( InputPortInfo n ) {
 		currentPortInterface = new Interface(
 			new HashMap<>(),
@@ -500,8 +523,10 @@ public class OOITBuilder implements UnitOLVisitor {
 				return;
 			}
 			if( protocolExpr instanceof Value || protocolExpr instanceof InlineTreeExpression ) {
-				protocolStr = protocolExpr.evaluate().strValue();
-
+				final Value protocolValue = protocolExpr.evaluate();
+				protocolStr = protocolValue.strValue();
+				// Listeners apply some parameters when they bind, before the init process assigns them
+				copyConstantParameters( protocolValue, protocolPath.getValue() );
 			} else if( protocolExpr instanceof VariablePath ) {
 				VariablePath path = new ClosedVariablePath( (VariablePath) protocolExpr, initValue );
 				protocolStr = path.getValue().strValue();
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to the virtual threads of the Java platform (Java 21 or later), through reflection so that
+ * the interpreter can still be built and run on older versions.
+ */
+public final class VirtualThreads {
+	private static final Method OF_VIRTUAL;
+	private static final Method BUILDER_NAME;
+	private static final Method BUILDER_FACTORY;
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null, builderName = null, builderFactory = null, newThreadPerTaskExecutor = null;
+		try {
+			final Class< ? > builderClass = Class.forName( "java.lang.Thread$Builder" );
+			ofVirtual = Thread.class.getMethod( "ofVirtual" );
+			builderName = builderClass.getMethod( "name", String.class, long.class );
+			builderFactory = builderClass.getMethod( "factory" );
+			newThreadPerTaskExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+		} catch( ClassNotFoundException | NoSuchMethodException e ) {
+			// Older Java platform
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		BUILDER_NAME = builderName;
+		BUILDER_FACTORY = builderFactory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	private VirtualThreads() {}
+
+	/**
+	 * Returns {@code true} if the running Java platform supports virtual threads.
+	 */
+	public static boolean isAvailable() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Returns a factory of virtual threads, named with the given prefix followed by a counter.
+	 *
+	 * @throws UnsupportedOperationException if virtual threads are not available
+	 */
+	public static ThreadFactory newThreadFactory( String namePrefix ) {
+		if( !isAvailable() ) {
+			throw new UnsupportedOperationException( "Virtual threads require Java 21 or later" );
+		}
+		try {
+			final Object builder = BUILDER_NAME.invoke( OF_VIRTUAL.invoke( null ), namePrefix, 0L );
+			return (ThreadFactory) BUILDER_FACTORY.invoke( builder );
+		} catch( IllegalAccessException | InvocationTargetException e ) {
+			throw new UnsupportedOperationException( e );
+		}
+	}
+
+	/**
+	 * Returns an executor that starts a new virtual thread for each task.
+	 *
+	 * @throws UnsupportedOperationException if virtual threads are not available
+	 */
+	public static ExecutorService newThreadPerTaskExecutor( String namePrefix ) {
+		final ThreadFactory factory = newThreadFactory( namePrefix );
+		try {
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke( null, factory );
+		} catch( IllegalAccessException | InvocationTargetException e ) {
+			throw new UnsupportedOperationException( e );
+		}
+	}
+}
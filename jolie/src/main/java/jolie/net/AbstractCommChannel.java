@@ -22,186 +22,284 @@
 package jolie.net;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import jolie.ExecutionThread;
 import jolie.Interpreter;
-import jolie.lang.Constants;
-import jolie.runtime.FaultException;
 import jolie.runtime.TimeoutHandler;
-import jolie.runtime.Value;
 
 public abstract class AbstractCommChannel extends CommChannel {
-	private static final long RECEIVER_KEEP_ALIVE = 20000; // msecs
+	private static final int MAX_CANCELLED = 1024;
 
-	private final Map< Long, CommMessage > pendingResponses = new HashMap<>();
-	private final Map< Long, ResponseContainer > waiters = new HashMap<>();
-	private final List< CommMessage > pendingGenericResponses = new LinkedList<>();
-	private ResponseReceiver responseReceiver = null;
-	private final Object responseRecvMutex = new Object();
+	/*
+	 * A response that arrived before its request started waiting for it. It is dropped when it expires,
+	 * since its request may never wait for it: the caller may have failed after sending, or the id may
+	 * not be one we issued.
+	 */
+	private static class ArrivedResponse extends CompletableFuture< CommMessage > {
+		private volatile TimeoutHandler expiration = null;
 
-	private static class ResponseContainer {
-		private ResponseContainer() {}
+		private ArrivedResponse( CommMessage response ) {
+			complete( response );
+		}
+	}
+
+	/*
+	 * Request id -> response. A future is put here either by the request waiting for it, or by the
+	 * receiver if the response arrives first: whoever comes second removes it. Futures cancelled by
+	 * their callers (e.g., after a timeout) are removed, and their ids are remembered in cancelled.
+	 */
+	private final Map< Long, CompletableFuture< CommMessage > > responses = new ConcurrentHashMap<>();
+	// Responses without a request id that no request was waiting for
+	private final Queue< CommMessage > genericResponses = new ConcurrentLinkedQueue<>();
+	/*
+	 * Ids of the most recently cancelled requests, whose late responses are discarded. Bounded, since a
+	 * peer may never answer: a response arriving after its id has been forgotten is kept as if it had
+	 * arrived early, until it expires.
+	 */
+	private final Set< Long > cancelled = Collections.newSetFromMap( new LinkedHashMap< Long, Boolean >() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry( Map.Entry< Long, Boolean > eldest ) {
+			return size() > MAX_CANCELLED;
+		}
+	} );
+	// True while a ResponseReceiver is running
+	private final AtomicBoolean receiving = new AtomicBoolean( false );
+	private volatile boolean multiplexed = false;
+	// Only used when multiplexed: the error that stopped the receiver
+	private volatile IOException multiplexingFailure = null;
+
+	@Override
+	protected boolean enableMultiplexing() {
+		if( !isThreadSafe() ) {
+			return false;
+		}
+		final ExecutionThread ethread = ExecutionThread.currentThread();
+		multiplexed = true;
+		receiving.set( true );
+		ethread.interpreter().commCore().startMultiplexedReceiver( this, new ResponseReceiver( this, ethread ) );
+		return true;
+	}
 
-		private CommMessage response = null;
+	@Override
+	public boolean isMultiplexed() {
+		return multiplexed;
 	}
 
 	@Override
 	public Future< CommMessage > recvResponseFor( CommMessage request )
 		throws IOException {
-		final ExecutionThread ethread = ExecutionThread.currentThread();
-		return CompletableFuture.supplyAsync( () -> {
-			CommMessage response;
-			ResponseContainer monitor = null;
-			synchronized( responseRecvMutex ) {
-				response = pendingResponses.remove( request.requestId() );
-				if( response == null ) {
-					if( pendingGenericResponses.isEmpty() ) {
-						assert (waiters.containsKey( request.requestId() ) == false);
-						monitor = new ResponseContainer();
-						waiters.put( request.requestId(), monitor );
-						// responseRecvMutex.notify();
-					} else {
-						response = pendingGenericResponses.remove( 0 );
-					}
+		final Long requestId = request.requestId();
+		final CompletableFuture< CommMessage > future = new CompletableFuture<>();
+		final CompletableFuture< CommMessage > arrived = responses.putIfAbsent( requestId, future );
+		if( arrived != null ) {
+			// The response arrived already
+			if( responses.remove( requestId, arrived ) && arrived instanceof ArrivedResponse ) {
+				final TimeoutHandler expiration = ((ArrivedResponse) arrived).expiration;
+				if( expiration != null ) {
+					expiration.cancel();
 				}
 			}
-			if( response == null ) {
-				synchronized( responseRecvMutex ) {
-					if( responseReceiver == null ) {
-						responseReceiver = new ResponseReceiver( this, ethread );
-						ethread.interpreter().commCore().startCommChannelHandler( responseReceiver );
-					} else {
-						responseReceiver.wakeUp();
-					}
+			return arrived;
+		}
+		future.whenComplete( ( response, e ) -> {
+			if( future.isCancelled() && responses.remove( requestId, future ) ) {
+				synchronized( cancelled ) {
+					cancelled.add( requestId );
 				}
+			}
+		} );
 
-				if( monitor != null ) {
-					synchronized( monitor ) {
-						if( monitor.response == null ) {
-							try {
-								monitor.wait();
-							} catch( InterruptedException e ) {
-								ethread.interpreter().logSevere( e );
-							}
-						}
-						response = monitor.response;
+		if( multiplexed ) {
+			final IOException failure = multiplexingFailure;
+			if( failure != null ) {
+				responses.remove( requestId, future );
+				future.completeExceptionally( failure );
+			}
+		} else {
+			dispatchGenericResponses();
+			if( receiving.compareAndSet( false, true ) ) {
+				final ExecutionThread ethread = ExecutionThread.currentThread();
+				ethread.interpreter().commCore().startCommChannelHandler( new ResponseReceiver( this, ethread ) );
+			}
+		}
+		return future;
+	}
+
+	private void handleResponse( CommMessage response, Interpreter interpreter ) {
+		if( response.hasGenericRequestId() ) {
+			genericResponses.add( response );
+			dispatchGenericResponses();
+		} else {
+			synchronized( cancelled ) {
+				if( cancelled.remove( response.requestId() ) ) {
+					return;
+				}
+			}
+			final Long requestId = response.requestId();
+			final ArrivedResponse arrived = new ArrivedResponse( response );
+			final CompletableFuture< CommMessage > future = responses.putIfAbsent( requestId, arrived );
+			if( future != null ) {
+				responses.remove( requestId, future );
+				future.complete( response );
+			} else {
+				// A request waiting for longer than this would have timed out
+				final TimeoutHandler expiration = new TimeoutHandler( interpreter.responseTimeout() ) {
+					@Override
+					protected void onTimeout() {
+						responses.remove( requestId, arrived );
 					}
+				};
+				arrived.expiration = expiration;
+				interpreter.addTimeoutHandler( expiration );
+				if( responses.get( requestId ) != arrived ) {
+					// Taken in the meantime
+					expiration.cancel();
 				}
 			}
-			return response;
-		}, Interpreter.getInstance().commCore().executor() );
+		}
 	}
 
-	private static class ResponseReceiver implements Runnable {
-		private final AbstractCommChannel parent;
-		private final ExecutionThread ethread;
-		private boolean keepRun;
-		private TimeoutHandler timeoutHandler;
-
-		private void timeout() {
-			synchronized( parent.responseRecvMutex ) {
-				if( keepRun == false ) {
-					if( parent.waiters.isEmpty() ) {
-						timeoutHandler = null;
-						parent.responseReceiver = null;
-					} else {
-						keepRun = true;
-					}
-					parent.responseRecvMutex.notify();
+	/*
+	 * Gives the responses without a request id to the oldest requests that are waiting, if any.
+	 */
+	private void dispatchGenericResponses() {
+		CommMessage response;
+		while( (response = genericResponses.poll()) != null ) {
+			if( !completeOldest( response ) ) {
+				genericResponses.add( response );
+				// A request may have started waiting before we put the response back
+				if( oldestWaiting() == null ) {
+					return;
 				}
 			}
 		}
+	}
 
-		private void wakeUp() {
-			// TODO: check race conditions on timeoutHandler, should we sync it?
-			if( timeoutHandler != null ) {
-				timeoutHandler.cancel();
+	private boolean completeOldest( CommMessage response ) {
+		Entry< Long, CompletableFuture< CommMessage > > entry;
+		while( (entry = oldestWaiting()) != null ) {
+			if( responses.remove( entry.getKey(), entry.getValue() )
+				&& entry.getValue().complete( new CommMessage(
+					entry.getKey(),
+					response.operationName(),
+					response.resourcePath(),
+					response.value(),
+					response.fault() ) ) ) {
+				return true;
 			}
-			keepRun = true;
-			parent.responseRecvMutex.notify();
 		}
+		return false;
+	}
 
-		private void sleep() {
-			final ResponseReceiver receiver = this;
-			timeoutHandler = new TimeoutHandler( RECEIVER_KEEP_ALIVE ) {
-				@Override
-				public void onTimeout() {
-					receiver.timeout();
-				}
-			};
-			ethread.interpreter().addTimeoutHandler( timeoutHandler );
-			try {
-				keepRun = false;
-				parent.responseRecvMutex.wait();
-			} catch( InterruptedException e ) {
-				Interpreter.getInstance().logSevere( e );
+	// Request ids are increasing, so the oldest request is the one with the lowest id
+	private Entry< Long, CompletableFuture< CommMessage > > oldestWaiting() {
+		Entry< Long, CompletableFuture< CommMessage > > oldest = null;
+		for( Entry< Long, CompletableFuture< CommMessage > > entry : responses.entrySet() ) {
+			if( !entry.getValue().isDone() && (oldest == null || entry.getKey() < oldest.getKey()) ) {
+				oldest = entry;
+			}
+		}
+		return oldest;
+	}
+
+	/*
+	 * Returns true if a request is waiting for a response that has not arrived yet. Responses that
+	 * arrived before their request started waiting do not count, or the receiver could block reading
+	 * a response that will never come.
+	 */
+	private boolean isAwaitingResponses() {
+		for( CompletableFuture< CommMessage > future : responses.values() ) {
+			if( !future.isDone() ) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+	private void fail( IOException e ) {
+		if( isOpen() ) {
+			// Not a communication error if we closed the channel ourselves
+			setFailed();
+		}
+		if( multiplexed ) {
+			multiplexingFailure = e;
+		}
+		responses.values().removeIf( future -> future.completeExceptionally( e ) );
+	}
+
+	/*
+	 * Reads the responses arriving on the channel and completes the futures of the requests waiting
+	 * for them. A multiplexed channel has a single receiver, which runs until the channel is closed and
+	 * does not take the channel lock, so that requests can be sent in the meantime. Otherwise, a
+	 * receiver is started when a request starts waiting, and it stops when no request is left waiting.
+	 */
+	private static class ResponseReceiver implements Runnable {
+		private final AbstractCommChannel parent;
+		private final ExecutionThread ethread;
 
 		private ResponseReceiver( AbstractCommChannel parent, ExecutionThread ethread ) {
-			this.ethread = ethread;
 			this.parent = parent;
-			this.keepRun = true;
-			this.timeoutHandler = null;
+			this.ethread = ethread;
 		}
 
-		private void handleGenericMessage( CommMessage response ) {
-			ResponseContainer monitor;
-			if( parent.waiters.isEmpty() ) {
-				parent.pendingGenericResponses.add( response );
-			} else {
-				Entry< Long, ResponseContainer > entry =
-					parent.waiters.entrySet().iterator().next();
-				monitor = entry.getValue();
-				parent.waiters.remove( entry.getKey() );
-				synchronized( monitor ) {
-					monitor.response = new CommMessage(
-						entry.getKey(),
-						response.operationName(),
-						response.resourcePath(),
-						response.value(),
-						response.fault() );
-					monitor.notify();
+		private void receiveMultiplexed() {
+			final CommCore commCore = ethread.interpreter().commCore();
+			try {
+				while( true ) {
+					final CommMessage response = parent.recvImpl();
+					if( response != null ) {
+						parent.handleResponse( response, ethread.interpreter() );
+					}
 				}
-			}
-		}
-
-		private void handleMessage( CommMessage response ) {
-			ResponseContainer monitor;
-			if( (monitor = parent.waiters.remove( response.requestId() )) == null ) {
-				parent.pendingResponses.put( response.requestId(), response );
-			} else {
-				synchronized( monitor ) {
-					monitor.response = response;
-					monitor.notify();
+			} catch( IOException e ) {
+				if( parent.isOpen() ) {
+					ethread.interpreter().logFine( e );
+				}
+				parent.fail( e );
+			} catch( RuntimeException e ) {
+				ethread.interpreter().logWarning( e );
+				parent.fail( new IOException( e ) );
+			} finally {
+				commCore.multiplexedReceiverTerminated( parent );
+				try {
+					parent.close();
+				} catch( IOException e ) {
+					ethread.interpreter().logFine( e );
 				}
 			}
 		}
 
-		private void throwIOExceptionFault( IOException e ) {
-			if( parent.waiters.isEmpty() == false ) {
-				ResponseContainer monitor;
-				for( Entry< Long, ResponseContainer > entry : parent.waiters.entrySet() ) {
-					monitor = entry.getValue();
-					synchronized( monitor ) {
-						monitor.response = new CommMessage(
-							entry.getKey(),
-							"",
-							Constants.ROOT_RESOURCE_PATH,
-							Value.create(),
-							new FaultException( "IOException", e ) );
-						monitor.notify();
+		private void receive() {
+			do {
+				while( parent.isAwaitingResponses() ) {
+					try {
+						final CommMessage response = parent.recv();
+						if( response != null ) {
+							parent.handleResponse( response, ethread.interpreter() );
+						}
+					} catch( IOException e ) {
+						parent.fail( e );
+					} catch( RuntimeException e ) {
+						ethread.interpreter().logWarning( e );
+						parent.fail( new IOException( e ) );
 					}
 				}
-				parent.waiters.clear();
-			}
+				parent.receiving.set( false );
+				// A request may have started waiting after the check above, and found us still running
+			} while( parent.isAwaitingResponses() && parent.receiving.compareAndSet( false, true ) );
 		}
 
 		@Override
@@ -211,28 +309,10 @@ public abstract class AbstractCommChannel extends CommChannel {
 			 * only for outputs, otherwise we are messing with correlation set checking.
 			 */
 			CommChannelHandler.currentThread().setExecutionThread( ethread ); // TODO: this is hacky..
-
-			CommMessage response;
-			while( keepRun ) {
-				synchronized( parent.responseRecvMutex ) {
-					try {
-						response = parent.recv();
-						if( response != null ) {
-							if( response.hasGenericRequestId() ) {
-								handleGenericMessage( response );
-							} else {
-								handleMessage( response );
-							}
-						}
-						if( parent.waiters.isEmpty() ) {
-							sleep();
-						}
-					} catch( IOException e ) {
-						throwIOExceptionFault( e );
-						keepRun = false;
-						parent.responseReceiver = null;
-					}
-				}
+			if( parent.multiplexed ) {
+				receiveMultiplexed();
+			} else {
+				receive();
 			}
 		}
 	}
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jolie.Interpreter;
+import jolie.SessionListener;
+import jolie.SessionThread;
+import jolie.lang.Constants;
+import jolie.runtime.FaultException;
+import jolie.runtime.TimeoutHandler;
+import jolie.runtime.Value;
+
+/**
+ * Limits the number of sessions started through an input port that can run at the same time.
+ *
+ * The limits are read from the {@code concurrency} node of the protocol configuration of the port,
+ * when the port receives its first message:
+ * <ul>
+ * <li>{@code limit}: the maximum number of sessions running at the same time, unbounded if not
+ * positive (the initial limit in adaptive mode, 20 by default);</li>
+ * <li>{@code queue}: the number of requests that can wait for a running session to end, the limit by
+ * default. Requests that do not fit are refused with a {@code ServiceUnavailable} fault;</li>
+ * <li>{@code maxWait}: the milliseconds a request can wait before being refused (default: 1000). If not
+ * positive, requests are refused as soon as the limit is reached;</li>
+ * <li>{@code adaptive}: if {@code true}, the limit is tuned from the observed duration of sessions,
+ * decreasing it when sessions get slower than usual and increasing it otherwise;</li>
+ * <li>{@code minLimit} and {@code maxLimit}: the bounds of the adaptive limit (default: 1 and
+ * 1000);</li>
+ * <li>{@code operations}: a node for each operation that needs its own limits, with the same
+ * parameters. Requests for these operations must satisfy both their limits and those of the
+ * port.</li>
+ * </ul>
+ *
+ * Only messages that start a new session are limited: messages for running sessions are always
+ * accepted, since refusing them could prevent those sessions from ending. Waiting requests do not keep
+ * a thread busy, so that the messages for running sessions can still be read.
+ */
+public class AdmissionControl {
+	public static final String CONCURRENCY_PARAMETER = "concurrency";
+	private static final AdmissionControl UNLIMITED = new AdmissionControl( null, Collections.emptyMap() );
+
+	private final Limiter portLimiter;
+	private final Map< String, Limiter > operationLimiters;
+
+	private AdmissionControl( Limiter portLimiter, Map< String, Limiter > operationLimiters ) {
+		this.portLimiter = portLimiter;
+		this.operationLimiters = operationLimiters;
+	}
+
+	/**
+	 * Creates the admission control described by the given protocol configuration.
+	 */
+	public static AdmissionControl fromConfiguration( Value configuration, Interpreter interpreter ) {
+		if( !configuration.hasChildren( CONCURRENCY_PARAMETER ) ) {
+			return UNLIMITED;
+		}
+		final Value parameters = configuration.getFirstChild( CONCURRENCY_PARAMETER );
+		final Map< String, Limiter > operationLimiters = new HashMap<>();
+		if( parameters.hasChildren( "operations" ) ) {
+			parameters.getFirstChild( "operations" ).children().forEach( ( operationName, values ) -> {
+				final Limiter limiter = Limiter.fromValue( operationName, values.first(), interpreter );
+				if( limiter != null ) {
+					operationLimiters.put( operationName, limiter );
+				}
+			} );
+		}
+		return new AdmissionControl( Limiter.fromValue( null, parameters, interpreter ), operationLimiters );
+	}
+
+	/**
+	 * Asks to start a new session for the given operation. The returned future is completed right away
+	 * if the session can start, or when a running session ends otherwise.
+	 *
+	 * @return the permit to be released when the session ends, <code>null</code> if the operation is
+	 *         not limited. The future is completed exceptionally with a <code>ServiceUnavailable</code>
+	 *         {@link FaultException} if the request is refused.
+	 */
+	public CompletableFuture< Permit > admit( String operationName ) {
+		final Limiter operationLimiter = operationLimiters.get( operationName );
+		if( operationLimiter == null && portLimiter == null ) {
+			return CompletableFuture.completedFuture( null );
+		} else if( operationLimiter == null ) {
+			return portLimiter.acquire().thenApply( v -> new Permit( Collections.singletonList( portLimiter ) ) );
+		} else if( portLimiter == null ) {
+			return operationLimiter.acquire()
+				.thenApply( v -> new Permit( Collections.singletonList( operationLimiter ) ) );
+		}
+		return operationLimiter.acquire()
+			.thenCompose( v -> portLimiter.acquire().whenComplete( ( w, e ) -> {
+				if( e != null ) {
+					operationLimiter.release( -1 );
+				}
+			} ) )
+			.thenApply( v -> new Permit( Arrays.asList( operationLimiter, portLimiter ) ) );
+	}
+
+	/**
+	 * Returns the statistics of the limits of the port, followed by those of its operations.
+	 */
+	public List< Statistics > statistics() {
+		final List< Statistics > ret = new ArrayList<>();
+		if( portLimiter != null ) {
+			ret.add( portLimiter.statistics() );
+		}
+		operationLimiters.values().forEach( limiter -> ret.add( limiter.statistics() ) );
+		return ret;
+	}
+
+	/**
+	 * The right to run a session, obtained from {@link #admit(String)}. It is released when the session
+	 * ends, or by calling {@link #cancel()} if the message did not start a session.
+	 */
+	public static final class Permit implements SessionListener {
+		private final List< Limiter > limiters;
+		private final long startTime = System.nanoTime();
+		private final AtomicBoolean released = new AtomicBoolean( false );
+
+		private Permit( List< Limiter > limiters ) {
+			this.limiters = limiters;
+		}
+
+		private void release( long duration ) {
+			if( released.compareAndSet( false, true ) ) {
+				limiters.forEach( limiter -> limiter.release( duration ) );
+			}
+		}
+
+		/**
+		 * Releases this permit without measuring the duration of a session.
+		 */
+		public void cancel() {
+			release( -1 );
+		}
+
+		@Override
+		public void onSessionExecuted( SessionThread session ) {
+			release( System.nanoTime() - startTime );
+		}
+
+		@Override
+		public void onSessionError( SessionThread session, FaultException fault ) {
+			release( System.nanoTime() - startTime );
+		}
+	}
+
+	/**
+	 * A snapshot of the state and counters of a limit.
+	 */
+	public static class Statistics {
+		private final String operation;
+		private final boolean adaptive;
+		private final int limit, running, queued;
+		private final long admitted, waited, rejected;
+		private final long latency;
+
+		private Statistics( Limiter limiter ) {
+			this.operation = limiter.operationName;
+			this.adaptive = limiter.adaptive;
+			this.limit = limiter.currentLimit();
+			this.running = limiter.running;
+			this.queued = limiter.waiters.size();
+			this.admitted = limiter.admitted;
+			this.waited = limiter.waited;
+			this.rejected = limiter.rejected;
+			this.latency = TimeUnit.NANOSECONDS.toMicros( (long) limiter.longLatency );
+		}
+
+		/**
+		 * Returns the name of the limited operation, or <code>null</code> for the limit of the whole port.
+		 */
+		public String operation() {
+			return operation;
+		}
+
+		/**
+		 * Returns <code>true</code> if the limit is tuned from the observed duration of sessions.
+		 */
+		public boolean adaptive() {
+			return adaptive;
+		}
+
+		/**
+		 * Returns the current limit.
+		 */
+		public int limit() {
+			return limit;
+		}
+
+		/**
+		 * Returns the number of sessions currently running.
+		 */
+		public int running() {
+			return running;
+		}
+
+		/**
+		 * Returns the number of requests currently waiting.
+		 */
+		public int queued() {
+			return queued;
+		}
+
+		/**
+		 * Returns the number of requests that were admitted.
+		 */
+		public long admitted() {
+			return admitted;
+		}
+
+		/**
+		 * Returns the number of requests that had to wait before being admitted or refused.
+		 */
+		public long waited() {
+			return waited;
+		}
+
+		/**
+		 * Returns the number of requests refused with a <code>ServiceUnavailable</code> fault.
+		 */
+		public long rejected() {
+			return rejected;
+		}
+
+		/**
+		 * Returns the average duration of sessions used as reference by the adaptive limit, in
+		 * microseconds (0 if the limit is not adaptive).
+		 */
+		public long latency() {
+			return latency;
+		}
+	}
+
+	private static final class Limiter {
+		private static final int DEFAULT_ADAPTIVE_LIMIT = 20;
+		private static final int DEFAULT_MAX_LIMIT = 1000;
+		private static final long DEFAULT_MAX_WAIT = 1000;
+		// Durations are averaged over windows of at least this many sessions and nanoseconds
+		private static final int WINDOW_SAMPLES = 10;
+		private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos( 250 );
+		// The reference duration is an average over about this many windows
+		private static final int LONG_WINDOWS = 600;
+		// How much slower than the reference sessions can get before the limit decreases
+		private static final double TOLERANCE = 1.5;
+		// How many sessions the limit allows above the ones that run without slowing down
+		private static final int QUEUE_ALLOWANCE = 4;
+		private static final double SMOOTHING = 0.2;
+
+		private final String operationName;
+		private final int queueSize;
+		private final long maxWait;
+		private final boolean adaptive;
+		private final int minLimit, maxLimit;
+		private final Interpreter interpreter;
+		private final ReentrantLock lock = new ReentrantLock();
+
+		// Guarded by lock
+		private double limit;
+		private int running = 0;
+		// Requests waiting for a running session to end, in order of arrival
+		private final Deque< Waiter > waiters = new ArrayDeque<>();
+		private long admitted = 0, waited = 0, rejected = 0;
+		private long windowStart = System.nanoTime();
+		private int windowSamples = 0, windowMaxRunning = 0;
+		private long windowDuration = 0;
+		private double longLatency = 0;
+
+		/*
+		 * A request waiting to be admitted. It is refused when its timeout expires.
+		 */
+		private final class Waiter extends TimeoutHandler {
+			private final CompletableFuture< Void > admission = new CompletableFuture<>();
+
+			private Waiter() {
+				super( maxWait );
+			}
+
+			@Override
+			protected void onTimeout() {
+				lock.lock();
+				try {
+					if( !waiters.remove( this ) ) {
+						// Admitted in the meantime
+						return;
+					}
+					rejected++;
+				} finally {
+					lock.unlock();
+				}
+				admission.completeExceptionally( refusal( "could not start a session in time" ) );
+			}
+		}
+
+		private Limiter( String operationName, int limit, int queueSize, long maxWait, boolean adaptive,
+			int minLimit, int maxLimit, Interpreter interpreter ) {
+			this.operationName = operationName;
+			this.limit = limit;
+			this.queueSize = queueSize;
+			this.maxWait = maxWait;
+			this.adaptive = adaptive;
+			this.minLimit = minLimit;
+			this.maxLimit = maxLimit;
+			this.interpreter = interpreter;
+		}
+
+		private static Limiter fromValue( String operationName, Value parameters, Interpreter interpreter ) {
+			final boolean adaptive = parameters.firstChildOrDefault( "adaptive", Value::boolValue, false );
+			int limit = parameters.firstChildOrDefault( "limit", Value::intValue, 0 );
+			if( limit <= 0 ) {
+				if( !adaptive ) {
+					return null;
+				}
+				limit = DEFAULT_ADAPTIVE_LIMIT;
+			}
+			final int minLimit = Math.max( 1, parameters.firstChildOrDefault( "minLimit", Value::intValue, 1 ) );
+			final int maxLimit = Math.max( minLimit,
+				parameters.firstChildOrDefault( "maxLimit", Value::intValue, DEFAULT_MAX_LIMIT ) );
+			return new Limiter(
+				operationName,
+				adaptive ? Math.min( maxLimit, Math.max( minLimit, limit ) ) : limit,
+				Math.max( 0, parameters.firstChildOrDefault( "queue", Value::intValue, limit ) ),
+				parameters.firstChildOrDefault( "maxWait", Value::longValue, DEFAULT_MAX_WAIT ),
+				adaptive,
+				minLimit,
+				maxLimit,
+				interpreter );
+		}
+
+		private int currentLimit() {
+			return (int) limit;
+		}
+
+		private FaultException refusal( String reason ) {
+			return new FaultException( Constants.SERVICE_UNAVAILABLE_FAULT_NAME,
+				(operationName == null ? "The input port" : "Operation " + operationName) + " " + reason );
+		}
+
+		private CompletableFuture< Void > acquire() {
+			lock.lock();
+			try {
+				if( running < currentLimit() && waiters.isEmpty() ) {
+					running++;
+					admitted++;
+					return CompletableFuture.completedFuture( null );
+				}
+				if( waiters.size() >= queueSize || maxWait <= 0 ) {
+					rejected++;
+					return CompletableFuture.failedFuture( refusal( "is running too many sessions" ) );
+				}
+				waited++;
+				final Waiter waiter = new Waiter();
+				waiters.add( waiter );
+				interpreter.addTimeoutHandler( waiter );
+				return waiter.admission;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/*
+		 * Releases a session that lasted for the given nanoseconds, or that did not start if duration is
+		 * negative.
+		 */
+		private void release( long duration ) {
+			final List< Waiter > ready = new ArrayList<>( 1 );
+			lock.lock();
+			try {
+				windowMaxRunning = Math.max( windowMaxRunning, running );
+				running--;
+				if( adaptive && duration >= 0 ) {
+					sample( duration );
+				}
+				while( running < currentLimit() && !waiters.isEmpty() ) {
+					final Waiter waiter = waiters.poll();
+					waiter.cancel();
+					running++;
+					admitted++;
+					ready.add( waiter );
+				}
+			} finally {
+				lock.unlock();
+			}
+			// Admitted requests resume outside the lock
+			ready.forEach( waiter -> waiter.admission.complete( null ) );
+		}
+
+		/*
+		 * Tunes the limit like a gradient concurrency limiter: the ratio between the reference duration of
+		 * sessions and the recent one tells whether running more sessions at once is making them slower.
+		 */
+		private void sample( long duration ) {
+			windowSamples++;
+			windowDuration += duration;
+			final long now = System.nanoTime();
+			if( windowSamples < WINDOW_SAMPLES || now - windowStart < WINDOW_NANOS ) {
+				return;
+			}
+			final double shortLatency = (double) windowDuration / windowSamples;
+			final int maxRunning = windowMaxRunning;
+			windowStart = now;
+			windowSamples = 0;
+			windowDuration = 0;
+			windowMaxRunning = 0;
+
+			if( longLatency == 0 ) {
+				longLatency = shortLatency;
+			} else {
+				longLatency += (shortLatency - longLatency) / LONG_WINDOWS;
+			}
+			if( longLatency > 2 * shortLatency ) {
+				// Sessions got much faster, let the reference follow them
+				longLatency *= 0.95;
+			}
+			if( maxRunning < limit / 2 ) {
+				// The limit was not what kept the number of sessions down, so we learnt nothing about it
+				return;
+			}
+			final double gradient = Math.max( 0.5, Math.min( 1.0, TOLERANCE * longLatency / shortLatency ) );
+			final double newLimit = limit * gradient + QUEUE_ALLOWANCE;
+			limit = Math.min( maxLimit, Math.max( minLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING ) );
+		}
+
+		private Statistics statistics() {
+			lock.lock();
+			try {
+				return new Statistics( this );
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
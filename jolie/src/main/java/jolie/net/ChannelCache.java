@@ -21,111 +21,586 @@ package jolie.net;
 
 import jolie.Interpreter;
 import jolie.runtime.TimeoutHandler;
+import jolie.runtime.Value;
+import jolie.util.ExceptionalCallable;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Keeps the persistent channels of an output port, organised in a pool for each location and
+ * protocol.
+ *
+ * A channel taken from a pool is leased to its caller until it is released (see
+ * {@link CommChannel#release()}). Released channels that are still open become idle and can be
+ * reused by subsequent calls, until they stay idle for longer than the idle timeout of the pool.
+ */
 public class ChannelCache {
-	// Location URI -> Protocol name -> Persistent CommChannel object
-	private final Map< URI, Map< String, CommChannel > > persistentChannels = new HashMap<>();
-
-	private void removePersistentChannel( URI location, String protocol, Map< String, CommChannel > protocolChannels ) {
-		protocolChannels.remove( protocol );
-		if( protocolChannels.isEmpty() ) {
-			persistentChannels.remove( location );
-		}
-	}
-
-	private void removePersistentChannel( URI location, String protocol, CommChannel channel ) {
-		if( persistentChannels.containsKey( location ) ) {
-			if( persistentChannels.get( location ).get( protocol ) == channel ) {
-				removePersistentChannel( location, protocol, persistentChannels.get( location ) );
-			}
-		}
-	}
-
-	public CommChannel getPersistentChannel( URI location, String protocol ) {
-		CommChannel ret = null;
-		synchronized( persistentChannels ) {
-			Map< String, CommChannel > protocolChannels = persistentChannels.get( location );
-			if( protocolChannels != null ) {
-				ret = protocolChannels.get( protocol );
-				if( ret != null ) {
-					if( ret.lock.tryLock() ) {
-						if( ret.isOpen() ) {
-							/*
-							 * We are going to return this channel, but first check if it supports concurrent use. If
-							 * not, then others should not access this until the caller is finished using it.
-							 */
-							// if ( ret.isThreadSafe() == false ) {
-							removePersistentChannel( location, protocol, protocolChannels );
-							// } else {
-							// If we return a channel, make sure it will not timeout!
-							ret.setTimeoutHandler( null );
-							// if ( ret.timeoutHandler() != null ) {
-							// interpreter.removeTimeoutHandler( ret.timeoutHandler() );
-							// ret.setTimeoutHandler( null );
-							// }
-							// }
-							ret.lock.unlock();
-						} else { // Channel is closed
-							removePersistentChannel( location, protocol, protocolChannels );
-							ret.lock.unlock();
-							ret = null;
-						}
-					} else { // Channel is busy
-						removePersistentChannel( location, protocol, protocolChannels );
-						ret = null;
+	/**
+	 * Settings of a pool, read from the {@code pool} node of the protocol configuration of an output
+	 * port:
+	 * <ul>
+	 * <li>{@code maxSize}: the maximum number of channels (idle or leased) for the same location and
+	 * protocol, unbounded if not positive;</li>
+	 * <li>{@code minIdle}: the number of idle channels that are never closed by idle eviction;</li>
+	 * <li>{@code idleTimeout}: the milliseconds after which an idle channel is closed, the
+	 * interpreter persistent connection timeout by default;</li>
+	 * <li>{@code maxWait}: the milliseconds to wait for a channel when the pool is full, the
+	 * interpreter response timeout by default;</li>
+	 * <li>{@code multiplex}: if {@code true} and the protocol supports it, all calls share a single
+	 * channel concurrently instead of leasing one each (see {@link CommChannel#enableMultiplexing()}).
+	 * </li>
+	 * </ul>
+	 */
+	public static class PoolSettings {
+		public static final String POOL_PARAMETER = "pool";
+		public static final PoolSettings DEFAULT = new PoolSettings( 0, 0, -1L, -1L, false );
+
+		private final int maxSize;
+		private final int minIdle;
+		private final long idleTimeout;
+		private final long maxWait;
+		private final boolean multiplex;
+
+		private PoolSettings( int maxSize, int minIdle, long idleTimeout, long maxWait, boolean multiplex ) {
+			this.maxSize = maxSize;
+			this.minIdle = minIdle;
+			this.idleTimeout = idleTimeout;
+			this.maxWait = maxWait;
+			this.multiplex = multiplex;
+		}
+
+		public static PoolSettings fromValue( Value pool ) {
+			return new PoolSettings(
+				pool.firstChildOrDefault( "maxSize", Value::intValue, 0 ),
+				pool.firstChildOrDefault( "minIdle", Value::intValue, 0 ),
+				pool.firstChildOrDefault( "idleTimeout", Value::longValue, -1L ),
+				pool.firstChildOrDefault( "maxWait", Value::longValue, -1L ),
+				pool.firstChildOrDefault( "multiplex", Value::boolValue, false ) );
+		}
+
+		private boolean isFull( int size ) {
+			return maxSize > 0 && size >= maxSize;
+		}
+
+		private long idleTimeout( Interpreter interpreter ) {
+			return idleTimeout < 0 ? interpreter.persistentConnectionTimeout() : idleTimeout;
+		}
+
+		private long maxWait( Interpreter interpreter ) {
+			return maxWait < 0 ? interpreter.responseTimeout() : maxWait;
+		}
+	}
+
+	/**
+	 * A snapshot of the state and counters of a pool.
+	 */
+	public static class Statistics {
+		private final URI location;
+		private final String protocol;
+		private final int idle, leased, shared;
+		private final boolean multiplexed;
+		private final long hits, misses, creations, evictions;
+
+		private Statistics( ChannelPool pool ) {
+			this.location = pool.location;
+			this.protocol = pool.protocol;
+			this.idle = pool.idle.size();
+			this.leased = pool.leased.size();
+			this.multiplexed = pool.shared != null;
+			this.shared = pool.sharedUsers;
+			this.hits = pool.hits;
+			this.misses = pool.misses;
+			this.creations = pool.creations;
+			this.evictions = pool.evictions;
+		}
+
+		public URI location() {
+			return location;
+		}
+
+		public String protocol() {
+			return protocol;
+		}
+
+		public int idle() {
+			return idle;
+		}
+
+		public int leased() {
+			return leased;
+		}
+
+		/**
+		 * Returns {@code true} if the pool has a multiplexed channel.
+		 */
+		public boolean multiplexed() {
+			return multiplexed;
+		}
+
+		/**
+		 * Returns the number of calls currently using the multiplexed channel of the pool.
+		 */
+		public int shared() {
+			return shared;
+		}
+
+		public long hits() {
+			return hits;
+		}
+
+		public long misses() {
+			return misses;
+		}
+
+		public long creations() {
+			return creations;
+		}
+
+		public long evictions() {
+			return evictions;
+		}
+	}
+
+	private static class ChannelPool {
+		private final URI location;
+		private final String protocol;
+		// Most recently released channels come first
+		private final Deque< CommChannel > idle = new ArrayDeque<>();
+		private final Set< CommChannel > leased = Collections.newSetFromMap( new IdentityHashMap<>() );
+		// Not a monitor, so that virtual threads waiting for a channel do not pin their carrier
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition released = lock.newCondition();
+		private PoolSettings settings = PoolSettings.DEFAULT;
+		private int pendingCreations = 0;
+		// The multiplexed channel, if any, and the number of calls using it
+		private CommChannel shared = null;
+		private int sharedUsers = 0;
+		private boolean creatingShared = false;
+		private long hits = 0, misses = 0, creations = 0, evictions = 0;
+		// The number of calls using this pool, guarded by the map of pools
+		private int users = 0;
+
+		private ChannelPool( URI location, String protocol ) {
+			this.location = location;
+			this.protocol = protocol;
+		}
+
+		private int size() {
+			return idle.size() + leased.size() + pendingCreations;
+		}
+
+		// Must be called while holding lock
+		private boolean isEmpty() {
+			purgeLeased();
+			return size() == 0 && shared == null && !creatingShared;
+		}
+
+		/*
+		 * Forgets about leased channels that have been closed without being released. Channels that are
+		 * locked are in use, and checking them would mean waiting for their users while holding the pool.
+		 */
+		private void purgeLeased() {
+			leased.removeIf( channel -> {
+				if( channel.lock.tryLock() ) {
+					try {
+						return !channel.isOpen();
+					} finally {
+						channel.lock.unlock();
 					}
 				}
+				return false;
+			} );
+		}
+	}
+
+	/*
+	 * Location URI -> Protocol name -> Pool of persistent CommChannel objects. Pools are removed when
+	 * they have no channels and nobody is using them, since locations computed at runtime could make the
+	 * map grow without bound.
+	 */
+	private final Map< URI, Map< String, ChannelPool > > pools = new HashMap<>();
+
+	/*
+	 * Returns the pool for the given location and protocol, which is not removed until the caller
+	 * passes it to releasePool.
+	 */
+	private ChannelPool acquirePool( URI location, String protocol ) {
+		synchronized( pools ) {
+			final ChannelPool pool = pools.computeIfAbsent( location, k -> new HashMap<>() )
+				.computeIfAbsent( protocol, k -> new ChannelPool( location, protocol ) );
+			pool.users++;
+			return pool;
+		}
+	}
+
+	// Must not be called while holding the lock of the pool
+	private void releasePool( ChannelPool pool ) {
+		synchronized( pools ) {
+			pool.users--;
+			removeIfUnused( pool );
+		}
+	}
+
+	// Must not be called while holding the lock of the pool
+	private void removeIfUnused( ChannelPool pool ) {
+		synchronized( pools ) {
+			if( pool.users > 0 ) {
+				return;
+			}
+			pool.lock.lock();
+			try {
+				if( !pool.isEmpty() ) {
+					return;
+				}
+			} finally {
+				pool.lock.unlock();
+			}
+			final Map< String, ChannelPool > map = pools.get( pool.location );
+			if( map != null && map.remove( pool.protocol, pool ) && map.isEmpty() ) {
+				pools.remove( pool.location );
 			}
 		}
+	}
 
-		return ret;
+	/**
+	 * Returns a channel for the given location and protocol, reusing an idle one if possible and
+	 * creating a new one with the given factory otherwise. If the pool is full, waits for a channel to
+	 * be released.
+	 *
+	 * @throws IOException if the factory fails, or if no channel becomes available in time
+	 */
+	public CommChannel getPersistentChannel( URI location, String protocol, PoolSettings settings,
+		ExceptionalCallable< CommChannel, IOException > factory, Interpreter interpreter )
+		throws IOException {
+		final ChannelPool pool = acquirePool( location, protocol );
+		try {
+			return getPersistentChannel( pool, settings, factory, interpreter );
+		} finally {
+			releasePool( pool );
+		}
 	}
 
+	private CommChannel getPersistentChannel( ChannelPool pool, PoolSettings settings,
+		ExceptionalCallable< CommChannel, IOException > factory, Interpreter interpreter )
+		throws IOException {
+		final long deadline = System.currentTimeMillis() + settings.maxWait( interpreter );
+		if( settings.multiplex ) {
+			return getSharedChannel( pool, settings, factory, deadline );
+		}
+		CommChannel idleChannel;
+		while( (idleChannel = leaseIdleOrReserve( pool, settings, deadline )) != null ) {
+			// The last user of the channel may still be releasing it, so we wait for it outside of the pool
+			idleChannel.lock.lock();
+			try {
+				if( idleChannel.isOpen() ) {
+					// If we return a channel, make sure it will not timeout!
+					idleChannel.setTimeoutHandler( null );
+					countHit( pool );
+					return idleChannel;
+				}
+			} finally {
+				idleChannel.lock.unlock();
+			}
+			// The channel has been closed in the meantime, forget about it and try again
+			discard( pool, idleChannel );
+		}
+
+		CommChannel channel = null;
+		try {
+			channel = factory.call();
+			return channel;
+		} finally {
+			pool.lock.lock();
+			try {
+				pool.pendingCreations--;
+				if( channel != null ) {
+					pool.leased.add( channel );
+					pool.creations++;
+				}
+				pool.released.signalAll();
+			} finally {
+				pool.lock.unlock();
+			}
+		}
+	}
+
+	/*
+	 * Returns the multiplexed channel of the pool, creating it if needed. If the created channel does
+	 * not support multiplexing, it is leased like any other channel.
+	 */
+	private static CommChannel getSharedChannel( ChannelPool pool, PoolSettings settings,
+		ExceptionalCallable< CommChannel, IOException > factory, long deadline )
+		throws IOException {
+		pool.lock.lock();
+		try {
+			pool.settings = settings;
+			while( pool.shared == null && pool.creatingShared ) {
+				final long waitTime = deadline - System.currentTimeMillis();
+				if( waitTime <= 0 ) {
+					throw new IOException( "Timed out waiting for a channel to " + pool.location + " (protocol "
+						+ pool.protocol + ")" );
+				}
+				try {
+					pool.released.await( waitTime, TimeUnit.MILLISECONDS );
+				} catch( InterruptedException e ) {
+					throw new IOException( e );
+				}
+			}
+			if( pool.shared != null ) {
+				if( pool.shared.isOpen() ) {
+					pool.shared.setTimeoutHandler( null );
+					pool.sharedUsers++;
+					pool.hits++;
+					return pool.shared;
+				}
+				pool.shared = null;
+				pool.sharedUsers = 0;
+			}
+			pool.creatingShared = true;
+			pool.misses++;
+		} finally {
+			pool.lock.unlock();
+		}
+
+		CommChannel channel = null;
+		try {
+			channel = factory.call();
+			final boolean multiplexed = channel.enableMultiplexing();
+			pool.lock.lock();
+			try {
+				pool.creations++;
+				if( multiplexed ) {
+					pool.shared = channel;
+					pool.sharedUsers = 1;
+				} else {
+					pool.leased.add( channel );
+				}
+			} finally {
+				pool.lock.unlock();
+			}
+			return channel;
+		} finally {
+			pool.lock.lock();
+			try {
+				pool.creatingShared = false;
+				pool.released.signalAll();
+			} finally {
+				pool.lock.unlock();
+			}
+		}
+	}
+
+	/*
+	 * Leases the most recently released idle channel, or returns null after reserving room for a new
+	 * channel in the pool.
+	 */
+	private static CommChannel leaseIdleOrReserve( ChannelPool pool, PoolSettings settings, long deadline )
+		throws IOException {
+		pool.lock.lock();
+		try {
+			pool.settings = settings;
+			while( true ) {
+				final CommChannel channel = pool.idle.pollFirst();
+				if( channel != null ) {
+					pool.leased.add( channel );
+					return channel;
+				}
+				pool.purgeLeased();
+				if( !settings.isFull( pool.size() ) ) {
+					pool.misses++;
+					pool.pendingCreations++;
+					return null;
+				}
+				final long waitTime = deadline - System.currentTimeMillis();
+				if( waitTime <= 0 ) {
+					throw new IOException( "Timed out waiting for a channel to " + pool.location + " (protocol "
+						+ pool.protocol + "): the connection pool is full" );
+				}
+				try {
+					pool.released.await( waitTime, TimeUnit.MILLISECONDS );
+				} catch( InterruptedException e ) {
+					throw new IOException( e );
+				}
+			}
+		} finally {
+			pool.lock.unlock();
+		}
+	}
+
+	private static void countHit( ChannelPool pool ) {
+		pool.lock.lock();
+		try {
+			pool.hits++;
+		} finally {
+			pool.lock.unlock();
+		}
+	}
+
+	/**
+	 * Makes a released channel available for reuse. If the pool is already full, the channel is
+	 * closed.
+	 */
 	public void putPersistentChannel( URI location, String protocol, final CommChannel channel,
 		Interpreter interpreter ) {
-		synchronized( persistentChannels ) {
-			Map< String, CommChannel > protocolChannels =
-				persistentChannels.computeIfAbsent( location, k -> new HashMap<>() );
-			// Set the timeout
-			setTimeoutHandler( channel, location, protocol, interpreter );
-			// Put the protocol in the cache (may overwrite another one)
-			protocolChannels.put( protocol, channel );
-			/*
-			 * if ( protocolChannels.size() <= connectionCacheSize && protocolChannels.containsKey( protocol )
-			 * == false ) { // Set the timeout setTimeoutHandler( channel ); // Put the protocol in the cache
-			 * protocolChannels.put( protocol, channel ); } else { try { if ( protocolChannels.get( protocol )
-			 * != channel ) { channel.close(); } else { setTimeoutHandler( channel ); } } catch( IOException e )
-			 * { interpreter.logWarning( e ); } }
-			 */
-		}
-	}
-
-	private void setTimeoutHandler( final CommChannel channel, final URI location, final String protocol,
-		Interpreter interpreter ) {
-		/*
-		 * if ( channel.timeoutHandler() != null ) { interpreter.removeTimeoutHandler(
-		 * channel.timeoutHandler() ); }
-		 */
+		final ChannelPool pool = acquirePool( location, protocol );
+		pool.lock.lock();
+		try {
+			if( channel == pool.shared ) {
+				if( --pool.sharedUsers == 0 ) {
+					setTimeoutHandler( pool, channel, interpreter );
+				}
+				return;
+			}
+			final boolean wasLeased = pool.leased.remove( channel );
+			if( !channel.isOpen() ) {
+				// Nothing to keep
+			} else if( !wasLeased && pool.settings.isFull( pool.size() ) ) {
+				closeChannel( channel, interpreter );
+			} else {
+				setTimeoutHandler( pool, channel, interpreter );
+				pool.idle.addFirst( channel );
+			}
+			pool.released.signalAll();
+		} finally {
+			pool.lock.unlock();
+			releasePool( pool );
+		}
+	}
 
-		final TimeoutHandler handler = new TimeoutHandler( interpreter.persistentConnectionTimeout() ) {
+	/**
+	 * Forgets about a channel that has been closed instead of being released.
+	 */
+	public void discardPersistentChannel( URI location, String protocol, CommChannel channel ) {
+		final ChannelPool pool = acquirePool( location, protocol );
+		try {
+			discard( pool, channel );
+		} finally {
+			releasePool( pool );
+		}
+	}
+
+	private static void discard( ChannelPool pool, CommChannel channel ) {
+		pool.lock.lock();
+		try {
+			if( channel == pool.shared ) {
+				pool.shared = null;
+				pool.sharedUsers = 0;
+			}
+			pool.leased.remove( channel );
+			pool.idle.remove( channel );
+			pool.released.signalAll();
+		} finally {
+			pool.lock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the idle channels to the given location, whatever their protocol. Channels in use are
+	 * left alone.
+	 */
+	public void closeIdleChannels( URI location, Interpreter interpreter ) {
+		final List< ChannelPool > list = new ArrayList<>();
+		synchronized( pools ) {
+			final Map< String, ChannelPool > map = pools.get( location );
+			if( map != null ) {
+				list.addAll( map.values() );
+			}
+		}
+		for( ChannelPool pool : list ) {
+			final List< CommChannel > channels = new ArrayList<>();
+			pool.lock.lock();
+			try {
+				channels.addAll( pool.idle );
+				pool.idle.clear();
+				if( pool.shared != null && pool.sharedUsers == 0 ) {
+					channels.add( pool.shared );
+					pool.shared = null;
+				}
+				channels.forEach( channel -> channel.setTimeoutHandler( null ) );
+				pool.evictions += channels.size();
+				pool.released.signalAll();
+			} finally {
+				pool.lock.unlock();
+			}
+			// Closing takes the channel lock, so we do it outside of the pool lock
+			channels.forEach( channel -> closeChannel( channel, interpreter ) );
+			removeIfUnused( pool );
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the state of all pools.
+	 */
+	public List< Statistics > statistics() {
+		final List< ChannelPool > list = new ArrayList<>();
+		synchronized( pools ) {
+			pools.values().forEach( m -> list.addAll( m.values() ) );
+		}
+		final List< Statistics > ret = new ArrayList<>( list.size() );
+		for( ChannelPool pool : list ) {
+			pool.lock.lock();
+			try {
+				ret.add( new Statistics( pool ) );
+			} finally {
+				pool.lock.unlock();
+			}
+		}
+		return ret;
+	}
+
+	private static void closeChannel( CommChannel channel, Interpreter interpreter ) {
+		try {
+			channel.close();
+		} catch( IOException e ) {
+			interpreter.logWarning( e );
+		}
+	}
+
+	private void setTimeoutHandler( final ChannelPool pool, final CommChannel channel,
+		final Interpreter interpreter ) {
+		final TimeoutHandler handler = new TimeoutHandler( pool.settings.idleTimeout( interpreter ) ) {
 			@Override
 			public void onTimeout() {
+				pool.lock.lock();
 				try {
-					synchronized( persistentChannels ) {
-						if( channel.timeoutHandler() == this ) {
-							removePersistentChannel( location, protocol, channel );
-							channel.close();
-							channel.setTimeoutHandler( null );
+					if( channel == pool.shared ) {
+						if( channel.timeoutHandler() != this || pool.sharedUsers > 0 ) {
+							return;
+						}
+						if( pool.settings.minIdle > 0 ) {
+							setTimeoutHandler( pool, channel, interpreter );
+							return;
 						}
+						pool.shared = null;
+					} else if( channel.timeoutHandler() != this || !pool.idle.contains( channel ) ) {
+						return;
+					} else if( pool.idle.size() <= pool.settings.minIdle ) {
+						setTimeoutHandler( pool, channel, interpreter );
+						return;
+					} else {
+						pool.idle.remove( channel );
 					}
-				} catch( IOException e ) {
-					interpreter.logSevere( e );
+					channel.setTimeoutHandler( null );
+					pool.evictions++;
+				} finally {
+					pool.lock.unlock();
 				}
+				// Closing takes the channel lock, so we do it outside of the pool lock
+				closeChannel( channel, interpreter );
+				removeIfUnused( pool );
 			}
 		};
 		channel.setTimeoutHandler( handler );
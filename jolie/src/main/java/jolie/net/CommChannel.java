@@ -23,6 +23,8 @@
 package jolie.net;
 
 import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -55,12 +57,22 @@ public abstract class CommChannel {
 	private InputPort inputPort = null;
 	private OutputPort outputPort = null;
 	private boolean isOpen = true;
+	private volatile boolean failed = false;
 
 	private long redirectionMessageId = 0L;
 
 	private TimeoutHandler timeoutHandler = null;
 
+	// The balanced calls sent through this channel, more than one only if it is multiplexed
+	private final Queue< LoadBalancer.Call > balancedCalls = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Sets the handler of the timeout of this channel, cancelling the previous one.
+	 */
 	protected void setTimeoutHandler( TimeoutHandler timeoutHandler ) {
+		if( this.timeoutHandler != null && this.timeoutHandler != timeoutHandler ) {
+			this.timeoutHandler.cancel();
+		}
 		this.timeoutHandler = timeoutHandler;
 	}
 
@@ -149,6 +161,35 @@ public abstract class CommChannel {
 		return (inputPort == null) ? outputPort : inputPort;
 	}
 
+	/**
+	 * Records a call of a balanced output port that is sent through this channel.
+	 * 
+	 * @param call the call, as returned by {@link LoadBalancer#callStarted(LoadBalancer.Endpoint)}
+	 */
+	public void addBalancedCall( LoadBalancer.Call call ) {
+		balancedCalls.add( call );
+	}
+
+	/**
+	 * Removes the oldest balanced call recorded for this channel. All the calls of a multiplexed channel
+	 * go to the same location.
+	 * 
+	 * @return the oldest balanced call, or <code>null</code> if there is none
+	 */
+	public LoadBalancer.Call pollBalancedCall() {
+		return balancedCalls.poll();
+	}
+
+	/**
+	 * Returns the location of the balanced calls in progress on this channel.
+	 * 
+	 * @return the endpoint of the oldest balanced call, or <code>null</code> if there is none
+	 */
+	public LoadBalancer.Endpoint balancedEndpoint() {
+		final LoadBalancer.Call call = balancedCalls.peek();
+		return call == null ? null : call.endpoint();
+	}
+
 	/**
 	 * Returns <code>true</code> if this channel is open, <code>false</code> otherwise.
 	 * 
@@ -166,6 +207,28 @@ public abstract class CommChannel {
 		return false;
 	}
 
+	/**
+	 * Makes this channel shareable by concurrent requests, which are sent one after the other and
+	 * whose responses are matched by request id in any order. Only output channels can be multiplexed.
+	 *
+	 * @return <code>true</code> if this channel is now multiplexed, <code>false</code> if it does not
+	 *         support multiplexing
+	 */
+	protected boolean enableMultiplexing() {
+		return false;
+	}
+
+	/**
+	 * Returns <code>true</code> if this channel is shared by concurrent requests, <code>false</code>
+	 * otherwise.
+	 *
+	 * @return <code>true</code> if this channel is shared by concurrent requests
+	 * @see #enableMultiplexing()
+	 */
+	public boolean isMultiplexed() {
+		return false;
+	}
+
 	/**
 	 * Receives a message from the channel. This is a blocking operation.
 	 * 
@@ -199,10 +262,28 @@ public abstract class CommChannel {
 			Helpers.lockAndThen( lock, () -> sendImpl( message ) );
 		} catch( IOException e ) {
 			setToBeClosed( true );
+			setFailed();
 			throw e;
 		}
 	}
 
+	/**
+	 * Marks this channel as failed because of a communication error.
+	 */
+	protected void setFailed() {
+		failed = true;
+	}
+
+	/**
+	 * Returns <code>true</code> if sending or receiving through this channel failed because of a
+	 * communication error.
+	 * 
+	 * @return <code>true</code> if this channel failed, <code>false</code> otherwise
+	 */
+	public boolean hasFailed() {
+		return failed;
+	}
+
 	protected abstract CommMessage recvImpl()
 		throws IOException;
 
@@ -219,7 +300,7 @@ public abstract class CommChannel {
 		throws IOException {
 		Helpers.lockAndThen( lock, () -> {
 			if( toBeClosed() ) {
-				close();
+				closeOnReleaseImpl();
 			} else {
 				releaseImpl();
 			}
@@ -231,6 +312,17 @@ public abstract class CommChannel {
 		close();
 	}
 
+	/**
+	 * Called by {@link #release() release} instead of {@link #releaseImpl() releaseImpl} when this
+	 * channel is to be closed.
+	 * 
+	 * @throws IOException in case of an internal error
+	 */
+	protected void closeOnReleaseImpl()
+		throws IOException {
+		close();
+	}
+
 	/**
 	 * Disposes this channel for input. This method can behave in two ways, depending on the state of
 	 * the channel and its underlying implementation:
@@ -266,6 +358,18 @@ public abstract class CommChannel {
 		this.toBeClosed = toBeClosed;
 	}
 
+	/**
+	 * Closes this channel right away, even if another thread is receiving from it, so that a request
+	 * whose response is no longer needed does not hold the channel. The channel must still be released.
+	 * 
+	 * @throws IOException in case of some communication error
+	 */
+	public final void abort()
+		throws IOException {
+		setToBeClosed( true );
+		close();
+	}
+
 	protected final void close()
 		throws IOException {
 		isOpen = false;
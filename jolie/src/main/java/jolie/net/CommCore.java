@@ -22,9 +22,11 @@
 
 package jolie.net;
 
+import jolie.ExecutionThread;
 import jolie.Interpreter;
 import jolie.JolieThreadPoolExecutor;
 import jolie.NativeJolieThread;
+import jolie.VirtualThreads;
 import jolie.lang.Constants;
 import jolie.net.ext.CommChannelFactory;
 import jolie.net.ext.CommListenerFactory;
@@ -40,18 +42,29 @@ import jolie.runtime.typing.TypeCheckingException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -65,6 +78,35 @@ import java.util.regex.Pattern;
  * @author Fabrizio Montesi
  */
 public class CommCore {
+	/**
+	 * What to do with an incoming message when the connection limit is reached and the queue of
+	 * pending messages is full.
+	 */
+	public enum RejectionPolicy {
+		/**
+		 * Wait for room in the queue. This stops the reading of new messages from the network until the
+		 * handlers catch up.
+		 */
+		BLOCK,
+		/**
+		 * Read the message and reply immediately with an IOException fault, then close the channel. The
+		 * message is read by a separate thread. When too many refusals are in progress, the channel is
+		 * closed without reading the message.
+		 */
+		FAULT;
+
+		public static RejectionPolicy fromString( String name ) {
+			switch( name ) {
+			case "block":
+				return BLOCK;
+			case "fault":
+				return FAULT;
+			default:
+				return null;
+			}
+		}
+	}
+
 	private final Map< String, CommListener > listenersMap = new HashMap<>();
 	private final static int CHANNEL_HANDLER_TIMEOUT = 5;
 	private final ThreadGroup threadGroup;
@@ -74,6 +116,7 @@ public class CommCore {
 	private final int connectionsLimit;
 	private final Interpreter interpreter;
 	private final ReadWriteLock channelHandlersLock = new ReentrantReadWriteLock( true );
+	private final int selectors;
 	private SelectorThread[] selectorThreads;
 
 	/**
@@ -91,20 +134,38 @@ public class CommCore {
 	 * @param interpreter the Interpreter to refer to for this CommCore operations
 	 * @param connectionsLimit if more than zero, specifies an upper bound to the connections handled in
 	 *        parallel.
+	 * @param connectionsQueueSize the number of incoming messages that can wait for a handler when
+	 *        connectionsLimit is reached; if not positive, connectionsLimit is used.
+	 * @param rejectionPolicy what to do with incoming messages that do not fit in the queue.
+	 * @param virtualThreads if true, incoming messages are handled by virtual threads.
+	 * @param selectors the number of threads waiting for incoming messages on idle channels; if not
+	 *        positive, the number of available processors is used.
 	 * @throws java.io.IOException
 	 */
-	public CommCore( Interpreter interpreter, int connectionsLimit /* , int connectionsCacheSize */ )
+	public CommCore( Interpreter interpreter, int connectionsLimit, int connectionsQueueSize,
+		RejectionPolicy rejectionPolicy, boolean virtualThreads, int selectors /* , int connectionsCacheSize */ )
 		throws IOException {
 		this.interpreter = interpreter;
 		this.connectionsLimit = connectionsLimit;
+		this.selectors = selectors > 0 ? selectors : Runtime.getRuntime().availableProcessors();
+		this.rejectionPolicy = rejectionPolicy;
 		// this.connectionCacheSize = connectionsCacheSize;
 		this.threadGroup = new ThreadGroup( "CommCore-" + interpreter.hashCode() );
-		/*
-		 * if ( connectionsLimit > 0 ) { executorService = Executors.newFixedThreadPool( connectionsLimit,
-		 * new CommThreadFactory() ); } else { executorService = Executors.newCachedThreadPool( new
-		 * CommThreadFactory() ); }
-		 */
 		executorService = new JolieThreadPoolExecutor( new CommThreadFactory() );
+		final String virtualThreadsPrefix = interpreter.programFilename() + "-CommVirtualThread-";
+		if( connectionsLimit > 0 ) {
+			boundedReceiveExecutor = new JolieThreadPoolExecutor(
+				virtualThreads ? VirtualThreads.newThreadFactory( virtualThreadsPrefix ) : new CommThreadFactory(),
+				connectionsLimit,
+				connectionsQueueSize > 0 ? connectionsQueueSize : connectionsLimit,
+				rejectionPolicy == RejectionPolicy.BLOCK ? new BlockingRejectionHandler()
+					: new ThreadPoolExecutor.AbortPolicy() );
+			receiveExecutor = boundedReceiveExecutor;
+		} else {
+			boundedReceiveExecutor = null;
+			receiveExecutor = virtualThreads ? VirtualThreads.newThreadPerTaskExecutor( virtualThreadsPrefix )
+				: executorService;
+		}
 
 		// TODO make socket an extension, too?
 		CommListenerFactory listenerFactory = new SocketListenerFactory( this );
@@ -120,9 +181,9 @@ public class CommCore {
 	private SelectorThread[] selectorThreads()
 		throws IOException {
 		if( selectorThreads == null ) {
-			selectorThreads = new SelectorThread[ Runtime.getRuntime().availableProcessors() ];
+			selectorThreads = new SelectorThread[ selectors ];
 			for( int i = 0; i < selectorThreads.length; i++ ) {
-				selectorThreads[ i ] = new SelectorThread( interpreter );
+				selectorThreads[ i ] = new SelectorThread( interpreter, i );
 			}
 		}
 
@@ -149,6 +210,44 @@ public class CommCore {
 		return connectionsLimit;
 	}
 
+	/**
+	 * Returns the policy applied to incoming messages when the connection limit is reached and the
+	 * queue of pending messages is full.
+	 */
+	public RejectionPolicy rejectionPolicy() {
+		return rejectionPolicy;
+	}
+
+	/**
+	 * Returns the number of incoming messages waiting for a handler, always 0 if there is no
+	 * connection limit.
+	 */
+	public int pendingReceives() {
+		return boundedReceiveExecutor == null ? 0 : boundedReceiveExecutor.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of handlers that are processing an incoming message, or -1 if there is no
+	 * connection limit.
+	 */
+	public int activeReceives() {
+		return boundedReceiveExecutor == null ? -1 : boundedReceiveExecutor.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of incoming messages that had to wait for room in the queue.
+	 */
+	public long blockedReceives() {
+		return blockedReceives.sum();
+	}
+
+	/**
+	 * Returns the number of incoming messages that have been refused with a fault.
+	 */
+	public long rejectedReceives() {
+		return rejectedReceives.sum();
+	}
+
 	public ThreadGroup threadGroup() {
 		return threadGroup;
 	}
@@ -295,7 +394,34 @@ public class CommCore {
 		listenersMap.put( inputPort.name(), listener );
 	}
 
+	// Runs internal tasks, like response receivers, which must never wait for each other
 	private final ExecutorService executorService;
+	// Runs the handlers of incoming messages
+	private final ExecutorService receiveExecutor;
+	// The same as receiveExecutor if there is a connection limit, null otherwise
+	private final ThreadPoolExecutor boundedReceiveExecutor;
+	// Marks the threads that are running a handler of incoming messages
+	private static final ThreadLocal< Boolean > RUNNING_HANDLER = ThreadLocal.withInitial( () -> false );
+	// Input port name -> admission control, created when the port receives its first message
+	private final Map< String, AdmissionControl > admissionControls = new ConcurrentHashMap<>();
+
+	private AdmissionControl admissionControl( InputPort port ) {
+		return admissionControls.computeIfAbsent( port.name(),
+			name -> AdmissionControl.fromConfiguration( port.protocolConfigurationPath().getValue(), interpreter ) );
+	}
+
+	/**
+	 * Returns the admission controls of the input ports that received messages, by port name.
+	 */
+	public Map< String, AdmissionControl > admissionControls() {
+		return Collections.unmodifiableMap( admissionControls );
+	}
+
+	private final RejectionPolicy rejectionPolicy;
+	private final LongAdder blockedReceives = new LongAdder();
+	private final LongAdder rejectedReceives = new LongAdder();
+	// Refusals whose messages are being read by a handler
+	private final AtomicInteger refusingReceives = new AtomicInteger();
 
 	private final static class CommThreadFactory implements ThreadFactory {
 		@Override
@@ -304,6 +430,22 @@ public class CommCore {
 		}
 	}
 
+	private class BlockingRejectionHandler implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution( Runnable r, ThreadPoolExecutor executor ) {
+			if( executor.isShutdown() ) {
+				throw new RejectedExecutionException( "Communication core is shutting down" );
+			}
+			blockedReceives.increment();
+			try {
+				executor.getQueue().put( r );
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException( e );
+			}
+		}
+	}
+
 	private final static Pattern PATH_SPLIT_PATTERN = Pattern.compile( "/" );
 
 	private class CommChannelHandlerRunnable implements Runnable {
@@ -392,16 +534,29 @@ public class CommCore {
 
 		private void handleDirectMessage( CommMessage message )
 			throws IOException {
+			boolean parked = false;
 			try {
 				InputOperation operation =
 					interpreter.getInputOperation( message.operationName() );
 				try {
 					operation.requestType().check( message.value() );
-					interpreter.correlationEngine().onMessageReceive( message, channel );
-					if( operation instanceof OneWayOperation ) {
-						// We need to send the acknowledgement
-						channel.send( CommMessage.createEmptyResponse( message ) );
-						// channel.release();
+					if( startsSession( message ) ) {
+						final CompletableFuture< AdmissionControl.Permit > admission =
+							admissionControl( port ).admit( message.operationName() );
+						if( !admission.isDone() ) {
+							// Wait for a running session to end without keeping this thread and the channel
+							parked = true;
+							admission.whenComplete(
+								( permit, e ) -> resumeDirectMessage( message, operation, admission ) );
+							return;
+						}
+						try {
+							deliverDirectMessage( message, operation, permit( admission ) );
+						} catch( FaultException e ) {
+							refuseDirectMessage( message, e );
+						}
+					} else {
+						deliverDirectMessage( message, operation, null );
 					}
 				} catch( TypeCheckingException e ) {
 					interpreter.logWarning(
@@ -412,11 +567,6 @@ public class CommCore {
 					} catch( IOException ioe ) {
 						Interpreter.getInstance().logSevere( ioe );
 					}
-				} catch( CorrelationError e ) {
-					interpreter.logWarning( "Received a non correlating message for operation "
-						+ message.operationName() + ". Sending CorrelationError to the caller." );
-					channel.send( CommMessage.createFaultResponse( message, new FaultException( "CorrelationError",
-						"The message you sent can not be correlated with any session and can not be used to start a new session." ) ) );
 				}
 			} catch( InvalidIdException e ) {
 				interpreter.logWarning( "Received a message for undefined operation " + message.operationName()
@@ -424,10 +574,109 @@ public class CommCore {
 				channel.send( CommMessage.createFaultResponse( message,
 					new FaultException( "IOException", "Invalid operation: " + message.operationName() ) ) );
 			} finally {
-				channel.disposeForInput();
+				if( !parked ) {
+					channel.disposeForInput();
+				}
+			}
+		}
+
+		/*
+		 * Hands a message over to the correlation engine, replying with a fault if it is refused.
+		 */
+		private void deliverDirectMessage( CommMessage message, InputOperation operation,
+			AdmissionControl.Permit permit )
+			throws IOException {
+			try {
+				boolean started = false;
+				try {
+					started = interpreter.correlationEngine().onMessageReceive( message, channel, permit );
+				} finally {
+					if( permit != null && !started ) {
+						permit.cancel();
+					}
+				}
+				if( operation instanceof OneWayOperation ) {
+					// We need to send the acknowledgement
+					channel.send( CommMessage.createEmptyResponse( message ) );
+					// channel.release();
+				}
+			} catch( CorrelationError e ) {
+				interpreter.logWarning( "Received a non correlating message for operation "
+					+ message.operationName() + ". Sending CorrelationError to the caller." );
+				channel.send( CommMessage.createFaultResponse( message, new FaultException( "CorrelationError",
+					"The message you sent can not be correlated with any session and can not be used to start a new session." ) ) );
+			}
+		}
+
+		private void refuseDirectMessage( CommMessage message, FaultException fault )
+			throws IOException {
+			interpreter.logFine( "Refused a message for operation " + message.operationName() + ": "
+				+ fault.value().strValue() );
+			channel.send( CommMessage.createFaultResponse( message, fault ) );
+		}
+
+		/*
+		 * Delivers or refuses a message that waited for admission, on a new handler thread.
+		 */
+		private void resumeDirectMessage( CommMessage message, InputOperation operation,
+			CompletableFuture< AdmissionControl.Permit > admission ) {
+			try {
+				executorService.execute( () -> {
+					ExecutionThread.setCurrentThread( interpreter().initThread().getNewSessionThread() );
+					channel.lock.lock();
+					channelHandlersLock.readLock().lock();
+					try {
+						try {
+							deliverDirectMessage( message, operation, permit( admission ) );
+						} catch( FaultException e ) {
+							refuseDirectMessage( message, e );
+						} finally {
+							channel.disposeForInput();
+						}
+					} catch( IOException e ) {
+						interpreter.logSevere( e );
+						try {
+							channel.closeImpl();
+						} catch( IOException e2 ) {
+							interpreter.logSevere( e2 );
+						}
+					} finally {
+						channelHandlersLock.readLock().unlock();
+						channel.lock.unlock();
+						ExecutionThread.setCurrentThread( null );
+					}
+				} );
+			} catch( RejectedExecutionException e ) {
+				// Shutting down
+				admission.thenAccept( permit -> permit.cancel() );
+				try {
+					channel.closeImpl();
+				} catch( IOException e2 ) {
+					interpreter.logFine( e2 );
+				}
+			}
+		}
+
+		/*
+		 * Returns the permit granted by a completed admission, throwing the fault that refused it if any.
+		 */
+		private AdmissionControl.Permit permit( CompletableFuture< AdmissionControl.Permit > admission )
+			throws FaultException {
+			try {
+				return admission.join();
+			} catch( CompletionException e ) {
+				if( e.getCause() instanceof FaultException ) {
+					throw (FaultException) e.getCause();
+				}
+				throw e;
 			}
 		}
 
+		private boolean startsSession( CommMessage message ) {
+			return interpreter.executionMode() != Constants.ExecutionMode.SINGLE
+				&& interpreter.getSessionStarter( message.operationName() ) != null;
+		}
+
 		private void handleMessage( CommMessage message )
 			throws IOException {
 			try {
@@ -463,8 +712,8 @@ public class CommCore {
 
 		@Override
 		public void run() {
-			final CommChannelHandler thread = CommChannelHandler.currentThread();
-			thread.setExecutionThread( interpreter().initThread().getNewSessionThread() );
+			RUNNING_HANDLER.set( true );
+			ExecutionThread.setCurrentThread( interpreter().initThread().getNewSessionThread() );
 			channel.lock.lock();
 			channelHandlersLock.readLock().lock();
 			try {
@@ -507,7 +756,8 @@ public class CommCore {
 				if( channel.lock.isHeldByCurrentThread() ) {
 					channel.lock.unlock();
 				}
-				thread.setExecutionThread( null );
+				ExecutionThread.setCurrentThread( null );
+				RUNNING_HANDLER.remove();
 			}
 		}
 	}
@@ -519,13 +769,106 @@ public class CommCore {
 	 * @param port the <code>Port</code> responsible for the message receiving
 	 */
 	public void scheduleReceive( CommChannel channel, InputPort port ) {
-		executorService.execute( new CommChannelHandlerRunnable( channel, port ) );
+		final Runnable handler = new CommChannelHandlerRunnable( channel, port );
+		if( boundedReceiveExecutor == null ) {
+			receiveExecutor.execute( handler );
+		} else if( Thread.currentThread() instanceof CommChannelHandler || RUNNING_HANDLER.get() ) {
+			// Handlers never wait for the queue, or they could end up waiting for themselves
+			if( !boundedReceiveExecutor.getQueue().offer( handler ) ) {
+				executorService.execute( handler );
+			}
+		} else {
+			try {
+				boundedReceiveExecutor.execute( handler );
+			} catch( RejectedExecutionException e ) {
+				if( boundedReceiveExecutor.isShutdown() || channel.redirectionChannel() != null ) {
+					// Shutting down, or the message is a response that we must not refuse
+					executorService.execute( handler );
+				} else {
+					refuseReceive( channel );
+				}
+			}
+		}
+	}
+
+	/*
+	 * Refuses a message that does not fit in the queue when the connection limit is reached. The caller
+	 * is a selector or an acceptor thread, which must not wait for the client to send its message: the
+	 * message is read and answered with a fault on another thread, and the channel is then closed. If
+	 * as many refusals as the connection limit are in progress already, the channel is closed without
+	 * reading the message.
+	 */
+	private void refuseReceive( CommChannel channel ) {
+		rejectedReceives.increment();
+		if( refusingReceives.incrementAndGet() > boundedReceiveExecutor.getMaximumPoolSize() ) {
+			refusingReceives.decrementAndGet();
+			closeRefused( channel );
+			return;
+		}
+		try {
+			executorService.execute( () -> {
+				try {
+					replyRefusal( channel );
+				} finally {
+					refusingReceives.decrementAndGet();
+				}
+			} );
+		} catch( RejectedExecutionException e ) {
+			refusingReceives.decrementAndGet();
+			closeRefused( channel );
+		}
+	}
+
+	private void replyRefusal( CommChannel channel ) {
+		channel.lock.lock();
+		try {
+			final CommMessage message = channel.recv();
+			if( message != null ) {
+				interpreter.logFine( "Refused a message for operation " + message.operationName()
+					+ ": the connection limit has been reached" );
+				channel.send( CommMessage.createFaultResponse( message,
+					new FaultException( Constants.IO_EXCEPTION_FAULT_NAME,
+						"Service unavailable: the connection limit has been reached" ) ) );
+			}
+		} catch( IOException e ) {
+			interpreter.logFine( e );
+		} finally {
+			closeRefused( channel );
+			channel.lock.unlock();
+		}
+	}
+
+	private void closeRefused( CommChannel channel ) {
+		channel.lock.lock();
+		try {
+			channel.closeImpl();
+		} catch( IOException e ) {
+			interpreter.logFine( e );
+		} finally {
+			channel.lock.unlock();
+		}
 	}
 
 	protected void startCommChannelHandler( Runnable r ) {
 		executorService.execute( r );
 	}
 
+	// Multiplexed output channels, whose receivers keep running until the channels are closed
+	private final Set< CommChannel > multiplexedChannels = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Starts the receiver of a multiplexed channel. The channel is closed when this communication core
+	 * is shut down.
+	 */
+	protected void startMultiplexedReceiver( CommChannel channel, Runnable receiver ) {
+		multiplexedChannels.add( channel );
+		startCommChannelHandler( receiver );
+	}
+
+	protected void multiplexedReceiverTerminated( CommChannel channel ) {
+		multiplexedChannels.remove( channel );
+	}
+
 	/**
 	 * Initializes the communication core, starting its communication listeners. This method is
 	 * asynchronous. When it returns, every communication listener has been issued to start, but they
@@ -559,8 +902,16 @@ public class CommCore {
 		return pollingThread;
 	}
 
+	/*
+	 * Polls the channels that can not notify their readiness (see PollableCommChannel.setReadyListener).
+	 * The polling interval starts small and grows while no channel becomes ready.
+	 */
 	private class PollingThread extends Thread {
+		private static final long MIN_POLLING_INTERVAL = 1; // msecs
+		private static final long MAX_POLLING_INTERVAL = 50; // msecs
+
 		private final Set< CommChannel > channels = new HashSet<>();
+		private long pollingInterval = MIN_POLLING_INTERVAL;
 
 		private PollingThread() {
 			super( threadGroup, interpreter.programFilename() + "-PollingThread" );
@@ -570,6 +921,7 @@ public class CommCore {
 		public void run() {
 			Iterator< CommChannel > it;
 			CommChannel channel;
+			final List< CommChannel > readyChannels = new ArrayList<>();
 			while( active ) {
 				synchronized( this ) {
 					if( channels.isEmpty() ) {
@@ -585,16 +937,28 @@ public class CommCore {
 						try {
 							if( ((PollableCommChannel) channel).isReady() ) {
 								it.remove();
-								scheduleReceive( channel, channel.parentInputPort() );
+								readyChannels.add( channel );
 							}
 						} catch( IOException e ) {
 							e.printStackTrace();
 						}
 					}
+					pollingInterval = readyChannels.isEmpty()
+						? Math.min( pollingInterval * 2, MAX_POLLING_INTERVAL )
+						: MIN_POLLING_INTERVAL;
 				}
-				try {
-					Thread.sleep( 50 ); // msecs
-				} catch( InterruptedException e ) {
+
+				// Scheduling may wait for room in the handler queue, so we do it without holding the lock
+				readyChannels.forEach( c -> scheduleReceive( c, c.parentInputPort() ) );
+				readyChannels.clear();
+
+				synchronized( this ) {
+					if( !channels.isEmpty() ) {
+						try {
+							this.wait( pollingInterval );
+						} catch( InterruptedException e ) {
+						}
+					}
 				}
 			}
 
@@ -616,13 +980,28 @@ public class CommCore {
 
 			synchronized( this ) {
 				channels.add( channel );
-				if( channels.size() == 1 ) { // set was empty
-					this.notify();
-				}
+				// Check the new channel as soon as possible
+				pollingInterval = MIN_POLLING_INTERVAL;
+				this.notify();
 			}
 		}
 	}
 
+	// Channels waiting to notify their readiness through PollableCommChannel.setReadyListener
+	private final Set< CommChannel > readyListenerChannels = ConcurrentHashMap.newKeySet();
+
+	private void checkReady( CommChannel channel ) {
+		try {
+			if( readyListenerChannels.contains( channel )
+				&& ((PollableCommChannel) channel).isReady()
+				&& readyListenerChannels.remove( channel ) ) {
+				scheduleReceive( channel, channel.parentInputPort() );
+			}
+		} catch( IOException e ) {
+			interpreter.logWarning( e );
+		}
+	}
+
 	/**
 	 * Registers a <code>CommChannel</code> for input polling. The registered channel must implement the
 	 * {@link PollableCommChannel <code>PollableCommChannel</code>} interface.
@@ -634,177 +1013,408 @@ public class CommCore {
 	 */
 	public void registerForPolling( CommChannel channel )
 		throws IOException {
-		pollingThread().register( channel );
+		if( channel instanceof PollableCommChannel
+			&& ((PollableCommChannel) channel).setReadyListener( () -> checkReady( channel ) ) ) {
+			readyListenerChannels.add( channel );
+			// The channel may have become ready before we started listening
+			checkReady( channel );
+		} else {
+			pollingThread().register( channel );
+		}
 	}
 
-	private class SelectorThread extends NativeJolieThread {
-		// We use a custom class for debugging purposes (the profiler gives us the class name)
-		private class SelectorMutex {
+	/**
+	 * A snapshot of the state and counters of a selector thread.
+	 */
+	public static class SelectorStatistics {
+		private final int channels;
+		private final long selects, wakeups, registrations, waitTime, dispatchTime;
+
+		private SelectorStatistics( SelectorThread thread ) {
+			this.channels = thread.channels.get();
+			this.selects = thread.selects.sum();
+			this.wakeups = thread.wakeups.sum();
+			this.registrations = thread.registrations.sum();
+			this.waitTime = TimeUnit.NANOSECONDS.toMicros( thread.waitTime.sum() );
+			this.dispatchTime = TimeUnit.NANOSECONDS.toMicros( thread.dispatchTime.sum() );
+		}
+
+		/**
+		 * Returns the number of channels waiting for incoming messages in the selector.
+		 */
+		public int channels() {
+			return channels;
+		}
+
+		/**
+		 * Returns the number of select operations performed.
+		 */
+		public long selects() {
+			return selects;
+		}
+
+		/**
+		 * Returns the number of times the selector was woken up by other threads.
+		 */
+		public long wakeups() {
+			return wakeups;
+		}
+
+		/**
+		 * Returns the number of channels registered in the selector.
+		 */
+		public long registrations() {
+			return registrations;
+		}
+
+		/**
+		 * Returns the time spent waiting for ready channels, in microseconds.
+		 */
+		public long waitTime() {
+			return waitTime;
+		}
+
+		/**
+		 * Returns the time spent handling ready channels and registrations between two select operations,
+		 * in microseconds. Ready channels wait for this long before being selected again.
+		 */
+		public long dispatchTime() {
+			return dispatchTime;
+		}
+	}
+
+	/**
+	 * Returns the statistics of the selector threads, which wait for incoming messages on idle channels.
+	 */
+	public List< SelectorStatistics > selectorStatistics() {
+		final List< SelectorStatistics > ret = new ArrayList<>();
+		if( selectorThreads != null ) {
+			for( SelectorThread t : selectorThreads ) {
+				ret.add( new SelectorStatistics( t ) );
+			}
 		}
+		return ret;
+	}
 
+	private class SelectorThread extends NativeJolieThread {
+		private final int index;
 		private final Selector selector;
-		private final SelectorMutex selectingMutex = new SelectorMutex();
+		/*
+		 * Held while selecting. Other threads take it to clean up the keys they cancel: it is fair, so
+		 * that they get it before this thread selects again.
+		 */
+		private final ReentrantLock selectingLock = new ReentrantLock( true );
+		// Number of other threads waiting for selectingLock, this thread does not block while positive
+		private final AtomicInteger lockWaiters = new AtomicInteger();
 		private final Deque< Runnable > selectorTasks = new ArrayDeque<>();
-
-		public SelectorThread( Interpreter interpreter )
+		// Registrations requested by other threads, run by this thread before selecting
+		private final Queue< Runnable > registrationTasks = new ConcurrentLinkedQueue<>();
+		// False while this thread is about to select or selecting, so that it needs a wakeup for new tasks
+		private final AtomicBoolean awake = new AtomicBoolean( true );
+		private final AtomicInteger channels = new AtomicInteger();
+		private final LongAdder selects = new LongAdder();
+		private final LongAdder wakeups = new LongAdder();
+		private final LongAdder registrations = new LongAdder();
+		private final LongAdder waitTime = new LongAdder();
+		private final LongAdder dispatchTime = new LongAdder();
+
+		public SelectorThread( Interpreter interpreter, int index )
 			throws IOException {
-			super( interpreter, threadGroup, interpreter.programFilename() + "-SelectorThread" );
+			super( interpreter, threadGroup, interpreter.programFilename() + "-SelectorThread-" + index );
+			this.index = index;
 			this.selector = Selector.open();
 		}
 
 		private Deque< Runnable > runKeys( SelectionKey[] selectedKeys )
 			throws IOException {
 			boolean keepRun;
-			synchronized( this ) {
-				do {
-					for( final SelectionKey key : selectedKeys ) {
-						if( key.isValid() ) {
-							final SelectableStreamingCommChannel channel =
-								(SelectableStreamingCommChannel) key.attachment();
-							if( channel.lock.tryLock() ) {
+			do {
+				for( final SelectionKey key : selectedKeys ) {
+					if( key.isValid() ) {
+						final SelectableStreamingCommChannel channel =
+							(SelectableStreamingCommChannel) key.attachment();
+						if( !channel.lock.tryLock() ) {
+							// The channel would be selected again right away, until its lock is released
+							key.interestOps( 0 );
+							selectWhenReleased( key, channel );
+						} else {
+							synchronized( key.channel().blockingLock() ) {
 								key.cancel();
-								selectorTasks.add( () -> {
+								deselect( channel );
+							}
+							selectorTasks.add( () -> {
+								try {
 									try {
 										try {
-											try {
-												key.channel().configureBlocking( true );
-												if( channel.isOpen() ) {
-													/*
-													 * if ( channel.selectionTimeoutHandler() != null ) {
-													 * interpreter.removeTimeoutHandler(
-													 * channel.selectionTimeoutHandler() ); }
-													 */
-													scheduleReceive( channel, channel.parentInputPort() );
-												} else {
-													channel.closeImpl();
-												}
-											} catch( ClosedChannelException e ) {
+											key.channel().configureBlocking( true );
+											if( channel.isOpen() ) {
+												/*
+												 * if ( channel.selectionTimeoutHandler() != null ) {
+												 * interpreter.removeTimeoutHandler(
+												 * channel.selectionTimeoutHandler() ); }
+												 */
+												scheduleReceive( channel, channel.parentInputPort() );
+											} else {
 												channel.closeImpl();
 											}
-										} catch( IOException e ) {
-											throw e;
-										} finally {
-											channel.lock.unlock();
+										} catch( ClosedChannelException e ) {
+											channel.closeImpl();
 										}
 									} catch( IOException e ) {
-										if( channel.lock.isHeldByCurrentThread() ) {
-											channel.lock.unlock();
-										}
-										interpreter.logWarning( e );
+										throw e;
+									} finally {
+										channel.lock.unlock();
 									}
-								} );
-							}
+								} catch( IOException e ) {
+									if( channel.lock.isHeldByCurrentThread() ) {
+										channel.lock.unlock();
+									}
+									interpreter.logWarning( e );
+								}
+							} );
 						}
 					}
-					synchronized( selectingMutex ) {
-						if( selector.selectNow() > 0 ) { // Clean up the cancelled keys
-							// If some new channels are selected, run again
-							selectedKeys = selector.selectedKeys().toArray( new SelectionKey[ 0 ] );
-							keepRun = true;
-						} else {
-							keepRun = false;
+				}
+				selectingLock.lock();
+				try {
+					if( selector.selectNow() > 0 ) { // Clean up the cancelled keys
+						// If some new channels are selected, run again
+						selectedKeys = selectedKeys();
+						keepRun = true;
+					} else {
+						keepRun = false;
+					}
+				} finally {
+					selectingLock.unlock();
+				}
+			} while( keepRun );
+			return selectorTasks;
+		}
+
+		/*
+		 * Makes the selector wait for incoming data on a channel again, once the thread holding the lock
+		 * of the channel releases it. Nothing is done if that thread unregistered the channel, since it
+		 * registers the channel again with a new key if needed.
+		 */
+		private void selectWhenReleased( SelectionKey key, SelectableStreamingCommChannel channel ) {
+			try {
+				executorService.execute( () -> {
+					channel.lock.lock();
+					try {
+						if( key.isValid() ) {
+							key.interestOps( SelectionKey.OP_READ );
+							if( awake.compareAndSet( false, true ) ) {
+								wakeup();
+							}
 						}
+					} catch( CancelledKeyException e ) {
+						// Unregistered in the meantime
+					} finally {
+						channel.lock.unlock();
 					}
-				} while( keepRun );
+				} );
+			} catch( RejectedExecutionException e ) {
+				// Shutting down
 			}
-			return selectorTasks;
 		}
 
-		private void runTasks( Deque< Runnable > tasks )
-			throws IOException {
+		private void runTasks( Queue< Runnable > tasks ) {
 			Runnable r;
 			while( (r = tasks.poll()) != null ) {
 				r.run();
 			}
 		}
 
+		// Must be called while holding selectingLock
+		private SelectionKey[] selectedKeys() {
+			final Set< SelectionKey > keys = selector.selectedKeys();
+			final SelectionKey[] ret = keys.toArray( new SelectionKey[ 0 ] );
+			keys.clear();
+			return ret;
+		}
+
 		@Override
 		public void run() {
 			while( active ) {
 				try {
+					if( lockWaiters.get() > 0 ) {
+						// Let the threads waiting for selectingLock go on
+						Thread.yield();
+					}
+					runTasks( registrationTasks );
 					SelectionKey[] selectedKeys;
-					synchronized( selectingMutex ) {
-						selector.select();
-						selectedKeys = selector.selectedKeys().toArray( new SelectionKey[ 0 ] );
+					selectingLock.lock();
+					try {
+						awake.set( false );
+						final long start = System.nanoTime();
+						if( registrationTasks.isEmpty() && selector.selectedKeys().isEmpty()
+							&& lockWaiters.get() == 0 ) {
+							selector.select();
+						} else {
+							selector.selectNow();
+						}
+						awake.set( true );
+						waitTime.add( System.nanoTime() - start );
+						selects.increment();
+						selectedKeys = selectedKeys();
+					} finally {
+						selectingLock.unlock();
 					}
-					final Deque< Runnable > tasks = runKeys( selectedKeys );
-					runTasks( tasks );
+					final long start = System.nanoTime();
+					runTasks( runKeys( selectedKeys ) );
+					dispatchTime.add( System.nanoTime() - start );
 				} catch( IOException e ) {
 					interpreter.logSevere( e );
 				}
 			}
 
-			synchronized( this ) {
-				for( SelectionKey key : selector.keys() ) {
-					try {
-						((SelectableStreamingCommChannel) key.attachment()).closeImpl();
-					} catch( IOException e ) {
-						interpreter.logWarning( e );
-					}
+			for( SelectionKey key : selector.keys().toArray( new SelectionKey[ 0 ] ) ) {
+				try {
+					((SelectableStreamingCommChannel) key.attachment()).closeImpl();
+				} catch( IOException e ) {
+					interpreter.logWarning( e );
 				}
 			}
 		}
 
-		public void register( SelectableStreamingCommChannel channel, int index ) {
+		private void wakeup() {
+			wakeups.increment();
+			selector.wakeup();
+		}
+
+		// Must be called while holding the blocking lock of the selectable channel of the given channel
+		private void deselect( SelectableStreamingCommChannel channel ) {
+			if( channel.selectorIndex() == index ) {
+				channel.setSelectorIndex( -1 );
+				channels.decrementAndGet();
+			}
+		}
+
+		/*
+		 * Makes the selector wait for incoming data on the given channel. Must be called while holding the
+		 * lock of the channel. The channel is registered by this thread, so the caller does not wait for
+		 * the selector to stop selecting.
+		 */
+		public void register( SelectableStreamingCommChannel channel ) {
 			try {
 				if( channel.inputStream().available() > 0 ) {
 					scheduleReceive( channel, channel.parentInputPort() );
 					return;
 				}
+			} catch( IOException e ) {
+				interpreter.logSevere( e );
+				return;
+			}
 
-				synchronized( this ) {
-					if( !isSelecting( channel ) ) {
-						selector.wakeup();
-						SelectableChannel c = channel.selectableChannel();
-						c.configureBlocking( false );
-						synchronized( selectingMutex ) {
+			final SelectableChannel c = channel.selectableChannel();
+			synchronized( c.blockingLock() ) {
+				if( channel.selectorIndex() >= 0 ) {
+					return;
+				}
+				channel.setSelectorIndex( index );
+				channels.incrementAndGet();
+			}
+			registrationTasks.add( () -> {
+				try {
+					synchronized( c.blockingLock() ) {
+						// The channel may have been unregistered before this task could run
+						if( channel.selectorIndex() == index ) {
+							final SelectionKey staleKey = c.keyFor( selector );
+							if( staleKey != null && !staleKey.isValid() ) {
+								selectingLock.lock();
+								try {
+									selector.selectNow();
+								} finally {
+									selectingLock.unlock();
+								}
+							}
+							c.configureBlocking( false );
 							c.register( selector, SelectionKey.OP_READ, channel );
-							selector.wakeup();
-							channel.setSelectorIndex( index );
+							registrations.increment();
 						}
 					}
+				} catch( IOException e ) {
+					synchronized( c.blockingLock() ) {
+						deselect( channel );
+					}
+					if( e instanceof ClosedChannelException ) {
+						interpreter.logWarning( e );
+					} else {
+						interpreter.logSevere( e );
+					}
 				}
-			} catch( ClosedChannelException e ) {
-				interpreter.logWarning( e );
-			} catch( IOException e ) {
-				interpreter.logSevere( e );
+			} );
+			if( awake.compareAndSet( false, true ) ) {
+				wakeup();
 			}
 		}
 
+		/*
+		 * Stops the selector from waiting for incoming data on the given channel, and puts the channel
+		 * back in blocking mode. Must be called while holding the lock of the channel.
+		 */
 		public void unregister( SelectableStreamingCommChannel channel )
 			throws IOException {
-			synchronized( this ) {
-				if( isSelecting( channel ) ) {
-					selector.wakeup();
-					synchronized( selectingMutex ) {
-						SelectionKey key = channel.selectableChannel().keyFor( selector );
-						if( key != null ) {
-							key.cancel();
-						}
-						selector.selectNow();
+			final SelectableChannel c = channel.selectableChannel();
+			final SelectionKey key;
+			synchronized( c.blockingLock() ) {
+				deselect( channel );
+				key = c.keyFor( selector );
+			}
+			if( key != null ) {
+				// The key is removed from the selector only by a select operation
+				key.cancel();
+				lockWaiters.incrementAndGet();
+				wakeup();
+				selectingLock.lock();
+				lockWaiters.decrementAndGet();
+				try {
+					selector.selectNow();
+					if( !selector.selectedKeys().isEmpty() ) {
+						// Let this thread handle the channels that have been selected here
+						wakeup();
 					}
-					channel.selectableChannel().configureBlocking( true );
+				} finally {
+					selectingLock.unlock();
 				}
+				c.configureBlocking( true );
 			}
 		}
 	}
 
 	protected boolean isSelecting( SelectableStreamingCommChannel channel ) {
-		SelectableChannel c = channel.selectableChannel();
-		return c != null && c.isRegistered();
+		return channel.selectorIndex() >= 0;
 	}
 
 	protected void unregisterForSelection( SelectableStreamingCommChannel channel )
 		throws IOException {
-		selectorThreads()[ channel.selectorIndex() ].unregister( channel );
+		final int i = channel.selectorIndex();
+		if( i >= 0 ) {
+			selectorThreads()[ i ].unregister( channel );
+		}
 	}
 
 	private final AtomicInteger nextSelector = new AtomicInteger( 0 );
 
+	/*
+	 * Registers the channel in the selector with the least channels. Selectors with the same number of
+	 * channels are chosen in turn.
+	 */
 	protected void registerForSelection( final SelectableStreamingCommChannel channel )
 		throws IOException {
-		final int i = nextSelector.getAndIncrement() % selectorThreads().length;
-		selectorThreads()[ i ].register( channel, i );
+		final SelectorThread[] threads = selectorThreads();
+		final int first = Math.floorMod( nextSelector.getAndIncrement(), threads.length );
+		SelectorThread selected = threads[ first ];
+		int min = selected.channels.get();
+		for( int k = 1; k < threads.length && min > 0; k++ ) {
+			final SelectorThread t = threads[ (first + k) % threads.length ];
+			final int load = t.channels.get();
+			if( load < min ) {
+				selected = t;
+				min = load;
+			}
+		}
+		selected.register( channel );
 		/*
 		 * final TimeoutHandler handler = new TimeoutHandler( interpreter.persistentConnectionTimeout() ) {
 		 * 
@@ -838,12 +1448,36 @@ public class CommCore {
 				channelHandlersLock.writeLock().tryLock( CHANNEL_HANDLER_TIMEOUT, TimeUnit.SECONDS );
 			} catch( InterruptedException e ) {
 			}
+			// Stop the receivers of multiplexed channels, or we would wait for them below
+			multiplexedChannels.forEach( c -> {
+				try {
+					c.close();
+				} catch( IOException e ) {
+					interpreter.logWarning( e );
+				}
+			} );
+			if( receiveExecutor != executorService ) {
+				receiveExecutor.shutdown();
+			}
 			executorService.shutdown();
 			try {
+				if( receiveExecutor != executorService ) {
+					receiveExecutor.awaitTermination( interpreter.persistentConnectionTimeout(),
+						TimeUnit.MILLISECONDS );
+				}
 				executorService.awaitTermination( interpreter.persistentConnectionTimeout(), TimeUnit.MILLISECONDS );
 			} catch( InterruptedException e ) {
 			}
 			threadGroup.interrupt();
+
+			readyListenerChannels.forEach( c -> {
+				try {
+					c.closeImpl();
+				} catch( IOException e ) {
+					interpreter.logWarning( e );
+				}
+			} );
+			readyListenerChannels.clear();
 		}
 	}
 
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Implemented by the output streams of communication channels that can send a region of a file
+ * without copying it through the Java heap, for example with {@link FileChannel#transferTo}.
+ * Protocols can check whether the stream they are given implements this interface, and fall back to
+ * copying the file through the stream otherwise.
+ */
+public interface FileRegionWriter {
+	/**
+	 * Sends what has been written to the stream so far, followed by a region of a file.
+	 *
+	 * @param file the file to send the region of
+	 * @param position the position of the region in the file
+	 * @param count the length of the region
+	 * @throws IOException if the file can not be read, or the region can not be sent
+	 */
+	void writeFileRegion( FileChannel file, long position, long count )
+		throws IOException;
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An output stream over a socket channel that collects what is written in pooled buffers, and sends
+ * it with a single gathering write when flushed. Large arrays are not copied: they are sent right
+ * away, together with the data collected before them. Regions of files are sent with
+ * {@link FileChannel#transferTo}, so that the operating system can send them without copying. The
+ * collected data is also sent when it fills {@value #MAX_PENDING_BUFFERS} buffers, so that the
+ * memory held by a stream is bounded.
+ *
+ * Data followed by {@link #commit()} instead of {@link #flush()} is kept until
+ * {@link #flushCommitted()} is called, so that the messages of concurrent senders can be sent
+ * together. Unlike the streams returned by {@link java.nio.channels.Channels}, this stream does not
+ * take the lock used for reading the channel.
+ */
+class GatheringOutputStream extends OutputStream implements FileRegionWriter {
+	private static final int BUFFER_SIZE = 8192;
+	private static final int MAX_POOLED_BUFFERS = 256;
+	private static final int MAX_PENDING_BUFFERS = 16;
+	private static final Queue< ByteBuffer > BUFFER_POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED_BUFFERS = new AtomicInteger();
+	private static final LongAdder WRITES = new LongAdder();
+
+	private final SocketChannel channel;
+	// Buffers holding data that has not been sent yet, the last one is being filled
+	private final List< ByteBuffer > pending = new ArrayList<>();
+	// Held while sending, so that data is sent in the order it was written
+	private final ReentrantLock sendLock = new ReentrantLock();
+	private long committed = 0; // Guarded by pending
+	private long sent = 0; // Guarded by sendLock
+
+	GatheringOutputStream( SocketChannel channel ) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Returns the number of writes performed on socket channels by streams of this kind.
+	 */
+	static long writes() {
+		return WRITES.sum();
+	}
+
+	private static ByteBuffer acquireBuffer() {
+		final ByteBuffer buffer = BUFFER_POOL.poll();
+		if( buffer == null ) {
+			return ByteBuffer.allocateDirect( BUFFER_SIZE );
+		}
+		POOLED_BUFFERS.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	private static void releaseBuffer( ByteBuffer buffer ) {
+		if( POOLED_BUFFERS.incrementAndGet() <= MAX_POOLED_BUFFERS ) {
+			BUFFER_POOL.offer( buffer );
+		} else {
+			POOLED_BUFFERS.decrementAndGet();
+		}
+	}
+
+	// Must be called while holding the monitor of pending
+	private ByteBuffer bufferWithRoom() {
+		if( !pending.isEmpty() ) {
+			final ByteBuffer last = pending.get( pending.size() - 1 );
+			if( last.hasRemaining() ) {
+				return last;
+			}
+		}
+		final ByteBuffer buffer = acquireBuffer();
+		pending.add( buffer );
+		return buffer;
+	}
+
+	// Must be called while holding the monitor of pending
+	private boolean isFull() {
+		return pending.size() >= MAX_PENDING_BUFFERS && !pending.get( pending.size() - 1 ).hasRemaining();
+	}
+
+	@Override
+	public void write( int b )
+		throws IOException {
+		final boolean full;
+		synchronized( pending ) {
+			bufferWithRoom().put( (byte) b );
+			full = isFull();
+		}
+		if( full ) {
+			flush();
+		}
+	}
+
+	@Override
+	public void write( byte[] b, int off, int len )
+		throws IOException {
+		if( len >= BUFFER_SIZE ) {
+			sendLock.lock();
+			try {
+				send( ByteBuffer.wrap( b, off, len ) );
+			} finally {
+				sendLock.unlock();
+			}
+		} else {
+			final boolean full;
+			synchronized( pending ) {
+				while( len > 0 ) {
+					final ByteBuffer buffer = bufferWithRoom();
+					final int n = Math.min( len, buffer.remaining() );
+					buffer.put( b, off, n );
+					off += n;
+					len -= n;
+				}
+				full = isFull();
+			}
+			if( full ) {
+				flush();
+			}
+		}
+	}
+
+	@Override
+	public void writeFileRegion( FileChannel file, long position, long count )
+		throws IOException {
+		if( !channel.isBlocking() ) {
+			throw new IllegalBlockingModeException();
+		}
+		sendLock.lock();
+		try {
+			send( null );
+			final long end = position + count;
+			while( position < end ) {
+				final long n = file.transferTo( position, end - position, channel );
+				WRITES.increment();
+				if( n == 0 && position >= file.size() ) {
+					throw new EOFException( "File ended before the end of the region to be sent" );
+				}
+				position += n;
+			}
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/**
+	 * Marks the end of a message, which will be sent by the next call to {@link #flush()} or
+	 * {@link #flushCommitted()}.
+	 */
+	void commit() {
+		synchronized( pending ) {
+			committed++;
+		}
+	}
+
+	/**
+	 * Sends all the committed messages, unless another thread has sent them already.
+	 *
+	 * @throws IOException if sending fails
+	 */
+	void flushCommitted()
+		throws IOException {
+		final long target;
+		synchronized( pending ) {
+			target = committed;
+		}
+		sendLock.lock();
+		try {
+			if( sent < target ) {
+				send( null );
+			}
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	@Override
+	public void flush()
+		throws IOException {
+		sendLock.lock();
+		try {
+			send( null );
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/*
+	 * Sends the pending data, followed by the given buffer if it is not null. Must be called while
+	 * holding sendLock.
+	 */
+	private void send( ByteBuffer last )
+		throws IOException {
+		final ByteBuffer[] buffers;
+		final int pooled;
+		synchronized( pending ) {
+			pooled = pending.size();
+			buffers = new ByteBuffer[ last == null ? pooled : pooled + 1 ];
+			for( int i = 0; i < pooled; i++ ) {
+				buffers[ i ] = pending.get( i ).flip();
+			}
+			pending.clear();
+			sent = committed;
+		}
+		if( last != null ) {
+			buffers[ pooled ] = last;
+		}
+		try {
+			if( buffers.length > 0 && !channel.isBlocking() ) {
+				throw new IllegalBlockingModeException();
+			}
+			int first = 0;
+			while( first < buffers.length ) {
+				channel.write( buffers, first, buffers.length - first );
+				WRITES.increment();
+				while( first < buffers.length && !buffers[ first ].hasRemaining() ) {
+					first++;
+				}
+			}
+		} finally {
+			for( int i = 0; i < pooled; i++ ) {
+				releaseBuffer( buffers[ i ] );
+			}
+		}
+	}
+
+	@Override
+	public void close()
+		throws IOException {
+		synchronized( pending ) {
+			pending.forEach( GatheringOutputStream::releaseBuffer );
+			pending.clear();
+		}
+		channel.close();
+	}
+}
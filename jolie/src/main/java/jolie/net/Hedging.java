@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jolie.runtime.Value;
+
+/**
+ * Decides when the calls of an output port are hedged: if the response to a solicit-response call
+ * does not arrive within a delay, a copy of the request is sent, to another location if the calls
+ * of the port are balanced, and the first response wins. Hedging is configured by the
+ * {@code hedging} node of the protocol configuration of the port:
+ * <ul>
+ * <li>{@code budget}: the maximum number of copies, as a percentage of the hedged calls of the port
+ * (default: 10). A few copies can be sent in a burst, as long as the budget is respected over
+ * time;</li>
+ * <li>{@code operations}: a node for each operation to be hedged, which must be idempotent, with the
+ * following parameters:
+ * <ul>
+ * <li>{@code percentile}: sends the copy when the call takes longer than this percentile of the
+ * latest latencies of the operation, for example 95;</li>
+ * <li>{@code delay}: the milliseconds after which the copy is sent, if no percentile is given or not
+ * enough latencies have been observed yet.</li>
+ * </ul>
+ * </li>
+ * </ul>
+ */
+public class Hedging {
+	public static final String HEDGING_PARAMETER = "hedging";
+	private static final int DEFAULT_BUDGET = 10;
+	// Budget tokens are counted in thousandths of a copy
+	private static final long TOKENS_PER_COPY = 1000;
+	private static final long MAX_TOKENS = 10 * TOKENS_PER_COPY;
+
+	/**
+	 * The hedging parameters of an operation, and the latencies observed for it.
+	 */
+	public static class Policy {
+		private static final int SAMPLES = 1024;
+		// Minimum number of latencies for a percentile, which is also recomputed this often
+		private static final int MIN_SAMPLES = 64;
+
+		private final String operationName;
+		private final long fixedDelay;
+		private final double percentile;
+		private final long[] samples = new long[ SAMPLES ]; // Guarded by this
+		private long sampleCount = 0; // Guarded by this
+		private volatile long percentileDelay = -1;
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder hedges = new LongAdder();
+		private final LongAdder wins = new LongAdder();
+		private final LongAdder throttled = new LongAdder();
+
+		private Policy( String operationName, long fixedDelay, double percentile ) {
+			this.operationName = operationName;
+			this.fixedDelay = fixedDelay;
+			this.percentile = percentile;
+		}
+
+		private boolean hasParameters( long fixedDelay, double percentile ) {
+			return this.fixedDelay == fixedDelay && this.percentile == percentile;
+		}
+
+		/**
+		 * Returns the nanoseconds to wait for a response before sending a copy of the request, or -1 if
+		 * no copy is to be sent.
+		 */
+		public long delay() {
+			final long delay = percentileDelay;
+			if( delay >= 0 ) {
+				return delay;
+			}
+			return fixedDelay;
+		}
+
+		/**
+		 * Records the time it took to receive the response to the original request of a call. Calls whose
+		 * response came from a copy are not recorded.
+		 */
+		public void callCompleted( long latency ) {
+			if( percentile <= 0 ) {
+				return;
+			}
+			synchronized( this ) {
+				samples[ (int) (sampleCount % SAMPLES) ] = latency;
+				sampleCount++;
+				if( sampleCount % MIN_SAMPLES == 0 ) {
+					final long[] sorted = Arrays.copyOf( samples, (int) Math.min( sampleCount, SAMPLES ) );
+					Arrays.sort( sorted );
+					final int index = (int) Math.ceil( sorted.length * percentile / 100 ) - 1;
+					percentileDelay = sorted[ Math.max( 0, Math.min( index, sorted.length - 1 ) ) ];
+				}
+			}
+		}
+
+		/**
+		 * Records that the response to a copy arrived before the response to the original request.
+		 */
+		public void hedgeWon() {
+			wins.increment();
+		}
+
+		/**
+		 * Returns the name of the operation.
+		 */
+		public String operationName() {
+			return operationName;
+		}
+	}
+
+	/**
+	 * A snapshot of the counters of a hedged operation.
+	 */
+	public static class Statistics {
+		private final String operationName;
+		private final long delay, calls, hedges, wins, throttled;
+
+		private Statistics( Policy policy ) {
+			this.operationName = policy.operationName;
+			final long delay = policy.delay();
+			this.delay = delay < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros( delay );
+			this.calls = policy.calls.sum();
+			this.hedges = policy.hedges.sum();
+			this.wins = policy.wins.sum();
+			this.throttled = policy.throttled.sum();
+		}
+
+		public String operationName() {
+			return operationName;
+		}
+
+		/**
+		 * Returns the current delay before sending a copy, in microseconds, or -1 if copies are not sent
+		 * yet.
+		 */
+		public long delay() {
+			return delay;
+		}
+
+		/**
+		 * Returns the number of calls of the operation.
+		 */
+		public long calls() {
+			return calls;
+		}
+
+		/**
+		 * Returns the number of copies sent.
+		 */
+		public long hedges() {
+			return hedges;
+		}
+
+		/**
+		 * Returns the number of calls whose response came from a copy.
+		 */
+		public long wins() {
+			return wins;
+		}
+
+		/**
+		 * Returns the number of copies that were not sent because the budget was exhausted.
+		 */
+		public long throttled() {
+			return throttled;
+		}
+	}
+
+	private final Map< String, Policy > policies = new ConcurrentHashMap<>();
+	private final AtomicLong tokens = new AtomicLong( TOKENS_PER_COPY );
+	private volatile long tokensPerCall = DEFAULT_BUDGET * TOKENS_PER_COPY / 100;
+
+	/**
+	 * Returns the hedging policy of an operation, starting a hedged call.
+	 *
+	 * @param operationName the operation being called
+	 * @param parameters the {@code hedging} node of the protocol configuration of the port
+	 * @return the policy of the operation, or <code>null</code> if the operation is not hedged
+	 */
+	public Policy startCall( String operationName, Value parameters ) {
+		if( !parameters.hasChildren( "operations" )
+			|| !parameters.getFirstChild( "operations" ).hasChildren( operationName ) ) {
+			return null;
+		}
+		final Value operation = parameters.getFirstChild( "operations" ).getFirstChild( operationName );
+		final long fixedDelay = operation.hasChildren( "delay" )
+			? TimeUnit.MILLISECONDS.toNanos( operation.getFirstChild( "delay" ).longValue() )
+			: -1;
+		final double percentile = operation.firstChildOrDefault( "percentile", Value::doubleValue, 0.0 );
+		if( fixedDelay < 0 && percentile <= 0 ) {
+			return null;
+		}
+		tokensPerCall =
+			parameters.firstChildOrDefault( "budget", Value::intValue, DEFAULT_BUDGET ) * TOKENS_PER_COPY / 100;
+		Policy policy = policies.get( operationName );
+		if( policy == null || !policy.hasParameters( fixedDelay, percentile ) ) {
+			policy = policies.merge( operationName, new Policy( operationName, fixedDelay, percentile ),
+				( current, created ) -> current.hasParameters( fixedDelay, percentile ) ? current : created );
+		}
+		policy.calls.increment();
+		final long deposit = tokensPerCall;
+		tokens.getAndUpdate( t -> Math.min( MAX_TOKENS, t + deposit ) );
+		return policy;
+	}
+
+	/**
+	 * Takes a copy from the budget of the port.
+	 *
+	 * @return <code>true</code> if the copy can be sent, <code>false</code> if the budget is exhausted
+	 */
+	public boolean tryHedge( Policy policy ) {
+		if( tokens.getAndUpdate( t -> t >= TOKENS_PER_COPY ? t - TOKENS_PER_COPY : t ) >= TOKENS_PER_COPY ) {
+			policy.hedges.increment();
+			return true;
+		}
+		policy.throttled.increment();
+		return false;
+	}
+
+	/**
+	 * Returns a snapshot of the counters of the hedged operations.
+	 */
+	public List< Statistics > statistics() {
+		final List< Statistics > ret = new ArrayList<>();
+		policies.values().forEach( policy -> ret.add( new Statistics( policy ) ) );
+		return ret;
+	}
+}
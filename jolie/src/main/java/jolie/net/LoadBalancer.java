@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import jolie.runtime.Value;
+import jolie.runtime.ValueVector;
+
+/**
+ * Spreads the calls of an output port over several locations. It is configured by the
+ * {@code balancer} node of the protocol configuration of the port:
+ * <ul>
+ * <li>{@code locations}: the locations to call, which replace the location of the port;</li>
+ * <li>{@code strategy}: how to choose the location of a call, among {@code roundRobin},
+ * {@code leastRequests} (the location with the fewest calls in progress) and
+ * {@code powerOfTwoChoices} (the better of two random locations, judged by their calls in progress
+ * and average latency), which is the default;</li>
+ * <li>{@code ejection.failures}: the number of consecutive failed calls after which a location is not
+ * used for a while (default: 3, never if not positive);</li>
+ * <li>{@code ejection.time}: the milliseconds a location is not used for (default: 30000).</li>
+ * </ul>
+ * When every location is ejected, calls go to all of them as if none were.
+ */
+public class LoadBalancer {
+	public static final String BALANCER_PARAMETER = "balancer";
+	private static final int DEFAULT_EJECTION_FAILURES = 3;
+	private static final long DEFAULT_EJECTION_TIME = 30000;
+	// Weight of the latest call in the average latency of a location
+	private static final double LATENCY_SMOOTHING = 0.3;
+	// Nanoseconds for the latency of an unused location to decay by a factor of e, so that a location
+	// that was slow once is tried again after a while
+	private static final double LATENCY_DECAY = TimeUnit.SECONDS.toNanos( 1 );
+
+	public enum Strategy {
+		ROUND_ROBIN, LEAST_REQUESTS, POWER_OF_TWO_CHOICES;
+
+		public static Strategy fromString( String name ) {
+			switch( name ) {
+			case "roundRobin":
+				return ROUND_ROBIN;
+			case "leastRequests":
+				return LEAST_REQUESTS;
+			case "powerOfTwoChoices":
+				return POWER_OF_TWO_CHOICES;
+			default:
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * A location of a balanced output port, with the counters used to choose it.
+	 */
+	public static class Endpoint {
+		private final URI location;
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger consecutiveFailures = new AtomicInteger();
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder ejections = new LongAdder();
+		// The time at which the location can be used again, if ejected
+		private volatile long ejectedUntil;
+		private volatile boolean ejected = false;
+		// Nanoseconds, updated while holding the monitor of this endpoint
+		private volatile double latency = 0;
+		private volatile long latencyTime = 0;
+
+		private Endpoint( URI location ) {
+			this.location = location;
+		}
+
+		public URI location() {
+			return location;
+		}
+
+		private boolean isAvailable( long now ) {
+			return !ejected || now - ejectedUntil >= 0;
+		}
+
+		// The expected cost of sending one more call, locations that were never measured come first
+		private double cost( long now ) {
+			return latency * Math.exp( (latencyTime - now) / LATENCY_DECAY ) * (inFlight.get() + 1);
+		}
+	}
+
+	/**
+	 * A snapshot of the counters of a location.
+	 */
+	public static class Statistics {
+		private final URI location;
+		private final int inFlight;
+		private final long requests, failures, ejections, latency;
+		private final boolean ejected;
+
+		private Statistics( Endpoint endpoint, long now ) {
+			this.location = endpoint.location;
+			this.inFlight = endpoint.inFlight.get();
+			this.requests = endpoint.requests.sum();
+			this.failures = endpoint.failures.sum();
+			this.ejections = endpoint.ejections.sum();
+			this.latency = TimeUnit.NANOSECONDS.toMicros( (long) endpoint.latency );
+			this.ejected = !endpoint.isAvailable( now );
+		}
+
+		public URI location() {
+			return location;
+		}
+
+		/**
+		 * Returns the number of calls in progress.
+		 */
+		public int inFlight() {
+			return inFlight;
+		}
+
+		/**
+		 * Returns the number of calls sent to the location.
+		 */
+		public long requests() {
+			return requests;
+		}
+
+		/**
+		 * Returns the number of failed calls, including failed connection attempts.
+		 */
+		public long failures() {
+			return failures;
+		}
+
+		/**
+		 * Returns the number of times the location has been ejected.
+		 */
+		public long ejections() {
+			return ejections;
+		}
+
+		/**
+		 * Returns <code>true</code> if the location is currently ejected.
+		 */
+		public boolean ejected() {
+			return ejected;
+		}
+
+		/**
+		 * Returns the average latency of the calls to the location, in microseconds.
+		 */
+		public long latency() {
+			return latency;
+		}
+	}
+
+	/**
+	 * A call in progress to a location, returned by {@link LoadBalancer#callStarted(Endpoint)} and
+	 * passed to {@link LoadBalancer#callEnded(Call, boolean)} when the call ends.
+	 */
+	public class Call {
+		private final Endpoint endpoint;
+		private final long startTime = System.nanoTime();
+
+		private Call( Endpoint endpoint ) {
+			this.endpoint = endpoint;
+		}
+
+		public Endpoint endpoint() {
+			return endpoint;
+		}
+
+		/**
+		 * Returns the load balancer that started this call, which may have been replaced since.
+		 */
+		public LoadBalancer loadBalancer() {
+			return LoadBalancer.this;
+		}
+	}
+
+	private final List< String > locations;
+	private final Endpoint[] endpoints;
+	private final Strategy strategy;
+	private final int ejectionFailures;
+	private final long ejectionTime;
+	private final Consumer< URI > ejectionListener;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private LoadBalancer( List< String > locations, Strategy strategy, int ejectionFailures, long ejectionTime,
+		Consumer< URI > ejectionListener )
+		throws URISyntaxException {
+		this.locations = locations;
+		this.strategy = strategy;
+		this.ejectionFailures = ejectionFailures;
+		this.ejectionTime = TimeUnit.MILLISECONDS.toNanos( ejectionTime );
+		this.ejectionListener = ejectionListener;
+		endpoints = new Endpoint[ locations.size() ];
+		for( int i = 0; i < endpoints.length; i++ ) {
+			endpoints[ i ] = new Endpoint( new URI( locations.get( i ) ) );
+		}
+	}
+
+	/**
+	 * Creates a load balancer from a {@code balancer} node, or returns the given one if it has the
+	 * same configuration.
+	 *
+	 * @param current the load balancer in use, possibly <code>null</code>
+	 * @param ejectionListener called with the location of an endpoint when it is ejected
+	 * @return the load balancer, or <code>null</code> if the node does not list any location
+	 * @throws URISyntaxException if a location is not a valid URI
+	 */
+	public static LoadBalancer fromValue( LoadBalancer current, Value balancer, Consumer< URI > ejectionListener )
+		throws URISyntaxException {
+		final ValueVector vector = balancer.getChildren( "locations" );
+		final List< String > locations = new ArrayList<>( vector.size() );
+		for( Value location : vector ) {
+			locations.add( location.strValue() );
+		}
+		if( locations.isEmpty() ) {
+			return null;
+		}
+		Strategy strategy = Strategy.fromString(
+			balancer.firstChildOrDefault( "strategy", Value::strValue, "powerOfTwoChoices" ) );
+		if( strategy == null ) {
+			strategy = Strategy.POWER_OF_TWO_CHOICES;
+		}
+		final Value ejection = balancer.hasChildren( "ejection" ) ? balancer.getFirstChild( "ejection" )
+			: Value.create();
+		final int ejectionFailures =
+			ejection.firstChildOrDefault( "failures", Value::intValue, DEFAULT_EJECTION_FAILURES );
+		final long ejectionTime = ejection.firstChildOrDefault( "time", Value::longValue, DEFAULT_EJECTION_TIME );
+		if( current != null && current.locations.equals( locations ) && current.strategy == strategy
+			&& current.ejectionFailures == ejectionFailures
+			&& current.ejectionTime == TimeUnit.MILLISECONDS.toNanos( ejectionTime ) ) {
+			return current;
+		}
+		return new LoadBalancer( locations, strategy, ejectionFailures, ejectionTime, ejectionListener );
+	}
+
+	/**
+	 * Returns the first location of this load balancer.
+	 */
+	public URI firstLocation() {
+		return endpoints[ 0 ].location;
+	}
+
+	/**
+	 * Chooses the endpoint for a call, among those that have not been tried already.
+	 *
+	 * @param tried the endpoints that have been tried for the call
+	 * @return the chosen endpoint, or <code>null</code> if every endpoint has been tried
+	 */
+	public Endpoint select( List< Endpoint > tried ) {
+		final long now = System.nanoTime();
+		final List< Endpoint > candidates = new ArrayList<>( endpoints.length );
+		for( Endpoint endpoint : endpoints ) {
+			if( endpoint.isAvailable( now ) && !tried.contains( endpoint ) ) {
+				candidates.add( endpoint );
+			}
+		}
+		if( candidates.isEmpty() ) {
+			// Better an ejected endpoint than no endpoint at all
+			for( Endpoint endpoint : endpoints ) {
+				if( !tried.contains( endpoint ) ) {
+					candidates.add( endpoint );
+				}
+			}
+			if( candidates.isEmpty() ) {
+				return null;
+			}
+		}
+		final int size = candidates.size();
+		switch( strategy ) {
+		case ROUND_ROBIN:
+			return candidates.get( Math.floorMod( next.getAndIncrement(), size ) );
+		case LEAST_REQUESTS:
+			// Start from a different endpoint each time, so that ties are broken evenly
+			final int offset = Math.floorMod( next.getAndIncrement(), size );
+			Endpoint best = null;
+			for( int i = 0; i < size; i++ ) {
+				final Endpoint endpoint = candidates.get( (offset + i) % size );
+				if( best == null || endpoint.inFlight.get() < best.inFlight.get() ) {
+					best = endpoint;
+				}
+			}
+			return best;
+		default:
+			if( size == 1 ) {
+				return candidates.get( 0 );
+			}
+			final ThreadLocalRandom random = ThreadLocalRandom.current();
+			final int first = random.nextInt( size );
+			final int second = (first + 1 + random.nextInt( size - 1 )) % size;
+			final Endpoint a = candidates.get( first );
+			final Endpoint b = candidates.get( second );
+			return a.cost( now ) <= b.cost( now ) ? a : b;
+		}
+	}
+
+	/**
+	 * Records that a call to the given endpoint started.
+	 *
+	 * @return the call, to be passed to {@link #callEnded(Call, boolean)} when it ends
+	 */
+	public Call callStarted( Endpoint endpoint ) {
+		endpoint.inFlight.incrementAndGet();
+		endpoint.requests.increment();
+		return new Call( endpoint );
+	}
+
+	/**
+	 * Returns the number of endpoints of this load balancer.
+	 */
+	public int size() {
+		return endpoints.length;
+	}
+
+	/**
+	 * Records that a call started by this load balancer ended.
+	 *
+	 * @param failed <code>true</code> if the call failed because of a communication error
+	 */
+	public void callEnded( Call call, boolean failed ) {
+		final Endpoint endpoint = call.endpoint;
+		endpoint.inFlight.decrementAndGet();
+		if( failed ) {
+			failure( endpoint );
+		} else {
+			final long now = System.nanoTime();
+			final long latency = now - call.startTime;
+			synchronized( endpoint ) {
+				endpoint.latency = endpoint.latency == 0 ? latency
+					: endpoint.latency + (latency - endpoint.latency) * LATENCY_SMOOTHING;
+				endpoint.latencyTime = now;
+			}
+			endpoint.consecutiveFailures.set( 0 );
+			endpoint.ejected = false;
+		}
+	}
+
+	/**
+	 * Records that the given endpoint could not be reached.
+	 */
+	public void connectionFailed( Endpoint endpoint ) {
+		endpoint.requests.increment();
+		failure( endpoint );
+	}
+
+	private void failure( Endpoint endpoint ) {
+		endpoint.failures.increment();
+		if( ejectionFailures > 0 && endpoint.consecutiveFailures.incrementAndGet() >= ejectionFailures ) {
+			endpoint.consecutiveFailures.set( 0 );
+			endpoint.ejectedUntil = System.nanoTime() + ejectionTime;
+			endpoint.ejected = true;
+			endpoint.ejections.increment();
+			ejectionListener.accept( endpoint.location );
+		}
+	}
+
+	/**
+	 * Returns the name of the strategy of this load balancer.
+	 */
+	public String strategy() {
+		switch( strategy ) {
+		case ROUND_ROBIN:
+			return "roundRobin";
+		case LEAST_REQUESTS:
+			return "leastRequests";
+		default:
+			return "powerOfTwoChoices";
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the counters of the locations of this load balancer.
+	 */
+	public List< Statistics > statistics() {
+		final long now = System.nanoTime();
+		final List< Statistics > ret = new ArrayList<>( endpoints.length );
+		for( Endpoint endpoint : endpoints ) {
+			ret.add( new Statistics( endpoint, now ) );
+		}
+		return ret;
+	}
+}
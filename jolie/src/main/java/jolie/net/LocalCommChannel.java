@@ -81,6 +81,7 @@ public class LocalCommChannel extends CommChannel implements PollableCommChannel
 	private final Interpreter interpreter;
 	private final CommListener listener;
 	private final Map< Long, CompletableFuture< CommMessage > > responseWaiters = new ConcurrentHashMap<>();
+	private volatile Runnable readyListener = null;
 
 	public LocalCommChannel( Interpreter interpreter, CommListener listener ) {
 		this.interpreter = interpreter;
@@ -106,6 +107,7 @@ public class LocalCommChannel extends CommChannel implements PollableCommChannel
 	protected void sendImpl( CommMessage message ) {
 		CompletableFuture< CommMessage > f = new CompletableFuture<>();
 		responseWaiters.put( message.requestId(), f );
+		notifyReadyListener();
 		interpreter.commCore().scheduleReceive( new CoLocalCommChannel( message, f ), listener.inputPort() );
 	}
 
@@ -120,6 +122,19 @@ public class LocalCommChannel extends CommChannel implements PollableCommChannel
 		return responseWaiters.isEmpty() == false;
 	}
 
+	@Override
+	public boolean setReadyListener( Runnable listener ) {
+		readyListener = listener;
+		return true;
+	}
+
+	private void notifyReadyListener() {
+		final Runnable listener = readyListener;
+		if( listener != null ) {
+			listener.run();
+		}
+	}
+
 	@Override
 	protected void disposeForInputImpl()
 		throws IOException {
@@ -42,4 +42,19 @@ public interface PollableCommChannel {
 	 */
 	boolean isReady()
 		throws IOException;
+
+	/**
+	 * Asks this channel to invoke {@code listener} whenever it may have become ready for receiving an
+	 * input message, for example right after a message has arrived. Channels that support this are
+	 * checked only when they invoke the listener, instead of being polled periodically.
+	 *
+	 * The default implementation does not support listeners.
+	 *
+	 * @param listener the listener to invoke, which is cheap and thread-safe
+	 * @return <code>true</code> if this channel will invoke the listener, <code>false</code> if it must
+	 *         be polled
+	 */
+	default boolean setReadyListener( Runnable listener ) {
+		return false;
+	}
 }
@@ -56,11 +56,16 @@ public class PreBufferedInputStream extends BufferedInputStream {
 				}
 			}
 
+			// Keep the marked data, if any
+			final int start = markpos < 0 ? pos : Math.min( markpos, pos );
 			final byte[] nbuf = new byte[ tentative ];
-			final int remaining = count - pos;
-			System.arraycopy( buf, pos, nbuf, 0, remaining );
+			final int remaining = count - start;
+			System.arraycopy( buf, start, nbuf, 0, remaining );
 			buf = nbuf;
-			pos = 0;
+			pos -= start;
+			if( markpos >= 0 ) {
+				markpos -= start;
+			}
 			count = remaining;
 		}
 	}
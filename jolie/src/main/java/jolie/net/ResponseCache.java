@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import jolie.runtime.ByteArray;
+import jolie.runtime.FaultException;
+import jolie.runtime.Value;
+import jolie.runtime.ValueVector;
+
+/**
+ * Remembers the responses to the solicit-response calls of an output port, so that calls with the
+ * same request are answered without contacting the service. Caching is configured by the
+ * {@code cache} node of the protocol configuration of the port, which has a node in
+ * {@code operations} for each operation to be cached. Cached operations must not have side effects,
+ * and their responses must not depend on anything but the request. Their parameters are:
+ * <ul>
+ * <li>{@code ttl}: the milliseconds a response is kept for (default: 60000);</li>
+ * <li>{@code maxEntries}: the maximum number of responses kept (default: 1000);</li>
+ * <li>{@code maxBytes}: the maximum estimated size of the requests and responses kept, unbounded if
+ * not positive (default: 0);</li>
+ * <li>{@code faults}: if {@code true}, fault responses are cached too (default: {@code false}).</li>
+ * </ul>
+ * When a limit is exceeded, the least recently used responses are dropped. Requests are compared by
+ * their whole tree, and the cache keeps copies of requests and responses: each call gets its own
+ * copy of the response.
+ */
+public class ResponseCache {
+	public static final String CACHE_PARAMETER = "cache";
+	private static final long DEFAULT_TTL = 60000;
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	// Rough sizes in bytes of the objects making up a value tree
+	private static final int VALUE_SIZE = 64;
+	private static final int CHILD_SIZE = 96;
+	private static final int OBJECT_SIZE = 16;
+	private static final int STRING_SIZE = 40;
+
+	/**
+	 * A request, compared by its resource path and the whole tree of its value.
+	 */
+	public static final class Key {
+		private final String resourcePath;
+		private final Value value;
+		private final int hash;
+
+		private Key( String resourcePath, Value value ) {
+			this.resourcePath = resourcePath;
+			this.value = Value.createDeepCopy( value );
+			this.hash = 31 * resourcePath.hashCode() + hash( this.value );
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if( this == obj ) {
+				return true;
+			}
+			if( !(obj instanceof Key) ) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return hash == other.hash && resourcePath.equals( other.resourcePath )
+				&& equalTrees( value, other.value );
+		}
+	}
+
+	private static final class Entry {
+		private final Value value;
+		private final String faultName;
+		private final Value faultValue;
+		private final long expirationTime;
+		private final long size;
+
+		private Entry( Key key, CommMessage response, long expirationTime ) {
+			this.value = Value.createDeepCopy( response.value() );
+			if( response.isFault() ) {
+				faultName = response.fault().faultName();
+				faultValue = Value.createDeepCopy( response.fault().value() );
+			} else {
+				faultName = null;
+				faultValue = null;
+			}
+			this.expirationTime = expirationTime;
+			this.size = size( key.value ) + size( value ) + (faultValue == null ? 0 : size( faultValue ));
+		}
+
+		private CommMessage toResponse( CommMessage request ) {
+			return new CommMessage(
+				request.requestId(),
+				request.operationName(),
+				request.resourcePath(),
+				Value.createDeepCopy( value ),
+				faultName == null ? null : new FaultException( faultName, Value.createDeepCopy( faultValue ) ) );
+		}
+	}
+
+	/**
+	 * The cached responses of an operation.
+	 */
+	public static class Operation {
+		private final String operationName;
+		private final long ttl;
+		private final int maxEntries;
+		private final long maxBytes;
+		private final boolean cacheFaults;
+		// Least recently used entries come first
+		private final LinkedHashMap< Key, Entry > entries = new LinkedHashMap<>( 16, 0.75f, true );
+		private long bytes = 0; // Guarded by entries
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+		private final LongAdder expirations = new LongAdder();
+
+		private Operation( String operationName, long ttl, int maxEntries, long maxBytes, boolean cacheFaults ) {
+			this.operationName = operationName;
+			this.ttl = ttl;
+			this.maxEntries = maxEntries;
+			this.maxBytes = maxBytes;
+			this.cacheFaults = cacheFaults;
+		}
+
+		private boolean hasParameters( long ttl, int maxEntries, long maxBytes, boolean cacheFaults ) {
+			return this.ttl == ttl && this.maxEntries == maxEntries && this.maxBytes == maxBytes
+				&& this.cacheFaults == cacheFaults;
+		}
+
+		/**
+		 * Returns the key of a request, which must be computed before the request is sent since the
+		 * request value could be modified afterwards.
+		 */
+		public Key key( CommMessage request ) {
+			return new Key( request.resourcePath(), request.value() );
+		}
+
+		/**
+		 * Returns a copy of the cached response to a request.
+		 *
+		 * @param key the key of the request
+		 * @param request the request, whose identifiers are given to the response
+		 * @return the response, or <code>null</code> if there is none
+		 */
+		public CommMessage get( Key key, CommMessage request ) {
+			final Entry entry;
+			synchronized( entries ) {
+				final Entry found = entries.get( key );
+				if( found != null && System.nanoTime() - found.expirationTime >= 0 ) {
+					entries.remove( key );
+					bytes -= found.size;
+					expirations.increment();
+					entry = null;
+				} else {
+					entry = found;
+				}
+			}
+			if( entry == null ) {
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return entry.toResponse( request );
+		}
+
+		/**
+		 * Caches the response to a request, unless it is a fault and faults are not to be cached.
+		 */
+		public void put( Key key, CommMessage response ) {
+			if( response.isFault() && !cacheFaults ) {
+				return;
+			}
+			final Entry entry = new Entry( key, response, System.nanoTime() + ttl );
+			if( maxBytes > 0 && entry.size > maxBytes ) {
+				return;
+			}
+			synchronized( entries ) {
+				final Entry previous = entries.put( key, entry );
+				if( previous != null ) {
+					bytes -= previous.size;
+				}
+				bytes += entry.size;
+				final Iterator< Entry > it = entries.values().iterator();
+				while( entries.size() > maxEntries || (maxBytes > 0 && bytes > maxBytes) ) {
+					bytes -= it.next().size;
+					it.remove();
+					evictions.increment();
+				}
+			}
+		}
+
+		private void clear() {
+			synchronized( entries ) {
+				entries.clear();
+				bytes = 0;
+			}
+		}
+	}
+
+	/**
+	 * A snapshot of the state of the cache of an operation.
+	 */
+	public static class Statistics {
+		private final String operationName;
+		private final int entries;
+		private final long bytes, hits, misses, evictions, expirations;
+
+		private Statistics( Operation operation ) {
+			this.operationName = operation.operationName;
+			synchronized( operation.entries ) {
+				this.entries = operation.entries.size();
+				this.bytes = operation.bytes;
+			}
+			this.hits = operation.hits.sum();
+			this.misses = operation.misses.sum();
+			this.evictions = operation.evictions.sum();
+			this.expirations = operation.expirations.sum();
+		}
+
+		public String operationName() {
+			return operationName;
+		}
+
+		/**
+		 * Returns the number of cached responses.
+		 */
+		public int entries() {
+			return entries;
+		}
+
+		/**
+		 * Returns the estimated size of the cached requests and responses, in bytes.
+		 */
+		public long bytes() {
+			return bytes;
+		}
+
+		/**
+		 * Returns the number of calls answered from the cache.
+		 */
+		public long hits() {
+			return hits;
+		}
+
+		/**
+		 * Returns the number of calls that had to be sent.
+		 */
+		public long misses() {
+			return misses;
+		}
+
+		/**
+		 * Returns the number of responses dropped to respect the limits of the cache.
+		 */
+		public long evictions() {
+			return evictions;
+		}
+
+		/**
+		 * Returns the number of responses dropped because they were too old.
+		 */
+		public long expirations() {
+			return expirations;
+		}
+	}
+
+	private final Map< String, Operation > operations = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the cache of an operation.
+	 *
+	 * @param operationName the operation being called
+	 * @param parameters the {@code cache} node of the protocol configuration of the port
+	 * @return the cache of the operation, or <code>null</code> if the operation is not cached
+	 */
+	public Operation operation( String operationName, Value parameters ) {
+		if( !parameters.hasChildren( "operations" )
+			|| !parameters.getFirstChild( "operations" ).hasChildren( operationName ) ) {
+			return null;
+		}
+		final Value configuration = parameters.getFirstChild( "operations" ).getFirstChild( operationName );
+		final long ttl = TimeUnit.MILLISECONDS.toNanos(
+			configuration.firstChildOrDefault( "ttl", Value::longValue, DEFAULT_TTL ) );
+		final int maxEntries = configuration.firstChildOrDefault( "maxEntries", Value::intValue, DEFAULT_MAX_ENTRIES );
+		final long maxBytes = configuration.firstChildOrDefault( "maxBytes", Value::longValue, 0L );
+		final boolean cacheFaults = configuration.firstChildOrDefault( "faults", Value::boolValue, false );
+		if( ttl <= 0 || maxEntries <= 0 ) {
+			return null;
+		}
+		final Operation operation = operations.get( operationName );
+		if( operation != null && operation.hasParameters( ttl, maxEntries, maxBytes, cacheFaults ) ) {
+			return operation;
+		}
+		return operations.merge( operationName,
+			new Operation( operationName, ttl, maxEntries, maxBytes, cacheFaults ),
+			( current, created ) -> current.hasParameters( ttl, maxEntries, maxBytes, cacheFaults ) ? current
+				: created );
+	}
+
+	/**
+	 * Drops all the cached responses.
+	 */
+	public void clear() {
+		operations.values().forEach( Operation::clear );
+	}
+
+	/**
+	 * Returns a snapshot of the state of the caches of the operations.
+	 */
+	public List< Statistics > statistics() {
+		final List< Statistics > ret = new ArrayList<>();
+		operations.values().forEach( operation -> ret.add( new Statistics( operation ) ) );
+		return ret;
+	}
+
+	private static int hash( Value value ) {
+		int ret = hash( value.valueObject() );
+		if( value.hasChildren() ) {
+			// Children are not ordered, so their hashes are summed
+			for( Map.Entry< String, ValueVector > child : value.children().entrySet() ) {
+				final ValueVector vector = child.getValue();
+				if( !vector.isEmpty() ) {
+					int vectorHash = child.getKey().hashCode();
+					for( Value v : vector ) {
+						vectorHash = 31 * vectorHash + hash( v );
+					}
+					ret += vectorHash;
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static int hash( Object object ) {
+		if( object == null ) {
+			return 0;
+		} else if( object instanceof ByteArray ) {
+			return Arrays.hashCode( ((ByteArray) object).getBytes() );
+		}
+		return object.hashCode();
+	}
+
+	private static boolean equalTrees( Value a, Value b ) {
+		if( !equalObjects( a.valueObject(), b.valueObject() ) ) {
+			return false;
+		}
+		final int size = nonEmptyChildren( a );
+		if( size != nonEmptyChildren( b ) ) {
+			return false;
+		}
+		if( size > 0 ) {
+			for( Map.Entry< String, ValueVector > child : a.children().entrySet() ) {
+				final ValueVector vector = child.getValue();
+				if( vector.isEmpty() ) {
+					continue;
+				}
+				if( !b.hasChildren( child.getKey() ) ) {
+					return false;
+				}
+				final ValueVector other = b.getChildren( child.getKey() );
+				if( vector.size() != other.size() ) {
+					return false;
+				}
+				for( int i = 0; i < vector.size(); i++ ) {
+					if( !equalTrees( vector.get( i ), other.get( i ) ) ) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	// Values of different types are different, even if Jolie would consider them equal
+	private static boolean equalObjects( Object a, Object b ) {
+		if( a == null || b == null ) {
+			return a == b;
+		} else if( a.getClass() != b.getClass() ) {
+			return false;
+		} else if( a instanceof ByteArray ) {
+			return Arrays.equals( ((ByteArray) a).getBytes(), ((ByteArray) b).getBytes() );
+		}
+		return a.equals( b );
+	}
+
+	private static int nonEmptyChildren( Value value ) {
+		int ret = 0;
+		if( value.hasChildren() ) {
+			for( ValueVector vector : value.children().values() ) {
+				if( !vector.isEmpty() ) {
+					ret++;
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static long size( Value value ) {
+		long ret = VALUE_SIZE;
+		final Object object = value.valueObject();
+		if( object instanceof String ) {
+			ret += STRING_SIZE + 2L * ((String) object).length();
+		} else if( object instanceof ByteArray ) {
+			ret += OBJECT_SIZE + ((ByteArray) object).size();
+		} else if( object != null ) {
+			ret += OBJECT_SIZE;
+		}
+		if( value.hasChildren() ) {
+			for( Map.Entry< String, ValueVector > child : value.children().entrySet() ) {
+				ret += CHILD_SIZE + 2L * child.getKey().length();
+				for( Value v : child.getValue() ) {
+					ret += size( v );
+				}
+			}
+		}
+		return ret;
+	}
+}
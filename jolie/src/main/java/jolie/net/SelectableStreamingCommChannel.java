@@ -41,8 +41,13 @@ public abstract class SelectableStreamingCommChannel extends StreamingCommChanne
 	private static final long LIFETIME = 5000; // 5 secs
 
 	private final long creationTime = System.currentTimeMillis();
-	private int selectorIndex;
+	// Written while holding the blocking lock of the selectable channel
+	private volatile int selectorIndex = -1;
 
+	/**
+	 * Returns the index of the selector thread waiting for incoming data on this channel, or -1 if no
+	 * selector is waiting for it.
+	 */
 	public int selectorIndex() {
 		return selectorIndex;
 	}
@@ -73,8 +78,21 @@ public abstract class SelectableStreamingCommChannel extends StreamingCommChanne
 	public final void send( CommMessage message )
 		throws IOException {
 		Helpers.lockAndThen( lock, () -> _send( message ) );
+		if( isMultiplexed() ) {
+			// Outside of the lock, so that the messages of concurrent senders can be written together
+			flushMultiplexed();
+		}
 	}
 
+	/**
+	 * Writes the messages that have been sent through this multiplexed channel, if they have not been
+	 * written already. Called by {@link #send(CommMessage)} after releasing the lock of this channel.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	protected void flushMultiplexed()
+		throws IOException {}
+
 	private void _send( CommMessage message )
 		throws IOException {
 		final CommCore commCore = Interpreter.getInstance().commCore();
@@ -22,16 +22,15 @@
 
 package jolie.net;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.StandardSocketOptions;
 import java.net.URI;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
 import java.nio.channels.IllegalBlockingModeException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.LongAdder;
 
 import jolie.Interpreter;
 import jolie.net.protocols.CommProtocol;
@@ -46,9 +45,54 @@ import jolie.util.Helpers;
 public class SocketCommChannel extends SelectableStreamingCommChannel {
 	private final SocketChannel socketChannel;
 	private final PreBufferedInputStream istream;
-	private final OutputStream ostream;
+	private final GatheringOutputStream ostream;
 
 	private static final int SO_LINGER = 10000;
+	private static final LongAdder MESSAGES_SENT = new LongAdder();
+
+	/*
+	 * The streams returned by java.nio.channels.Channels synchronise reads and writes on the same lock,
+	 * so a receiver blocked on a multiplexed channel would prevent sending requests through it.
+	 */
+	private static class SocketInputStream extends InputStream {
+		private final SocketChannel channel;
+		private final ByteBuffer single = ByteBuffer.allocate( 1 );
+
+		private SocketInputStream( SocketChannel channel ) {
+			this.channel = channel;
+		}
+
+		@Override
+		public int read()
+			throws IOException {
+			single.clear();
+			final int n = read( single );
+			return n < 0 ? -1 : single.get( 0 ) & 0xFF;
+		}
+
+		@Override
+		public int read( byte[] b, int off, int len )
+			throws IOException {
+			if( len == 0 ) {
+				return 0;
+			}
+			return read( ByteBuffer.wrap( b, off, len ) );
+		}
+
+		private int read( ByteBuffer buffer )
+			throws IOException {
+			if( !channel.isBlocking() ) {
+				throw new IllegalBlockingModeException();
+			}
+			return channel.read( buffer );
+		}
+
+		@Override
+		public void close()
+			throws IOException {
+			channel.close();
+		}
+	}
 
 	/**
 	 * Constructor.
@@ -64,14 +108,32 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 		throws IOException {
 		super( location, protocol );
 		this.socketChannel = socketChannel;
-		socketChannel.socket().setSoLinger( true, SO_LINGER );
-		// this.istream = new PreBufferedInputStream( new BufferedInputStream( Channels.newInputStream(
-		// socketChannel ) ) );
-		this.istream = new PreBufferedInputStream( Channels.newInputStream( socketChannel ) );
-		this.ostream = new BufferedOutputStream( Channels.newOutputStream( socketChannel ) );
+		// Through setOption, since Unix domain socket channels have no java.net.Socket adaptor
+		socketChannel.setOption( StandardSocketOptions.SO_LINGER, SO_LINGER );
+		this.istream = new PreBufferedInputStream( new SocketInputStream( socketChannel ) );
+		this.ostream = new GatheringOutputStream( socketChannel );
 		setToBeClosed( false ); // Socket connections are kept open by default
 	}
 
+	/**
+	 * Returns the number of messages sent through socket channels.
+	 * 
+	 * @return the number of messages sent through socket channels
+	 */
+	public static long messagesSent() {
+		return MESSAGES_SENT.sum();
+	}
+
+	/**
+	 * Returns the number of writes performed on sockets to send messages. Each write is a system call,
+	 * unless the operating system can not take all the data at once.
+	 * 
+	 * @return the number of writes performed on sockets to send messages
+	 */
+	public static long writes() {
+		return GatheringOutputStream.writes();
+	}
+
 	/**
 	 * Returns the SocketChannel underlying this SocketCommChannel
 	 * 
@@ -116,7 +178,22 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 		throws IOException {
 		try {
 			protocol().send( ostream, message, istream );
-			ostream.flush();
+			MESSAGES_SENT.increment();
+			if( isMultiplexed() ) {
+				ostream.commit();
+			} else {
+				ostream.flush();
+			}
+		} catch( IllegalBlockingModeException e ) {
+			throw new IOException( e );
+		}
+	}
+
+	@Override
+	protected void flushMultiplexed()
+		throws IOException {
+		try {
+			ostream.flushCommitted();
 		} catch( IllegalBlockingModeException e ) {
 			throw new IOException( e );
 		}
@@ -172,6 +249,10 @@ public class SocketCommChannel extends SelectableStreamingCommChannel {
 		if( socketChannel.isConnected() == false || socketChannel.isOpen() == false ) {
 			return false;
 		}
+		if( isMultiplexed() ) {
+			// The receiver of a multiplexed channel is always reading, and closes the channel on EOF
+			return true;
+		}
 
 		final boolean ret;
 		try {
@@ -24,7 +24,6 @@ package jolie.net;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.channels.SocketChannel;
 import jolie.net.ext.CommChannelFactory;
 import jolie.net.ports.OutputPort;
@@ -42,12 +41,11 @@ public class SocketCommChannelFactory extends CommChannelFactory {
 	public CommChannel createChannel( URI location, OutputPort port )
 		throws IOException {
 		SocketChannel channel = SocketChannel.open( new InetSocketAddress( location.getHost(), location.getPort() ) );
-		SocketCommChannel ret = null;
 		try {
-			ret = new SocketCommChannel( channel, location, port.getProtocol() );
-		} catch( URISyntaxException e ) {
-			throw new IOException( e );
+			return new SocketCommChannel( channel, location, port.getProtocol( location ) );
+		} catch( IOException e ) {
+			channel.close();
+			throw e;
 		}
-		return ret;
 	}
 }
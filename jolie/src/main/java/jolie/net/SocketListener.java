@@ -23,23 +23,45 @@ package jolie.net;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import jolie.Interpreter;
+import jolie.NativeJolieThread;
 import jolie.net.ext.CommProtocolFactory;
 import jolie.net.ports.InputPort;
+import jolie.runtime.Value;
 
 /**
  * A communication listener using sockets as backend.
+ *
+ * The listener can be tuned with the <code>socket</code> node of the protocol configuration of its
+ * input port:
+ * <ul>
+ * <li><code>backlog</code>: the maximum number of pending connections (default: system dependent);</li>
+ * <li><code>acceptors</code>: the number of threads accepting connections (default: 1);</li>
+ * <li><code>reusePort</code>: if true and the platform supports <code>SO_REUSEPORT</code>, each
+ * acceptor gets its own socket bound to the port, and the system balances connections among
+ * them;</li>
+ * <li><code>tcpNoDelay</code>: whether accepted connections disable Nagle's algorithm;</li>
+ * <li><code>receiveBufferSize</code> and <code>sendBufferSize</code>: the sizes of the buffers of
+ * accepted connections.</li>
+ * </ul>
  * 
  * @author Fabrizio Montesi
  */
 public class SocketListener extends CommListener {
-	private final ServerSocketChannel serverChannel;
+	private static final String SOCKET_PARAMETERS = "socket";
+
+	private final List< ServerSocketChannel > serverChannels = new ArrayList<>();
+	private final int acceptors;
+	private final Boolean tcpNoDelay;
+	private final int sendBufferSize;
 
 	public SocketListener(
 		Interpreter interpreter,
@@ -51,11 +73,34 @@ public class SocketListener extends CommListener {
 			protocolFactory,
 			inputPort );
 
-		serverChannel = ServerSocketChannel.open();
-		final ServerSocket socket = serverChannel.socket();
+		final Value configuration = inputPort.protocolConfigurationPath().getValue();
+		final Value parameters = configuration.hasChildren( SOCKET_PARAMETERS )
+			? configuration.getFirstChild( SOCKET_PARAMETERS )
+			: Value.create();
+		final int backlog = intParameter( parameters, "backlog", 0 );
+		final int receiveBufferSize = intParameter( parameters, "receiveBufferSize", 0 );
+		acceptors = Math.max( 1, intParameter( parameters, "acceptors", 1 ) );
+		tcpNoDelay = parameters.hasChildren( "tcpNoDelay" )
+			? parameters.getFirstChild( "tcpNoDelay" ).boolValue()
+			: null;
+		sendBufferSize = intParameter( parameters, "sendBufferSize", 0 );
+
 		try {
-			socket.bind( new InetSocketAddress( inputPort.location().getPort() ) );
+			ServerSocketChannel serverChannel = ServerSocketChannel.open();
+			serverChannels.add( serverChannel );
+			// Without SO_REUSEPORT, the acceptors share the same socket
+			final boolean reusePort = acceptors > 1
+				&& parameters.hasChildren( "reusePort" )
+				&& parameters.getFirstChild( "reusePort" ).boolValue()
+				&& serverChannel.supportedOptions().contains( StandardSocketOptions.SO_REUSEPORT );
+			bind( serverChannel, reusePort, backlog, receiveBufferSize );
+			for( int i = 1; reusePort && i < acceptors; i++ ) {
+				serverChannel = ServerSocketChannel.open();
+				serverChannels.add( serverChannel );
+				bind( serverChannel, true, backlog, receiveBufferSize );
+			}
 		} catch( IOException e ) {
+			shutdown();
 			final IOException exception =
 				new IOException( e.getMessage() + " [with location: " + inputPort.location().toString() + "]" );
 			exception.setStackTrace( e.getStackTrace() );
@@ -63,25 +108,74 @@ public class SocketListener extends CommListener {
 		}
 	}
 
+	private void bind( ServerSocketChannel serverChannel, boolean reusePort, int backlog, int receiveBufferSize )
+		throws IOException {
+		if( reusePort ) {
+			serverChannel.setOption( StandardSocketOptions.SO_REUSEPORT, true );
+		}
+		if( receiveBufferSize > 0 ) {
+			// Set before binding, so that accepted connections can use window scaling
+			serverChannel.setOption( StandardSocketOptions.SO_RCVBUF, receiveBufferSize );
+		}
+		serverChannel.bind( new InetSocketAddress( inputPort().location().getPort() ), backlog );
+	}
+
+	private static int intParameter( Value parameters, String name, int defaultValue ) {
+		return parameters.hasChildren( name ) ? parameters.getFirstChild( name ).intValue() : defaultValue;
+	}
+
 	@Override
 	public void shutdown() {
-		if( serverChannel.isOpen() ) {
-			try {
-				serverChannel.close();
-			} catch( IOException e ) {
+		for( ServerSocketChannel serverChannel : serverChannels ) {
+			if( serverChannel.isOpen() ) {
+				try {
+					serverChannel.close();
+				} catch( IOException e ) {
+				}
 			}
 		}
 	}
 
 	@Override
 	public void run() {
+		for( int i = 1; i < acceptors; i++ ) {
+			final ServerSocketChannel serverChannel = serverChannels.get( i % serverChannels.size() );
+			final String name = "CommListener-" + inputPort().name() + "-" + i;
+			new NativeJolieThread( interpreter(), interpreter().commCore().threadGroup(), name ) {
+				@Override
+				public void run() {
+					accept( serverChannel );
+				}
+			}.start();
+		}
+		accept( serverChannels.get( 0 ) );
+	}
+
+	private void accept( ServerSocketChannel serverChannel ) {
 		try {
 			SocketChannel socketChannel;
 			while( (socketChannel = serverChannel.accept()) != null ) {
-				final CommChannel channel = new SocketCommChannel(
-					socketChannel,
-					inputPort().location(),
-					createProtocol() );
+				final CommChannel channel;
+				try {
+					if( tcpNoDelay != null ) {
+						socketChannel.setOption( StandardSocketOptions.TCP_NODELAY, tcpNoDelay );
+					}
+					if( sendBufferSize > 0 ) {
+						socketChannel.setOption( StandardSocketOptions.SO_SNDBUF, sendBufferSize );
+					}
+					channel = new SocketCommChannel(
+						socketChannel,
+						inputPort().location(),
+						createProtocol() );
+				} catch( IOException e ) {
+					// Only this connection is lost (e.g., reset by the client), keep accepting
+					try {
+						socketChannel.close();
+					} catch( IOException ioe ) {
+					}
+					interpreter().logWarning( e );
+					continue;
+				}
 				channel.setParentInputPort( inputPort() );
 				interpreter().commCore().scheduleReceive( channel, inputPort() );
 			}
@@ -63,4 +63,13 @@ public abstract class StreamingCommChannel extends AbstractCommChannel {
 				}
 			} );
 	}
+
+	@Override
+	protected void closeOnReleaseImpl()
+		throws IOException {
+		close();
+		if( parentPort() instanceof OutputPort ) {
+			((OutputPort) parentPort()).discardPersistentChannel( location, protocol.name(), this );
+		}
+	}
 }
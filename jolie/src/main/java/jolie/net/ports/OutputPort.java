@@ -24,15 +24,19 @@ package jolie.net.ports;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import jolie.Interpreter;
 import jolie.lang.Constants;
 import jolie.net.ChannelCache;
 import jolie.net.CommChannel;
 import jolie.net.CommMessage;
+import jolie.net.Hedging;
+import jolie.net.LoadBalancer;
+import jolie.net.ResponseCache;
 import jolie.net.protocols.CommProtocol;
 import jolie.process.AssignmentProcess;
 import jolie.process.DeepCopyProcess;
@@ -61,6 +65,10 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 	private final boolean isConstant;
 	private final Interface iface;
 	private final ChannelCache channelCache = new ChannelCache();
+	private volatile LoadBalancer loadBalancer = null;
+	private final Hedging hedging = new Hedging();
+	private final ResponseCache responseCache = new ResponseCache();
+	private volatile String responseCacheLocation = null;
 
 	/*
 	 * To be called at runtime, after main is run. Requires the caller to set the variables by itself.
@@ -199,6 +207,20 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 	 */
 	public CommProtocol getProtocol()
 		throws IOException, URISyntaxException {
+		return getProtocol( new URI( locationExpression.evaluate().strValue() ) );
+	}
+
+	/**
+	 * Gets the protocol to be used for communicating with the given location of this output port,
+	 * which may differ from the location of the port when its calls are balanced over several
+	 * locations.
+	 * 
+	 * @param location the location to communicate with
+	 * @return the protocol to be used for communicating with the given location
+	 * @throws java.io.IOException
+	 */
+	public CommProtocol getProtocol( URI location )
+		throws IOException {
 		String protocolId = protocolVariablePath.getValue().strValue();
 		if( protocolId.isEmpty() ) {
 			throw new IOException( "Unspecified protocol for output port " + id() );
@@ -206,11 +228,99 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		return interpreter.commCore().createOutputCommProtocol(
 			protocolId,
 			protocolVariablePath,
-			new URI( locationExpression.evaluate().strValue() ) );
+			location );
+	}
+
+	/*
+	 * Returns the load balancer configured for this output port, or null if calls are to be sent to
+	 * the location of the port. The load balancer is kept as long as its configuration does not change.
+	 */
+	private LoadBalancer loadBalancer( Value protocolValue )
+		throws URISyntaxException {
+		final LoadBalancer current = loadBalancer;
+		if( !protocolValue.hasChildren( LoadBalancer.BALANCER_PARAMETER ) ) {
+			if( current != null ) {
+				loadBalancer = null;
+			}
+			return null;
+		}
+		final LoadBalancer ret = LoadBalancer.fromValue( current,
+			protocolValue.getFirstChild( LoadBalancer.BALANCER_PARAMETER ),
+			location -> channelCache.closeIdleChannels( location, interpreter ) );
+		if( ret != current ) {
+			loadBalancer = ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the load balancer of this output port.
+	 * 
+	 * @return the load balancer of this output port, or <code>null</code> if calls are not balanced
+	 */
+	public LoadBalancer loadBalancer() {
+		return loadBalancer;
+	}
+
+	/**
+	 * Returns the hedging policy of an operation of this output port, starting a hedged call.
+	 * 
+	 * @param operationName the operation being called
+	 * @return the hedging policy of the operation, or <code>null</code> if its calls are not hedged
+	 */
+	public Hedging.Policy startHedgedCall( String operationName ) {
+		final Value protocolValue = protocolVariablePath.getValue();
+		if( !protocolValue.hasChildren( Hedging.HEDGING_PARAMETER ) ) {
+			return null;
+		}
+		return hedging.startCall( operationName, protocolValue.getFirstChild( Hedging.HEDGING_PARAMETER ) );
+	}
+
+	/**
+	 * Returns the hedging state of this output port.
+	 * 
+	 * @return the hedging state of this output port
+	 */
+	public Hedging hedging() {
+		return hedging;
+	}
+
+	/**
+	 * Returns the response cache of an operation of this output port. Cached responses are dropped
+	 * when the location of the port changes.
+	 * 
+	 * @param operationName the operation being called
+	 * @return the response cache of the operation, or <code>null</code> if its responses are not cached
+	 */
+	public ResponseCache.Operation responseCache( String operationName ) {
+		final Value protocolValue = protocolVariablePath.getValue();
+		if( !protocolValue.hasChildren( ResponseCache.CACHE_PARAMETER ) ) {
+			return null;
+		}
+		final Value location = locationExpression.evaluate();
+		if( location.isChannel() ) {
+			return null;
+		}
+		final String locationString = location.strValue();
+		if( !locationString.equals( responseCacheLocation ) ) {
+			if( responseCacheLocation != null ) {
+				responseCache.clear();
+			}
+			responseCacheLocation = locationString;
+		}
+		return responseCache.operation( operationName, protocolValue.getFirstChild( ResponseCache.CACHE_PARAMETER ) );
+	}
 
+	/**
+	 * Returns the response cache of this output port.
+	 * 
+	 * @return the response cache of this output port
+	 */
+	public ResponseCache responseCache() {
+		return responseCache;
 	}
 
-	private CommChannel getCommChannel( boolean forceNew )
+	private CommChannel getCommChannel( boolean forceNew, CommChannel hedged )
 		throws URISyntaxException, IOException {
 		CommChannel ret;
 		Value loc;
@@ -223,16 +333,20 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 				ret = ret.createDuplicate();
 			}
 		} else {
-			URI uri = getLocation( loc );
-			if( forceNew ) {
-				// A fresh channel was requested
-				ret = interpreter.commCore().createCommChannel( uri, this );
+			final Value protocolValue = protocolVariablePath.getValue();
+			final LoadBalancer balancer = loadBalancer( protocolValue );
+			if( balancer != null ) {
+				ret = getBalancedCommChannel( balancer, protocolValue, forceNew, hedged );
 			} else {
-				// Try reusing an existing channel first
-				String protocol = protocolVariablePath.getValue().strValue();
-				ret = channelCache.getPersistentChannel( uri, protocol );
-				if( ret == null ) {
+				URI uri = getLocation( loc );
+				if( forceNew ) {
+					// A fresh channel was requested
 					ret = interpreter.commCore().createCommChannel( uri, this );
+				} else {
+					// Try reusing an existing channel first
+					ret = channelCache.getPersistentChannel( uri, protocolValue.strValue(),
+						poolSettings( protocolValue ), () -> interpreter.commCore().createCommChannel( uri, this ),
+						interpreter );
 				}
 			}
 		}
@@ -241,8 +355,73 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		return ret;
 	}
 
+	private static ChannelCache.PoolSettings poolSettings( Value protocolValue ) {
+		return protocolValue.hasChildren( ChannelCache.PoolSettings.POOL_PARAMETER )
+			? ChannelCache.PoolSettings
+				.fromValue( protocolValue.getFirstChild( ChannelCache.PoolSettings.POOL_PARAMETER ) )
+			: ChannelCache.PoolSettings.DEFAULT;
+	}
+
+	/*
+	 * Returns a channel to the location chosen by the load balancer. If the location cannot be reached,
+	 * the other locations are tried in turn. The copy of a hedged call goes to a location that is not
+	 * serving the original call, if there is one.
+	 */
+	private CommChannel getBalancedCommChannel( LoadBalancer balancer, Value protocolValue, boolean forceNew,
+		CommChannel hedged )
+		throws IOException {
+		final List< LoadBalancer.Endpoint > tried = new ArrayList<>( 2 );
+		final LoadBalancer.Endpoint hedgedEndpoint = hedged == null ? null : hedged.balancedEndpoint();
+		if( hedgedEndpoint != null && balancer.size() > 1 ) {
+			tried.add( hedgedEndpoint );
+		}
+		IOException failure = null;
+		LoadBalancer.Endpoint endpoint;
+		while( (endpoint = balancer.select( tried )) != null ) {
+			tried.add( endpoint );
+			final URI uri = endpoint.location();
+			try {
+				if( forceNew ) {
+					// Not tracked, the channel may well be released by another thread
+					return interpreter.commCore().createCommChannel( uri, this );
+				}
+				final CommChannel ret = channelCache.getPersistentChannel( uri, protocolValue.strValue(),
+					poolSettings( protocolValue ), () -> interpreter.commCore().createCommChannel( uri, this ),
+					interpreter );
+				ret.addBalancedCall( balancer.callStarted( endpoint ) );
+				return ret;
+			} catch( IOException e ) {
+				balancer.connectionFailed( endpoint );
+				failure = e;
+			}
+		}
+		throw failure;
+	}
+
 	public void putPersistentChannel( URI location, String protocol, CommChannel channel ) {
+		// Taken before the channel can be leased again
+		final LoadBalancer.Call call = channel.pollBalancedCall();
 		channelCache.putPersistentChannel( location, protocol, channel, interpreter );
+		if( call != null ) {
+			call.loadBalancer().callEnded( call, channel.hasFailed() );
+		}
+	}
+
+	public void discardPersistentChannel( URI location, String protocol, CommChannel channel ) {
+		final LoadBalancer.Call call = channel.pollBalancedCall();
+		channelCache.discardPersistentChannel( location, protocol, channel );
+		if( call != null ) {
+			call.loadBalancer().callEnded( call, channel.hasFailed() );
+		}
+	}
+
+	/**
+	 * Returns the cache of persistent channels of this output port.
+	 * 
+	 * @return the cache of persistent channels of this output port
+	 */
+	public ChannelCache channelCache() {
+		return channelCache;
 	}
 
 	private static class LazyLocalUriHolder {
@@ -251,7 +430,9 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		private static final URI LOCAL_URI = URI.create( "local" );
 	}
 
-	private static final Map< String, URI > URI_CACHE = new WeakHashMap<>();
+	// Locations computed at runtime could make the cache grow without bound, so it is cleared when full
+	private static final int URI_CACHE_SIZE = 1024;
+	private static final Map< String, URI > URI_CACHE = new ConcurrentHashMap<>();
 
 	/**
 	 * Returns the resource path of the location of this output port.
@@ -267,6 +448,10 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 		if( location.isChannel() ) {
 			return "/";
 		}
+		final LoadBalancer balancer = loadBalancer( protocolVariablePath.getValue() );
+		if( balancer != null ) {
+			return LocationParser.getResourcePath( balancer.firstLocation() );
+		}
 		return LocationParser.getResourcePath( getLocation( location ) );
 	}
 
@@ -276,12 +461,13 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 			return LazyLocalUriHolder.LOCAL_URI;
 		}
 		String s = location.strValue();
-		URI ret;
-		synchronized( URI_CACHE ) {
-			if( (ret = URI_CACHE.get( s )) == null ) {
-				ret = new URI( s );
-				URI_CACHE.put( s, ret );
+		URI ret = URI_CACHE.get( s );
+		if( ret == null ) {
+			ret = new URI( s );
+			if( URI_CACHE.size() >= URI_CACHE_SIZE ) {
+				URI_CACHE.clear();
 			}
+			URI_CACHE.put( s, ret );
 		}
 		return ret;
 	}
@@ -295,7 +481,7 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 	 */
 	public final CommChannel getNewCommChannel()
 		throws URISyntaxException, IOException {
-		return getCommChannel( true );
+		return getCommChannel( true, null );
 	}
 
 	/**
@@ -307,7 +493,22 @@ public class OutputPort extends AbstractIdentifiableObject implements Port {
 	 */
 	public final CommChannel getCommChannel()
 		throws URISyntaxException, IOException {
-		return getCommChannel( false );
+		return getCommChannel( false, null );
+	}
+
+	/**
+	 * Returns a CommChannel for sending the copy of a hedged call. If the calls of this OutputPort are
+	 * balanced, the channel goes to another location than the one serving the original call, if
+	 * possible.
+	 * 
+	 * @param hedged the channel of the original call
+	 * @return a CommChannel for this OutputPort
+	 * @throws java.net.URISyntaxException
+	 * @throws java.io.IOException
+	 */
+	public final CommChannel getHedgeCommChannel( CommChannel hedged )
+		throws URISyntaxException, IOException {
+		return getCommChannel( false, hedged );
 	}
 
 	/**
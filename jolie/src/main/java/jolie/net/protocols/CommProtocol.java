@@ -25,10 +25,16 @@ package jolie.net.protocols;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.function.Function;
 
+import jolie.ExecutionThread;
+import jolie.Interpreter;
 import jolie.net.AbstractCommChannel;
 import jolie.net.CommChannel;
 import jolie.net.CommMessage;
+import jolie.net.protocols.ConfigurationSnapshot.Parameter;
+import jolie.runtime.ClosedVariablePath;
+import jolie.runtime.GlobalVariablePath;
 import jolie.runtime.Value;
 import jolie.runtime.ValueVector;
 import jolie.runtime.VariablePath;
@@ -63,6 +69,8 @@ public abstract class CommProtocol {
 
 
 	private final VariablePath configurationPath;
+	// Whether the configuration is in the state of each session, as for output ports
+	private final boolean isSessionConfiguration;
 	private CommChannel channel = null;
 
 	protected VariablePath configurationPath() {
@@ -73,6 +81,8 @@ public abstract class CommProtocol {
 
 	public CommProtocol( VariablePath configurationPath ) {
 		this.configurationPath = configurationPath;
+		this.isSessionConfiguration = !(configurationPath instanceof GlobalVariablePath)
+			&& !(configurationPath instanceof ClosedVariablePath);
 	}
 
 	public void setChannel( CommChannel channel ) {
@@ -86,11 +96,68 @@ public abstract class CommProtocol {
 		return this.channel;
 	}
 
+	/**
+	 * Returns the object computed by the builder from the configuration of this protocol. The object is
+	 * shared by all the protocol instances of the port, and computed again only when the configuration
+	 * is written, for example by dynamic binding. The builder must not read the parameters that are
+	 * aliases (see {@link #isAlias(Value, String)}), as their content can change at any time.
+	 *
+	 * @param type the type of the object, which identifies it among the others computed from the same
+	 *        configuration
+	 * @param builder computes the object from the configuration value
+	 */
+	protected final < T > T configuration( Class< T > type, Function< Value, T > builder ) {
+		if( isSessionConfiguration ) {
+			return configurationPath.getValue().snapshot( type, configuration -> {
+				/*
+				 * Sessions start with a copy of the state of the init thread, which carries along the
+				 * snapshots of its configuration: compute them there too, for the next sessions.
+				 */
+				final Interpreter interpreter = Interpreter.getInstance();
+				if( interpreter != null && ExecutionThread.currentThread() != interpreter.initThread() ) {
+					// Do not create the configuration there if missing, this is not the init thread
+					final Value initConfiguration =
+						configurationPath.getValueOrNull( interpreter.initThread().state().root() );
+					if( initConfiguration != null ) {
+						initConfiguration.snapshot( type, builder );
+					}
+				}
+				return builder.apply( configuration );
+			} );
+		}
+		return configurationPath.getValue().snapshot( type, builder );
+	}
+
+	/**
+	 * Returns <code>true</code> if the given child of a configuration value is an alias, or its first
+	 * value is.
+	 */
+	protected static boolean isAlias( Value value, String childId ) {
+		if( value.hasChildren( childId ) ) {
+			final ValueVector vector = value.getChildren( childId );
+			return vector.isLink() || (!vector.isEmpty() && vector.first().isLink());
+		}
+		return false;
+	}
+
+	private Parameter parameter( String id ) {
+		return configuration( ConfigurationSnapshot.class, ConfigurationSnapshot::new ).parameter( id );
+	}
+
+	private Parameter operationParameter( String operationName, String id ) {
+		return configuration( ConfigurationSnapshot.class, ConfigurationSnapshot::new )
+			.operationParameter( operationName, id );
+	}
+
 	protected ValueVector getParameterVector( String id ) {
 		return configurationPath.getValue().getChildren( id );
 	}
 
 	protected boolean hasParameter( String id ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isSet();
+		}
 		if( configurationPath.getValue().hasChildren( id ) ) {
 			Value v = configurationPath.getValue().getFirstChild( id );
 			return v.isDefined() || v.hasChildren();
@@ -99,6 +166,10 @@ public abstract class CommProtocol {
 	}
 
 	protected boolean hasParameterValue( String id ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isDefined();
+		}
 		if( configurationPath.getValue().hasChildren( id ) ) {
 			Value v = configurationPath.getValue().getFirstChild( id );
 			return v.isDefined();
@@ -119,6 +190,10 @@ public abstract class CommProtocol {
 	 * @param id the parameter identifier
 	 */
 	protected boolean checkBooleanParameter( String id ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isSet() && parameter.boolValue();
+		}
 		return hasParameter( id ) && getParameterFirstValue( id ).boolValue();
 	}
 
@@ -128,6 +203,10 @@ public abstract class CommProtocol {
 	 * @param id the parameter identifier
 	 */
 	protected boolean checkBooleanParameter( String id, boolean defaultValue ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isSet() ? parameter.boolValue() : defaultValue;
+		}
 		if( hasParameter( id ) ) {
 			return getParameterFirstValue( id ).boolValue();
 		} else {
@@ -143,6 +222,10 @@ public abstract class CommProtocol {
 	 * @return {@code true} if the parameter has the expected value, {@code false} otherwise
 	 */
 	protected boolean checkStringParameter( String id, String value ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isSet() && parameter.strValue().equals( value );
+		}
 		if( hasParameter( id ) ) {
 			return getParameterFirstValue( id ).strValue().equals( value );
 		} else {
@@ -160,10 +243,18 @@ public abstract class CommProtocol {
 	}
 
 	protected String getStringParameter( String id, String defaultValue ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isSet() ? parameter.strValue() : defaultValue;
+		}
 		return (hasParameter( id ) ? getParameterFirstValue( id ).strValue() : defaultValue);
 	}
 
 	protected boolean hasOperationSpecificParameter( String operationName, String parameterName ) {
+		final Parameter parameter = operationParameter( operationName, parameterName );
+		if( parameter != null ) {
+			return parameter.isDeclared();
+		}
 		if( hasParameter( Parameters.OPERATION_SPECIFIC_CONFIGURATION ) ) {
 			Value osc = getParameterFirstValue( Parameters.OPERATION_SPECIFIC_CONFIGURATION );
 			if( osc.hasChildren( operationName ) ) {
@@ -174,6 +265,10 @@ public abstract class CommProtocol {
 	}
 
 	protected String getOperationSpecificStringParameter( String operationName, String parameterName ) {
+		final Parameter parameter = operationParameter( operationName, parameterName );
+		if( parameter != null ) {
+			return parameter.strValue();
+		}
 		if( hasParameter( Parameters.OPERATION_SPECIFIC_CONFIGURATION ) ) {
 			Value osc = getParameterFirstValue( Parameters.OPERATION_SPECIFIC_CONFIGURATION );
 			if( osc.hasChildren( operationName ) ) {
@@ -187,6 +282,10 @@ public abstract class CommProtocol {
 	}
 
 	protected boolean getOperationSpecificBooleanParameter( String operationName, String parameterName ) {
+		final Parameter parameter = operationParameter( operationName, parameterName );
+		if( parameter != null ) {
+			return parameter.boolValue();
+		}
 		if( hasParameter( Parameters.OPERATION_SPECIFIC_CONFIGURATION ) ) {
 			Value osc = getParameterFirstValue( Parameters.OPERATION_SPECIFIC_CONFIGURATION );
 			if( osc.hasChildren( operationName ) ) {
@@ -217,6 +316,10 @@ public abstract class CommProtocol {
 	 * @param id the parameter identifier
 	 */
 	protected int getIntParameter( String id ) {
+		final Parameter parameter = parameter( id );
+		if( parameter != null ) {
+			return parameter.isSet() ? parameter.intValue() : 0;
+		}
 		return (hasParameter( id ) ? getParameterFirstValue( id ).intValue() : 0);
 	}
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.net.protocols;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import jolie.runtime.Value;
+import jolie.runtime.ValueVector;
+
+/**
+ * The parameters of a protocol configuration and of its operation specific configurations, read once
+ * from the configuration tree. Parameters that are aliases are mapped to <code>null</code>, since
+ * their content can change without the configuration being written: they must be read from the tree
+ * every time.
+ */
+final class ConfigurationSnapshot {
+	static final class Parameter {
+		private static final Parameter UNDECLARED = new Parameter();
+
+		// Whether the parameter is a child of the configuration, even if undefined
+		private final boolean isDeclared;
+		private final boolean isDefined;
+		private final boolean hasChildren;
+		private final String strValue;
+		private final boolean boolValue;
+		private final int intValue;
+
+		private Parameter() {
+			isDeclared = false;
+			isDefined = false;
+			hasChildren = false;
+			strValue = "";
+			boolValue = false;
+			intValue = 0;
+		}
+
+		private Parameter( ValueVector vector ) {
+			isDeclared = true;
+			if( vector.isEmpty() ) {
+				isDefined = false;
+				hasChildren = false;
+				strValue = "";
+				boolValue = false;
+				intValue = 0;
+			} else {
+				final Value value = vector.first();
+				isDefined = value.isDefined();
+				hasChildren = value.hasChildren();
+				strValue = value.strValue();
+				boolValue = value.boolValue();
+				intValue = value.intValue();
+			}
+		}
+
+		boolean isDeclared() {
+			return isDeclared;
+		}
+
+		boolean isDefined() {
+			return isDefined;
+		}
+
+		/**
+		 * Returns whether the parameter is defined or has children, which is what makes a parameter
+		 * set.
+		 */
+		boolean isSet() {
+			return isDefined || hasChildren;
+		}
+
+		String strValue() {
+			return strValue;
+		}
+
+		boolean boolValue() {
+			return boolValue;
+		}
+
+		int intValue() {
+			return intValue;
+		}
+	}
+
+	private final Map< String, Parameter > parameters = new HashMap<>();
+	// Null if the operation specific configuration is an alias
+	private final Map< String, Map< String, Parameter > > operations;
+
+	private static < T > T get( Map< String, T > map, String id, T undeclared ) {
+		final T ret = map.get( id );
+		return ret == null && !map.containsKey( id ) ? undeclared : ret;
+	}
+
+	ConfigurationSnapshot( Value configuration ) {
+		read( configuration, parameters );
+		if( CommProtocol.isAlias( configuration, CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION ) ) {
+			operations = null;
+		} else {
+			operations = new HashMap<>();
+			if( configuration.hasChildren( CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION ) ) {
+				final ValueVector osc =
+					configuration.getChildren( CommProtocol.Parameters.OPERATION_SPECIFIC_CONFIGURATION );
+				if( !osc.isEmpty() ) {
+					for( Entry< String, ValueVector > entry : osc.first().children().entrySet() ) {
+						if( CommProtocol.isAlias( osc.first(), entry.getKey() ) ) {
+							operations.put( entry.getKey(), null );
+						} else if( !entry.getValue().isEmpty() ) {
+							final Map< String, Parameter > operationParameters = new HashMap<>();
+							read( entry.getValue().first(), operationParameters );
+							operations.put( entry.getKey(), operationParameters );
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void read( Value configuration, Map< String, Parameter > parameters ) {
+		for( Entry< String, ValueVector > entry : configuration.children().entrySet() ) {
+			parameters.put( entry.getKey(),
+				CommProtocol.isAlias( configuration, entry.getKey() ) ? null : new Parameter( entry.getValue() ) );
+		}
+	}
+
+	/**
+	 * Returns the parameter with the given name, or <code>null</code> if it is an alias.
+	 */
+	Parameter parameter( String id ) {
+		return get( parameters, id, Parameter.UNDECLARED );
+	}
+
+	/**
+	 * Returns the operation specific parameter with the given name, or <code>null</code> if it or the
+	 * configuration of its operation is an alias.
+	 */
+	Parameter operationParameter( String operationName, String id ) {
+		if( operations == null ) {
+			return null;
+		}
+		final Map< String, Parameter > operationParameters = get( operations, operationName, Map.of() );
+		return operationParameters == null ? null : get( operationParameters, id, Parameter.UNDECLARED );
+	}
+}
@@ -126,8 +126,14 @@ public class NotificationProcess implements Process {
 			do {
 				try {
 					response = channel.recvResponseFor( message ).get();
-				} catch( InterruptedException | ExecutionException e ) {
-					Interpreter.getInstance().logFine( e );
+				} catch( InterruptedException e ) {
+					throw new IOException( e );
+				} catch( ExecutionException e ) {
+					if( e.getCause() instanceof IOException ) {
+						throw (IOException) e.getCause();
+					} else {
+						throw new IOException( e.getCause() );
+					}
 				}
 			} while( response == null );
 
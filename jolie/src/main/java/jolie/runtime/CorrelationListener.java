@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+/**
+ * Listens to the changes of the values and vectors along a correlation path. See
+ * {@link Value#trackCorrelationPath(VariablePath, Value, CorrelationListener)}.
+ */
+public interface CorrelationListener {
+	/**
+	 * Invoked when a tracked value or vector changes. It may be invoked while the changing thread holds
+	 * locks on the value tree, so it should not access the tree.
+	 */
+	void correlationChanged();
+
+	/**
+	 * Returns whether this listener is still interested in changes. Inactive listeners are detached
+	 * when other listeners are attached to the same values.
+	 */
+	boolean isActive();
+}
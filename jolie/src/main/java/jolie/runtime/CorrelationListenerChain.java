@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The correlation listeners tracking the same value, vector or children map.
+ */
+final class CorrelationListenerChain implements CorrelationListener {
+	private final CorrelationListener[] listeners;
+
+	private CorrelationListenerChain( CorrelationListener[] listeners ) {
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Returns the listeners to install in place of the current ones, with the given listener added and
+	 * the inactive listeners removed.
+	 */
+	static CorrelationListener add( CorrelationListener current, CorrelationListener listener ) {
+		if( current == null || current == listener || !current.isActive() ) {
+			return listener;
+		}
+		final List< CorrelationListener > ret = new ArrayList<>();
+		if( current instanceof CorrelationListenerChain ) {
+			for( CorrelationListener l : ((CorrelationListenerChain) current).listeners ) {
+				if( l == listener ) {
+					return current;
+				} else if( l.isActive() ) {
+					ret.add( l );
+				}
+			}
+		} else {
+			ret.add( current );
+		}
+		ret.add( listener );
+		return new CorrelationListenerChain( ret.toArray( new CorrelationListener[ 0 ] ) );
+	}
+
+	@Override
+	public void correlationChanged() {
+		for( CorrelationListener listener : listeners ) {
+			listener.correlationChanged();
+		}
+	}
+
+	@Override
+	public boolean isActive() {
+		for( CorrelationListener listener : listeners ) {
+			if( listener.isActive() ) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -21,14 +21,16 @@
 
 package jolie.runtime;
 
-import java.lang.ref.WeakReference;
-
 /**
+ * A task to be run when a timeout expires, unless it is cancelled before.
+ *
  * @author Fabrizio Montesi
+ * @see jolie.Interpreter#addTimeoutHandler(TimeoutHandler)
  */
 public abstract class TimeoutHandler implements Runnable {
 	private final long time;
 	private volatile boolean cancelled = false;
+	private volatile TimingWheel.Entry entry = null;
 
 	public TimeoutHandler( long timeout ) {
 		this.time = System.currentTimeMillis() + timeout;
@@ -38,8 +40,24 @@ public abstract class TimeoutHandler implements Runnable {
 		return time;
 	}
 
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	void setEntry( TimingWheel.Entry entry ) {
+		this.entry = entry;
+	}
+
+	/**
+	 * Cancels this handler, removing it from the timing wheel it is scheduled in.
+	 */
 	public void cancel() {
 		cancelled = true;
+		final TimingWheel.Entry e = entry;
+		if( e != null ) {
+			entry = null;
+			e.remove();
+		}
 	}
 
 	public void run() {
@@ -49,30 +67,4 @@ public abstract class TimeoutHandler implements Runnable {
 	}
 
 	protected abstract void onTimeout();
-
-	/**
-	 * Note: this comparator imposes orderings that are inconsistent with equals.
-	 */
-	public static class Comparator implements java.util.Comparator< WeakReference< TimeoutHandler > > {
-		@Override
-		public int compare( WeakReference< TimeoutHandler > wt1, WeakReference< TimeoutHandler > wt2 ) {
-			TimeoutHandler t1 = (wt1 != null) ? wt1.get() : null;
-			TimeoutHandler t2 = (wt2 != null) ? wt2.get() : null;
-			if( t1 == null ) {
-				return -1;
-			} else if( t2 == null ) {
-				return 1;
-			}
-
-			// Both are not null after this
-
-			if( t1.time < t2.time ) {
-				return -1;
-			} else if( t1.time == t2.time ) {
-				return 0;
-			} else {
-				return 1;
-			}
-		}
-	}
 }
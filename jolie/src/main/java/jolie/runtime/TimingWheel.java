@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+package jolie.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel for {@link TimeoutHandler}s. Time is divided in ticks of a fixed length,
+ * and each handler is put in the slot of the tick of its deadline, modulo the number of slots.
+ * Scheduling and cancelling take constant time and only lock the slot involved. A worker thread
+ * visits one slot per tick, and hands the handlers whose deadline has passed to an executor.
+ *
+ * Like the priority queue it replaces, the wheel refers to handlers weakly: handlers that are no
+ * longer referenced by anything else are dropped without running.
+ */
+public final class TimingWheel {
+	private static final int SLOTS = 512;
+	private static final int MASK = SLOTS - 1;
+
+	private final Slot[] slots = new Slot[ SLOTS ];
+	private final long tickNanos;
+	private final long startNanos = System.nanoTime();
+	private final Executor executor;
+	private final String threadName;
+	private final LongAdder pending = new LongAdder();
+	// The last tick whose slot has been visited. Only updated by the worker, while it holds the
+	// monitor of that slot, so that handlers for a tick are never put in a slot visited already.
+	private volatile long visitedTick = 0;
+	private volatile boolean stopped = false;
+	// Whether the worker is waiting for something to be scheduled, or has not been started yet
+	private volatile boolean parked = true;
+	private Thread worker = null;
+
+	private static class Slot {
+		private Entry head = null;
+	}
+
+	/**
+	 * The position of a handler in the wheel.
+	 */
+	static class Entry extends WeakReference< TimeoutHandler > {
+		private final long deadlineTick;
+		private Slot slot; // null once removed, guarded by the monitor of slot
+		private Entry prev = null;
+		private Entry next = null;
+		private final TimingWheel wheel;
+
+		private Entry( TimeoutHandler handler, long deadlineTick, TimingWheel wheel ) {
+			super( handler );
+			this.deadlineTick = deadlineTick;
+			this.wheel = wheel;
+		}
+
+		/**
+		 * Removes this entry from its wheel, if it has not been removed already.
+		 */
+		void remove() {
+			final Slot s = slot;
+			if( s != null ) {
+				synchronized( s ) {
+					if( slot == s ) {
+						wheel.unlink( this );
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param tick the length of a tick, in milliseconds: handlers run at most this much after their
+	 *        deadline
+	 * @param executor the executor running the handlers that time out
+	 * @param threadName the name of the worker thread
+	 */
+	public TimingWheel( long tick, Executor executor, String threadName ) {
+		if( tick <= 0 ) {
+			throw new IllegalArgumentException( "The tick of a timing wheel must be positive" );
+		}
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos( tick );
+		this.executor = executor;
+		this.threadName = threadName;
+		for( int i = 0; i < SLOTS; i++ ) {
+			slots[ i ] = new Slot();
+		}
+	}
+
+	/**
+	 * Returns the number of handlers in the wheel.
+	 */
+	public long pending() {
+		return pending.sum();
+	}
+
+	/**
+	 * Schedules the given handler to run at its {@link TimeoutHandler#time()}, unless it is cancelled
+	 * before.
+	 */
+	public void schedule( TimeoutHandler handler ) {
+		final long delay = TimeUnit.MILLISECONDS.toNanos( handler.time() - System.currentTimeMillis() );
+		final long elapsed = System.nanoTime() - startNanos + Math.max( delay, 0 );
+		final long tick = (elapsed + tickNanos - 1) / tickNanos;
+		long deadlineTick = Math.max( tick, visitedTick + 1 );
+		Entry entry = null;
+		while( entry == null ) {
+			final Slot slot = slots[ (int) (deadlineTick & MASK) ];
+			synchronized( slot ) {
+				if( deadlineTick > visitedTick ) {
+					pending.increment();
+					entry = new Entry( handler, deadlineTick, this );
+					entry.slot = slot;
+					entry.next = slot.head;
+					if( slot.head != null ) {
+						slot.head.prev = entry;
+					}
+					slot.head = entry;
+				}
+			}
+			// Otherwise the worker visited the slot in the meantime
+			deadlineTick = visitedTick + 1;
+		}
+		handler.setEntry( entry );
+		if( handler.isCancelled() ) {
+			// Cancelled while being scheduled
+			entry.remove();
+		} else if( parked ) {
+			wakeUpWorker();
+		}
+	}
+
+	// Must be called while holding the monitor of entry.slot
+	private void unlink( Entry entry ) {
+		final Slot slot = entry.slot;
+		if( entry.prev == null ) {
+			slot.head = entry.next;
+		} else {
+			entry.prev.next = entry.next;
+		}
+		if( entry.next != null ) {
+			entry.next.prev = entry.prev;
+		}
+		entry.slot = null;
+		entry.prev = null;
+		entry.next = null;
+		pending.decrement();
+	}
+
+	private synchronized void wakeUpWorker() {
+		if( stopped ) {
+			return;
+		}
+		if( worker == null ) {
+			worker = new Thread( this::run, threadName );
+			worker.setDaemon( true );
+			worker.start();
+		} else {
+			LockSupport.unpark( worker );
+		}
+	}
+
+	private long currentTick() {
+		return (System.nanoTime() - startNanos) / tickNanos;
+	}
+
+	private void run() {
+		final List< TimeoutHandler > expired = new ArrayList<>();
+		parked = false;
+		while( !stopped ) {
+			final long now = currentTick();
+			// After a long sleep, visiting every slot once is enough
+			for( long tick = Math.max( visitedTick + 1, now - MASK ); tick <= now; tick++ ) {
+				visit( tick, expired );
+			}
+			expired.forEach( executor::execute );
+			expired.clear();
+
+			if( pending.sum() == 0 ) {
+				// Nothing to wait for, until something is scheduled
+				parked = true;
+				if( pending.sum() == 0 ) {
+					LockSupport.park( this );
+				}
+				parked = false;
+			} else {
+				final long next = startNanos + (visitedTick + 1) * tickNanos;
+				LockSupport.parkNanos( this, next - System.nanoTime() );
+			}
+		}
+	}
+
+	private void visit( long tick, List< TimeoutHandler > expired ) {
+		final Slot slot = slots[ (int) (tick & MASK) ];
+		synchronized( slot ) {
+			Entry entry = slot.head;
+			while( entry != null ) {
+				final Entry next = entry.next;
+				final TimeoutHandler handler = entry.get();
+				if( handler == null ) {
+					unlink( entry );
+				} else if( entry.deadlineTick <= tick ) {
+					unlink( entry );
+					expired.add( handler );
+				}
+				entry = next;
+			}
+			visitedTick = tick;
+		}
+	}
+
+	/**
+	 * Stops the worker thread, and hands all the handlers still in the wheel to the executor.
+	 */
+	public void stop() {
+		synchronized( this ) {
+			stopped = true;
+			if( worker != null ) {
+				LockSupport.unpark( worker );
+			}
+		}
+		final List< TimeoutHandler > expired = new ArrayList<>();
+		for( Slot slot : slots ) {
+			synchronized( slot ) {
+				while( slot.head != null ) {
+					final TimeoutHandler handler = slot.head.get();
+					unlink( slot.head );
+					if( handler != null ) {
+						expired.add( handler );
+					}
+				}
+			}
+		}
+		expired.forEach( executor::execute );
+	}
+}
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 import jolie.lang.Constants;
@@ -39,6 +40,7 @@ import jolie.net.CommChannel;
 import jolie.process.TransformationReason;
 import jolie.runtime.expression.Expression;
 import jolie.runtime.typing.TypeCastingException;
+import jolie.util.Pair;
 
 class ValueLink extends Value {
 	private final VariablePath linkPath;
@@ -129,21 +131,30 @@ class ValueImpl extends Value implements Serializable {
 
 	private volatile Object valueObject = null;
 	private final AtomicReference< Map< String, ValueVector > > children = new AtomicReference<>();
+	transient volatile ValueSnapshots snapshots = null;
+	private transient volatile CorrelationListener correlationListener = null;
 
 	@Override
 	public void setValueObject( Object object ) {
 		valueObject = object;
+		contentChanged();
 	}
 
 	@Override
 	public ValueVector getChildren( String childId ) {
-		return children().computeIfAbsent( childId, k -> ValueVector.create() );
+		return children().computeIfAbsent( childId, k -> {
+			// A new empty vector does not change the content, but later writes to it do
+			final ValueVector vector = ValueVector.create();
+			vector.setSnapshots( snapshots );
+			return vector;
+		} );
 	}
 
 	@Override
 	public ValueImpl clone() {
 		ValueImpl ret = new ValueImpl();
 		ret._deepCopy( this, true );
+		ValueSnapshots.copy( this, ret );
 		return ret;
 	}
 
@@ -151,6 +162,61 @@ class ValueImpl extends Value implements Serializable {
 	protected void _refCopy( Value value ) {
 		setValueObject( value.valueObject() );
 		this.children.set( value.children() );
+		contentChanged();
+	}
+
+	@Override
+	public < T > T snapshot( Object key, Function< ? super Value, ? extends T > builder ) {
+		ValueSnapshots s = snapshots;
+		if( s == null || !s.isValidFor( this ) ) {
+			s = ValueSnapshots.watch( this );
+		}
+		return s.get( key, builder );
+	}
+
+	@Override
+	void contentChanged() {
+		final ValueSnapshots s = snapshots;
+		if( s != null ) {
+			s.invalidate();
+		}
+		correlationChanged();
+	}
+
+	@Override
+	void correlationChanged() {
+		final CorrelationListener listener = correlationListener;
+		if( listener != null ) {
+			listener.correlationChanged();
+		}
+	}
+
+	@Override
+	synchronized void addCorrelationListener( CorrelationListener listener ) {
+		correlationListener = CorrelationListenerChain.add( correlationListener, listener );
+		final Map< String, ValueVector > c = children.get();
+		if( c != null ) {
+			((ValueChildren) c).addCorrelationListener( listener );
+		}
+	}
+
+	@Override
+	ValueSnapshots snapshots() {
+		return snapshots;
+	}
+
+	@Override
+	void setSnapshots( ValueSnapshots snapshots ) {
+		this.snapshots = ValueSnapshots.replace( this.snapshots, snapshots );
+		final Map< String, ValueVector > c = children.get();
+		if( c != null ) {
+			((ValueChildren) c).setSnapshots( snapshots );
+		}
+	}
+
+	@Override
+	Map< String, ValueVector > childrenOrNull() {
+		return children.get();
 	}
 
 	@Override
@@ -162,6 +228,7 @@ class ValueImpl extends Value implements Serializable {
 	public void erase() {
 		valueObject = null;
 		children.set( null );
+		contentChanged();
 	}
 
 	protected ValueImpl() {}
@@ -188,6 +255,7 @@ class ValueImpl extends Value implements Serializable {
 		/**
 		 * TODO: check if a << b | b << a can generate deadlocks
 		 */
+		contentChanged();
 		assignValue( value );
 
 		if( value.hasChildren() ) {
@@ -207,6 +275,9 @@ class ValueImpl extends Value implements Serializable {
 						} else {
 							newValue = (v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl());
 							newValue._deepCopy( v, copyLinks );
+							if( copyLinks ) {
+								ValueSnapshots.copy( v, newValue );
+							}
 							vec.set( i, newValue );
 						}
 						i++;
@@ -220,14 +291,20 @@ class ValueImpl extends Value implements Serializable {
 		return children.computeIfAbsent( childId, k -> ValueVector.create() );
 	}
 
-	private final static int INITIAL_CAPACITY = 8;
-	private final static float LOAD_FACTOR = 0.75f;
-
 	@Override
 	public Map< String, ValueVector > children() {
-		// Create the map if not present
-		children.getAndUpdate( v -> v == null ? new ConcurrentHashMap<>( INITIAL_CAPACITY, LOAD_FACTOR ) : v );
-		return children.get();
+		Map< String, ValueVector > ret = children.get();
+		if( ret == null ) {
+			// Create the map if not present, the listeners of this value also listen to its children
+			children.compareAndSet( null, new ValueChildren() );
+			ret = children.get();
+			((ValueChildren) ret).setSnapshots( snapshots );
+			final CorrelationListener listener = correlationListener;
+			if( listener != null ) {
+				((ValueChildren) ret).addCorrelationListener( listener );
+			}
+		}
+		return ret;
 	}
 
 	@Override
@@ -252,11 +329,7 @@ class ValueImpl extends Value implements Serializable {
 
 /** TODO: remove code duplication from ValueImpl */
 class RootValueImpl extends Value {
-	private final static int INITIAL_CAPACITY = 8;
-	private final static float LOAD_FACTOR = 0.75f;
-
-	private final Map< String, ValueVector > children =
-		new ConcurrentHashMap<>( INITIAL_CAPACITY, LOAD_FACTOR );
+	private final ValueChildren children = new ValueChildren();
 
 	@Override
 	public RootValueImpl clone() {
@@ -296,6 +369,16 @@ class RootValueImpl extends Value {
 		return children;
 	}
 
+	@Override
+	Map< String, ValueVector > childrenOrNull() {
+		return children;
+	}
+
+	@Override
+	void addCorrelationListener( CorrelationListener listener ) {
+		children.addCorrelationListener( listener );
+	}
+
 	@Override
 	public boolean hasChildren() {
 		return children.isEmpty() == false;
@@ -324,6 +407,9 @@ class RootValueImpl extends Value {
 						} else {
 							newValue = (v.isUsedInCorrelation() ? new CSetValue() : new ValueImpl());
 							newValue._deepCopy( v, copyLinks );
+							if( copyLinks ) {
+								ValueSnapshots.copy( v, newValue );
+							}
 							vec.set( i, newValue );
 						}
 						i++;
@@ -349,6 +435,158 @@ class RootValueImpl extends Value {
 }
 
 
+/**
+ * The children of a value. Adding, removing or replacing children notifies the correlation listeners
+ * of the map, so that changes are seen by all the values sharing it.
+ */
+class ValueChildren extends ConcurrentHashMap< String, ValueVector > {
+	private static final long serialVersionUID = Constants.serialVersionUID();
+
+	private final static int INITIAL_CAPACITY = 8;
+	private final static float LOAD_FACTOR = 0.75f;
+
+	private transient volatile CorrelationListener correlationListener = null;
+	private transient volatile ValueSnapshots snapshots = null;
+
+	ValueChildren() {
+		super( INITIAL_CAPACITY, LOAD_FACTOR );
+	}
+
+	synchronized void addCorrelationListener( CorrelationListener listener ) {
+		correlationListener = CorrelationListenerChain.add( correlationListener, listener );
+	}
+
+	void setSnapshots( ValueSnapshots snapshots ) {
+		this.snapshots = ValueSnapshots.replace( this.snapshots, snapshots );
+	}
+
+	/*
+	 * Invoked by every write to the map, so that also the children written without going through the
+	 * value (e.g., by children().put) invalidate its snapshots.
+	 */
+	private void changed() {
+		final ValueSnapshots s = snapshots;
+		if( s != null ) {
+			s.invalidate();
+		}
+		correlationChanged();
+	}
+
+	private void correlationChanged() {
+		final CorrelationListener listener = correlationListener;
+		if( listener != null ) {
+			listener.correlationChanged();
+		}
+	}
+
+	@Override
+	public ValueVector put( String key, ValueVector value ) {
+		final ValueVector ret = super.put( key, value );
+		changed();
+		return ret;
+	}
+
+	@Override
+	public void putAll( Map< ? extends String, ? extends ValueVector > m ) {
+		super.putAll( m );
+		changed();
+	}
+
+	@Override
+	public ValueVector putIfAbsent( String key, ValueVector value ) {
+		final ValueVector ret = super.putIfAbsent( key, value );
+		if( ret == null ) {
+			changed();
+		}
+		return ret;
+	}
+
+	@Override
+	public ValueVector remove( Object key ) {
+		final ValueVector ret = super.remove( key );
+		if( ret != null ) {
+			changed();
+		}
+		return ret;
+	}
+
+	@Override
+	public boolean remove( Object key, Object value ) {
+		final boolean ret = super.remove( key, value );
+		if( ret ) {
+			changed();
+		}
+		return ret;
+	}
+
+	@Override
+	public ValueVector replace( String key, ValueVector value ) {
+		final ValueVector ret = super.replace( key, value );
+		changed();
+		return ret;
+	}
+
+	@Override
+	public boolean replace( String key, ValueVector oldValue, ValueVector newValue ) {
+		final boolean ret = super.replace( key, oldValue, newValue );
+		changed();
+		return ret;
+	}
+
+	@Override
+	public void replaceAll( BiFunction< ? super String, ? super ValueVector, ? extends ValueVector > function ) {
+		super.replaceAll( function );
+		changed();
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		changed();
+	}
+
+	@Override
+	public ValueVector computeIfAbsent( String key,
+		Function< ? super String, ? extends ValueVector > mappingFunction ) {
+		ValueVector ret = get( key );
+		if( ret == null ) {
+			ret = super.computeIfAbsent( key, mappingFunction );
+			// A new empty vector does not change the content, but later writes to it do
+			if( ret != null && !ret.isEmpty() ) {
+				changed();
+			} else {
+				correlationChanged();
+			}
+		}
+		return ret;
+	}
+
+	@Override
+	public ValueVector computeIfPresent( String key,
+		BiFunction< ? super String, ? super ValueVector, ? extends ValueVector > remappingFunction ) {
+		final ValueVector ret = super.computeIfPresent( key, remappingFunction );
+		changed();
+		return ret;
+	}
+
+	@Override
+	public ValueVector compute( String key,
+		BiFunction< ? super String, ? super ValueVector, ? extends ValueVector > remappingFunction ) {
+		final ValueVector ret = super.compute( key, remappingFunction );
+		changed();
+		return ret;
+	}
+
+	@Override
+	public ValueVector merge( String key, ValueVector value,
+		BiFunction< ? super ValueVector, ? super ValueVector, ? extends ValueVector > remappingFunction ) {
+		final ValueVector ret = super.merge( key, value, remappingFunction );
+		changed();
+		return ret;
+	}
+}
+
+
 class CSetValue extends ValueImpl {
 	private static final long serialVersionUID = Constants.serialVersionUID();
 
@@ -391,6 +629,39 @@ public abstract class Value implements Expression, Cloneable {
 		return false;
 	}
 
+	/**
+	 * Invoked when the content of this value is written, or its children are added or removed.
+	 */
+	void contentChanged() {}
+
+	/**
+	 * Notifies the correlation listeners of this value, if any. Unlike {@link #contentChanged()}, it is
+	 * also invoked when new empty children are created.
+	 */
+	void correlationChanged() {}
+
+	/**
+	 * Makes the given listener track this value and its children map. Links are never tracked.
+	 */
+	void addCorrelationListener( CorrelationListener listener ) {}
+
+	/**
+	 * Returns the snapshots watching this value, if any. Links are never watched.
+	 */
+	ValueSnapshots snapshots() {
+		return null;
+	}
+
+	void setSnapshots( ValueSnapshots snapshots ) {}
+
+	/**
+	 * Returns the children of this value without creating them, or <code>null</code> if there are none
+	 * or this value is a link.
+	 */
+	Map< String, ValueVector > childrenOrNull() {
+		return null;
+	}
+
 	public static Value createRootValue() {
 		return new RootValueImpl();
 	}
@@ -407,6 +678,53 @@ public abstract class Value implements Expression, Cloneable {
 		return new CSetValue();
 	}
 
+	/**
+	 * Makes a listener track the values, children maps and vectors that a path goes through in a tree,
+	 * as far as they exist. The listener is notified when any of them changes in a way that may change
+	 * the value reached by the path: the content of the last value is written, or any step of the path
+	 * is created, removed or replaced. Nothing is created or replaced in the tree, and the tracking of
+	 * the path has to be repeated after each notification to follow the values that replaced the
+	 * tracked ones.
+	 * 
+	 * @param path the path to track
+	 * @param root the root of the tree
+	 * @param listener the listener to notify of changes
+	 * @return <code>false</code> if the path goes through a link, whose target cannot be tracked
+	 */
+	public static boolean trackCorrelationPath( VariablePath path, Value root, CorrelationListener listener ) {
+		Value currValue = root;
+		for( Pair< Expression, Expression > pair : path.path() ) {
+			if( currValue.isLink() ) {
+				return false;
+			}
+			// Children are read after installing the listener, so that concurrent changes are not missed
+			currValue.addCorrelationListener( listener );
+			final Map< String, ValueVector > children = currValue.childrenOrNull();
+			if( children == null ) {
+				return true;
+			}
+			final ValueVector vector = children.get( pair.key().evaluate().strValue() );
+			if( vector == null ) {
+				return true;
+			} else if( vector.isLink() ) {
+				return false;
+			}
+			vector.addCorrelationListener( listener );
+			final int index = pair.value() == null ? 0 : pair.value().evaluate().intValue();
+			synchronized( vector ) {
+				if( index >= vector.size() ) {
+					return true;
+				}
+				currValue = vector.get( index );
+			}
+		}
+		if( currValue.isLink() ) {
+			return false;
+		}
+		currValue.addCorrelationListener( listener );
+		return true;
+	}
+
 	public static Value create( Boolean bool ) {
 		return new ValueImpl( bool );
 	}
@@ -506,6 +824,20 @@ public abstract class Value implements Expression, Cloneable {
 	@Override
 	public abstract Value clone();
 
+	/**
+	 * Returns the object computed by the builder from this value. The object is cached with the given
+	 * key and computed again only after this value or its sub-tree are modified, so the builder should
+	 * not depend on anything else. Parts of the tree reached through links are not tracked: they can
+	 * change at any time, so the builder should not read them.
+	 * 
+	 * @param key the key of the snapshot, typically a constant
+	 * @param builder computes the snapshot from this value
+	 * @return the snapshot of this value for the given key
+	 */
+	public < T > T snapshot( Object key, Function< ? super Value, ? extends T > builder ) {
+		return builder.apply( this );
+	}
+
 	public final Value getNewChild( String childId ) {
 		final ValueVector vec = getChildren( childId );
 		Value retVal = new ValueImpl();
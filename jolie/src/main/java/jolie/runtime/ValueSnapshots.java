@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package jolie.runtime;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The snapshots computed from a value tree, which stay valid until the tree is modified. A tree is
+ * watched by pointing all its values, children maps and vectors to the same instance, which is
+ * invalidated by any of them when they are written. Values and vectors reached through links are not
+ * watched. A node shared by several trees (e.g., after a reference copy) is watched only by the last
+ * tree that started watching it, the others are invalidated.
+ */
+final class ValueSnapshots {
+	private final Value root;
+	private final Map< Object, Object > snapshots;
+	private volatile boolean valid = true;
+
+	private ValueSnapshots( Value root, Map< Object, Object > snapshots ) {
+		this.root = root;
+		this.snapshots = snapshots;
+	}
+
+	/**
+	 * Starts watching the tree rooted in the given value.
+	 */
+	static ValueSnapshots watch( Value root ) {
+		final ValueSnapshots ret = new ValueSnapshots( root, new ConcurrentHashMap<>() );
+		ret.install( root );
+		return ret;
+	}
+
+	/**
+	 * Makes the snapshots of the given value valid for its copy, if they are still valid. The copy must
+	 * have the same structure of the original, links included.
+	 */
+	static void copy( Value original, Value copy ) {
+		final ValueSnapshots s = original.snapshots();
+		if( s != null && s.isValidFor( original ) && !s.snapshots.isEmpty() ) {
+			new ValueSnapshots( copy, new ConcurrentHashMap<>( s.snapshots ) ).install( copy );
+		}
+	}
+
+	boolean isValidFor( Value value ) {
+		return valid && root == value;
+	}
+
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Returns the snapshots that should watch a node from now on, invalidating the ones that were
+	 * watching it if they are different.
+	 */
+	static ValueSnapshots replace( ValueSnapshots previous, ValueSnapshots next ) {
+		if( previous != null && previous != next ) {
+			previous.invalidate();
+		}
+		return next;
+	}
+
+	@SuppressWarnings( "unchecked" )
+	< T > T get( Object key, Function< ? super Value, ? extends T > builder ) {
+		T ret = (T) snapshots.get( key );
+		if( ret == null ) {
+			ret = builder.apply( root );
+			if( ret != null ) {
+				snapshots.putIfAbsent( key, ret );
+			}
+		}
+		return ret;
+	}
+
+	private void install( Value value ) {
+		if( value.isLink() ) {
+			return;
+		}
+		value.setSnapshots( this );
+		final Map< String, ValueVector > children = value.childrenOrNull();
+		if( children != null ) {
+			for( ValueVector vector : children.values() ) {
+				install( vector );
+			}
+		}
+	}
+
+	private void install( ValueVector vector ) {
+		if( vector.isLink() ) {
+			return;
+		}
+		vector.setSnapshots( this );
+		for( Value v : vector.valuesCopy() ) {
+			install( v );
+		}
+	}
+}
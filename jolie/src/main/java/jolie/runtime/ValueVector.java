@@ -82,6 +82,8 @@ class ValueVectorLink extends ValueVector implements Cloneable {
 class ValueVectorImpl extends ValueVector implements Serializable {
 	private static final long serialVersionUID = Constants.serialVersionUID();
 	private final ArrayList< Value > values;
+	transient volatile ValueSnapshots snapshots = null;
+	private transient volatile CorrelationListener correlationListener = null;
 
 	@Override
 	protected List< Value > values() {
@@ -100,8 +102,12 @@ class ValueVectorImpl extends ValueVector implements Serializable {
 				if( i >= values.size() ) {
 					values.ensureCapacity( i + 1 );
 					for( int k = values.size(); k <= i; k++ ) {
-						values.add( Value.create() );
+						// New undefined values do not change the content, but later writes to them do
+						final Value value = Value.create();
+						value.setSnapshots( snapshots );
+						values.add( value );
 					}
+					correlationChanged();
 				}
 			}
 		}
@@ -119,6 +125,34 @@ class ValueVectorImpl extends ValueVector implements Serializable {
 		} else {
 			values.set( i, value );
 		}
+		contentChanged();
+	}
+
+	@Override
+	void setSnapshots( ValueSnapshots snapshots ) {
+		this.snapshots = ValueSnapshots.replace( this.snapshots, snapshots );
+	}
+
+	@Override
+	void contentChanged() {
+		final ValueSnapshots s = snapshots;
+		if( s != null ) {
+			s.invalidate();
+		}
+		correlationChanged();
+	}
+
+	@Override
+	void correlationChanged() {
+		final CorrelationListener listener = correlationListener;
+		if( listener != null ) {
+			listener.correlationChanged();
+		}
+	}
+
+	@Override
+	synchronized void addCorrelationListener( CorrelationListener listener ) {
+		correlationListener = CorrelationListenerChain.add( correlationListener, listener );
 	}
 
 	@Override
@@ -143,7 +177,9 @@ public abstract class ValueVector implements Iterable< Value > {
 	}
 
 	public synchronized Value remove( int i ) {
-		return values().remove( i );
+		final Value removed = values().remove( i );
+		contentChanged();
+		return removed;
 	}
 
 	public static ValueVector createLink( VariablePath path ) {
@@ -189,10 +225,12 @@ public abstract class ValueVector implements Iterable< Value > {
 
 	public synchronized void add( Value value ) {
 		values().add( value );
+		contentChanged();
 	}
 
 	public synchronized void add( int index, Value value ) {
 		values().add( index, value );
+		contentChanged();
 	}
 
 	// TODO: improve performance
@@ -210,6 +248,28 @@ public abstract class ValueVector implements Iterable< Value > {
 
 	protected abstract List< Value > values();
 
+	/**
+	 * Invoked when values are added to, removed from or replaced in this vector.
+	 */
+	void contentChanged() {}
+
+	/**
+	 * Notifies the correlation listeners of this vector, if any. Unlike {@link #contentChanged()}, it is
+	 * also invoked when new undefined values are created.
+	 */
+	void correlationChanged() {}
+
+	/**
+	 * Makes the given listener track the values added to, removed from or replaced in this vector.
+	 * Links are never tracked.
+	 */
+	void addCorrelationListener( CorrelationListener listener ) {}
+
+	/**
+	 * Makes the given snapshots watch this vector. Links are never watched.
+	 */
+	void setSnapshots( ValueSnapshots snapshots ) {}
+
 	public abstract boolean isLink();
 
 	public final Stream< Value > stream() {
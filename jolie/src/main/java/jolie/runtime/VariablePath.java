@@ -143,6 +143,7 @@ public class VariablePath implements Expression {
 				return;
 			} else if( currVector.size() < 1 ) {
 				currValue.children().remove( keyStr );
+				currValue.contentChanged();
 				return;
 			}
 			if( pair.value() == null ) {
@@ -150,6 +151,7 @@ public class VariablePath implements Expression {
 					currValue = currVector.get( 0 );
 				} else { // We're finished
 					currValue.children().remove( keyStr );
+					currValue.contentChanged();
 				}
 			} else {
 				index = pair.value().evaluate().intValue();
@@ -385,6 +387,7 @@ public class VariablePath implements Expression {
 					currValue = currVector.get( 0 );
 				} else { // We're finished
 					currValue.children().put( keyStr, ValueVector.createLink( rightPath ) );
+					currValue.contentChanged();
 				}
 			} else {
 				index = pair.value().evaluate().intValue();
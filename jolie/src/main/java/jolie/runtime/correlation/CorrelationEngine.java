@@ -21,13 +21,17 @@
 
 package jolie.runtime.correlation;
 
+import java.util.List;
+
 import jolie.Interpreter;
 import jolie.SessionListener;
 import jolie.SessionThread;
+import jolie.lang.Constants.ExecutionMode;
 import jolie.net.CommChannel;
 import jolie.net.CommMessage;
 import jolie.runtime.Value;
 import jolie.runtime.correlation.CorrelationSet.CorrelationPair;
+import jolie.runtime.correlation.impl.HashCorrelationEngine;
 import jolie.runtime.correlation.impl.SimpleCorrelationEngine;
 
 /**
@@ -46,8 +50,7 @@ public abstract class CorrelationEngine implements SessionListener {
 		HASH {
 			@Override
 			public CorrelationEngine createInstance( Interpreter interpreter ) {
-				// return new HashCorrelationEngine( interpreter );
-				return null;
+				return new HashCorrelationEngine( interpreter );
 			}
 		};
 
@@ -99,16 +102,69 @@ public abstract class CorrelationEngine implements SessionListener {
 		}
 	}
 
-	public synchronized void onMessageReceive( final CommMessage message, final CommChannel channel )
+	public void onMessageReceive( final CommMessage message, final CommChannel channel )
+		throws CorrelationError {
+		onMessageReceive( message, channel, null );
+	}
+
+	/**
+	 * Delivers a message to the session it correlates with, or starts a new session with it.
+	 *
+	 * @param sessionListener if not <code>null</code>, added to the session started by the message
+	 * @return <code>true</code> if the message started a new session, <code>false</code> if it was
+	 *         delivered to a running one
+	 * @throws CorrelationError if the message neither correlates with a session nor starts one
+	 */
+	public synchronized boolean onMessageReceive( final CommMessage message, final CommChannel channel,
+		final SessionListener sessionListener )
 		throws CorrelationError {
-		if( !(
 		// We try to find a correlating process.
-		routeMessage( message, channel )
+		if( routeMessage( message, channel ) ) {
+			return false;
+		}
+		// If there is none, we must be able to start a new process with this message.
+		if( interpreter.startServiceSession( message, channel, sessionListener ) ) {
+			return true;
+		}
+		// Otherwise, exception.
+		throw new CorrelationError();
+	}
+
+	/**
+	 * Checks whether a message correlates with a session, by comparing the correlation values of the
+	 * session with those carried by the message.
+	 */
+	protected boolean correlate( SessionThread session, CommMessage message ) {
+		if( (interpreter.correlationSets().isEmpty()
+			&& interpreter.executionMode() == ExecutionMode.SINGLE)
 			||
-			// If there is none, we must be able to start a new process with this message.
-			interpreter.startServiceSession( message, channel )) ) {
-			// Otherwise, exception.
-			throw new CorrelationError();
+			session.isInitialisingThread() ) {
+			return true;
+		}
+
+		final CorrelationSet cset = interpreter.getCorrelationSetForOperation( message.operationName() );
+		if( cset == null ) {
+			return interpreter.executionMode() == ExecutionMode.SINGLE; // It must be a session starter.
 		}
+		final List< CorrelationPair > pairs = cset.getOperationCorrelationPairs( message.operationName() );
+		for( CorrelationPair cpair : pairs ) {
+			final Value sessionValue = cpair.sessionPath().getValueOrNull( session.state().root() );
+			if( sessionValue == null ) {
+				return false;
+			} else {
+				Value messageValue = cpair.messagePath().getValueOrNull( message.value() );
+				if( messageValue == null ) {
+					return false;
+				} else {
+					// TODO: Value.equals is type insensitive, fix this with an additional check.
+					if( !sessionValue.isDefined() || !messageValue.isDefined()
+						|| !sessionValue.isEqualTo( messageValue ) ) {
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
 	}
 }
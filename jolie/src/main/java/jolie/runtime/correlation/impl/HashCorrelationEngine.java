@@ -21,15 +21,303 @@
 
 package jolie.runtime.correlation.impl;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import jolie.Interpreter;
+import jolie.SessionThread;
+import jolie.lang.Constants.ExecutionMode;
+import jolie.net.CommChannel;
+import jolie.net.CommMessage;
+import jolie.net.SessionMessage;
+import jolie.runtime.CorrelationListener;
+import jolie.runtime.FaultException;
+import jolie.runtime.Value;
+import jolie.runtime.VariablePath;
+import jolie.runtime.correlation.CorrelationEngine;
+import jolie.runtime.correlation.CorrelationSet;
+import jolie.runtime.correlation.CorrelationSet.CorrelationPair;
 
 /**
- * A hash table based correlation algorithm (stub).
+ * A hash table based correlation algorithm. Sessions are indexed by the tuple of their correlation
+ * values, for each correlating operation, so that routing a message only requires computing the
+ * tuple carried by the message and looking it up.
+ * 
+ * The correlation paths of a session are tracked through
+ * {@link Value#trackCorrelationPath(VariablePath, Value, CorrelationListener)}, which marks the
+ * session as changed. Changed sessions are indexed again before routing the next message. Sessions
+ * whose correlation paths go through links cannot be tracked, so they are checked against every
+ * message for their operations, as in {@link SimpleCorrelationEngine}.
  * 
  * @author Fabrizio Montesi
  */
-public class HashCorrelationEngine extends SimpleCorrelationEngine {
+public class HashCorrelationEngine extends CorrelationEngine {
+	private class IndexEntry implements CorrelationListener {
+		private final SessionThread session;
+		private final AtomicLong version = new AtomicLong();
+		private long indexedVersion = -1;
+		private Map< String, List< Object > > keys = Collections.emptyMap();
+		private Set< String > unindexedOperations = Collections.emptySet();
+
+		private IndexEntry( SessionThread session ) {
+			this.session = session;
+		}
+
+		@Override
+		public void correlationChanged() {
+			if( isActive() ) {
+				changedEntries.add( this );
+			}
+		}
+
+		@Override
+		public boolean isActive() {
+			return entries.get( session ) == this;
+		}
+	}
+
+	/*
+	 * Byte arrays can be equal to values of any type, so messages and sessions carrying them are
+	 * checked without the index.
+	 */
+	private static final Object UNINDEXABLE = new Object();
+
+	// Maps operation names to the sessions indexed by their correlation values for that operation.
+	private final Map< String, Map< List< Object >, Set< SessionThread > > > index = new ConcurrentHashMap<>();
+	// Maps operation names to the sessions that must be checked against all messages for that operation.
+	private final Map< String, Set< SessionThread > > unindexed = new ConcurrentHashMap<>();
+	private final Map< SessionThread, IndexEntry > entries = new ConcurrentHashMap<>();
+	private final Set< IndexEntry > changedEntries = ConcurrentHashMap.newKeySet();
+	private final Set< SessionThread > initialisingSessions =
+		Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
 	public HashCorrelationEngine( Interpreter interpreter ) {
 		super( interpreter );
 	}
+
+	@Override
+	public boolean routeMessage( CommMessage message, CommChannel channel ) {
+		SessionThread session = findSession( message );
+		if( session != null ) {
+			session.pushMessage( new SessionMessage( message, channel ) );
+			return true;
+		}
+		return false;
+	}
+
+	private SessionThread findSession( CommMessage message ) {
+		final Iterator< SessionThread > initialising = initialisingSessions.iterator();
+		if( initialising.hasNext() ) {
+			return initialising.next();
+		}
+
+		final CorrelationSet cset = interpreter().getCorrelationSetForOperation( message.operationName() );
+		if( cset == null ) {
+			final Iterator< SessionThread > sessions = entries.keySet().iterator();
+			return interpreter().executionMode() == ExecutionMode.SINGLE && sessions.hasNext() ? sessions.next()
+				: null;
+		}
+
+		final List< Object > key =
+			computeKey( cset.getOperationCorrelationPairs( message.operationName() ), message.value(), false );
+		if( key == null ) {
+			return null;
+		}
+
+		refreshChangedEntries();
+		if( key.contains( UNINDEXABLE ) ) {
+			for( SessionThread session : entries.keySet() ) {
+				if( correlate( session, message ) ) {
+					return session;
+				}
+			}
+			return null;
+		}
+
+		final Map< List< Object >, Set< SessionThread > > operationIndex = index.get( message.operationName() );
+		if( operationIndex != null ) {
+			final Set< SessionThread > candidates = operationIndex.get( key );
+			if( candidates != null ) {
+				for( SessionThread session : candidates ) {
+					if( correlate( session, message ) ) {
+						return session;
+					}
+				}
+			}
+		}
+		final Set< SessionThread > candidates = unindexed.get( message.operationName() );
+		if( candidates != null ) {
+			for( SessionThread session : candidates ) {
+				if( correlate( session, message ) ) {
+					return session;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void onSessionStart( SessionThread session, Interpreter.SessionStarter starter, CommMessage message ) {
+		initCorrelationValues( session, starter, message );
+		addSession( session );
+	}
+
+	@Override
+	public void onSingleExecutionSessionStart( SessionThread session ) {
+		if( session.isInitialisingThread() ) {
+			initialisingSessions.add( session );
+		} else {
+			addSession( session );
+		}
+	}
+
+	@Override
+	public void onSessionExecuted( SessionThread session ) {
+		initialisingSessions.remove( session );
+		final IndexEntry entry = entries.remove( session );
+		if( entry != null ) {
+			changedEntries.remove( entry );
+			synchronized( entry ) {
+				removeKeys( entry );
+				entry.keys = Collections.emptyMap();
+				entry.unindexedOperations = Collections.emptySet();
+			}
+		}
+	}
+
+	@Override
+	public void onSessionError( SessionThread session, FaultException fault ) {
+		onSessionExecuted( session );
+	}
+
+	private void addSession( SessionThread session ) {
+		final IndexEntry entry = new IndexEntry( session );
+		entries.put( session, entry );
+		refresh( entry );
+	}
+
+	private void refreshChangedEntries() {
+		final Iterator< IndexEntry > it = changedEntries.iterator();
+		while( it.hasNext() ) {
+			final IndexEntry entry = it.next();
+			it.remove();
+			refresh( entry );
+		}
+	}
+
+	/*
+	 * Paths are tracked before reading the values, so that a change made while the values are read marks
+	 * the entry as changed again. Concurrent refreshes of the same entry are ordered by their version.
+	 */
+	private void refresh( IndexEntry entry ) {
+		if( !entry.isActive() ) {
+			return;
+		}
+		final long version = entry.version.incrementAndGet();
+		final Value root = entry.session.state().root();
+		final Map< String, List< Object > > keys = new HashMap<>();
+		final Set< String > unindexedOperations = new HashSet<>();
+		for( CorrelationSet cset : interpreter().correlationSets() ) {
+			boolean tracked = true;
+			for( VariablePath path : cset.correlationVariablePaths() ) {
+				tracked &= Value.trackCorrelationPath( path, root, entry );
+			}
+			for( String operationName : cset.correlatingOperations() ) {
+				final List< Object > key = computeKey( cset.getOperationCorrelationPairs( operationName ), root, true );
+				if( !tracked || (key != null && key.contains( UNINDEXABLE )) ) {
+					unindexedOperations.add( operationName );
+				} else if( key != null ) {
+					keys.put( operationName, key );
+				}
+			}
+		}
+
+		synchronized( entry ) {
+			if( version <= entry.indexedVersion || !entry.isActive() ) {
+				return;
+			}
+			removeKeys( entry );
+			keys.forEach( ( operationName, key ) -> index
+				.computeIfAbsent( operationName, k -> new ConcurrentHashMap<>() )
+				.compute( key, ( k, sessions ) -> {
+					final Set< SessionThread > ret =
+						sessions == null ? Collections.newSetFromMap( new ConcurrentHashMap<>() ) : sessions;
+					ret.add( entry.session );
+					return ret;
+				} ) );
+			unindexedOperations.forEach( operationName -> unindexed
+				.computeIfAbsent( operationName, k -> Collections.newSetFromMap( new ConcurrentHashMap<>() ) )
+				.add( entry.session ) );
+			entry.keys = keys;
+			entry.unindexedOperations = unindexedOperations;
+			entry.indexedVersion = version;
+		}
+	}
+
+	private void removeKeys( IndexEntry entry ) {
+		entry.keys.forEach( ( operationName, key ) -> {
+			final Map< List< Object >, Set< SessionThread > > operationIndex = index.get( operationName );
+			if( operationIndex != null ) {
+				operationIndex.computeIfPresent( key, ( k, sessions ) -> {
+					sessions.remove( entry.session );
+					return sessions.isEmpty() ? null : sessions;
+				} );
+			}
+		} );
+		entry.unindexedOperations.forEach( operationName -> {
+			final Set< SessionThread > sessions = unindexed.get( operationName );
+			if( sessions != null ) {
+				sessions.remove( entry.session );
+			}
+		} );
+	}
+
+	private static List< Object > computeKey( List< CorrelationPair > pairs, Value root, boolean sessionSide ) {
+		final List< Object > key = new ArrayList<>( pairs.size() );
+		for( CorrelationPair pair : pairs ) {
+			final Value value = sessionSide
+				? pair.sessionPath().getValueOrNull( root )
+				: pair.messagePath().getValueOrNull( root );
+			if( value == null || !value.isDefined() ) {
+				return null;
+			}
+			key.add( keyOf( value ) );
+		}
+		return key;
+	}
+
+	/*
+	 * Values that are equal for Value#isEqualTo get the same key. Numbers and booleans are equal when
+	 * their numeric values are, and strings are equal to the numbers and booleans they represent.
+	 */
+	private static Object keyOf( Value value ) {
+		final Object o = value.valueObject();
+		if( o instanceof String ) {
+			final String str = (String) o;
+			if( str.equals( "true" ) || str.equals( "false" ) ) {
+				return numericKey( Boolean.parseBoolean( str ) ? 1.0 : 0.0 );
+			}
+			try {
+				return numericKey( Double.parseDouble( str ) );
+			} catch( NumberFormatException e ) {
+				return str;
+			}
+		} else if( o instanceof Integer || o instanceof Long || o instanceof Double || o instanceof Boolean ) {
+			return numericKey( value.doubleValue() );
+		}
+		return UNINDEXABLE;
+	}
+
+	private static Double numericKey( double d ) {
+		// 0.0 and -0.0 are equal numbers, but different Double instances
+		return d == 0.0 ? 0.0 : d;
+	}
 }
@@ -45,6 +45,7 @@ import jolie.runtime.JavaService;
 public class JavaCommChannel extends CommChannel implements PollableCommChannel {
 	private final JavaService javaService;
 	private final Map< Long, Future< CommMessage > > messages = new ConcurrentHashMap<>();
+	private volatile Runnable readyListener = null;
 
 	public JavaCommChannel( JavaService javaService ) {
 		this.javaService = javaService;
@@ -55,6 +56,19 @@ public class JavaCommChannel extends CommChannel implements PollableCommChannel
 		return messages.isEmpty() == false;
 	}
 
+	@Override
+	public boolean setReadyListener( Runnable listener ) {
+		readyListener = listener;
+		return true;
+	}
+
+	private void notifyReadyListener() {
+		final Runnable listener = readyListener;
+		if( listener != null ) {
+			listener.run();
+		}
+	}
+
 	@Override
 	protected void disposeForInputImpl()
 		throws IOException {
@@ -77,6 +91,7 @@ public class JavaCommChannel extends CommChannel implements PollableCommChannel
 		throws IOException {
 		final CompletableFuture< CommMessage > f = new CompletableFuture<>();
 		messages.put( message.requestId(), f );
+		notifyReadyListener();
 
 		final ExecutionThread ethread = ExecutionThread.currentThread();
 		Interpreter.getInstance().commCore().executor().submit( () -> {
@@ -23,9 +23,13 @@ package jolie.runtime.expression;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import jolie.ExecutionThread;
 import jolie.Interpreter;
@@ -35,6 +39,8 @@ import jolie.monitoring.events.OperationCallEvent;
 import jolie.monitoring.events.OperationReplyEvent;
 import jolie.net.CommChannel;
 import jolie.net.CommMessage;
+import jolie.net.Hedging;
+import jolie.net.ResponseCache;
 import jolie.net.ports.OutputPort;
 import jolie.process.TransformationReason;
 import jolie.runtime.FaultException;
@@ -104,6 +110,138 @@ public class SolicitResponseExpression implements Expression {
 	}
 
 
+	/*
+	 * Waits for the response to a hedged call. If it does not arrive within the delay of the hedging
+	 * policy, a copy of the request is sent and the first response wins. The loser is cancelled, and its
+	 * channel is closed unless it is multiplexed: a late response could otherwise be taken for the
+	 * response to another request, and waiting for it would hold the channel.
+	 */
+	private CommMessage awaitHedged( Hedging.Policy policy, CommMessage message, CommChannel channel,
+		long startTime )
+		throws IOException, TimeoutException, URISyntaxException {
+		final long deadline = startTime + TimeUnit.MILLISECONDS.toNanos( Interpreter.getInstance().responseTimeout() );
+		final long delay = policy.delay();
+		final long hedgeTime = startTime + delay;
+		final Future< CommMessage > future = channel.recvResponseFor( message );
+		CommMessage response = null;
+		if( delay >= 0 && hedgeTime - deadline < 0 && future instanceof CompletableFuture ) {
+			try {
+				response = awaitResponse( future, hedgeTime );
+			} catch( TimeoutException e ) {
+				// Too slow, a copy may help
+			}
+			if( response == null && outputPort.hedging().tryHedge( policy ) ) {
+				response = awaitWithCopy( policy, message, channel, (CompletableFuture< CommMessage >) future,
+					deadline );
+			}
+		}
+		if( response == null ) {
+			try {
+				response = awaitResponse( future, deadline );
+			} catch( TimeoutException e ) {
+				future.cancel( false );
+				throw e;
+			}
+		}
+		if( !future.isCancelled() ) {
+			// Only the latencies of original requests are recorded: the latency of a call won by a copy is
+			// lower than the one of its original request, which would drag the percentile down
+			policy.callCompleted( System.nanoTime() - startTime );
+		}
+		return response;
+	}
+
+	private CommMessage awaitWithCopy( Hedging.Policy policy, CommMessage message, CommChannel channel,
+		CompletableFuture< CommMessage > original, long deadline )
+		throws IOException, TimeoutException {
+		final CommMessage copyMessage = new CommMessage(
+			CommMessage.getNewRequestId(),
+			message.operationName(),
+			message.resourcePath(),
+			message.value(),
+			message.fault() );
+		CommChannel copyChannel = null;
+		try {
+			final Future< CommMessage > future;
+			try {
+				copyChannel = outputPort.getHedgeCommChannel( channel );
+				copyChannel.send( copyMessage );
+				log( "SENT COPY", copyMessage );
+				future = copyChannel.recvResponseFor( copyMessage );
+			} catch( IOException | URISyntaxException e ) {
+				// We still have the original request
+				Interpreter.getInstance().logFine( e );
+				return null;
+			}
+			if( !(future instanceof CompletableFuture) ) {
+				return null;
+			}
+			final CompletableFuture< CommMessage > copy = (CompletableFuture< CommMessage >) future;
+			final CommMessage response;
+			try {
+				response = awaitResponse( firstResponse( original, copy ), deadline );
+			} catch( TimeoutException e ) {
+				original.cancel( false );
+				copy.cancel( false );
+				throw e;
+			}
+			final boolean copyWon = copy.isDone() && !copy.isCompletedExceptionally() && copy.join() == response;
+			if( copyWon ) {
+				policy.hedgeWon();
+			}
+			final CompletableFuture< CommMessage > loser = copyWon ? original : copy;
+			final CommChannel loserChannel = copyWon ? channel : copyChannel;
+			if( loser.cancel( false ) && !loserChannel.isMultiplexed() ) {
+				try {
+					loserChannel.abort();
+				} catch( IOException e ) {
+					Interpreter.getInstance().logFine( e );
+				}
+			}
+			return response;
+		} finally {
+			if( copyChannel != null ) {
+				try {
+					copyChannel.release();
+				} catch( IOException e ) {
+					Interpreter.getInstance().logWarning( e );
+				}
+			}
+		}
+	}
+
+	// Completes with the first response, or with the last failure if both requests fail
+	private static CompletableFuture< CommMessage > firstResponse( CompletableFuture< CommMessage > original,
+		CompletableFuture< CommMessage > copy ) {
+		final CompletableFuture< CommMessage > first = new CompletableFuture<>();
+		final AtomicInteger failures = new AtomicInteger();
+		final BiConsumer< CommMessage, Throwable > handler = ( response, error ) -> {
+			if( error == null ) {
+				first.complete( response );
+			} else if( failures.incrementAndGet() == 2 ) {
+				first.completeExceptionally( error );
+			}
+		};
+		original.whenComplete( handler );
+		copy.whenComplete( handler );
+		return first;
+	}
+
+	private static CommMessage awaitResponse( Future< CommMessage > future, long deadline )
+		throws IOException, TimeoutException {
+		try {
+			return future.get( deadline - System.nanoTime(), TimeUnit.NANOSECONDS );
+		} catch( InterruptedException e ) {
+			throw new IOException( e );
+		} catch( ExecutionException e ) {
+			if( e.getCause() instanceof IOException ) {
+				throw (IOException) e.getCause();
+			} else {
+				throw new IOException( e.getCause() );
+			}
+		}
+	}
+
 	@Override
 	public Value evaluate()
 		throws FaultException.RuntimeFaultException {
@@ -139,32 +277,51 @@ public class SolicitResponseExpression implements Expression {
 				}
 			}
 
-			channel = outputPort.getCommChannel();
-			channel.send( message );
-			// channel.release(); TODO release channel if possible (i.e. it will not be closed)
-			log( "SENT", message );
-			if( Interpreter.getInstance().isMonitoring() ) {
-				Interpreter.getInstance()
-					.fireMonitorEvent( new OperationCallEvent( operationId,
-						ExecutionThread.currentThread().getSessionId(), Long.toString( message.requestId() ),
-						OperationCallEvent.SUCCESS, "", outputPort.id(), message.value(),
-						Long.toString( message.id() ) ) );
+			final ResponseCache.Operation cache = outputPort.responseCache( operationId );
+			final ResponseCache.Key cacheKey = cache == null ? null : cache.key( message );
+			if( cache != null ) {
+				response = cache.get( cacheKey, message );
 			}
+			final boolean cacheHit = response != null;
+			if( cacheHit ) {
+				log( "CACHE HIT", message );
+			} else {
+				final Hedging.Policy hedgingPolicy = outputPort.startHedgedCall( operationId );
+				final long startTime = System.nanoTime();
+				channel = outputPort.getCommChannel();
+				channel.send( message );
+				// channel.release(); TODO release channel if possible (i.e. it will not be closed)
+				log( "SENT", message );
+				if( Interpreter.getInstance().isMonitoring() ) {
+					Interpreter.getInstance()
+						.fireMonitorEvent( new OperationCallEvent( operationId,
+							ExecutionThread.currentThread().getSessionId(), Long.toString( message.requestId() ),
+							OperationCallEvent.SUCCESS, "", outputPort.id(), message.value(),
+							Long.toString( message.id() ) ) );
+				}
 
-			do {
-				try {
-					response = channel.recvResponseFor( message ).get( Interpreter.getInstance().responseTimeout(),
-						TimeUnit.MILLISECONDS );
-				} catch( InterruptedException e ) {
-					throw new IOException( e );
-				} catch( ExecutionException e ) {
-					if( e.getCause() instanceof IOException ) {
-						throw (IOException) e.getCause();
-					} else {
-						throw new IOException( e.getCause() );
+				if( hedgingPolicy != null ) {
+					response = awaitHedged( hedgingPolicy, message, channel, startTime );
+				}
+				while( response == null ) {
+					final Future< CommMessage > future = channel.recvResponseFor( message );
+					try {
+						response = future.get( Interpreter.getInstance().responseTimeout(), TimeUnit.MILLISECONDS );
+					} catch( TimeoutException e ) {
+						// Stop waiting, a late response will be discarded
+						future.cancel( false );
+						throw e;
+					} catch( InterruptedException e ) {
+						throw new IOException( e );
+					} catch( ExecutionException e ) {
+						if( e.getCause() instanceof IOException ) {
+							throw (IOException) e.getCause();
+						} else {
+							throw new IOException( e.getCause() );
+						}
 					}
 				}
-			} while( response == null );
+			}
 			log( "RECEIVED", response );
 
 			if( inputVarPath != null ) {
@@ -207,6 +364,9 @@ public class SolicitResponseExpression implements Expression {
 								Long.toString( response.id() ) ) );
 					}
 				}
+				if( cache != null && !cacheHit ) {
+					cache.put( cacheKey, response );
+				}
 				throw response.fault();
 			} else {
 				if( types.responseType() != null ) {
@@ -240,6 +400,9 @@ public class SolicitResponseExpression implements Expression {
 							Long.toString( response.id() ) ) );
 					}
 				}
+				if( cache != null && !cacheHit ) {
+					cache.put( cacheKey, response );
+				}
 			}
 
 		} catch( TimeoutException e ) { // The response timed out
@@ -27,17 +27,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
-import java.nio.BufferOverflowException;
-import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.WritableByteChannel;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -45,6 +49,8 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManagerFactory;
 
 import jolie.net.CommMessage;
@@ -55,17 +61,38 @@ import jolie.runtime.VariablePath;
 
 /**
  * Commodity class for supporting the implementation of SSL-based protocols through wrapping.
+ *
+ * SSL contexts are shared by all the protocol instances with the same configuration, so that
+ * sessions can be resumed: clients resume the sessions they established with the same host and
+ * port, and servers resume the sessions in their session cache (see the parameters
+ * <code>ssl.sessionCacheSize</code> and <code>ssl.sessionTimeout</code>). The buffers used for
+ * encrypting and decrypting are taken from a pool shared by all instances.
  * 
  * @author Fabrizio Montesi 2010: complete rewrite 2015: major fixups
  */
 public class SSLProtocol extends SequentialCommProtocol {
 	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final int RECORD_HEADER_SIZE = 5;
+	private static final int MAX_POOLED_BUFFERS = 64;
+	private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate( 0 ).asReadOnlyBuffer();
+	private static final Queue< ByteBuffer > BUFFER_POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOLED_BUFFERS = new AtomicInteger();
+	private static final Map< List< Object >, SharedContext > CONTEXTS = new ConcurrentHashMap<>();
+	private static final LongAdder HANDSHAKES = new LongAdder();
+	private static final LongAdder RESUMED_HANDSHAKES = new LongAdder();
 
 	private final boolean isClient;
 	private final URI location;
 	private boolean firstTime;
 	private final CommProtocol wrappedProtocol;
+	private final String[] applicationProtocols;
 	private SSLEngine sslEngine;
+	// Start of the handshake in progress, or -1 if there is none
+	private long handshakeStart = -1;
+	// Whether data has been written to outputStream since it was last flushed
+	private boolean unflushed = false;
+	// Encrypted data that has been received but not decrypted yet, in read mode
+	private ByteBuffer netInputBuffer = EMPTY_BUFFER;
 
 	private OutputStream outputStream;
 	private InputStream inputStream;
@@ -74,25 +101,28 @@ public class SSLProtocol extends SequentialCommProtocol {
 	private final SSLOutputStream sslOutputStream = new SSLOutputStream();
 
 	private class SSLInputStream extends InputStream {
-		private ByteBuffer clearInputBuffer = ByteBuffer.allocate( 0 );
+		// Decrypted data, in read mode
+		private ByteBuffer clearInputBuffer = EMPTY_BUFFER;
 
-		@Override
-		public int read()
+		// Returns false if EOF has been reached
+		private boolean fill()
 			throws IOException {
-			if( !clearInputBuffer.hasRemaining() ) {
+			while( !clearInputBuffer.hasRemaining() ) {
 				handshake();
-				unwrap( this );
-				// EOF reached?
-				if( !clearInputBuffer.hasRemaining() ) {
-					return -1;
+				if( !unwrap() && !clearInputBuffer.hasRemaining() ) {
+					return false;
 				}
 			}
+			return true;
+		}
 
-			try {
-				return clearInputBuffer.get();
-			} catch( BufferUnderflowException e ) {
+		@Override
+		public int read()
+			throws IOException {
+			if( !fill() ) {
 				return -1;
 			}
+			return clearInputBuffer.get() & 0xFF;
 		}
 
 		@Override
@@ -101,24 +131,12 @@ public class SSLProtocol extends SequentialCommProtocol {
 			if( len == 0 )
 				return 0;
 
-			if( !clearInputBuffer.hasRemaining() ) {
-				handshake();
-				unwrap( this );
-				// EOF reached?
-				if( !clearInputBuffer.hasRemaining() ) {
-					return -1;
-				}
-			}
-
-			try {
-				clearInputBuffer.get( b, off, len );
-				return len;
-			} catch( BufferUnderflowException e ) {
-				// okay, just return the maximum possible
-				len = clearInputBuffer.remaining();
-				clearInputBuffer.get( b, off, len );
-				return len;
+			if( !fill() ) {
+				return -1;
 			}
+			len = Math.min( len, clearInputBuffer.remaining() );
+			clearInputBuffer.get( b, off, len );
+			return len;
 		}
 
 		@Override
@@ -128,11 +146,8 @@ public class SSLProtocol extends SequentialCommProtocol {
 				return 0;
 			}
 
-			long skipped = 0;
-			while( skipped < n && clearInputBuffer.hasRemaining() ) {
-				clearInputBuffer.get();
-				++skipped;
-			}
+			final int skipped = (int) Math.min( n, clearInputBuffer.remaining() );
+			clearInputBuffer.position( clearInputBuffer.position() + skipped );
 			return skipped;
 		}
 
@@ -142,15 +157,30 @@ public class SSLProtocol extends SequentialCommProtocol {
 			return clearInputBuffer.remaining();
 		}
 
+		private void releaseIfEmpty() {
+			if( clearInputBuffer != EMPTY_BUFFER && !clearInputBuffer.hasRemaining() ) {
+				releaseBuffer( clearInputBuffer );
+				clearInputBuffer = EMPTY_BUFFER;
+			}
+		}
+
 		// close() not necessary, does nothing
 	}
 
 	private class SSLOutputStream extends OutputStream {
-		private final ByteBuffer internalBuffer = ByteBuffer.allocate( INITIAL_BUFFER_SIZE );
+		// Taken from the pool when something is written, and given back when flushed
+		private ByteBuffer internalBuffer = null;
+
+		private ByteBuffer buffer() {
+			if( internalBuffer == null ) {
+				internalBuffer = acquireBuffer( INITIAL_BUFFER_SIZE );
+			}
+			return internalBuffer;
+		}
 
 		private void writeCache()
 			throws IOException {
-			if( internalBuffer.hasRemaining() ) {
+			if( internalBuffer != null && internalBuffer.position() > 0 ) {
 				handshake();
 				internalBuffer.flip();
 				wrap( internalBuffer );
@@ -159,51 +189,55 @@ public class SSLProtocol extends SequentialCommProtocol {
 		}
 
 		@Override
-		public void write( int b )
+		public synchronized void write( int b )
 			throws IOException {
-			try {
-				internalBuffer.put( (byte) b );
-			} catch( BufferOverflowException e ) {
-				// let us retry after freeing the buffer
+			if( !buffer().hasRemaining() ) {
 				writeCache();
-				internalBuffer.put( (byte) b );
 			}
+			internalBuffer.put( (byte) b );
 		}
 
 		@Override
-		public void write( byte[] b, int off, int len )
+		public synchronized void write( byte[] b, int off, int len )
 			throws IOException {
-			try {
-
-				if( INITIAL_BUFFER_SIZE < (len - off) ) {
-					internalBuffer.put( b, off, (INITIAL_BUFFER_SIZE - 1) ); // otherwise it won't work in writeCache
-																				// wrt .remaining
-					writeCache();
-					write( b, (off + (INITIAL_BUFFER_SIZE - 1)), len );
-				} else {
-					internalBuffer.put( b, off, (len - off) );
+			while( len > 0 ) {
+				if( !buffer().hasRemaining() ) {
 					writeCache();
 				}
-			} catch( BufferOverflowException e ) {
-				throw new IOException( e.fillInStackTrace() );
+				final int n = Math.min( len, internalBuffer.remaining() );
+				internalBuffer.put( b, off, n );
+				off += n;
+				len -= n;
 			}
 		}
 
 		@Override
-		public void flush()
+		public synchronized void flush()
 			throws IOException {
 			writeCache();
+			if( internalBuffer != null ) {
+				releaseBuffer( internalBuffer );
+				internalBuffer = null;
+			}
+			if( unflushed ) {
+				unflushed = false;
+				outputStream.flush();
+			}
 		}
 
 		// close() not necessary, does nothing
 	}
 
-	private static class SSLResult {
-		private ByteBuffer buffer;
-		private SSLEngineResult log;
+	// An SSL context, together with the modification times of the files it was loaded from
+	private static class SharedContext {
+		private final SSLContext context;
+		private final long keyStoreModified;
+		private final long trustStoreModified;
 
-		public SSLResult( int capacity ) {
-			buffer = ByteBuffer.allocate( capacity );
+		private SharedContext( SSLContext context, long keyStoreModified, long trustStoreModified ) {
+			this.context = context;
+			this.keyStoreModified = keyStoreModified;
+			this.trustStoreModified = trustStoreModified;
 		}
 	}
 
@@ -212,11 +246,25 @@ public class SSLProtocol extends SequentialCommProtocol {
 		URI uri,
 		CommProtocol wrappedProtocol,
 		boolean isClient ) {
+		this( configurationPath, uri, wrappedProtocol, isClient, null );
+	}
+
+	/**
+	 * Creates a protocol that negotiates one of the given application protocols with ALPN (RFC 7301),
+	 * in order of preference.
+	 */
+	public SSLProtocol(
+		VariablePath configurationPath,
+		URI uri,
+		CommProtocol wrappedProtocol,
+		boolean isClient,
+		String[] applicationProtocols ) {
 		super( configurationPath );
 		this.wrappedProtocol = wrappedProtocol;
 		this.isClient = isClient;
 		this.firstTime = true;
 		this.location = uri;
+		this.applicationProtocols = applicationProtocols;
 	}
 
 	@Override
@@ -244,6 +292,47 @@ public class SSLProtocol extends SequentialCommProtocol {
 		return defaultValue;
 	}
 
+	/**
+	 * Returns the number of SSL handshakes completed by protocol instances of this kind.
+	 */
+	public static long handshakes() {
+		return HANDSHAKES.sum();
+	}
+
+	/**
+	 * Returns the number of SSL handshakes completed by protocol instances of this kind that resumed a
+	 * previous session.
+	 */
+	public static long resumedHandshakes() {
+		return RESUMED_HANDSHAKES.sum();
+	}
+
+	private static ByteBuffer acquireBuffer( int size ) {
+		final ByteBuffer buffer = BUFFER_POOL.poll();
+		if( buffer == null ) {
+			return ByteBuffer.allocate( size );
+		}
+		POOLED_BUFFERS.decrementAndGet();
+		if( buffer.capacity() < size ) {
+			// Sessions with larger records have been negotiated, this buffer is too small
+			return ByteBuffer.allocate( size );
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	private static void releaseBuffer( ByteBuffer buffer ) {
+		if( POOLED_BUFFERS.incrementAndGet() <= MAX_POOLED_BUFFERS ) {
+			BUFFER_POOL.offer( buffer );
+		} else {
+			POOLED_BUFFERS.decrementAndGet();
+		}
+	}
+
+	private static long lastModified( String filename ) {
+		return filename == null ? 0 : new File( filename ).lastModified();
+	}
+
 	private void init()
 		throws IOException {
 		// Set default parameters
@@ -256,9 +345,55 @@ public class SSLProtocol extends SequentialCommProtocol {
 				getSSLStringParameter( "trustStore",
 					System.getProperty( "java.home" ) + "/lib/security/cacerts".replace( '/', File.separatorChar ) ),
 			trustStorePassword = getSSLStringParameter( "trustStorePassword", null );
+		int sessionCacheSize = getSSLIntegerParameter( "sessionCacheSize", -1 ),
+			sessionTimeout = getSSLIntegerParameter( "sessionTimeout", -1 );
 		if( keyStoreFile == null && isClient == false ) {
 			throw new IOException( "Compulsory parameter needed for server mode: ssl.keyStore" );
 		}
+
+		final List< Object > key = Arrays.asList( protocol, keyStoreFormat, keyStoreFile, keyStorePassword,
+			trustStoreFormat, trustStoreFile, trustStorePassword, sessionCacheSize, sessionTimeout );
+		final long keyStoreModified = lastModified( keyStoreFile );
+		final long trustStoreModified = lastModified( trustStoreFile );
+		SharedContext shared = CONTEXTS.get( key );
+		if( shared == null || shared.keyStoreModified != keyStoreModified
+			|| shared.trustStoreModified != trustStoreModified ) {
+			// Not created yet, or the key store or the trust store have been replaced since
+			final SSLContext context = createContext( protocol, keyStoreFormat, keyStoreFile, keyStorePassword,
+				trustStoreFormat, trustStoreFile, trustStorePassword );
+			if( sessionCacheSize >= 0 ) {
+				context.getServerSessionContext().setSessionCacheSize( sessionCacheSize );
+				context.getClientSessionContext().setSessionCacheSize( sessionCacheSize );
+			}
+			if( sessionTimeout >= 0 ) {
+				context.getServerSessionContext().setSessionTimeout( sessionTimeout );
+				context.getClientSessionContext().setSessionTimeout( sessionTimeout );
+			}
+			shared = new SharedContext( context, keyStoreModified, trustStoreModified );
+			CONTEXTS.put( key, shared );
+		}
+
+		// Clients look up the sessions to resume by host and port
+		if( location.getHost() != null && location.getPort() != -1 ) {
+			sslEngine = shared.context.createSSLEngine( location.getHost(), location.getPort() );
+		} else {
+			sslEngine = shared.context.createSSLEngine();
+		}
+		sslEngine.setEnabledProtocols( new String[] { protocol } );
+		sslEngine.setUseClientMode( isClient );
+		if( applicationProtocols != null ) {
+			final SSLParameters parameters = sslEngine.getSSLParameters();
+			parameters.setApplicationProtocols( applicationProtocols );
+			sslEngine.setSSLParameters( parameters );
+		}
+		if( isClient == false ) {
+			sslEngine.setWantClientAuth( getSSLIntegerParameter( "wantClientAuth", 1 ) > 0 );
+		}
+	}
+
+	private static SSLContext createContext( String protocol, String keyStoreFormat, String keyStoreFile,
+		String keyStorePassword, String trustStoreFormat, String trustStoreFile, String trustStorePassword )
+		throws IOException {
 		try {
 			SSLContext context = SSLContext.getInstance( protocol );
 			KeyStore ks = KeyStore.getInstance( keyStoreFormat );
@@ -296,17 +431,7 @@ public class SSLProtocol extends SequentialCommProtocol {
 			tmf.init( ts );
 
 			context.init( kmf.getKeyManagers(), tmf.getTrustManagers(), null );
-
-			if( location.getHost() != null && location.getPort() != -1 ) {
-				sslEngine = context.createSSLEngine( location.getHost(), location.getPort() );
-			} else {
-				sslEngine = context.createSSLEngine();
-			}
-			sslEngine.setEnabledProtocols( new String[] { protocol } );
-			sslEngine.setUseClientMode( isClient );
-			if( isClient == false ) {
-				sslEngine.setWantClientAuth( getSSLIntegerParameter( "wantClientAuth", 1 ) > 0 );
-			}
+			return context;
 		} catch( NoSuchAlgorithmException | CertificateException | UnrecoverableKeyException | KeyStoreException
 			| KeyManagementException e ) {
 			throw new IOException( e );
@@ -327,6 +452,9 @@ public class SSLProtocol extends SequentialCommProtocol {
 		while( keepRun
 			&& sslEngine.getHandshakeStatus() != HandshakeStatus.FINISHED
 			&& sslEngine.getHandshakeStatus() != HandshakeStatus.NOT_HANDSHAKING ) {
+			if( handshakeStart < 0 ) {
+				handshakeStart = System.currentTimeMillis();
+			}
 			switch( sslEngine.getHandshakeStatus() ) {
 			case NEED_TASK:
 				while( (runnable = sslEngine.getDelegatedTask()) != null ) {
@@ -334,107 +462,164 @@ public class SSLProtocol extends SequentialCommProtocol {
 				}
 				break;
 			case NEED_WRAP:
-				wrap( ByteBuffer.allocate( INITIAL_BUFFER_SIZE ) );
+				wrap( EMPTY_BUFFER );
 				break;
 			case NEED_UNWRAP:
-				keepRun = unwrap( null );
+				// The other party cannot answer to what we did not send yet
+				flushOutput();
+				keepRun = unwrap();
 				if( sslEngine.isInboundDone() && sslEngine.isOutboundDone() ) {
 					keepRun = false;
 				}
 				break;
+			default:
+				keepRun = false;
+				break;
 			}
 		}
+		flushOutput();
+
+		if( handshakeStart >= 0 && sslEngine.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING ) {
+			HANDSHAKES.increment();
+			final SSLSession session = sslEngine.getSession();
+			if( session.getCreationTime() < handshakeStart ) {
+				// The session existed before this handshake started
+				RESUMED_HANDSHAKES.increment();
+			}
+			handshakeStart = -1;
+		}
 	}
 
-	private boolean unwrap( SSLInputStream sslInputStream )
+	private void flushOutput()
 		throws IOException {
+		if( unflushed ) {
+			unflushed = false;
+			outputStream.flush();
+		}
+	}
 
-		ByteBuffer cryptBuffer = ByteBuffer.allocate( 0 );
-		final SSLResult result = new SSLResult( INITIAL_BUFFER_SIZE );
-
-		boolean keepRun = true;
-		boolean returnResult = true;
-
-		while( keepRun ) {
-			result.log = sslEngine.unwrap( cryptBuffer, result.buffer );
-
-			switch( result.log.getStatus() ) {
-			case BUFFER_OVERFLOW:
-				final int appSize = sslEngine.getSession().getApplicationBufferSize();
-				// Resize "result.buffer" if needed
-				if( appSize > result.buffer.capacity() ) {
-					final ByteBuffer b = ByteBuffer.allocate( appSize );
-					result.buffer.flip();
-					b.put( result.buffer );
-					result.buffer = b;
-				} else {
-					result.buffer.compact();
-				}
-				break;
-			case BUFFER_UNDERFLOW:
-				final int netSize = sslEngine.getSession().getPacketBufferSize();
-				// Resize "cryptBuffer" if needed
-				if( netSize > cryptBuffer.capacity() ) {
-					final ByteBuffer b = ByteBuffer.allocate( netSize );
-					cryptBuffer.flip();
-					b.put( cryptBuffer );
-					cryptBuffer = b;
-				} else {
-					cryptBuffer.compact();
+	/*
+	 * Reads from inputStream the bytes missing for the next record to be complete. Whole records are
+	 * read, and nothing more, so that the data of the following messages remains available to the
+	 * input stream. Returns false if EOF has been reached.
+	 */
+	private boolean readRecord()
+		throws IOException {
+		int needed = RECORD_HEADER_SIZE - netInputBuffer.remaining();
+		if( needed <= 0 ) {
+			final int p = netInputBuffer.position();
+			needed = RECORD_HEADER_SIZE
+				+ (((netInputBuffer.get( p + 3 ) & 0xFF) << 8) | (netInputBuffer.get( p + 4 ) & 0xFF))
+				- netInputBuffer.remaining();
+		}
+		if( needed <= 0 ) {
+			return true;
+		}
+		final int size = Math.max( sslEngine.getSession().getPacketBufferSize(),
+			netInputBuffer.remaining() + needed );
+		if( netInputBuffer.capacity() < size ) {
+			final ByteBuffer b = acquireBuffer( size );
+			b.put( netInputBuffer );
+			if( netInputBuffer != EMPTY_BUFFER ) {
+				releaseBuffer( netInputBuffer );
+			}
+			netInputBuffer = b;
+		} else {
+			netInputBuffer.compact();
+		}
+		try {
+			final byte[] array = netInputBuffer.array();
+			while( needed > 0 ) {
+				final int n = inputStream.read( array, netInputBuffer.arrayOffset() + netInputBuffer.position(),
+					needed );
+				if( n < 0 ) {
+					return false;
 				}
+				netInputBuffer.position( netInputBuffer.position() + n );
+				needed -= n;
+			}
+		} finally {
+			netInputBuffer.flip();
+		}
+		return true;
+	}
 
-				int currByte = inputStream.read();
-				if( currByte >= 0 ) {
-					cryptBuffer.put( (byte) currByte );
-					cryptBuffer.flip();
-				} else {
-					// input stream EOF reached, we may not continue
-					returnResult = false;
-					keepRun = false;
-				}
-				break;
-			case CLOSED:
-				returnResult = false;
-			case OK:
-				if( result.log.bytesConsumed() > 0 && sslInputStream != null ) {
-					sslInputStream.clearInputBuffer = result.buffer;
-					sslInputStream.clearInputBuffer.flip();
+	/*
+	 * Decrypts the next record into the buffer of sslInputStream. Returns false if the connection has
+	 * been closed.
+	 */
+	private boolean unwrap()
+		throws IOException {
+		ByteBuffer clear = sslInputStream.clearInputBuffer;
+		if( clear == EMPTY_BUFFER ) {
+			clear = acquireBuffer( sslEngine.getSession().getApplicationBufferSize() );
+		} else {
+			clear.compact();
+		}
+
+		try {
+			while( true ) {
+				final SSLEngineResult result = sslEngine.unwrap( netInputBuffer, clear );
+				switch( result.getStatus() ) {
+				case BUFFER_OVERFLOW:
+					final ByteBuffer b =
+						acquireBuffer( clear.position() + sslEngine.getSession().getApplicationBufferSize() );
+					clear.flip();
+					b.put( clear );
+					releaseBuffer( clear );
+					clear = b;
+					break;
+				case BUFFER_UNDERFLOW:
+					if( !readRecord() ) {
+						// input stream EOF reached, we may not continue
+						return false;
+					}
+					break;
+				case CLOSED:
+					return false;
+				case OK:
+				default:
+					return true;
 				}
-				keepRun = false;
-				break;
+			}
+		} finally {
+			clear.flip();
+			sslInputStream.clearInputBuffer = clear;
+			if( !netInputBuffer.hasRemaining() && netInputBuffer != EMPTY_BUFFER ) {
+				releaseBuffer( netInputBuffer );
+				netInputBuffer = EMPTY_BUFFER;
 			}
 		}
-		return returnResult;
 	}
 
+	/*
+	 * Encrypts all the data in source and writes it to outputStream, without flushing it.
+	 */
 	private void wrap( ByteBuffer source )
 		throws IOException {
-		final SSLResult result = new SSLResult( source.capacity() );
-		result.log = sslEngine.wrap( source, result.buffer );
-		while( result.log.getStatus() == Status.BUFFER_OVERFLOW ) {
-			// final int appSize = sslEngine.getSession().getApplicationBufferSize();
-			// Resize "result.buffer" if needed
-			// if ( appSize > result.buffer.capacity() ) {
-			// final ByteBuffer b = ByteBuffer.allocate( appSize );
-			// result.buffer.flip();
-			// b.put( result.buffer );
-			// result.buffer = b;
-			// } else {
-			// result.buffer.compact();
-			// }
-			// From the docs: "The size of the outbound application data buffer generally does not matter."
-			// For the time being we can double it and later implement some smarter optimisations.
-			result.buffer = ByteBuffer.allocate( result.buffer.capacity() * 2 );
-
-			result.log = sslEngine.wrap( source, result.buffer );
-		}
-		// must be Status.OK or Status.CLOSED here
-		if( result.log.bytesProduced() > 0 ) {
-			final WritableByteChannel outputChannel = Channels.newChannel( outputStream );
-			result.buffer.flip();
-			while( result.buffer.hasRemaining() )
-				outputChannel.write( result.buffer );
-			outputStream.flush();
+		ByteBuffer buffer = acquireBuffer( sslEngine.getSession().getPacketBufferSize() );
+		try {
+			while( true ) {
+				buffer.clear();
+				final SSLEngineResult result = sslEngine.wrap( source, buffer );
+				if( result.getStatus() == Status.BUFFER_OVERFLOW ) {
+					// The session has grown its packet size
+					final int size = Math.max( buffer.capacity() * 2, sslEngine.getSession().getPacketBufferSize() );
+					releaseBuffer( buffer );
+					buffer = acquireBuffer( size );
+					continue;
+				}
+				if( result.bytesProduced() > 0 ) {
+					outputStream.write( buffer.array(), buffer.arrayOffset(), buffer.position() );
+					unflushed = true;
+				}
+				if( result.getStatus() == Status.CLOSED || !source.hasRemaining()
+					|| (result.bytesConsumed() == 0 && result.bytesProduced() == 0) ) {
+					break;
+				}
+			}
+		} finally {
+			releaseBuffer( buffer );
 		}
 	}
 
@@ -464,6 +649,7 @@ public class SSLProtocol extends SequentialCommProtocol {
 
 		CommMessage message = wrappedProtocol.recv( sslInputStream, sslOutputStream );
 		sslOutputStream.flush();
+		sslInputStream.releaseIfEmpty();
 		return message;
 	}
 }
@@ -26,6 +26,7 @@ import jolie.runtime.Value;
 
 import java.net.MalformedURLException;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,18 +36,29 @@ public class UriUtils {
 	}
 
 	public static Value match( String template, String uri ) {
-		UriTemplate t = UriTemplate.fromTemplate( template );
-		Pattern p = UriTemplateMatcherFactory.getReverseMatchPattern( t );
-		Matcher m = p.matcher( uri );
-		Value response = Value.create();
-		boolean matches = m.matches();
-		response.setValue( matches );
-		if( matches ) {
-			for( String param : t.getVariables() ) {
-				response.setFirstChild( param, m.group( param ) );
+		return matcher( template ).apply( uri );
+	}
+
+	/**
+	 * Compiles a URI template for matching. The returned function gives the same results as
+	 * {@link #match(String, String)} with the given template, without parsing the template again.
+	 */
+	public static Function< String, Value > matcher( String template ) {
+		final UriTemplate t = UriTemplate.fromTemplate( template );
+		final Pattern p = UriTemplateMatcherFactory.getReverseMatchPattern( t );
+		final String[] variables = t.getVariables();
+		return uri -> {
+			Matcher m = p.matcher( uri );
+			Value response = Value.create();
+			boolean matches = m.matches();
+			response.setValue( matches );
+			if( matches ) {
+				for( String param : variables ) {
+					response.setFirstChild( param, m.group( param ) );
+				}
 			}
-		}
-		return response;
+			return response;
+		};
 	}
 
 	public static String expand( String template, Map< String, Object > params ) throws MalformedURLException {
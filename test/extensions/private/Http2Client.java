@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2026 by the Jolie contributors
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Calls the identity operation of a Jolie http2 input port with the HTTP/2 client of the JDK, which
+ * upgrades plain connections with "Upgrade: h2c" and negotiates h2 with ALPN over TLS. It is run as
+ * a single-file source program by extensions/http2_java_client.ol.
+ *
+ * Usage: java Http2Client.java url...
+ *
+ * The exit status is 0 if every response was received over HTTP/2 and echoes its request.
+ */
+public class Http2Client {
+	private static final int CONCURRENT_REQUESTS = 8;
+
+	public static void main( String[] args )
+		throws Exception {
+		final HttpClient client = HttpClient.newBuilder().version( HttpClient.Version.HTTP_2 ).build();
+		for( String url : args ) {
+			// The first request sets up the connection, the next ones are streams of the same connection
+			check( url, "first", client.send( request( url, "first" ), HttpResponse.BodyHandlers.ofString() ) );
+			final List< CompletableFuture< HttpResponse< String > > > responses = new ArrayList<>();
+			for( int i = 0; i < CONCURRENT_REQUESTS; i++ ) {
+				responses.add(
+					client.sendAsync( request( url, "request" + i ), HttpResponse.BodyHandlers.ofString() ) );
+			}
+			for( int i = 0; i < CONCURRENT_REQUESTS; i++ ) {
+				check( url, "request" + i, responses.get( i ).join() );
+			}
+		}
+	}
+
+	private static HttpRequest request( String url, String body ) {
+		return HttpRequest.newBuilder( URI.create( url ) )
+			.header( "Content-Type", "text/plain" )
+			.POST( HttpRequest.BodyPublishers.ofString( body ) )
+			.build();
+	}
+
+	private static void check( String url, String body, HttpResponse< String > response ) {
+		if( response.version() != HttpClient.Version.HTTP_2 || response.statusCode() != 200
+			|| !body.equals( response.body() ) ) {
+			System.err.println( url + ": expected " + body + " over HTTP_2, received " + response.statusCode()
+				+ " " + response.body() + " over " + response.version() );
+			System.exit( 1 );
+		}
+	}
+}